@@ -0,0 +1,66 @@
+package weiner.noah.openglbufftesting;
+
+//a texture TextureLoader is still bringing in. until its pixels are on the GPU getTextureId() hands out the loader's placeholder, so
+//whoever draws with it can do so from the first frame; the real name shows up the frame the upload finishes (TextureLoader.update()
+//says how many did, so the caller knows to redraw)
+public class AsyncTexture {
+    public enum State {
+        PENDING,    //decoding on a worker thread
+        DECODED,    //pixels ready, waiting for (or in the middle of) an upload
+        READY,      //on the GPU
+        FAILED      //the source threw; stays on the placeholder
+    }
+
+    private final TextureLoader loader;
+    private final TextureSource source;
+    private final int filter;
+
+    //the state changes on the decode threads as well as the GL thread; everything else is the GL thread's
+    volatile State state = State.PENDING;
+    volatile int request;
+    volatile RuntimeException error;
+    int name;
+    int width, height;
+
+    AsyncTexture(TextureLoader loader, TextureSource source, int filter) {
+        this.loader = loader;
+        this.source = source;
+        this.filter = filter;
+    }
+
+    //the name to bind: the real texture once it's ready, the placeholder before that. GL thread
+    public int getTextureId() {
+        return state == State.READY ? name : loader.getPlaceholder();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    //what the source threw, if it failed
+    public RuntimeException getError() {
+        return error;
+    }
+
+    public TextureSource getSource() {
+        return source;
+    }
+
+    //GL_NEAREST or GL_LINEAR, for both minification and magnification
+    public int getFilter() {
+        return filter;
+    }
+
+    //size of the real texture; 0 until it's ready
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
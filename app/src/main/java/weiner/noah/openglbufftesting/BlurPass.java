@@ -0,0 +1,62 @@
+package weiner.noah.openglbufftesting;
+
+//one direction of a separable gaussian blur; run a horizontal and a vertical pass back to back for the full 2D blur.
+//9 taps' worth of weights read with 5 texture fetches: the outer pairs of taps are merged into single linear-filtered fetches placed
+//between them, which the RenderTarget's GL_LINEAR filtering makes free.
+public class BlurPass extends PostPass {
+    private final float directionX, directionY;
+    private float radius = 1f;
+
+    //(directionX, directionY) is (1, 0) for horizontal or (0, 1) for vertical
+    public BlurPass(String name, float directionX, float directionY) {
+        super(name, 1f, null);
+        this.directionX = directionX;
+        this.directionY = directionY;
+    }
+
+    public static BlurPass horizontal() {
+        return new BlurPass("blur x", 1f, 0f);
+    }
+
+    public static BlurPass vertical() {
+        return new BlurPass("blur y", 0f, 1f);
+    }
+
+    //spread of the taps in texels; 1 is the plain 9 tap kernel, more widens it at the cost of some ringing
+    public void setRadius(float radius) {
+        if (radius < 0f) {
+            throw new IllegalArgumentException(String.format("Blur radius can't be negative, got %f", radius));
+        }
+        this.radius = radius;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    private static final int U_DIRECTION = BASE_UNIFORMS;
+
+    @Override
+    protected String[] extraUniforms() {
+        return new String[] {"u_Direction"};
+    }
+
+    @Override
+    protected void setUniforms(Gles gl, ShaderProgram program) {
+        gl.glUniform2f(program.uniformLocation(U_DIRECTION), directionX * radius, directionY * radius);
+    }
+
+    @Override
+    protected String fragmentShaderBody() {
+        return "uniform vec2 u_Direction;" +
+                "void main() {" +
+                "vec2 offset = u_Direction * u_TexelSize;" +
+                "vec4 sum = texture2D(u_Texture, v_TexCoordinate) * 0.2270270270;" +
+                "sum += texture2D(u_Texture, v_TexCoordinate + offset * 1.3846153846) * 0.3162162162;" +
+                "sum += texture2D(u_Texture, v_TexCoordinate - offset * 1.3846153846) * 0.3162162162;" +
+                "sum += texture2D(u_Texture, v_TexCoordinate + offset * 3.2307692308) * 0.0702702703;" +
+                "sum += texture2D(u_Texture, v_TexCoordinate - offset * 3.2307692308) * 0.0702702703;" +
+                "gl_FragColor = sum;" +
+                "}";
+    }
+}
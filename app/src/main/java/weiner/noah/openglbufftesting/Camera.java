@@ -0,0 +1,61 @@
+package weiner.noah.openglbufftesting;
+
+//view and projection matrices plus their product, each rebuilt only after the inputs behind it were set.
+//the renderer sets the eye once and the projection when the surface changes, so on an ordinary frame this is three array reads.
+public class Camera {
+    private final float[] view = new float[16];
+    private final float[] projection = new float[16];
+    private final float[] viewProjection = new float[16];
+
+    private boolean viewProjectionDirty;
+    private int version;
+
+    public Camera() {
+        Mat4.setIdentity(view, 0);
+        Mat4.setIdentity(projection, 0);
+        Mat4.setIdentity(viewProjection, 0);
+    }
+
+    public void setLookAt(float eyeX, float eyeY, float eyeZ, float centerX, float centerY, float centerZ, float upX, float upY, float upZ) {
+        Mat4.setLookAt(view, 0, eyeX, eyeY, eyeZ, centerX, centerY, centerZ, upX, upY, upZ);
+        changed();
+    }
+
+    public void setFrustum(float left, float right, float bottom, float top, float near, float far) {
+        Mat4.setFrustum(projection, 0, left, right, bottom, top, near, far);
+        changed();
+    }
+
+    public void setPerspective(float fovyDegrees, float aspect, float near, float far) {
+        Mat4.setPerspective(projection, 0, fovyDegrees, aspect, near, far);
+        changed();
+    }
+
+    private void changed() {
+        viewProjectionDirty = true;
+        version++;
+    }
+
+    //don't modify the returned arrays
+    public float[] getView() {
+        return view;
+    }
+
+    public float[] getProjection() {
+        return projection;
+    }
+
+    //projection * view
+    public float[] getViewProjection() {
+        if (viewProjectionDirty) {
+            Mat4.multiply(viewProjection, 0, projection, 0, view, 0);
+            viewProjectionDirty = false;
+        }
+        return viewProjection;
+    }
+
+    //changes whenever the view or projection does
+    public int getVersion() {
+        return version;
+    }
+}
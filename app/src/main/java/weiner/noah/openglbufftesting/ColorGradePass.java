@@ -0,0 +1,68 @@
+package weiner.noah.openglbufftesting;
+
+//brightness, contrast and saturation in one pass. the defaults leave the picture as it is
+public class ColorGradePass extends PostPass {
+    private float brightness = 0f;
+    private float contrast = 1f;
+    private float saturation = 1f;
+
+    public ColorGradePass() {
+        super("color grade", 1f, null);
+    }
+
+    //added to every channel, -1..1
+    public void setBrightness(float brightness) {
+        this.brightness = brightness;
+    }
+
+    //scale around mid grey; 1 is unchanged
+    public void setContrast(float contrast) {
+        this.contrast = contrast;
+    }
+
+    //0 is greyscale, 1 is unchanged, above 1 oversaturates
+    public void setSaturation(float saturation) {
+        this.saturation = saturation;
+    }
+
+    public float getBrightness() {
+        return brightness;
+    }
+
+    public float getContrast() {
+        return contrast;
+    }
+
+    public float getSaturation() {
+        return saturation;
+    }
+
+    private static final int U_BRIGHTNESS = BASE_UNIFORMS, U_CONTRAST = BASE_UNIFORMS + 1, U_SATURATION = BASE_UNIFORMS + 2;
+
+    @Override
+    protected String[] extraUniforms() {
+        return new String[] {"u_Brightness", "u_Contrast", "u_Saturation"};
+    }
+
+    @Override
+    protected void setUniforms(Gles gl, ShaderProgram program) {
+        gl.glUniform1f(program.uniformLocation(U_BRIGHTNESS), brightness);
+        gl.glUniform1f(program.uniformLocation(U_CONTRAST), contrast);
+        gl.glUniform1f(program.uniformLocation(U_SATURATION), saturation);
+    }
+
+    @Override
+    protected String fragmentShaderBody() {
+        return "uniform float u_Brightness;" +
+                "uniform float u_Contrast;" +
+                "uniform float u_Saturation;" +
+                "void main() {" +
+                "vec4 color = texture2D(u_Texture, v_TexCoordinate);" +
+                "vec3 rgb = color.rgb + u_Brightness;" +
+                "rgb = (rgb - 0.5) * u_Contrast + 0.5;" +
+                "float luma = dot(rgb, vec3(0.299, 0.587, 0.114));" +   //rec. 601 weights
+                "rgb = mix(vec3(luma), rgb, u_Saturation);" +
+                "gl_FragColor = vec4(clamp(rgb, 0.0, 1.0), color.a);" +
+                "}";
+    }
+}
@@ -0,0 +1,81 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.Arrays;
+
+//one frame's scene draws, recorded ahead of time so the GL thread only has to replay them: the culling, matrix math and sorting that
+//produced it can run on another thread (see CommandBufferPipeline). what's recorded is the sorted list of renderables, each with its MVP
+//matrix; replay() calls each one's draw() in that order, so the GL side still runs every drawable's own draw path (program, uniforms,
+//textures, attributes), with the state cache dropping what repeats between neighbours. the frame's view-projection matrix and dirty
+//region travel with the draws, since the GL side needs both.
+//both arrays grow to the largest frame seen and are reused after reset(), so steady state recording and replay don't allocate
+public class CommandBuffer {
+    private Renderable[] renderables;
+    private float[] matrices;
+    private int drawCount;
+
+    private final float[] viewProjection = new float[16];
+    private final DirtyRegion dirty = new DirtyRegion();
+    private final float[] mvp = new float[16];
+
+    public CommandBuffer(int initialDraws) {
+        if (initialDraws <= 0) {
+            throw new IllegalArgumentException(String.format("Command buffer capacity must be positive, got %d", initialDraws));
+        }
+        renderables = new Renderable[initialDraws];
+        matrices = new float[initialDraws * 16];
+    }
+
+    //start recording a frame seen through viewProjection (copied), dropping whatever was recorded before
+    public void begin(float[] viewProjection) {
+        reset();
+        System.arraycopy(viewProjection, 0, this.viewProjection, 0, 16);
+    }
+
+    //forget the recorded frame, keeping the storage
+    public void reset() {
+        Arrays.fill(renderables, 0, drawCount, null);
+        drawCount = 0;
+        dirty.clear();
+    }
+
+    //draw renderable with the 16 floats at offset in matrices as its MVP matrix (copied)
+    public void draw(Renderable renderable, float[] matrices, int offset) {
+        if (drawCount == renderables.length) {
+            renderables = Arrays.copyOf(renderables, drawCount * 2);
+            this.matrices = Arrays.copyOf(this.matrices, drawCount * 2 * 16);
+        }
+        renderables[drawCount] = renderable;
+        System.arraycopy(matrices, offset, this.matrices, drawCount * 16, 16);
+        drawCount++;
+    }
+
+    //draw the recorded renderables in order. GL thread
+    public void replay() {
+        for (int i = 0; i < drawCount; i++) {
+            System.arraycopy(matrices, i * 16, mvp, 0, 16);
+            renderables[i].draw(mvp);
+        }
+    }
+
+    public float[] getViewProjection() {
+        return viewProjection;
+    }
+
+    //what changed on screen since the frame recorded before this one; the recorder fills it in
+    public DirtyRegion getDirtyRegion() {
+        return dirty;
+    }
+
+    public int getDrawCount() {
+        return drawCount;
+    }
+
+    //the i-th recorded draw's renderable, and its MVP matrix
+    public Renderable getRenderable(int i) {
+        return renderables[i];
+    }
+
+    public float getMatrix(int i, int element) {
+        return matrices[i * 16 + element];
+    }
+}
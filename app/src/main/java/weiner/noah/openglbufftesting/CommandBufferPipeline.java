@@ -0,0 +1,182 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+//splits frames between a producer thread and the GL thread: the producer records the scene's draws into CommandBuffers (simulation
+//poses, culling, matrices, sorting: FrameRenderer.record()) while the GL thread replays the one before (FrameRenderer.drawFrame()).
+//with 2 buffers the producer records frame N+1 while frame N is submitted; with 3 it can be a whole frame further ahead, which soaks up
+//uneven frame times at the cost of a frame more latency.
+//buffers go round through two queues, free and recorded, so frames are replayed in the order they were recorded (each one's dirty
+//region is relative to the one before) and none is ever dropped. the producer blocks when it runs out of free buffers, the GL thread
+//when nothing has been recorded yet. the queues are array backed, so once running nothing allocates per frame.
+//the producer thread is the only one allowed to touch the scene while it runs: stop() it before rebuilding the scene or changing the
+//camera, and discard() frames recorded from a scene that's gone
+public class CommandBufferPipeline implements Runnable {
+    //how long acquire() waits between checks that the producer is still running
+    private static final long POLL_NANOS = 50_000_000L;
+
+    //the CPU half of a frame
+    public interface Producer {
+        //record the next frame into out, e.g. with FrameRenderer.record(). producer thread. stop() interrupts it and waits for this to
+        //return, so anything in here that blocks should give up when interrupted
+        void produce(CommandBuffer out);
+    }
+
+    private final Producer producer;
+    private final ArrayBlockingQueue<CommandBuffer> free, recorded;
+    private final FrameProfiler.Clock clock;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    //stats
+    private volatile long framesRecorded, recordNanos;
+    private long framesReplayed, waitNanos;
+
+    public CommandBufferPipeline(Producer producer, int buffers, int initialDraws, FrameProfiler.Clock clock) {
+        if (buffers < 2) {
+            throw new IllegalArgumentException(String.format("A pipeline needs at least 2 buffers, got %d", buffers));
+        }
+        this.producer = producer;
+        this.clock = clock;
+        free = new ArrayBlockingQueue<>(buffers);
+        recorded = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            free.add(new CommandBuffer(initialDraws));
+        }
+    }
+
+    public CommandBufferPipeline(Producer producer, int buffers, int initialDraws) {
+        this(producer, buffers, initialDraws, FrameProfiler.SYSTEM_CLOCK);
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "frame producer");
+        thread.start();
+    }
+
+    //stop recording and wait for the producer to finish the frame it's on. frames already recorded stay queued
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        thread.interrupt();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        thread = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    //throw away recorded frames that haven't been replayed, e.g. ones that still point at a lost context's drawables. stopped only;
+    //whatever they would have redrawn has to be redrawn some other way (FrameRenderer.markAllDirty())
+    public synchronized void discard() {
+        if (thread != null) {
+            throw new IllegalStateException("Can't discard frames while the producer is running");
+        }
+        for (CommandBuffer frame; (frame = recorded.poll()) != null; ) {
+            frame.reset();
+            free.add(frame);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            CommandBuffer frame;
+            try {
+                frame = free.take();
+            }
+            catch (InterruptedException e) {
+                //stop()
+                continue;
+            }
+            long start = clock.nanoTime();
+            producer.produce(frame);
+            recordNanos += clock.nanoTime() - start;
+            framesRecorded++;
+            //there's always room: a buffer is only ever in one place
+            recorded.add(frame);
+        }
+    }
+
+    //the oldest recorded frame, waiting for the producer if it hasn't got one yet; null if it's stopped with nothing recorded.
+    //GL thread; hand the frame back with release() once it's drawn
+    public CommandBuffer acquire() {
+        long start = clock.nanoTime();
+        CommandBuffer frame = recorded.poll();
+        boolean interrupted = false;
+        while (frame == null && running) {
+            try {
+                frame = recorded.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (frame == null) {
+            //stopped after the last check: it may still have got one in
+            frame = recorded.poll();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        waitNanos += clock.nanoTime() - start;
+        return frame;
+    }
+
+    //give a replayed frame back to the producer to record into again. GL thread
+    public void release(CommandBuffer frame) {
+        frame.reset();
+        framesReplayed++;
+        free.add(frame);
+    }
+
+    //frames recorded and not yet acquired
+    public int getQueuedFrames() {
+        return recorded.size();
+    }
+
+    public long getFramesRecorded() {
+        return framesRecorded;
+    }
+
+    public long getFramesReplayed() {
+        return framesReplayed;
+    }
+
+    //average time the producer spent on a frame, and the GL thread waiting for one, in milliseconds
+    public double getAverageRecordMs() {
+        long frames = framesRecorded;
+        return frames == 0 ? 0 : recordNanos / 1e6 / frames;
+    }
+
+    public double getAverageWaitMs() {
+        return framesReplayed == 0 ? 0 : waitNanos / 1e6 / framesReplayed;
+    }
+
+    //GL thread
+    public String report() {
+        return String.format("Command buffers: %d recorded (%.2f ms each), %d replayed (%.2f ms waiting for each), %d queued", framesRecorded,
+                getAverageRecordMs(), framesReplayed, getAverageWaitMs(), recorded.size());
+    }
+}
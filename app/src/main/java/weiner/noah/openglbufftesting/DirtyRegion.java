@@ -0,0 +1,110 @@
+package weiner.noah.openglbufftesting;
+
+//the part of a frame that has to be redrawn: one rectangle in normalized device coordinates (-1..1, y up) growing to cover everything
+//added to it. one rectangle rather than a list, since a scissor box is one rectangle anyway and the union of two small moves is cheap.
+public class DirtyRegion {
+    private float left, bottom, right, top;
+    private boolean empty = true;
+
+    //nothing to redraw
+    public void clear() {
+        empty = true;
+    }
+
+    //redraw everything
+    public void markAll() {
+        left = bottom = -1f;
+        right = top = 1f;
+        empty = false;
+    }
+
+    //grow to cover (left, bottom)..(right, top), clipped to the screen
+    public void add(float left, float bottom, float right, float top) {
+        left = Math.max(left, -1f);
+        bottom = Math.max(bottom, -1f);
+        right = Math.min(right, 1f);
+        top = Math.min(top, 1f);
+        if (left >= right || bottom >= top) {
+            return;
+        }
+        if (empty) {
+            this.left = left;
+            this.bottom = bottom;
+            this.right = right;
+            this.top = top;
+            empty = false;
+        }
+        else {
+            this.left = Math.min(this.left, left);
+            this.bottom = Math.min(this.bottom, bottom);
+            this.right = Math.max(this.right, right);
+            this.top = Math.max(this.top, top);
+        }
+    }
+
+    public void add(DirtyRegion other) {
+        if (!other.empty) {
+            add(other.left, other.bottom, other.right, other.top);
+        }
+    }
+
+    public void set(DirtyRegion other) {
+        left = other.left;
+        bottom = other.bottom;
+        right = other.right;
+        top = other.top;
+        empty = other.empty;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public boolean isFull() {
+        return !empty && left <= -1f && bottom <= -1f && right >= 1f && top >= 1f;
+    }
+
+    //the region as a window space box (x, y, width, height) on a width x height surface, rounded outwards to whole pixels plus one more,
+    //so linear filtering between differently sized targets can't pick up a changed pixel just outside it.
+    //mirrored flips it through the center, for a picture that gets drawn rotated 180 degrees
+    public void toWindow(int width, int height, boolean mirrored, int[] box) {
+        float l = mirrored ? -right : left;
+        float r = mirrored ? -left : right;
+        float b = mirrored ? -top : bottom;
+        float t = mirrored ? -bottom : top;
+        int x0 = Math.max(0, (int) Math.floor((l + 1f) * 0.5f * width) - 1);
+        int y0 = Math.max(0, (int) Math.floor((b + 1f) * 0.5f * height) - 1);
+        int x1 = Math.min(width, (int) Math.ceil((r + 1f) * 0.5f * width) + 1);
+        int y1 = Math.min(height, (int) Math.ceil((t + 1f) * 0.5f * height) + 1);
+        box[0] = x0;
+        box[1] = y0;
+        box[2] = Math.max(0, x1 - x0);
+        box[3] = Math.max(0, y1 - y0);
+    }
+
+    //fraction of the screen covered, 0..1
+    public float getArea() {
+        return empty ? 0f : (right - left) * (top - bottom) * 0.25f;
+    }
+
+    public float getLeft() {
+        return left;
+    }
+
+    public float getBottom() {
+        return bottom;
+    }
+
+    public float getRight() {
+        return right;
+    }
+
+    public float getTop() {
+        return top;
+    }
+
+    @Override
+    public String toString() {
+        return empty ? "empty" : String.format("(%.3f, %.3f)..(%.3f, %.3f)", left, bottom, right, top);
+    }
+}
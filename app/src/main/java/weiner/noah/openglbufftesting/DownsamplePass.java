@@ -0,0 +1,21 @@
+package weiner.noah.openglbufftesting;
+
+//halves the picture in each direction, averaging each 2x2 block with one linear-filtered fetch per corner of a 4 tap box.
+//put it in front of the blurs: they then run on a quarter of the pixels and cover twice the radius
+public class DownsamplePass extends PostPass {
+    public DownsamplePass() {
+        super("downsample", 0.5f, null);
+    }
+
+    @Override
+    protected String fragmentShaderBody() {
+        return "void main() {" +
+                "vec2 halfTexel = u_TexelSize * 0.5;" +
+                "vec4 sum = texture2D(u_Texture, v_TexCoordinate + vec2(-halfTexel.x, -halfTexel.y));" +
+                "sum += texture2D(u_Texture, v_TexCoordinate + vec2(halfTexel.x, -halfTexel.y));" +
+                "sum += texture2D(u_Texture, v_TexCoordinate + vec2(-halfTexel.x, halfTexel.y));" +
+                "sum += texture2D(u_Texture, v_TexCoordinate + vec2(halfTexel.x, halfTexel.y));" +
+                "gl_FragColor = sum * 0.25;" +
+                "}";
+    }
+}
@@ -0,0 +1,313 @@
+package weiner.noah.openglbufftesting;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+//lots of quad instances (position, rotation about z, scale, color, texture, flags) kept as parallel primitive arrays instead of one
+//object each, so a loop over one property walks one contiguous array.
+//instances are packed at the front of the arrays in no particular order: remove() moves the last one into the hole, so the arrays
+//never have gaps. callers hold int handles instead, which stay valid however the instances get moved around; a handle carries its
+//slot's generation, so one left over from a removed instance is recognized as dead instead of reaching whatever took its slot.
+//writeInstances() turns every shown instance into InstancedQuadBatch's per-instance layout (model matrix, then rgba bytes) in a direct
+//native order buffer that is streamed to the GPU as it is (InstancedQuadBatch.draw(EntityStore)).
+//arrays grow to the most instances ever held and are reused; creating, removing and writing don't allocate once they're that big
+public class EntityStore {
+    //set by the owner; writeInstances() skips hidden instances
+    public static final int HIDDEN = 1;
+
+    //a handle is a slot index in the low bits and that slot's generation above them
+    private static final int SLOT_BITS = 20;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - SLOT_BITS)) - 1;
+    public static final int MAX_INSTANCES = 1 << SLOT_BITS;
+
+    private static final int ONE = Float.floatToRawIntBits(1f);
+
+    //per instance, packed: [0, count)
+    private float[] x, y, z;
+    private float[] cos, sin;
+    private float[] scaleX, scaleY;
+    private int[] color, texture, flags;
+    private int[] slotOf;
+    private int count;
+
+    //per slot: where its instance is packed (-1 if free) and its generation; free slots are a stack
+    private int[] indexOf, generation;
+    private int[] freeSlots;
+    private int freeCount, slotCount;
+
+    //what writeInstances() wrote: the instance data, and each written instance's texture. the data is put together in a plain int[]
+    //first and goes into the direct buffer in one bulk put, like InstancedQuadBatch.add()'s; 17 bounds checked puts per instance
+    //straight into the direct buffer cost more than the copy
+    private int[] instanceWords;
+    private ByteBuffer instances;
+    private IntBuffer instanceInts;
+    private int[] instanceTexture;
+    private int written;
+
+    public EntityStore(int initialCapacity) {
+        if (initialCapacity <= 0 || initialCapacity > MAX_INSTANCES) {
+            throw new IllegalArgumentException(String.format("Entity store capacity must be between 1 and %d, got %d", MAX_INSTANCES,
+                    initialCapacity));
+        }
+        x = new float[initialCapacity];
+        y = new float[initialCapacity];
+        z = new float[initialCapacity];
+        cos = new float[initialCapacity];
+        sin = new float[initialCapacity];
+        scaleX = new float[initialCapacity];
+        scaleY = new float[initialCapacity];
+        color = new int[initialCapacity];
+        texture = new int[initialCapacity];
+        flags = new int[initialCapacity];
+        slotOf = new int[initialCapacity];
+        indexOf = new int[initialCapacity];
+        generation = new int[initialCapacity];
+        freeSlots = new int[initialCapacity];
+        instanceTexture = new int[initialCapacity];
+        allocateInstances(initialCapacity);
+    }
+
+    private void allocateInstances(int capacity) {
+        instanceWords = new int[capacity * InstancedQuadBatch.INSTANCE_WORDS];
+        instances = ByteBuffer.allocateDirect(capacity * InstancedQuadBatch.INSTANCE_STRIDE).order(ByteOrder.nativeOrder());
+        instanceInts = instances.asIntBuffer();
+    }
+
+    //a new instance at (x, y, z), unrotated, unscaled, opaque white, untextured and shown; returns its handle
+    public int create(float x, float y, float z) {
+        if (count == MAX_INSTANCES) {
+            throw new IllegalStateException(String.format("An entity store holds at most %d instances", MAX_INSTANCES));
+        }
+        if (count == this.x.length) {
+            grow(Math.min(MAX_INSTANCES, count * 2));
+        }
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+        int i = count++;
+        indexOf[slot] = i;
+        slotOf[i] = slot;
+
+        this.x[i] = x;
+        this.y[i] = y;
+        this.z[i] = z;
+        cos[i] = 1f;
+        sin[i] = 0f;
+        scaleX[i] = 1f;
+        scaleY[i] = 1f;
+        color[i] = 0xffffffff;
+        texture[i] = 0;
+        flags[i] = 0;
+        return generation[slot] << SLOT_BITS | slot;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        cos = Arrays.copyOf(cos, capacity);
+        sin = Arrays.copyOf(sin, capacity);
+        scaleX = Arrays.copyOf(scaleX, capacity);
+        scaleY = Arrays.copyOf(scaleY, capacity);
+        color = Arrays.copyOf(color, capacity);
+        texture = Arrays.copyOf(texture, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        slotOf = Arrays.copyOf(slotOf, capacity);
+        indexOf = Arrays.copyOf(indexOf, capacity);
+        generation = Arrays.copyOf(generation, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+        instanceTexture = Arrays.copyOf(instanceTexture, capacity);
+        //rewritten in full by every writeInstances(), so nothing to carry over
+        allocateInstances(capacity);
+        written = 0;
+    }
+
+    //drop the instance: the last packed instance moves into its place, and its handle stops being valid
+    public void remove(int handle) {
+        int i = index(handle);
+        int slot = handle & SLOT_MASK;
+        int last = --count;
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            z[i] = z[last];
+            cos[i] = cos[last];
+            sin[i] = sin[last];
+            scaleX[i] = scaleX[last];
+            scaleY[i] = scaleY[last];
+            color[i] = color[last];
+            texture[i] = texture[last];
+            flags[i] = flags[last];
+            slotOf[i] = slotOf[last];
+            indexOf[slotOf[i]] = i;
+        }
+        indexOf[slot] = -1;
+        generation[slot] = (generation[slot] + 1) & GENERATION_MASK;
+        freeSlots[freeCount++] = slot;
+    }
+
+    //forget every instance; all handles stop being valid
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            int slot = slotOf[i];
+            indexOf[slot] = -1;
+            generation[slot] = (generation[slot] + 1) & GENERATION_MASK;
+            freeSlots[freeCount++] = slot;
+        }
+        count = 0;
+        written = 0;
+    }
+
+    public boolean contains(int handle) {
+        int slot = handle & SLOT_MASK;
+        return handle >= 0 && slot < slotCount && indexOf[slot] >= 0 && generation[slot] == handle >>> SLOT_BITS;
+    }
+
+    //where the handle's instance is packed right now: valid until the next remove()
+    public int index(int handle) {
+        if (!contains(handle)) {
+            throw new IllegalArgumentException(String.format("Handle %#x isn't a live instance", handle));
+        }
+        return indexOf[handle & SLOT_MASK];
+    }
+
+    //the handle of the instance packed at index
+    public int handle(int index) {
+        int slot = slotOf[index];
+        return generation[slot] << SLOT_BITS | slot;
+    }
+
+    public void setPosition(int handle, float x, float y, float z) {
+        int i = index(handle);
+        this.x[i] = x;
+        this.y[i] = y;
+        this.z[i] = z;
+    }
+
+    //counterclockwise about z, in degrees like Transform's
+    public void setRotation(int handle, float degrees) {
+        int i = index(handle);
+        double radians = Math.toRadians(degrees);
+        cos[i] = (float) Math.cos(radians);
+        sin[i] = (float) Math.sin(radians);
+    }
+
+    public void setScale(int handle, float scaleX, float scaleY) {
+        int i = index(handle);
+        this.scaleX[i] = scaleX;
+        this.scaleY[i] = scaleY;
+    }
+
+    public void setColor(int handle, int argb) {
+        color[index(handle)] = argb;
+    }
+
+    public void setTexture(int handle, int texture) {
+        this.texture[index(handle)] = texture;
+    }
+
+    public void setFlags(int handle, int flags) {
+        this.flags[index(handle)] = flags;
+    }
+
+    public int getColor(int handle) {
+        return color[index(handle)];
+    }
+
+    public int getTexture(int handle) {
+        return texture[index(handle)];
+    }
+
+    public int getFlags(int handle) {
+        return flags[index(handle)];
+    }
+
+    //move every instance by (dx, dy, dz): the kind of whole-store loop the layout is for
+    public void translateAll(float dx, float dy, float dz) {
+        for (int i = 0; i < count; i++) {
+            x[i] += dx;
+        }
+        for (int i = 0; i < count; i++) {
+            y[i] += dy;
+        }
+        for (int i = 0; i < count; i++) {
+            z[i] += dz;
+        }
+    }
+
+    //the packed arrays themselves, [0, getCount()), for loops over all instances. only good until the next create(), which may
+    //replace them with bigger ones
+    public float[] getX() {
+        return x;
+    }
+
+    public float[] getY() {
+        return y;
+    }
+
+    public float[] getZ() {
+        return z;
+    }
+
+    public int[] getColors() {
+        return color;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    //fill the instance buffer with every shown instance in packed order: its model matrix (column major, so translate * rotate *
+    //scale) and its color as rgba bytes. returns how many were written
+    public int writeInstances() {
+        int[] words = instanceWords;
+        int out = 0;
+        for (int i = 0; i < count; i++) {
+            if ((flags[i] & HIDDEN) != 0) {
+                continue;
+            }
+            int at = out * InstancedQuadBatch.INSTANCE_WORDS;
+            float c = cos[i], s = sin[i], sx = scaleX[i], sy = scaleY[i];
+            words[at] = Float.floatToRawIntBits(c * sx);
+            words[at + 1] = Float.floatToRawIntBits(s * sx);
+            words[at + 2] = 0;
+            words[at + 3] = 0;
+            words[at + 4] = Float.floatToRawIntBits(-s * sy);
+            words[at + 5] = Float.floatToRawIntBits(c * sy);
+            words[at + 6] = 0;
+            words[at + 7] = 0;
+            words[at + 8] = 0;
+            words[at + 9] = 0;
+            words[at + 10] = ONE;
+            words[at + 11] = 0;
+            words[at + 12] = Float.floatToRawIntBits(x[i]);
+            words[at + 13] = Float.floatToRawIntBits(y[i]);
+            words[at + 14] = Float.floatToRawIntBits(z[i]);
+            words[at + 15] = ONE;
+            words[at + 16] = QuadBatch.toRgbaBytes(color[i]);
+            instanceTexture[out] = texture[i];
+            out++;
+        }
+        written = out;
+        instanceInts.clear();
+        instanceInts.put(words, 0, out * InstancedQuadBatch.INSTANCE_WORDS);
+        instances.limit(out * InstancedQuadBatch.INSTANCE_STRIDE).position(0);
+        return out;
+    }
+
+    //what the last writeInstances() wrote, positioned at its start with its end as the limit: hand it straight to a
+    //StreamingBufferRing or glBufferSubData
+    public ByteBuffer getInstanceData() {
+        return instances;
+    }
+
+    public int getWrittenCount() {
+        return written;
+    }
+
+    //the texture of the index-th instance the last writeInstances() wrote
+    public int getWrittenTexture(int index) {
+        return instanceTexture[index];
+    }
+}
@@ -0,0 +1,91 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLSurfaceView;
+import android.util.Log;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.egl.EGLContext;
+import javax.microedition.khronos.egl.EGLDisplay;
+
+//asks EGL for an ES 3.0 context and settles for 2.0 if the device can't make one.
+//everything in the app runs on 2.0; GlCapabilities tells the renderer when the 3.0 extras (instancing, timer queries) are there.
+//the config has to be picked for that too: the one GLSurfaceView picks for setEGLContextClientVersion(2) is only guaranteed to be
+//ES 2.0 renderable, and under EGL_KHR_create_context a 3.0 context on it may fail with EGL_BAD_MATCH. so this is also the view's config
+//chooser: RGB888 with a 16 bit depth buffer like GLSurfaceView's own, ES 3.0 renderable where there is such a config, ES 2.0 otherwise.
+//set it with both setEGLConfigChooser() and setEGLContextFactory()
+public class Es3ContextFactory implements GLSurfaceView.EGLContextFactory, GLSurfaceView.EGLConfigChooser {
+    private static final int EGL_CONTEXT_CLIENT_VERSION = 0x3098;
+    private static final int EGL_OPENGL_ES2_BIT = 0x4;
+    private static final int EGL_OPENGL_ES3_BIT_KHR = 0x40;
+
+    //whether chooseConfig() found an ES 3.0 config; no point asking for a 3.0 context on anything else
+    private boolean es3Config = true;
+
+    @Override
+    public EGLConfig chooseConfig(EGL10 egl, EGLDisplay display) {
+        EGLConfig config = chooseConfig(egl, display, EGL_OPENGL_ES3_BIT_KHR);
+        es3Config = config != null;
+        if (config == null) {
+            Log.d("DBUG", "No ES 3.0 config, falling back to 2.0");
+            config = chooseConfig(egl, display, EGL_OPENGL_ES2_BIT);
+        }
+        if (config == null) {
+            throw new IllegalArgumentException("No RGB888 ES 2.0 config with a depth buffer");
+        }
+        return config;
+    }
+
+    //the first config renderable by the API bit with exactly 8 bits of red, green and blue and no alpha, or the first one that's
+    //renderable at all, or null
+    private static EGLConfig chooseConfig(EGL10 egl, EGLDisplay display, int renderableType) {
+        int[] attributes = {
+                EGL10.EGL_RED_SIZE, 8,
+                EGL10.EGL_GREEN_SIZE, 8,
+                EGL10.EGL_BLUE_SIZE, 8,
+                EGL10.EGL_DEPTH_SIZE, 16,
+                EGL10.EGL_RENDERABLE_TYPE, renderableType,
+                EGL10.EGL_NONE
+        };
+        int[] count = new int[1];
+        if (!egl.eglChooseConfig(display, attributes, null, 0, count) || count[0] <= 0) {
+            return null;
+        }
+        EGLConfig[] configs = new EGLConfig[count[0]];
+        if (!egl.eglChooseConfig(display, attributes, configs, configs.length, count) || count[0] <= 0) {
+            return null;
+        }
+        for (int i = 0; i < count[0]; i++) {
+            if (attribute(egl, display, configs[i], EGL10.EGL_RED_SIZE) == 8 && attribute(egl, display, configs[i], EGL10.EGL_GREEN_SIZE) == 8
+                    && attribute(egl, display, configs[i], EGL10.EGL_BLUE_SIZE) == 8 && attribute(egl, display, configs[i], EGL10.EGL_ALPHA_SIZE) == 0) {
+                return configs[i];
+            }
+        }
+        return configs[0];
+    }
+
+    private static int attribute(EGL10 egl, EGLDisplay display, EGLConfig config, int attribute) {
+        int[] value = new int[1];
+        return egl.eglGetConfigAttrib(display, config, attribute, value) ? value[0] : 0;
+    }
+
+    @Override
+    public EGLContext createContext(EGL10 egl, EGLDisplay display, EGLConfig config) {
+        EGLContext context = EGL10.EGL_NO_CONTEXT;
+        if (es3Config) {
+            context = egl.eglCreateContext(display, config, EGL10.EGL_NO_CONTEXT, new int[] {EGL_CONTEXT_CLIENT_VERSION, 3, EGL10.EGL_NONE});
+        }
+        if (context == null || context == EGL10.EGL_NO_CONTEXT) {
+            Log.d("DBUG", "No ES 3.0 context, falling back to 2.0");
+            context = egl.eglCreateContext(display, config, EGL10.EGL_NO_CONTEXT, new int[] {EGL_CONTEXT_CLIENT_VERSION, 2, EGL10.EGL_NONE});
+        }
+        return context;
+    }
+
+    @Override
+    public void destroyContext(EGL10 egl, EGLDisplay display, EGLContext context) {
+        if (!egl.eglDestroyContext(display, context)) {
+            throw new RuntimeException(String.format("eglDestroyContext failed: 0x%x", egl.eglGetError()));
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package weiner.noah.openglbufftesting;
+
+import java.nio.Buffer;
+
+//a Gles that hands every call to another Gles. decorators like GlStateCache extend this and override only the calls they care about
+public class ForwardingGles implements Gles {
+    protected final Gles delegate;
+
+    public ForwardingGles(Gles delegate) {
+        this.delegate = delegate;
+    }
+
+    //programs and shaders
+    @Override
+    public int glCreateShader(int type) {
+        return delegate.glCreateShader(type);
+    }
+
+    @Override
+    public void glShaderSource(int shader, String source) {
+        delegate.glShaderSource(shader, source);
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        delegate.glCompileShader(shader);
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        delegate.glGetShaderiv(shader, pname, params, offset);
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader) {
+        return delegate.glGetShaderInfoLog(shader);
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        delegate.glDeleteShader(shader);
+    }
+
+    @Override
+    public int glCreateProgram() {
+        return delegate.glCreateProgram();
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        delegate.glAttachShader(program, shader);
+    }
+
+    @Override
+    public void glDetachShader(int program, int shader) {
+        delegate.glDetachShader(program, shader);
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        delegate.glLinkProgram(program);
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        delegate.glGetProgramiv(program, pname, params, offset);
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        return delegate.glGetProgramInfoLog(program);
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        delegate.glDeleteProgram(program);
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        delegate.glUseProgram(program);
+    }
+
+    //program introspection -- only meant to be called at link time
+    @Override
+    public String glGetActiveAttrib(int program, int index, int[] size, int sizeOffset, int[] type, int typeOffset) {
+        return delegate.glGetActiveAttrib(program, index, size, sizeOffset, type, typeOffset);
+    }
+
+    @Override
+    public String glGetActiveUniform(int program, int index, int[] size, int sizeOffset, int[] type, int typeOffset) {
+        return delegate.glGetActiveUniform(program, index, size, sizeOffset, type, typeOffset);
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        return delegate.glGetAttribLocation(program, name);
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        return delegate.glGetUniformLocation(program, name);
+    }
+
+    //uniforms
+    @Override
+    public void glUniform1i(int location, int x) {
+        delegate.glUniform1i(location, x);
+    }
+
+    @Override
+    public void glUniform1f(int location, float x) {
+        delegate.glUniform1f(location, x);
+    }
+
+    @Override
+    public void glUniform2f(int location, float x, float y) {
+        delegate.glUniform2f(location, x, y);
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+        delegate.glUniform4fv(location, count, v, offset);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        delegate.glUniformMatrix4fv(location, count, transpose, value, offset);
+    }
+
+    //vertex attributes and drawing
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        delegate.glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        delegate.glDisableVertexAttribArray(index);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr) {
+        delegate.glVertexAttribPointer(index, size, type, normalized, stride, ptr);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+        delegate.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        delegate.glDrawArrays(mode, first, count);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, Buffer indices) {
+        delegate.glDrawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        delegate.glDrawElements(mode, count, type, offset);
+    }
+
+    @Override
+    public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+        delegate.glDrawElementsInstanced(mode, count, type, offset, instanceCount);
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        delegate.glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        delegate.glGenBuffers(n, buffers, offset);
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        delegate.glDeleteBuffers(n, buffers, offset);
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        delegate.glBindBuffer(target, buffer);
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        delegate.glBufferData(target, size, data, usage);
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        delegate.glBufferSubData(target, offset, size, data);
+    }
+
+    @Override
+    public Buffer glMapBufferRange(int target, int offset, int length, int access) {
+        return delegate.glMapBufferRange(target, offset, length, access);
+    }
+
+    @Override
+    public boolean glUnmapBuffer(int target) {
+        return delegate.glUnmapBuffer(target);
+    }
+
+    //fixed function state
+    @Override
+    public void glClear(int mask) {
+        delegate.glClear(mask);
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        delegate.glClearColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        delegate.glEnable(cap);
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        delegate.glDisable(cap);
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        delegate.glBlendFunc(sfactor, dfactor);
+    }
+
+    @Override
+    public void glDepthFunc(int func) {
+        delegate.glDepthFunc(func);
+    }
+
+    @Override
+    public void glDepthMask(boolean flag) {
+        delegate.glDepthMask(flag);
+    }
+
+    @Override
+    public void glCullFace(int mode) {
+        delegate.glCullFace(mode);
+    }
+
+    @Override
+    public void glFrontFace(int mode) {
+        delegate.glFrontFace(mode);
+    }
+
+    @Override
+    public void glHint(int target, int mode) {
+        delegate.glHint(target, mode);
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        delegate.glViewport(x, y, width, height);
+    }
+
+    @Override
+    public void glScissor(int x, int y, int width, int height) {
+        delegate.glScissor(x, y, width, height);
+    }
+
+    //textures
+    @Override
+    public void glGenTextures(int n, int[] textures, int offset) {
+        delegate.glGenTextures(n, textures, offset);
+    }
+
+    @Override
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        delegate.glDeleteTextures(n, textures, offset);
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        delegate.glActiveTexture(texture);
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        delegate.glBindTexture(target, texture);
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pname, int param) {
+        delegate.glTexParameteri(target, pname, param);
+    }
+
+    @Override
+    public void glTexParameterf(int target, int pname, float param) {
+        delegate.glTexParameterf(target, pname, param);
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels) {
+        delegate.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+    }
+
+    @Override
+    public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels) {
+        delegate.glTexSubImage2D(target, level, xoffset, yoffset, width, height, format, type, pixels);
+    }
+
+    //framebuffers
+    @Override
+    public void glGenFramebuffers(int n, int[] framebuffers, int offset) {
+        delegate.glGenFramebuffers(n, framebuffers, offset);
+    }
+
+    @Override
+    public void glDeleteFramebuffers(int n, int[] framebuffers, int offset) {
+        delegate.glDeleteFramebuffers(n, framebuffers, offset);
+    }
+
+    @Override
+    public void glBindFramebuffer(int target, int framebuffer) {
+        delegate.glBindFramebuffer(target, framebuffer);
+    }
+
+    @Override
+    public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level) {
+        delegate.glFramebufferTexture2D(target, attachment, textarget, texture, level);
+    }
+
+    @Override
+    public int glCheckFramebufferStatus(int target) {
+        return delegate.glCheckFramebufferStatus(target);
+    }
+
+    @Override
+    public void glGenRenderbuffers(int n, int[] renderbuffers, int offset) {
+        delegate.glGenRenderbuffers(n, renderbuffers, offset);
+    }
+
+    @Override
+    public void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset) {
+        delegate.glDeleteRenderbuffers(n, renderbuffers, offset);
+    }
+
+    @Override
+    public void glBindRenderbuffer(int target, int renderbuffer) {
+        delegate.glBindRenderbuffer(target, renderbuffer);
+    }
+
+    @Override
+    public void glRenderbufferStorage(int target, int internalformat, int width, int height) {
+        delegate.glRenderbufferStorage(target, internalformat, width, height);
+    }
+
+    @Override
+    public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer) {
+        delegate.glFramebufferRenderbuffer(target, attachment, renderbuffertarget, renderbuffer);
+    }
+
+    @Override
+    public void glGetIntegerv(int pname, int[] params, int offset) {
+        delegate.glGetIntegerv(pname, params, offset);
+    }
+
+    @Override
+    public String glGetString(int name) {
+        return delegate.glGetString(name);
+    }
+
+    @Override
+    public void glGenQueries(int n, int[] ids, int offset) {
+        delegate.glGenQueries(n, ids, offset);
+    }
+
+    @Override
+    public void glDeleteQueries(int n, int[] ids, int offset) {
+        delegate.glDeleteQueries(n, ids, offset);
+    }
+
+    @Override
+    public void glBeginQuery(int target, int id) {
+        delegate.glBeginQuery(target, id);
+    }
+
+    @Override
+    public void glEndQuery(int target) {
+        delegate.glEndQuery(target);
+    }
+
+    @Override
+    public void glGetQueryObjectuiv(int id, int pname, int[] params, int offset) {
+        delegate.glGetQueryObjectuiv(id, pname, params, offset);
+    }
+
+    @Override
+    public void glFlush() {
+        delegate.glFlush();
+    }
+
+    @Override
+    public void glFinish() {
+        delegate.glFinish();
+    }
+
+    @Override
+    public long glFenceSync(int condition, int flags) {
+        return delegate.glFenceSync(condition, flags);
+    }
+
+    @Override
+    public int glClientWaitSync(long sync, int flags, long timeout) {
+        return delegate.glClientWaitSync(sync, flags, timeout);
+    }
+
+    @Override
+    public void glDeleteSync(long sync) {
+        delegate.glDeleteSync(sync);
+    }
+}
@@ -0,0 +1,96 @@
+package weiner.noah.openglbufftesting;
+
+//caps the frame rate below the display's: awaitFrame() at the top of every frame sleeps until the next slot of the target rate.
+//slots are counted from the one we aimed for rather than from when we woke up, so oversleeping a little doesn't drift the rate down,
+//but after a stall (a slow frame, or an on-demand renderer sitting idle) it starts over from now instead of rushing frames out to catch up.
+//with vsync on, pick rates that divide the display's (30 or 60 on a 60 Hz panel, 30/45/90 on 90 Hz), otherwise frames alternate
+//between one and two refreshes.
+public class FramePacer {
+    public static final int UNCAPPED = 0;
+
+    public interface Sleeper {
+        void sleepNanos(long nanos) throws InterruptedException;
+    }
+
+    public static final Sleeper THREAD_SLEEPER = new Sleeper() {
+        @Override
+        public void sleepNanos(long nanos) throws InterruptedException {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        }
+    };
+
+    private final FrameProfiler.Clock clock;
+    private final Sleeper sleeper;
+
+    //0 when uncapped. may be set from any thread, takes effect on the next frame
+    private volatile long intervalNanos;
+    private long nextFrame;
+
+    private long frames, throttledFrames;
+    private long sleptNanos;
+
+    public FramePacer(FrameProfiler.Clock clock, Sleeper sleeper) {
+        this.clock = clock;
+        this.sleeper = sleeper;
+    }
+
+    public FramePacer() {
+        this(FrameProfiler.SYSTEM_CLOCK, THREAD_SLEEPER);
+    }
+
+    //at most fps frames a second, or UNCAPPED
+    public void setMaxFps(int fps) {
+        if (fps < 0) {
+            throw new IllegalArgumentException(String.format("Frame rate cap can't be negative, got %d", fps));
+        }
+        intervalNanos = fps == UNCAPPED ? 0 : 1_000_000_000L / fps;
+    }
+
+    public int getMaxFps() {
+        long interval = intervalNanos;
+        return interval == 0 ? UNCAPPED : (int) Math.round(1e9 / interval);
+    }
+
+    //block until the next frame may start
+    public void awaitFrame() {
+        frames++;
+        long interval = intervalNanos;
+        if (interval == 0) {
+            return;
+        }
+
+        long now = clock.nanoTime();
+        long wait = nextFrame - now;
+        if (wait > 0) {
+            try {
+                sleeper.sleepNanos(wait);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throttledFrames++;
+            sleptNanos += wait;
+            now = clock.nanoTime();
+        }
+
+        nextFrame = now - nextFrame > interval ? now + interval : nextFrame + interval;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    //frames that had to wait for their slot
+    public long getThrottledFrames() {
+        return throttledFrames;
+    }
+
+    public long getSleptNanos() {
+        return sleptNanos;
+    }
+
+    public String report() {
+        return String.format("Frame pacer: cap %s, %d frames, %d throttled, %.1f ms slept",
+                intervalNanos == 0 ? "none" : getMaxFps() + " fps", frames, throttledFrames, sleptNanos / 1e6);
+    }
+}
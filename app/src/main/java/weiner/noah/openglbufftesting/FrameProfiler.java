@@ -0,0 +1,204 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.Arrays;
+
+//per-frame timings for the render loop, kept for the last N frames in fixed-size ring buffers.
+//every series ("metric") is one ring: the time between frames, the CPU time inside onDrawFrame, the GPU time (if a GpuTimer is attached)
+//and one per named scope (matrix setup, FBO pass, ...). recording is allocation free; percentiles and the report are computed on demand
+//from a copy, so read them from wherever the numbers are needed, not every frame.
+public class FrameProfiler {
+    //source of nanosecond timestamps; System.nanoTime() outside of tests
+    public interface Clock {
+        long nanoTime();
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    public static final int METRIC_FRAME_INTERVAL = 0;
+    public static final int METRIC_FRAME_CPU = 1;
+    public static final int METRIC_GPU = 2;
+    private static final int BUILT_IN_METRICS = 3;
+
+    public static final int DEFAULT_CAPACITY = 240;
+    public static final long DEFAULT_TARGET_FRAME_NANOS = 16_666_667L;
+
+    //the renderer's own passes plus a post-processing pipeline's worth
+    public static final int DEFAULT_MAX_SCOPES = 16;
+
+    private final Clock clock;
+    private final int capacity;
+    private final long targetFrameNanos;
+
+    private final String[] names;
+    private final long[][] samples;
+    private final int[] counts;
+    private final int[] heads;
+    private int metrics = BUILT_IN_METRICS;
+
+    //start of the open frame and of each open scope, 0 if not open
+    private long frameStart, lastFrameStart;
+    private final long[] scopeStart;
+    private final long[] scopeAccumulated;
+    private final boolean[] scopeEntered;
+
+    private GpuTimer gpuTimer;
+
+    private long frames;
+    private long droppedFrames;
+
+    private final long[] sortScratch;
+
+    public FrameProfiler(int capacity, int maxScopes, long targetFrameNanos, Clock clock) {
+        this.capacity = capacity;
+        this.targetFrameNanos = targetFrameNanos;
+        this.clock = clock;
+
+        int maxMetrics = BUILT_IN_METRICS + maxScopes;
+        names = new String[maxMetrics];
+        samples = new long[maxMetrics][capacity];
+        counts = new int[maxMetrics];
+        heads = new int[maxMetrics];
+        scopeStart = new long[maxMetrics];
+        scopeAccumulated = new long[maxMetrics];
+        scopeEntered = new boolean[maxMetrics];
+        sortScratch = new long[capacity];
+
+        names[METRIC_FRAME_INTERVAL] = "frame interval";
+        names[METRIC_FRAME_CPU] = "frame cpu";
+        names[METRIC_GPU] = "gpu";
+    }
+
+    public FrameProfiler() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_SCOPES, DEFAULT_TARGET_FRAME_NANOS, SYSTEM_CLOCK);
+    }
+
+    //register a named scope once, up front; returns the id to pass to begin()/end() and the getters
+    public int addScope(String name) {
+        if (metrics == names.length) {
+            throw new IllegalStateException("No room for another scope, raise maxScopes");
+        }
+        names[metrics] = name;
+        return metrics++;
+    }
+
+    //time the GPU side of each frame too; pass null to stop
+    public void setGpuTimer(GpuTimer gpuTimer) {
+        this.gpuTimer = gpuTimer;
+    }
+
+    public void beginFrame() {
+        long now = clock.nanoTime();
+        if (lastFrameStart != 0) {
+            long interval = now - lastFrameStart;
+            record(METRIC_FRAME_INTERVAL, interval);
+
+            //every whole target period beyond the first that we took is a frame the display showed twice
+            if (interval > targetFrameNanos + targetFrameNanos / 2) {
+                droppedFrames += Math.max(1, Math.round((double) interval / targetFrameNanos) - 1);
+            }
+        }
+        lastFrameStart = now;
+        frameStart = now;
+
+        if (gpuTimer != null) {
+            gpuTimer.begin();
+        }
+    }
+
+    public void endFrame() {
+        long now = clock.nanoTime();
+        record(METRIC_FRAME_CPU, now - frameStart);
+
+        //a scope may be entered several times per frame; record its total once
+        for (int m = BUILT_IN_METRICS; m < metrics; m++) {
+            if (scopeEntered[m]) {
+                record(m, scopeAccumulated[m]);
+                scopeAccumulated[m] = 0;
+                scopeEntered[m] = false;
+            }
+        }
+
+        if (gpuTimer != null) {
+            long gpu = gpuTimer.end();
+            if (gpu >= 0) {
+                record(METRIC_GPU, gpu);
+            }
+        }
+        frames++;
+    }
+
+    public void begin(int scope) {
+        scopeStart[scope] = clock.nanoTime();
+    }
+
+    public void end(int scope) {
+        scopeAccumulated[scope] += clock.nanoTime() - scopeStart[scope];
+        scopeEntered[scope] = true;
+    }
+
+    private void record(int metric, long nanos) {
+        samples[metric][heads[metric]] = nanos;
+        heads[metric] = (heads[metric] + 1) % capacity;
+        if (counts[metric] < capacity) {
+            counts[metric]++;
+        }
+    }
+
+    //the p-th percentile (0..100) of the samples in the ring, nearest rank; 0 if there are none
+    public long getPercentileNanos(int metric, float p) {
+        int n = counts[metric];
+        if (n == 0) {
+            return 0;
+        }
+        System.arraycopy(samples[metric], 0, sortScratch, 0, n);
+        Arrays.sort(sortScratch, 0, n);
+        int rank = (int) Math.ceil(p / 100f * n);
+        return sortScratch[Math.min(n - 1, Math.max(0, rank - 1))];
+    }
+
+    public int getSampleCount(int metric) {
+        return counts[metric];
+    }
+
+    public String getName(int metric) {
+        return names[metric];
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    //forget all samples and counters, e.g. when coming back from the background
+    public void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(heads, 0);
+        Arrays.fill(scopeAccumulated, 0);
+        Arrays.fill(scopeEntered, false);
+        lastFrameStart = 0;
+        frames = 0;
+        droppedFrames = 0;
+    }
+
+    //p50/p95/p99 in ms for every metric that has samples, plus the dropped frame count. one line per metric
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d frames, %d dropped", frames, droppedFrames));
+        for (int m = 0; m < metrics; m++) {
+            if (counts[m] == 0) {
+                continue;
+            }
+            report.append(String.format("\n%s: p50 %.2f ms, p95 %.2f ms, p99 %.2f ms", names[m],
+                    getPercentileNanos(m, 50) / 1e6, getPercentileNanos(m, 95) / 1e6, getPercentileNanos(m, 99) / 1e6));
+        }
+        return report.toString();
+    }
+}
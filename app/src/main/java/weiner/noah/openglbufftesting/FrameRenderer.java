@@ -0,0 +1,198 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+//the GL side of a frame with no Android dependencies: the scene goes into the offscreen target, the post-processing passes (if any) run
+//over it, then the result is drawn over the screen.
+//OpenGLRenderer moves the scene's nodes and calls this from onDrawFrame(); tests drive it against FakeGles.
+//only the part of the picture that changed gets redrawn: the scene graph reports a dirty rectangle, and both passes scissor to it.
+//the offscreen target keeps its contents between frames, so the scene pass can always do that (and skips itself when nothing changed).
+//the screen's back buffer normally doesn't survive eglSwapBuffers, so the screen pass only scissors once setScreenPreserved(true) says
+//it does; otherwise it redraws the whole screen from the target, which is a single cheap full-screen copy.
+//a frame comes in two halves: record() culls and sorts the scene into a CommandBuffer without touching GL, and drawFrame() replays one
+//on the GL thread, so the first can run a frame ahead on another thread (CommandBufferPipeline). drawFrame(float[]) does both in turn.
+//steady state frames must not allocate (see RenderLoopAllocationTest), so nothing on this path may create objects.
+public class FrameRenderer {
+    private final GlStateCache gl;
+    private final RenderTargetManager renderTargets;
+    private final FrameProfiler profiler;
+    private final int offscreenScope, screenScope;
+
+    private SceneGraph scene;
+    private ScreenShader screenShader;
+    private PostProcessPipeline postProcess;
+
+    //what this frame has to redraw, and its scissor box in pixels
+    private final DirtyRegion dirty = new DirtyRegion();
+    private final int[] box = new int[4];
+
+    private boolean redrawAll = true;
+    private RenderTarget lastTarget;
+    private boolean screenPreserved;
+
+    private long fullFrames, partialFrames, unchangedFrames;
+
+    //drawFrame(float[])'s frame, recorded and replayed right away
+    private final CommandBuffer local = new CommandBuffer(64);
+
+    public FrameRenderer(GlStateCache gl, RenderTargetManager renderTargets, FrameProfiler profiler) {
+        this.gl = gl;
+        this.renderTargets = renderTargets;
+        this.profiler = profiler;
+        offscreenScope = profiler.addScope("FBO pass");
+        screenScope = profiler.addScope("screen pass");
+    }
+
+    //what to draw; replaced whenever a new GL context brings new drawables. not while another thread is in record()
+    public void setDrawables(SceneGraph scene, ScreenShader screenShader) {
+        this.scene = scene;
+        this.screenShader = screenShader;
+    }
+
+    //passes to run between the scene and the screen pass; null for none
+    public void setPostProcess(PostProcessPipeline postProcess) {
+        this.postProcess = postProcess;
+    }
+
+    //whether the window's back buffer keeps its contents across eglSwapBuffers (EGL_SWAP_BEHAVIOR is EGL_BUFFER_PRESERVED)
+    public void setScreenPreserved(boolean screenPreserved) {
+        if (screenPreserved != this.screenPreserved) {
+            this.screenPreserved = screenPreserved;
+            redrawAll = true;
+        }
+    }
+
+    //redraw everything on the next frame, e.g. for a new surface whose contents are undefined
+    public void markAllDirty() {
+        redrawAll = true;
+    }
+
+    //start a frame's worth of state change counts and timings
+    public void beginFrame() {
+        gl.beginFrame();
+        profiler.beginFrame();
+    }
+
+    //draw the scene as seen through the projection * view matrix
+    public void drawFrame(float[] viewProjection) {
+        record(viewProjection, local);
+        drawFrame(local);
+    }
+
+    //the CPU half of a frame: cull the scene as seen through the projection * view matrix and record its draws into out, sorted.
+    //no GL calls, so it can run on any one thread that owns the scene
+    public void record(float[] viewProjection, CommandBuffer out) {
+        out.begin(viewProjection);
+
+        //only the nodes inside the view frustum get drawn, and what changed since the last frame is where they moved from and to
+        scene.cull(viewProjection);
+        out.getDirtyRegion().set(scene.getDirtyRegion());
+        scene.recordVisible(viewProjection, out);
+    }
+
+    //the GL half: draw a frame record() made. frames have to come in the order they were recorded, since each one's dirty region is
+    //relative to the one before
+    public void drawFrame(CommandBuffer frame) {
+        profiler.begin(offscreenScope);
+        dirty.set(frame.getDirtyRegion());
+
+        //a new target starts out undefined, and the post passes spread every change over their whole output (blurs, offsets)
+        RenderTarget target = renderTargets.getSceneTarget();
+        if (redrawAll || target != lastTarget || (postProcess != null && postProcess.hasEnabledPasses())) {
+            dirty.markAll();
+        }
+        redrawAll = false;
+        lastTarget = target;
+
+        if (dirty.isEmpty()) {
+            unchangedFrames++;
+        }
+        else if (dirty.isFull()) {
+            fullFrames++;
+        }
+        else {
+            partialFrames++;
+        }
+
+        if (!dirty.isEmpty()) {
+            //load up the offscreen FBO, with the viewport covering all of it
+            target.bind();
+            scissor(target.getWidth(), target.getHeight(), false);
+
+            // clear the color buffer (bitmaps) -- clear the target's color and depth buffer
+            gl.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+            frame.replay();
+        }
+
+        profiler.end(offscreenScope);
+
+        //each pass times itself
+        RenderTarget result = postProcess != null ? postProcess.apply(target) : target;
+
+        profiler.begin(screenScope);
+
+        //with a preserved back buffer, what's outside the dirty region is still on screen from last frame
+        if (!screenPreserved || !dirty.isEmpty()) {
+            //bind the actual screen, viewport back to the surface size
+            renderTargets.bindScreen();
+
+            //ScreenShader's texture coordinates run backwards in both directions, so the target shows up rotated 180 degrees
+            if (screenPreserved) {
+                scissor(renderTargets.getSurfaceWidth(), renderTargets.getSurfaceHeight(), true);
+            }
+            else {
+                gl.glDisable(GLES20.GL_SCISSOR_TEST);
+            }
+            gl.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+
+            //and draw what we rendered offscreen over the whole of it
+            screenShader.setSourceTexture(result.getColorTexture());
+            screenShader.draw(frame.getViewProjection());
+        }
+        gl.glDisable(GLES20.GL_SCISSOR_TEST);
+
+        if (postProcess != null) {
+            postProcess.endFrame();
+        }
+
+        profiler.end(screenScope);
+    }
+
+    //limit drawing to the dirty region on a width x height target, or lift the limit if it's all dirty
+    private void scissor(int width, int height, boolean mirrored) {
+        if (dirty.isFull()) {
+            gl.glDisable(GLES20.GL_SCISSOR_TEST);
+            return;
+        }
+        dirty.toWindow(width, height, mirrored, box);
+        gl.glScissor(box[0], box[1], box[2], box[3]);
+        gl.glEnable(GLES20.GL_SCISSOR_TEST);
+    }
+
+    //what the last drawFrame() redrew
+    public DirtyRegion getDirtyRegion() {
+        return dirty;
+    }
+
+    //frames that redrew everything, only part, or (apart from a screen copy without a preserved back buffer) nothing
+    public long getFullFrames() {
+        return fullFrames;
+    }
+
+    public long getPartialFrames() {
+        return partialFrames;
+    }
+
+    public long getUnchangedFrames() {
+        return unchangedFrames;
+    }
+
+    public String report() {
+        return String.format("Frames: %d full, %d partial, %d unchanged, screen %s", fullFrames, partialFrames, unchangedFrames,
+                screenPreserved ? "preserved" : "redrawn every frame");
+    }
+
+    public void endFrame() {
+        profiler.endFrame();
+    }
+}
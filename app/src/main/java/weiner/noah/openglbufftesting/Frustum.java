@@ -0,0 +1,53 @@
+package weiner.noah.openglbufftesting;
+
+//the six clip planes of a view-projection matrix, for throwing away things that can't end up on screen.
+//planes come straight out of the matrix rows (left = row 3 + row 0, right = row 3 - row 0, and so on for y and z), normalized so
+//plane distances are in world units and can be compared against a bounding sphere's radius.
+public class Frustum {
+    public static final int LEFT = 0, RIGHT = 1, BOTTOM = 2, TOP = 3, NEAR = 4, FAR = 5;
+
+    //a, b, c, d per plane; a point is inside a plane when a * x + b * y + c * z + d >= 0
+    private final float[] planes = new float[6 * 4];
+
+    //extract the planes from a column major projection * view matrix
+    public void set(float[] m, int off) {
+        for (int axis = 0; axis < 3; axis++) {
+            for (int side = 0; side < 2; side++) {
+                float sign = side == 0 ? 1f : -1f;
+                int p = (axis * 2 + side) * 4;
+                planes[p] = m[off + 3] + sign * m[off + axis];
+                planes[p + 1] = m[off + 7] + sign * m[off + 4 + axis];
+                planes[p + 2] = m[off + 11] + sign * m[off + 8 + axis];
+                planes[p + 3] = m[off + 15] + sign * m[off + 12 + axis];
+                normalize(p);
+            }
+        }
+    }
+
+    private void normalize(int p) {
+        float length = (float) Math.sqrt(planes[p] * planes[p] + planes[p + 1] * planes[p + 1] + planes[p + 2] * planes[p + 2]);
+        if (length > 0f) {
+            planes[p] /= length;
+            planes[p + 1] /= length;
+            planes[p + 2] /= length;
+            planes[p + 3] /= length;
+        }
+    }
+
+    //false only if the sphere is completely outside at least one plane. spheres near a corner can pass without being visible,
+    //which only costs a draw, never a missing object
+    public boolean intersectsSphere(float x, float y, float z, float radius) {
+        for (int p = 0; p < planes.length; p += 4) {
+            if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < -radius) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //signed distance from a point to one of the planes; positive is inside
+    public float distance(int plane, float x, float y, float z) {
+        int p = plane * 4;
+        return planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3];
+    }
+}
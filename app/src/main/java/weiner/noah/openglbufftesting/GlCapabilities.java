@@ -0,0 +1,104 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+//what the current GL context can do, read once after it is created: the ES version, the extension list and a few limits.
+//code paths that need ES 3.0 or an extension check here instead of assuming, and fall back when it isn't there
+public class GlCapabilities {
+    public static final String EXT_DISJOINT_TIMER_QUERY = "GL_EXT_disjoint_timer_query";
+    public static final String EXT_INSTANCED_ARRAYS = "GL_EXT_instanced_arrays";
+    public static final String ANGLE_INSTANCED_ARRAYS = "GL_ANGLE_instanced_arrays";
+
+    private final int majorVersion, minorVersion;
+    private final Set<String> extensions;
+    private final int maxTextureSize;
+
+    GlCapabilities(int majorVersion, int minorVersion, Set<String> extensions, int maxTextureSize) {
+        this.majorVersion = majorVersion;
+        this.minorVersion = minorVersion;
+        this.extensions = extensions;
+        this.maxTextureSize = maxTextureSize;
+    }
+
+    //ask the current context; call on the GL thread after it is created
+    public static GlCapabilities query(Gles gl) {
+        int[] version = parseVersion(gl.glGetString(GLES20.GL_VERSION));
+
+        String extensionString = gl.glGetString(GLES20.GL_EXTENSIONS);
+        Set<String> extensions = new HashSet<>();
+        if (extensionString != null) {
+            extensions.addAll(Arrays.asList(extensionString.trim().split("\\s+")));
+        }
+
+        int[] max = new int[1];
+        gl.glGetIntegerv(GLES20.GL_MAX_TEXTURE_SIZE, max, 0);
+
+        return new GlCapabilities(version[0], version[1], extensions, max[0]);
+    }
+
+    //GL_VERSION looks like "OpenGL ES 3.2 V@415.0 ..."; anything we can't read counts as 2.0, which every context we create supports
+    static int[] parseVersion(String version) {
+        if (version != null) {
+            String[] words = version.split("\\s+");
+            for (String word : words) {
+                int dot = word.indexOf('.');
+                if (dot > 0 && dot < word.length() - 1 && Character.isDigit(word.charAt(0)) && Character.isDigit(word.charAt(dot + 1))) {
+                    return new int[] {Character.digit(word.charAt(0), 10), Character.digit(word.charAt(dot + 1), 10)};
+                }
+            }
+        }
+        return new int[] {2, 0};
+    }
+
+    public int getMajorVersion() {
+        return majorVersion;
+    }
+
+    public int getMinorVersion() {
+        return minorVersion;
+    }
+
+    public boolean isEs3() {
+        return majorVersion >= 3;
+    }
+
+    public boolean hasExtension(String name) {
+        return extensions.contains(name);
+    }
+
+    //GPU timings need the query objects of ES 3.0 plus the extension's GL_TIME_ELAPSED_EXT target
+    public boolean supportsTimerQueries() {
+        return isEs3() && hasExtension(EXT_DISJOINT_TIMER_QUERY);
+    }
+
+    //whether the driver can do instanced arrays at all: core in ES 3.0, or one of the ES 2.0 extensions
+    public boolean hasInstancedArrays() {
+        return isEs3() || hasExtension(EXT_INSTANCED_ARRAYS) || hasExtension(ANGLE_INSTANCED_ARRAYS);
+    }
+
+    //whether we can use them. android.opengl only binds the ES 3.0 entry points; the extensions' glVertexAttribDivisorEXT/ANGLE
+    //would need eglGetProcAddress from native code, so an ES 2.0 context with the extension still takes the fallback
+    public boolean supportsInstancing() {
+        return isEs3();
+    }
+
+    //glMapBufferRange and fence syncs, which StreamingBufferRing needs to write into a buffer the GPU may still be reading: both ES 3.0
+    public boolean supportsMappedStreaming() {
+        return isEs3();
+    }
+
+    public int getMaxTextureSize() {
+        return maxTextureSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OpenGL ES %d.%d, %d extensions, max texture %d, timer queries %s, instancing %s",
+                majorVersion, minorVersion, extensions.size(), maxTextureSize, supportsTimerQueries() ? "yes" : "no",
+                supportsInstancing() ? "yes" : hasInstancedArrays() ? "extension only" : "no");
+    }
+}
@@ -0,0 +1,355 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.util.Arrays;
+
+//sits between the drawables and the real GL and remembers the state it has already set: bound program, active texture unit,
+//2D texture per unit, array/element buffer bindings, framebuffer, viewport, scissor box, blend/depth/cull/scissor state and which vertex attrib
+//arrays are enabled.
+//every draw() re-issues glDisable(GL_CULL_FACE), glEnable(GL_BLEND), glBlendFunc, glFrontFace, glUseProgram and friends even when nothing
+//changed; those calls now only reach the driver when they are an actual transition.
+//
+//this only works if ALL state changes go through the cache. anything that touches GL behind its back (GLUtils, a different Gles)
+//must be followed by invalidate(), and so must a new GL context.
+public class GlStateCache extends ForwardingGles {
+    //state we haven't seen set yet; the first call for it always goes through
+    private static final int UNKNOWN = -1;
+
+    //texture units we shadow. calls for units above this are forwarded untouched
+    private static final int MAX_TEXTURE_UNITS = 32;
+
+    //capabilities we shadow, as indices into caps[]
+    private static final int CAP_BLEND = 0, CAP_DEPTH_TEST = 1, CAP_CULL_FACE = 2, CAP_SCISSOR_TEST = 3, CAP_COUNT = 4;
+
+    private int program;
+    private int activeUnit;
+    private final int[] texture2D = new int[MAX_TEXTURE_UNITS];
+    private int arrayBuffer, elementArrayBuffer;
+    private int framebuffer;
+    private int viewportX, viewportY, viewportWidth, viewportHeight;
+    private boolean viewportKnown;
+    private int scissorX, scissorY, scissorWidth, scissorHeight;
+    private boolean scissorKnown;
+
+    //UNKNOWN, 0 (disabled) or 1 (enabled)
+    private final int[] caps = new int[CAP_COUNT];
+    private int blendSrc, blendDst;
+    private int depthFunc;
+    private int depthMask;
+    private int cullMode;
+    private int frontFace;
+
+    //vertex attrib arrays 0..31: a set bit in attribsKnown means the matching bit in attribsEnabled is trustworthy
+    private int attribsKnown, attribsEnabled;
+
+    //state calls that reached the driver vs. ones we swallowed, for the current and the previous frame
+    private int forwarded, elided;
+    private int lastFrameForwarded, lastFrameElided;
+    private long totalForwarded, totalElided;
+
+    public GlStateCache(Gles delegate) {
+        super(delegate);
+        invalidate();
+    }
+
+    //forget everything we think we know about the GL state, e.g. after a context loss or after a third party touched GL directly
+    public void invalidate() {
+        program = UNKNOWN;
+        activeUnit = UNKNOWN;
+        Arrays.fill(texture2D, UNKNOWN);
+        arrayBuffer = elementArrayBuffer = UNKNOWN;
+        framebuffer = UNKNOWN;
+        viewportKnown = false;
+        scissorKnown = false;
+        Arrays.fill(caps, UNKNOWN);
+        blendSrc = blendDst = UNKNOWN;
+        depthFunc = UNKNOWN;
+        depthMask = UNKNOWN;
+        cullMode = UNKNOWN;
+        frontFace = UNKNOWN;
+        attribsKnown = 0;
+        attribsEnabled = 0;
+    }
+
+    //call at the start of every frame; rolls this frame's counters into the lastFrame* getters
+    public void beginFrame() {
+        lastFrameForwarded = forwarded;
+        lastFrameElided = elided;
+        forwarded = 0;
+        elided = 0;
+    }
+
+    public int getLastFrameForwarded() {
+        return lastFrameForwarded;
+    }
+
+    public int getLastFrameElided() {
+        return lastFrameElided;
+    }
+
+    public int getForwarded() {
+        return forwarded;
+    }
+
+    public int getElided() {
+        return elided;
+    }
+
+    public long getTotalForwarded() {
+        return totalForwarded;
+    }
+
+    public long getTotalElided() {
+        return totalElided;
+    }
+
+    //returns true if the call has to go to the driver, and does the bookkeeping either way
+    private boolean changed(boolean changed) {
+        if (changed) {
+            forwarded++;
+            totalForwarded++;
+        }
+        else {
+            elided++;
+            totalElided++;
+        }
+        return changed;
+    }
+
+    private static int capIndex(int cap) {
+        switch (cap) {
+            case GLES20.GL_BLEND:
+                return CAP_BLEND;
+            case GLES20.GL_DEPTH_TEST:
+                return CAP_DEPTH_TEST;
+            case GLES20.GL_CULL_FACE:
+                return CAP_CULL_FACE;
+            case GLES20.GL_SCISSOR_TEST:
+                return CAP_SCISSOR_TEST;
+            default:
+                return -1;
+        }
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        if (changed(this.program != program)) {
+            this.program = program;
+            delegate.glUseProgram(program);
+        }
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        //the name can be handed out again, so we can no longer vouch for what's bound
+        if (this.program == program) {
+            this.program = UNKNOWN;
+        }
+        delegate.glDeleteProgram(program);
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        int index = capIndex(cap);
+        if (index < 0) {
+            delegate.glEnable(cap);
+        }
+        else if (changed(caps[index] != 1)) {
+            caps[index] = 1;
+            delegate.glEnable(cap);
+        }
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        int index = capIndex(cap);
+        if (index < 0) {
+            delegate.glDisable(cap);
+        }
+        else if (changed(caps[index] != 0)) {
+            caps[index] = 0;
+            delegate.glDisable(cap);
+        }
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        if (changed(blendSrc != sfactor || blendDst != dfactor)) {
+            blendSrc = sfactor;
+            blendDst = dfactor;
+            delegate.glBlendFunc(sfactor, dfactor);
+        }
+    }
+
+    @Override
+    public void glDepthFunc(int func) {
+        if (changed(depthFunc != func)) {
+            depthFunc = func;
+            delegate.glDepthFunc(func);
+        }
+    }
+
+    @Override
+    public void glDepthMask(boolean flag) {
+        int value = flag ? 1 : 0;
+        if (changed(depthMask != value)) {
+            depthMask = value;
+            delegate.glDepthMask(flag);
+        }
+    }
+
+    @Override
+    public void glCullFace(int mode) {
+        if (changed(cullMode != mode)) {
+            cullMode = mode;
+            delegate.glCullFace(mode);
+        }
+    }
+
+    @Override
+    public void glFrontFace(int mode) {
+        if (changed(frontFace != mode)) {
+            frontFace = mode;
+            delegate.glFrontFace(mode);
+        }
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        if (changed(!viewportKnown || viewportX != x || viewportY != y || viewportWidth != width || viewportHeight != height)) {
+            viewportKnown = true;
+            viewportX = x;
+            viewportY = y;
+            viewportWidth = width;
+            viewportHeight = height;
+            delegate.glViewport(x, y, width, height);
+        }
+    }
+
+    @Override
+    public void glScissor(int x, int y, int width, int height) {
+        if (changed(!scissorKnown || scissorX != x || scissorY != y || scissorWidth != width || scissorHeight != height)) {
+            scissorKnown = true;
+            scissorX = x;
+            scissorY = y;
+            scissorWidth = width;
+            scissorHeight = height;
+            delegate.glScissor(x, y, width, height);
+        }
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        int unit = texture - GLES20.GL_TEXTURE0;
+        if (changed(activeUnit != unit)) {
+            activeUnit = unit;
+            delegate.glActiveTexture(texture);
+        }
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        //only 2D bindings on units we know about are shadowed
+        if (target != GLES20.GL_TEXTURE_2D || activeUnit < 0 || activeUnit >= MAX_TEXTURE_UNITS) {
+            delegate.glBindTexture(target, texture);
+        }
+        else if (changed(texture2D[activeUnit] != texture)) {
+            texture2D[activeUnit] = texture;
+            delegate.glBindTexture(target, texture);
+        }
+    }
+
+    @Override
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        //GL rebinds 0 on every unit a deleted texture was bound to
+        for (int i = 0; i < n; i++) {
+            for (int unit = 0; unit < MAX_TEXTURE_UNITS; unit++) {
+                if (texture2D[unit] == textures[offset + i]) {
+                    texture2D[unit] = 0;
+                }
+            }
+        }
+        delegate.glDeleteTextures(n, textures, offset);
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        if (target == GLES20.GL_ARRAY_BUFFER) {
+            if (changed(arrayBuffer != buffer)) {
+                arrayBuffer = buffer;
+                delegate.glBindBuffer(target, buffer);
+            }
+        }
+        else if (target == GLES20.GL_ELEMENT_ARRAY_BUFFER) {
+            if (changed(elementArrayBuffer != buffer)) {
+                elementArrayBuffer = buffer;
+                delegate.glBindBuffer(target, buffer);
+            }
+        }
+        else {
+            delegate.glBindBuffer(target, buffer);
+        }
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        //like textures, deleting a bound buffer reverts that binding to 0
+        for (int i = 0; i < n; i++) {
+            if (arrayBuffer == buffers[offset + i]) {
+                arrayBuffer = 0;
+            }
+            if (elementArrayBuffer == buffers[offset + i]) {
+                elementArrayBuffer = 0;
+            }
+        }
+        delegate.glDeleteBuffers(n, buffers, offset);
+    }
+
+    @Override
+    public void glBindFramebuffer(int target, int framebuffer) {
+        if (changed(this.framebuffer != framebuffer)) {
+            this.framebuffer = framebuffer;
+            delegate.glBindFramebuffer(target, framebuffer);
+        }
+    }
+
+    @Override
+    public void glDeleteFramebuffers(int n, int[] framebuffers, int offset) {
+        //deleting the bound framebuffer reverts the binding to the default one
+        for (int i = 0; i < n; i++) {
+            if (framebuffer == framebuffers[offset + i]) {
+                framebuffer = 0;
+            }
+        }
+        delegate.glDeleteFramebuffers(n, framebuffers, offset);
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        if (index < 0 || index >= 32) {
+            delegate.glEnableVertexAttribArray(index);
+            return;
+        }
+        int bit = 1 << index;
+        if (changed((attribsKnown & bit) == 0 || (attribsEnabled & bit) == 0)) {
+            attribsKnown |= bit;
+            attribsEnabled |= bit;
+            delegate.glEnableVertexAttribArray(index);
+        }
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        if (index < 0 || index >= 32) {
+            delegate.glDisableVertexAttribArray(index);
+            return;
+        }
+        int bit = 1 << index;
+        if (changed((attribsKnown & bit) == 0 || (attribsEnabled & bit) != 0)) {
+            attribsKnown |= bit;
+            attribsEnabled &= ~bit;
+            delegate.glDisableVertexAttribArray(index);
+        }
+    }
+}
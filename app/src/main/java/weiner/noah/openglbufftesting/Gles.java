@@ -0,0 +1,115 @@
+package weiner.noah.openglbufftesting;
+
+import java.nio.Buffer;
+
+//the slice of the GLES20 API the drawables use, as an instance interface instead of static calls on android.opengl.GLES20
+//on device this is backed by AndroidGles; on the JVM tests plug in a fake so the draw paths can run without a GL context
+//method names and argument orders match GLES20 one-to-one so the call sites read the same as the static versions
+public interface Gles {
+    //programs and shaders
+    int glCreateShader(int type);
+    void glShaderSource(int shader, String source);
+    void glCompileShader(int shader);
+    void glGetShaderiv(int shader, int pname, int[] params, int offset);
+    String glGetShaderInfoLog(int shader);
+    void glDeleteShader(int shader);
+    int glCreateProgram();
+    void glAttachShader(int program, int shader);
+    void glDetachShader(int program, int shader);
+    void glLinkProgram(int program);
+    void glGetProgramiv(int program, int pname, int[] params, int offset);
+    String glGetProgramInfoLog(int program);
+    void glDeleteProgram(int program);
+    void glUseProgram(int program);
+
+    //program introspection -- only meant to be called at link time
+    String glGetActiveAttrib(int program, int index, int[] size, int sizeOffset, int[] type, int typeOffset);
+    String glGetActiveUniform(int program, int index, int[] size, int sizeOffset, int[] type, int typeOffset);
+    int glGetAttribLocation(int program, String name);
+    int glGetUniformLocation(int program, String name);
+
+    //uniforms
+    void glUniform1i(int location, int x);
+    void glUniform1f(int location, float x);
+    void glUniform2f(int location, float x, float y);
+    void glUniform4fv(int location, int count, float[] v, int offset);
+    void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    //vertex attributes and drawing
+    void glEnableVertexAttribArray(int index);
+    void glDisableVertexAttribArray(int index);
+    void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr);
+    void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset);
+    void glDrawArrays(int mode, int first, int count);
+    void glDrawElements(int mode, int count, int type, Buffer indices);
+    void glDrawElements(int mode, int count, int type, int offset);
+    //instancing (ES 3.0; only call these when GlCapabilities says so)
+    void glVertexAttribDivisor(int index, int divisor);
+    void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount);
+
+    //buffer objects
+    void glGenBuffers(int n, int[] buffers, int offset);
+    void glDeleteBuffers(int n, int[] buffers, int offset);
+    void glBindBuffer(int target, int buffer);
+    void glBufferData(int target, int size, Buffer data, int usage);
+    void glBufferSubData(int target, int offset, int size, Buffer data);
+    //buffer mapping (ES 3.0; only call these when GlCapabilities says so)
+    Buffer glMapBufferRange(int target, int offset, int length, int access);
+    boolean glUnmapBuffer(int target);
+
+    //fixed function state
+    void glClear(int mask);
+    void glClearColor(float red, float green, float blue, float alpha);
+    void glEnable(int cap);
+    void glDisable(int cap);
+    void glBlendFunc(int sfactor, int dfactor);
+    void glDepthFunc(int func);
+    void glDepthMask(boolean flag);
+    void glCullFace(int mode);
+    void glFrontFace(int mode);
+    void glHint(int target, int mode);
+    void glViewport(int x, int y, int width, int height);
+    void glScissor(int x, int y, int width, int height);
+
+    //textures
+    void glGenTextures(int n, int[] textures, int offset);
+    void glDeleteTextures(int n, int[] textures, int offset);
+    void glActiveTexture(int texture);
+    void glBindTexture(int target, int texture);
+    void glTexParameteri(int target, int pname, int param);
+    void glTexParameterf(int target, int pname, float param);
+    void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels);
+    void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels);
+
+    //framebuffers
+    void glGenFramebuffers(int n, int[] framebuffers, int offset);
+    void glDeleteFramebuffers(int n, int[] framebuffers, int offset);
+    void glBindFramebuffer(int target, int framebuffer);
+    void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level);
+    int glCheckFramebufferStatus(int target);
+    void glGenRenderbuffers(int n, int[] renderbuffers, int offset);
+    void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset);
+    void glBindRenderbuffer(int target, int renderbuffer);
+    void glRenderbufferStorage(int target, int internalformat, int width, int height);
+    void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer);
+
+    //queries
+    void glGetIntegerv(int pname, int[] params, int offset);
+    String glGetString(int name);
+
+    //query objects (ES 3.0; only call these when GlCapabilities says so)
+    void glGenQueries(int n, int[] ids, int offset);
+    void glDeleteQueries(int n, int[] ids, int offset);
+    void glBeginQuery(int target, int id);
+    void glEndQuery(int target);
+    void glGetQueryObjectuiv(int id, int pname, int[] params, int offset);
+
+    //synchronization
+    void glFlush();
+    void glFinish();
+
+    //fence syncs (ES 3.0; only call these when GlCapabilities says so)
+    long glFenceSync(int condition, int flags);
+    int glClientWaitSync(long sync, int flags, long timeout);
+    void glDeleteSync(long sync);
+}
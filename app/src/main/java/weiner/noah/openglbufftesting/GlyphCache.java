@@ -0,0 +1,137 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//every glyph we've drawn, rasterized once and kept in a TextureAtlas, so new strings only cost a layout and a vertex upload.
+//entries are kept in least recently used order; when the atlas has no room for a new glyph the least recently used ones are evicted
+//until it fits. eviction moves getGeneration() forward, which tells TextMesh that quads it built earlier may point at reused atlas space.
+//give the cache its own atlas: it evicts from it freely
+public class GlyphCache {
+    //a glyph's metrics plus where its pixels live. region is null for glyphs with no ink (spaces)
+    public static final class Entry {
+        public final int codePoint;
+        public final int width, height, bearingX, bearingY;
+        public final float advance;
+        public final TextureAtlas.Region region;
+
+        Entry(int codePoint, GlyphRasterizer.Glyph glyph, TextureAtlas.Region region) {
+            this.codePoint = codePoint;
+            width = glyph.width;
+            height = glyph.height;
+            bearingX = glyph.bearingX;
+            bearingY = glyph.bearingY;
+            advance = glyph.advance;
+            this.region = region;
+        }
+    }
+
+    private final TextureAtlas atlas;
+    private final GlyphRasterizer rasterizer;
+
+    //access ordered: iteration starts at the least recently used glyph
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(128, 0.75f, true);
+
+    //kerning per (left << 32 | right) pair, asked of the rasterizer once
+    private final Map<Long, Float> kerning = new HashMap<>();
+
+    private final float lineHeight;
+
+    private int hits, misses, evictions;
+    private int generation;
+
+    public GlyphCache(TextureAtlas atlas, GlyphRasterizer rasterizer) {
+        this.atlas = atlas;
+        this.rasterizer = rasterizer;
+        lineHeight = rasterizer.getLineHeight();
+    }
+
+    private static String atlasKey(int codePoint) {
+        return "glyph:" + codePoint;
+    }
+
+    //the glyph for codePoint, rasterized and added to the atlas if we don't have it yet
+    public Entry get(int codePoint) {
+        Entry entry = entries.get(codePoint);
+        if (entry != null) {
+            hits++;
+            return entry;
+        }
+        misses++;
+
+        GlyphRasterizer.Glyph glyph = rasterizer.rasterize(codePoint);
+        TextureAtlas.Region region = null;
+        if (glyph.pixels != null) {
+            String key = atlasKey(codePoint);
+            while ((region = atlas.add(key, glyph.width, glyph.height, glyph.pixels)) == null) {
+                if (!evictLeastRecentlyUsed()) {
+                    throw new IllegalStateException(String.format("Glyph U+%04X (%dx%d) doesn't fit in an empty glyph atlas", codePoint, glyph.width, glyph.height));
+                }
+            }
+        }
+
+        entry = new Entry(codePoint, glyph, region);
+        entries.put(codePoint, entry);
+        return entry;
+    }
+
+    //drop the least recently used glyph that occupies atlas space; false if there is none left
+    private boolean evictLeastRecentlyUsed() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry eldest = it.next();
+            if (eldest.region != null) {
+                it.remove();
+                atlas.remove(eldest.region.key);
+                evictions++;
+                generation++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public float getKerning(int left, int right) {
+        long pair = ((long) left << 32) | (right & 0xffffffffL);
+        Float k = kerning.get(pair);
+        if (k == null) {
+            k = rasterizer.getKerning(left, right);
+            kerning.put(pair, k);
+        }
+        return k;
+    }
+
+    public float getLineHeight() {
+        return lineHeight;
+    }
+
+    //bumped on every eviction; quads built at an older generation may sample the wrong glyph
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    public int getEvictions() {
+        return evictions;
+    }
+
+    //the atlas textures are gone with the GL context: forget every glyph so they get rasterized again
+    public void invalidate() {
+        entries.clear();
+        atlas.invalidate();
+        generation++;
+    }
+}
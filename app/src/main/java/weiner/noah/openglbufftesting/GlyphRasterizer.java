@@ -0,0 +1,35 @@
+package weiner.noah.openglbufftesting;
+
+import java.nio.Buffer;
+
+//turns single code points into pixels and metrics for the GlyphCache. all sizes are in pixels.
+//PaintGlyphRasterizer does it with an Android Paint; tests plug in a fake so layout and caching run on the JVM
+public interface GlyphRasterizer {
+    //one glyph's image and where it sits relative to the pen position on the baseline
+    final class Glyph {
+        public final int width, height;
+        //from the pen position to the image's left edge, and from the baseline up to its top edge
+        public final int bearingX, bearingY;
+        //how far the pen moves after this glyph
+        public final float advance;
+        //width * height tightly packed RGBA bytes, or null for glyphs with no ink (spaces)
+        public final Buffer pixels;
+
+        public Glyph(int width, int height, int bearingX, int bearingY, float advance, Buffer pixels) {
+            this.width = width;
+            this.height = height;
+            this.bearingX = bearingX;
+            this.bearingY = bearingY;
+            this.advance = advance;
+            this.pixels = pixels;
+        }
+    }
+
+    Glyph rasterize(int codePoint);
+
+    //extra pen movement between left and right when they follow each other (usually 0 or negative)
+    float getKerning(int left, int right);
+
+    //baseline to baseline distance
+    float getLineHeight();
+}
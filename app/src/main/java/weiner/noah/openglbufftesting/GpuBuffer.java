@@ -0,0 +1,112 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+//a GL buffer object (VBO/IBO) that lives on the GPU.
+//the drawables used to hand client-side FloatBuffers/ShortBuffers to glVertexAttribPointer/glDrawElements, which makes the driver copy the
+//geometry over on every single draw. with a GpuBuffer the data is uploaded once with glBufferData and the draw calls just pass byte offsets.
+public class GpuBuffer {
+    //how often we expect to rewrite the contents; passed to the driver as a placement hint
+    public enum Usage {
+        STATIC(GLES20.GL_STATIC_DRAW),   //written once, drawn many times (our quads)
+        DYNAMIC(GLES20.GL_DYNAMIC_DRAW), //rewritten every now and then
+        STREAM(GLES20.GL_STREAM_DRAW);   //rewritten about every frame
+
+        final int glUsage;
+
+        Usage(int glUsage) {
+            this.glUsage = glUsage;
+        }
+    }
+
+    private final Gles gl;
+    private final int target;
+    private final Usage usage;
+    private final int[] name = new int[1];
+
+    //size of the storage allocated on the GPU, in bytes
+    private int sizeBytes;
+
+    //target is GLES20.GL_ARRAY_BUFFER for vertex data or GLES20.GL_ELEMENT_ARRAY_BUFFER for indices
+    public GpuBuffer(Gles gl, int target, Usage usage) {
+        this.gl = gl;
+        this.target = target;
+        this.usage = usage;
+        gl.glGenBuffers(1, name, 0);
+    }
+
+    //convenience: a vertex buffer holding the given floats
+    public static GpuBuffer vertices(Gles gl, float[] data, Usage usage) {
+        FloatBuffer floats = ByteBuffer.allocateDirect(data.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        floats.put(data).position(0);
+
+        GpuBuffer buffer = new GpuBuffer(gl, GLES20.GL_ARRAY_BUFFER, usage);
+        buffer.upload(floats, data.length * 4);
+        return buffer;
+    }
+
+    //convenience: an index buffer holding the given shorts
+    public static GpuBuffer indices(Gles gl, short[] data, Usage usage) {
+        ShortBuffer shorts = ByteBuffer.allocateDirect(data.length * 2).order(ByteOrder.nativeOrder()).asShortBuffer();
+        shorts.put(data).position(0);
+
+        GpuBuffer buffer = new GpuBuffer(gl, GLES20.GL_ELEMENT_ARRAY_BUFFER, usage);
+        buffer.upload(shorts, data.length * 2);
+        return buffer;
+    }
+
+    public void bind() {
+        gl.glBindBuffer(target, name[0]);
+    }
+
+    //(re)allocate the storage and fill it with the first sizeBytes bytes of data (data may be null to just reserve the space)
+    public void upload(Buffer data, int sizeBytes) {
+        bind();
+        gl.glBufferData(target, sizeBytes, data, usage.glUsage);
+        this.sizeBytes = sizeBytes;
+    }
+
+    //reserve sizeBytes of storage without filling it, for buffers that get written piecewise with update()
+    public void allocate(int sizeBytes) {
+        upload(null, sizeBytes);
+    }
+
+    //overwrite part of the existing storage; does not reallocate
+    public void update(int offsetBytes, Buffer data, int sizeBytes) {
+        if (offsetBytes < 0 || offsetBytes + sizeBytes > this.sizeBytes) {
+            throw new IndexOutOfBoundsException(String.format("Update of %d bytes at %d doesn't fit in a %d byte buffer", sizeBytes, offsetBytes, this.sizeBytes));
+        }
+        bind();
+        gl.glBufferSubData(target, offsetBytes, sizeBytes, data);
+    }
+
+    public void release() {
+        if (name[0] != 0) {
+            gl.glDeleteBuffers(1, name, 0);
+            name[0] = 0;
+            sizeBytes = 0;
+        }
+    }
+
+    public int getName() {
+        return name[0];
+    }
+
+    public int getTarget() {
+        return target;
+    }
+
+    public Usage getUsage() {
+        return usage;
+    }
+
+    public int getSizeBytes() {
+        return sizeBytes;
+    }
+}
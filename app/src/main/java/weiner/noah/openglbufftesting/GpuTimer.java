@@ -0,0 +1,89 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES30;
+
+//measures how long the GPU spends on a frame with EXT_disjoint_timer_query (GL_TIME_ELAPSED_EXT queries).
+//results arrive a few frames late, so we keep a small ring of queries and read back whichever have finished without ever waiting.
+//if the GPU reports a disjoint event (frequency change, context switch...) everything in flight is thrown away.
+//only create one when GlCapabilities.supportsTimerQueries()
+public class GpuTimer {
+    //from the extension spec; not in android.opengl.GLES30
+    public static final int GL_TIME_ELAPSED_EXT = 0x88BF;
+    public static final int GL_GPU_DISJOINT_EXT = 0x8FBB;
+
+    private final Gles gl;
+    private final int[] queries;
+    private final boolean[] pending;
+    private final int[] result = new int[1];
+
+    //next slot to begin, oldest slot that may still be pending, and the slot of the open query (-1 if none)
+    private int next, oldest;
+    private int active = -1;
+
+    private int skipped, discarded;
+
+    //latency is how many frames may be in flight before we give up timing new ones; 3 to 5 is plenty
+    public GpuTimer(Gles gl, int latency) {
+        this.gl = gl;
+        queries = new int[latency];
+        pending = new boolean[latency];
+        gl.glGenQueries(latency, queries, 0);
+    }
+
+    //start timing the GPU work submitted from now on. skipped (and counted) if every query is still waiting for the GPU
+    public void begin() {
+        if (pending[next]) {
+            skipped++;
+            return;
+        }
+        active = next;
+        gl.glBeginQuery(GL_TIME_ELAPSED_EXT, queries[active]);
+    }
+
+    //stop timing, then return the newest finished measurement in nanoseconds, or -1 if none finished since the last call
+    public long end() {
+        if (active >= 0) {
+            gl.glEndQuery(GL_TIME_ELAPSED_EXT);
+            pending[active] = true;
+            next = (active + 1) % queries.length;
+            active = -1;
+        }
+        return collect();
+    }
+
+    private long collect() {
+        long latest = -1;
+        while (pending[oldest]) {
+            gl.glGetQueryObjectuiv(queries[oldest], GLES30.GL_QUERY_RESULT_AVAILABLE, result, 0);
+            if (result[0] == 0) {
+                break;
+            }
+            gl.glGetQueryObjectuiv(queries[oldest], GLES30.GL_QUERY_RESULT, result, 0);
+            latest = result[0] & 0xffffffffL;
+            pending[oldest] = false;
+            oldest = (oldest + 1) % queries.length;
+        }
+
+        //checking resets the flag, so one check covers everything collected above
+        gl.glGetIntegerv(GL_GPU_DISJOINT_EXT, result, 0);
+        if (result[0] != 0 && latest >= 0) {
+            discarded++;
+            return -1;
+        }
+        return latest;
+    }
+
+    //frames we couldn't time because the GPU was too far behind
+    public int getSkipped() {
+        return skipped;
+    }
+
+    //measurements thrown away because of a disjoint event
+    public int getDiscarded() {
+        return discarded;
+    }
+
+    public void release() {
+        gl.glDeleteQueries(queries.length, queries, 0);
+    }
+}
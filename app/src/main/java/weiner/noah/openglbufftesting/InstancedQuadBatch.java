@@ -0,0 +1,298 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+//the instanced version of QuadBatch's add(texture, model, argb): the quad's 4 vertices and 6 indices live in static buffers, and each
+//add() only appends the quad's model matrix and color (68 bytes instead of QuadBatch's 96 bytes of transformed corners) to a streaming
+//instance buffer. a flush is one glDrawElementsInstanced, with the instance attributes advanced once per quad by glVertexAttribDivisor.
+//needs ES 3.0 (see GlCapabilities.supportsInstancing()); create() falls back to a QuadBatch where that's missing.
+//the divisors are global attribute state without vertex array objects, so every flush sets them back to 0 for the other drawables.
+//draw(EntityStore) skips add() altogether: the store already keeps its instances in this layout.
+//instances, add()ed or from a store, stream through a StreamingBufferRing a few flushes long, mapped and fenced where ES 3.0 allows it.
+public class InstancedQuadBatch implements QuadDrawer {
+    //attribute/uniform slots. the mat4 takes 4 consecutive locations starting at a_Model's
+    static final String[] ATTRIBUTES = {"a_Position", "a_TexCoordinate", "a_Color", "a_Model"};
+    static final int A_POSITION = 0, A_TEX_COORDINATE = 1, A_COLOR = 2, A_MODEL = 3;
+
+    static final String[] UNIFORMS = {"uVPMatrix", "u_Texture"};
+    static final int U_VP_MATRIX = 0, U_TEXTURE = 1;
+
+    //static quad: x, y, s, t per vertex, top left, bottom left, bottom right, top right like QuadBatch writes them
+    private static final float[] QUAD = {
+            -1f, 1f, 0f, 0f,
+            -1f, -1f, 0f, 1f,
+            1f, -1f, 1f, 1f,
+            1f, 1f, 1f, 0f
+    };
+    private static final int QUAD_STRIDE = 4 * 4;
+
+    //per instance: 16 matrix floats, then r, g, b, a bytes
+    static final int INSTANCE_STRIDE = 16 * 4 + 4;
+    static final int MODEL_OFFSET = 0;
+    static final int COLOR_OFFSET = 16 * 4;
+    static final int INSTANCE_WORDS = INSTANCE_STRIDE / 4;
+
+    //full flushes the instance ring holds before it comes round again
+    static final int RING_FLUSHES = 4;
+
+    private final Gles gl;
+    private final ShaderProgramCache shaders;
+    private final ShaderProgram program;
+
+    private final int capacity;
+    private final GpuBuffer quadBuffer;
+    private final GpuBuffer indexBuffer;
+    private final StreamingBufferRing instances;
+
+    //staging gets bulk-put into the upload's int view, and the upload itself goes to the ring as bytes, which it copies as they are
+    private final int[] staging;
+    private final ByteBuffer upload;
+    private final IntBuffer uploadInts;
+    private int instanceCount;
+
+    private int texture;
+    private float[] viewProjection;
+    private boolean drawing;
+
+    private int drawCalls;
+    private int quadsDrawn;
+
+    //the instanced drawer if the context can instance, otherwise a QuadBatch doing the same on the CPU
+    public static QuadDrawer create(Gles gl, ShaderProgramCache shaders, GlCapabilities capabilities, int capacity) {
+        if (capabilities.supportsInstancing()) {
+            return new InstancedQuadBatch(gl, shaders, capacity,
+                    capabilities.supportsMappedStreaming() ? StreamingBufferRing.Mode.MAPPED : StreamingBufferRing.Mode.ORPHAN);
+        }
+        return new QuadBatch(gl, shaders, Math.min(capacity, QuadBatch.MAX_QUADS));
+    }
+
+    public InstancedQuadBatch(Gles gl, ShaderProgramCache shaders, int capacity) {
+        this(gl, shaders, capacity, StreamingBufferRing.Mode.ORPHAN);
+    }
+
+    public InstancedQuadBatch(Gles gl, ShaderProgramCache shaders, int capacity, StreamingBufferRing.Mode streaming) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("Batch capacity must be positive, got %d", capacity));
+        }
+        this.gl = gl;
+        this.shaders = shaders;
+        this.capacity = capacity;
+
+        program = shaders.acquire(vertexShaderCode, QuadBatch.fragmentShaderCode, ATTRIBUTES, UNIFORMS);
+
+        staging = new int[capacity * INSTANCE_WORDS];
+        upload = ByteBuffer.allocateDirect(staging.length * 4).order(ByteOrder.nativeOrder());
+        uploadInts = upload.asIntBuffer();
+
+        quadBuffer = GpuBuffer.vertices(gl, QUAD, GpuBuffer.Usage.STATIC);
+        indexBuffer = QuadBatch.quadIndices(gl, 1);
+
+        //each flush gets the next stretch of the ring instead of orphaning a whole buffer like QuadBatch's vertex buffer
+        instances = new StreamingBufferRing(gl, GLES20.GL_ARRAY_BUFFER, staging.length * 4 * RING_FLUSHES, streaming);
+    }
+
+    @Override
+    public void begin(float[] viewProjection) {
+        if (drawing) {
+            throw new IllegalStateException("begin() called twice without end()");
+        }
+        this.viewProjection = viewProjection;
+        drawing = true;
+    }
+
+    @Override
+    public void end() {
+        if (!drawing) {
+            throw new IllegalStateException("end() called without begin()");
+        }
+        flush();
+        //the draws of this begin()/end() are issued, so this is where the ring fences what they read
+        instances.endFrame();
+        drawing = false;
+    }
+
+    @Override
+    public void add(int texture, float[] model, int argb) {
+        if (!drawing) {
+            throw new IllegalStateException("add() called outside begin()/end()");
+        }
+        if (texture != this.texture || instanceCount == capacity) {
+            flush();
+            this.texture = texture;
+        }
+
+        int out = instanceCount * INSTANCE_WORDS;
+        for (int i = 0; i < 16; i++) {
+            staging[out + i] = Float.floatToRawIntBits(model[i]);
+        }
+        staging[out + 16] = QuadBatch.toRgbaBytes(argb);
+        instanceCount++;
+    }
+
+    //draw the pending quads with one glDrawElementsInstanced
+    public void flush() {
+        if (instanceCount == 0) {
+            return;
+        }
+
+        bindProgram(texture);
+
+        //per-instance attributes out of the next free stretch of the ring, which leaves it bound
+        int words = instanceCount * INSTANCE_WORDS;
+        uploadInts.clear();
+        uploadInts.put(staging, 0, words);
+        int base = instances.write(upload, words * 4);
+
+        drawInstances(base, instanceCount);
+        resetDivisors();
+        instanceCount = 0;
+    }
+
+    //draw every shown instance in entities. their instance data is already in this batch's layout, so it goes into the instance ring
+    //as it is, with no staging copy, in one write (one per ring's worth if the store holds more); then one glDrawElementsInstanced per
+    //run of instances sharing a texture. quads add()ed before are drawn first
+    public void draw(EntityStore entities) {
+        if (!drawing) {
+            throw new IllegalStateException("draw() called outside begin()/end()");
+        }
+        flush();
+        int count = entities.writeInstances();
+        if (count == 0) {
+            return;
+        }
+
+        ByteBuffer data = entities.getInstanceData();
+        //a store holding more than the ring goes in a ring's worth of instances at a time
+        int perWrite = instances.getCapacity() / INSTANCE_STRIDE;
+        for (int start = 0; start < count; start += perWrite) {
+            int end = Math.min(count, start + perWrite);
+            data.position(start * INSTANCE_STRIDE);
+            int base = instances.write(data, (end - start) * INSTANCE_STRIDE);
+
+            for (int first = start; first < end; ) {
+                int texture = entities.getWrittenTexture(first);
+                int last = first + 1;
+                while (last < end && entities.getWrittenTexture(last) == texture) {
+                    last++;
+                }
+                bindProgram(texture);
+                instances.bind();
+                drawInstances(base + (first - start) * INSTANCE_STRIDE, last - first);
+                first = last;
+            }
+        }
+        data.position(0);
+        resetDivisors();
+    }
+
+    //program, uniforms, texture, blending and the static quad's per-vertex attributes
+    private void bindProgram(int texture) {
+        program.use();
+        gl.glUniformMatrix4fv(program.uniformLocation(U_VP_MATRIX), 1, false, viewProjection, 0);
+
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+        gl.glUniform1i(program.uniformLocation(U_TEXTURE), 0);
+
+        gl.glDisable(GLES20.GL_CULL_FACE);
+        gl.glEnable(GLES20.GL_BLEND);
+        gl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+
+        //per-vertex attributes out of the static quad
+        quadBuffer.bind();
+        indexBuffer.bind();
+        pointAttribute(program.attribLocation(A_POSITION), 2, GLES20.GL_FLOAT, false, QUAD_STRIDE, 0, 0);
+        pointAttribute(program.attribLocation(A_TEX_COORDINATE), 2, GLES20.GL_FLOAT, false, QUAD_STRIDE, 2 * 4, 0);
+    }
+
+    //count instances starting base bytes into whichever instance buffer is bound to GL_ARRAY_BUFFER. ES 3.0 has no base instance, so
+    //the instance attributes are pointed at the first one instead
+    private void drawInstances(int base, int count) {
+        int model = program.attribLocation(A_MODEL);
+        if (model >= 0) {
+            for (int column = 0; column < 4; column++) {
+                pointAttribute(model + column, 4, GLES20.GL_FLOAT, false, INSTANCE_STRIDE, base + MODEL_OFFSET + column * 16, 1);
+            }
+        }
+        pointAttribute(program.attribLocation(A_COLOR), 4, GLES20.GL_UNSIGNED_BYTE, true, INSTANCE_STRIDE, base + COLOR_OFFSET, 1);
+
+        gl.glDrawElementsInstanced(GLES20.GL_TRIANGLES, 6, GLES20.GL_UNSIGNED_SHORT, 0, count);
+        drawCalls++;
+        quadsDrawn += count;
+    }
+
+    //back to per-vertex for whoever draws next
+    private void resetDivisors() {
+        int model = program.attribLocation(A_MODEL);
+        if (model >= 0) {
+            for (int column = 0; column < 4; column++) {
+                gl.glVertexAttribDivisor(model + column, 0);
+            }
+        }
+        if (program.attribLocation(A_COLOR) >= 0) {
+            gl.glVertexAttribDivisor(program.attribLocation(A_COLOR), 0);
+        }
+    }
+
+    private void pointAttribute(int location, int size, int type, boolean normalized, int stride, int offset, int divisor) {
+        if (location >= 0) {
+            gl.glEnableVertexAttribArray(location);
+            gl.glVertexAttribPointer(location, size, type, normalized, stride, offset);
+            if (divisor != 0) {
+                gl.glVertexAttribDivisor(location, divisor);
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    //where instances are streamed through, for its bytes streamed and stall counts
+    public StreamingBufferRing getInstanceStream() {
+        return instances;
+    }
+
+    @Override
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    @Override
+    public int getQuadsDrawn() {
+        return quadsDrawn;
+    }
+
+    @Override
+    public void resetStats() {
+        drawCalls = 0;
+        quadsDrawn = 0;
+    }
+
+    @Override
+    public void release() {
+        shaders.release(program);
+        quadBuffer.release();
+        indexBuffer.release();
+        instances.release();
+    }
+
+    //QuadBatch's shaders with the model transform moved to the GPU; the fragment shader is shared
+    static final String vertexShaderCode =
+            "uniform mat4 uVPMatrix;" +
+                    "attribute vec4 a_Position;" +
+                    "attribute vec2 a_TexCoordinate;" +
+                    "attribute vec4 a_Color;" +         //per instance, normalized from 4 unsigned bytes
+                    "attribute mat4 a_Model;" +         //per instance
+                    "varying vec2 v_TexCoordinate;" +
+                    "varying vec4 v_Color;" +
+                    "void main() {" +
+                    "v_TexCoordinate = a_TexCoordinate;" +
+                    "v_Color = a_Color;" +
+                    "gl_Position = uVPMatrix * a_Model * a_Position;" +
+                    "}";
+}
@@ -0,0 +1,126 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+//runs data parallel loops on a work-stealing ForkJoinPool: parallelFor() cuts an index range into chunks, a few per worker so a worker
+//that finishes early steals from one that got the expensive part, and returns once every chunk has run.
+//a chunk is always the same range for the same count, so a job can keep its results in per-chunk slots of preallocated arrays and the
+//caller can merge them in chunk order afterwards, with no locks and the same order whichever worker ran what. the chunk tasks are
+//preallocated too and reused every call, so a steady stream of parallelFor()s doesn't allocate.
+//with one worker, or a range too small to be worth splitting, the job runs on the calling thread. one caller at a time
+public class JobSystem {
+    //chunks per worker; more balances better, fewer costs less to hand out
+    public static final int CHUNKS_PER_WORKER = 4;
+
+    //a loop body over [from, to), the chunk-th of the call's chunks
+    public interface Job {
+        void run(int chunk, int from, int to);
+    }
+
+    private final int workers;
+    private final ForkJoinPool pool;
+
+    private final Chunk[] chunks;
+    private final Fork fork = new Fork();
+
+    private static final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        Job job;
+        int index, from, to;
+
+        @Override
+        protected void compute() {
+            job.run(index, from, to);
+        }
+    }
+
+    //runs the first chunk itself and leaves the rest to be stolen
+    private final class Fork extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        int count;
+
+        @Override
+        protected void compute() {
+            for (int i = 1; i < count; i++) {
+                chunks[i].fork();
+            }
+            chunks[0].invoke();
+            for (int i = 1; i < count; i++) {
+                chunks[i].join();
+            }
+        }
+    }
+
+    public JobSystem(int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException(String.format("A job system needs at least one worker, got %d", workers));
+        }
+        this.workers = workers;
+        pool = workers > 1 ? new ForkJoinPool(workers) : null;
+        chunks = new Chunk[getMaxChunks()];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Chunk();
+        }
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    //the most chunks a parallelFor() ever cuts a range into, i.e. how many per-chunk output slots a job needs
+    public int getMaxChunks() {
+        return workers * CHUNKS_PER_WORKER;
+    }
+
+    //how many chunks parallelFor(count, minChunk, ...) uses
+    public int chunkCount(int count, int minChunk) {
+        if (count <= 0) {
+            return 0;
+        }
+        return Math.max(1, Math.min(getMaxChunks(), count / Math.max(1, minChunk)));
+    }
+
+    //run job over [0, count) in chunks of at least minChunk indices (except when count itself is smaller), and wait for all of them.
+    //returns how many chunks there were; chunk i covers [count * i / chunks, count * (i + 1) / chunks)
+    public int parallelFor(int count, int minChunk, Job job) {
+        int n = chunkCount(count, minChunk);
+        if (n == 0) {
+            return 0;
+        }
+        if (n == 1 || pool == null) {
+            for (int i = 0; i < n; i++) {
+                job.run(i, (int) ((long) count * i / n), (int) ((long) count * (i + 1) / n));
+            }
+            return n;
+        }
+        for (int i = 0; i < n; i++) {
+            Chunk chunk = chunks[i];
+            chunk.reinitialize();
+            chunk.job = job;
+            chunk.index = i;
+            chunk.from = (int) ((long) count * i / n);
+            chunk.to = (int) ((long) count * (i + 1) / n);
+        }
+        fork.reinitialize();
+        fork.count = n;
+        try {
+            pool.invoke(fork);
+        }
+        finally {
+            for (int i = 0; i < n; i++) {
+                chunks[i].job = null;
+            }
+        }
+        return n;
+    }
+
+    //stop the workers once they're idle; parallelFor() can't be used after this
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
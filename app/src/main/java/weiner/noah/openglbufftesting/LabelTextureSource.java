@@ -0,0 +1,58 @@
+package weiner.noah.openglbufftesting;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.opengl.GLES20;
+
+import androidx.core.content.res.ResourcesCompat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+//a drawable resource as the background with a line of text over it, like the square's "NOSHAKE TEST" tile, drawn with a Canvas on
+//whichever worker thread TextureLoader decodes on. ARGB_8888 copies out as R, G, B, A bytes, so the pixels go up as GL_RGBA as is
+public class LabelTextureSource implements TextureSource {
+    private final Resources resources;
+    private final int backgroundId;
+    private final String text;
+    private final int size;
+    private final float textSize, textX, textY;
+    private final int textColor;
+
+    public LabelTextureSource(Resources resources, int backgroundId, int size, String text, float textSize, float textX, float textY, int textColor) {
+        this.resources = resources;
+        this.backgroundId = backgroundId;
+        this.size = size;
+        this.text = text;
+        this.textSize = textSize;
+        this.textX = textX;
+        this.textY = textY;
+        this.textColor = textColor;
+    }
+
+    @Override
+    public TexturePixels decode() {
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        bitmap.eraseColor(0);
+
+        Drawable background = ResourcesCompat.getDrawable(resources, backgroundId, null);
+        background.setBounds(0, 0, size, size);
+        background.draw(canvas);
+
+        Paint textPaint = new Paint();
+        textPaint.setTextSize(textSize);
+        textPaint.setAntiAlias(true);
+        textPaint.setColor(textColor);
+        canvas.drawText(text, textX, textY, textPaint);
+
+        ByteBuffer pixels = ByteBuffer.allocateDirect(size * size * 4).order(ByteOrder.nativeOrder());
+        bitmap.copyPixelsToBuffer(pixels);
+        pixels.position(0);
+        bitmap.recycle();
+        return new TexturePixels(size, size, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixels);
+    }
+}
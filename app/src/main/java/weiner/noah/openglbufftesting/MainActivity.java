@@ -4,12 +4,14 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import android.opengl.GLSurfaceView;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.Window;
 import android.view.WindowManager;
 
 public class MainActivity extends AppCompatActivity {
 
     private OpenGLView openGLView;
+    private OpenGLRenderer renderer;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -24,9 +26,20 @@ public class MainActivity extends AppCompatActivity {
 
         openGLView.setEGLContextClientVersion(2);
 
+        //ES 3.0 where the device has it, so the renderer can use instancing and GPU timers; 2.0 otherwise. the config has to be one
+        //a 3.0 context can be made on, so the factory picks that too
+        Es3ContextFactory contextFactory = new Es3ContextFactory();
+        openGLView.setEGLConfigChooser(contextFactory);
+        openGLView.setEGLContextFactory(contextFactory);
+
         openGLView.setPreserveEGLContextOnPause(true);
 
-        openGLView.setRenderer(new OpenGLRenderer(this, MainActivity.this));
+        renderer = new OpenGLRenderer(this, MainActivity.this);
+        openGLView.setRenderer(renderer);
+
+        //draw when something changed instead of at display rate; the renderer asks for frames while its animation runs
+        openGLView.setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
+        renderer.setOnDemand(openGLView, true);
 
         //openGLView = (OpenGLView) findViewById(R.id.openGLView);
 
@@ -37,11 +50,35 @@ public class MainActivity extends AppCompatActivity {
     protected void onResume() {
         super.onResume();
         openGLView.onResume();
+        renderer.onResume();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
+
+        //dump the frame time percentiles from the GL thread, where the profiler is written; queued events still run while paused
+        openGLView.queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                Log.d("DBUG", renderer.getProfiler().report());
+                Log.d("DBUG", renderer.getFrameReport());
+            }
+        });
         openGLView.onPause();
+        renderer.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        //the renderer's threads outlive the activity unless told to stop; queued before the view is detached, so the GL thread still
+        //runs it before it exits
+        openGLView.queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                renderer.release();
+            }
+        });
+        super.onDestroy();
     }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package weiner.noah.openglbufftesting;
+
+//4x4 matrix math on flat float[]s with offsets, column major like GL and android.opengl.Matrix (element (row, col) is m[off + col * 4 + row]).
+//pure Java so the matrix setup runs (and is tested) on the JVM, and nothing here allocates. the loops are written out as straight runs of
+//multiply-adds over a column at a time, which is what the JIT needs to keep everything in registers.
+//results must not overlap their inputs (same as android.opengl.Matrix).
+public final class Mat4 {
+    private Mat4() {
+    }
+
+    public static void setIdentity(float[] m, int off) {
+        for (int i = 0; i < 16; i++) {
+            m[off + i] = 0f;
+        }
+        m[off] = 1f;
+        m[off + 5] = 1f;
+        m[off + 10] = 1f;
+        m[off + 15] = 1f;
+    }
+
+    //r = a * b for any two matrices: 64 multiplies
+    public static void multiply(float[] r, int ro, float[] a, int ao, float[] b, int bo) {
+        float a00 = a[ao], a10 = a[ao + 1], a20 = a[ao + 2], a30 = a[ao + 3];
+        float a01 = a[ao + 4], a11 = a[ao + 5], a21 = a[ao + 6], a31 = a[ao + 7];
+        float a02 = a[ao + 8], a12 = a[ao + 9], a22 = a[ao + 10], a32 = a[ao + 11];
+        float a03 = a[ao + 12], a13 = a[ao + 13], a23 = a[ao + 14], a33 = a[ao + 15];
+
+        for (int c = 0; c < 16; c += 4) {
+            float b0 = b[bo + c], b1 = b[bo + c + 1], b2 = b[bo + c + 2], b3 = b[bo + c + 3];
+            r[ro + c] = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+            r[ro + c + 1] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+            r[ro + c + 2] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+            r[ro + c + 3] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+        }
+    }
+
+    //r = a * b where both are affine (bottom row 0, 0, 0, 1), as model and view matrices are: 36 multiplies, and the bottom row isn't read
+    public static void multiplyAffine(float[] r, int ro, float[] a, int ao, float[] b, int bo) {
+        float a00 = a[ao], a10 = a[ao + 1], a20 = a[ao + 2];
+        float a01 = a[ao + 4], a11 = a[ao + 5], a21 = a[ao + 6];
+        float a02 = a[ao + 8], a12 = a[ao + 9], a22 = a[ao + 10];
+
+        for (int c = 0; c < 12; c += 4) {
+            float b0 = b[bo + c], b1 = b[bo + c + 1], b2 = b[bo + c + 2];
+            r[ro + c] = a00 * b0 + a01 * b1 + a02 * b2;
+            r[ro + c + 1] = a10 * b0 + a11 * b1 + a12 * b2;
+            r[ro + c + 2] = a20 * b0 + a21 * b1 + a22 * b2;
+            r[ro + c + 3] = 0f;
+        }
+
+        float b0 = b[bo + 12], b1 = b[bo + 13], b2 = b[bo + 14];
+        r[ro + 12] = a00 * b0 + a01 * b1 + a02 * b2 + a[ao + 12];
+        r[ro + 13] = a10 * b0 + a11 * b1 + a12 * b2 + a[ao + 13];
+        r[ro + 14] = a20 * b0 + a21 * b1 + a22 * b2 + a[ao + 14];
+        r[ro + 15] = 1f;
+    }
+
+    //m = m * translation(x, y, z), in place
+    public static void translate(float[] m, int off, float x, float y, float z) {
+        for (int i = 0; i < 4; i++) {
+            m[off + 12 + i] += m[off + i] * x + m[off + 4 + i] * y + m[off + 8 + i] * z;
+        }
+    }
+
+    //m = rotation by degrees around the axis (x, y, z), which doesn't have to be unit length
+    public static void setRotate(float[] m, int off, float degrees, float x, float y, float z) {
+        setIdentity(m, off);
+        setRotation3x3(m, off, degrees, x, y, z);
+    }
+
+    //write a rotation into the upper left 3x3 of m, leaving the rest alone
+    static void setRotation3x3(float[] m, int off, float degrees, float x, float y, float z) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0f) {
+            throw new IllegalArgumentException("Rotation axis can't be zero");
+        }
+        x /= length;
+        y /= length;
+        z /= length;
+
+        double radians = Math.toRadians(degrees);
+        float s = (float) Math.sin(radians);
+        float c = (float) Math.cos(radians);
+        float nc = 1f - c;
+
+        m[off] = x * x * nc + c;
+        m[off + 1] = x * y * nc + z * s;
+        m[off + 2] = z * x * nc - y * s;
+        m[off + 4] = x * y * nc - z * s;
+        m[off + 5] = y * y * nc + c;
+        m[off + 6] = y * z * nc + x * s;
+        m[off + 8] = z * x * nc + y * s;
+        m[off + 9] = y * z * nc - x * s;
+        m[off + 10] = z * z * nc + c;
+    }
+
+    //perspective projection of the box (left, bottom, -near)..(right, top, -near) out to far
+    public static void setFrustum(float[] m, int off, float left, float right, float bottom, float top, float near, float far) {
+        if (left == right || bottom == top || near == far || near <= 0f || far <= 0f) {
+            throw new IllegalArgumentException(String.format("Bad frustum l=%f r=%f b=%f t=%f n=%f f=%f", left, right, bottom, top, near, far));
+        }
+        float width = 1f / (right - left);
+        float height = 1f / (top - bottom);
+        float depth = 1f / (near - far);
+
+        setIdentity(m, off);
+        m[off] = 2f * near * width;
+        m[off + 5] = 2f * near * height;
+        m[off + 8] = (right + left) * width;
+        m[off + 9] = (top + bottom) * height;
+        m[off + 10] = (far + near) * depth;
+        m[off + 11] = -1f;
+        m[off + 14] = 2f * far * near * depth;
+        m[off + 15] = 0f;
+    }
+
+    //symmetric perspective projection with a vertical field of view in degrees
+    public static void setPerspective(float[] m, int off, float fovyDegrees, float aspect, float near, float far) {
+        float top = near * (float) Math.tan(Math.toRadians(fovyDegrees) / 2);
+        float right = top * aspect;
+        setFrustum(m, off, -right, right, -top, top, near, far);
+    }
+
+    //view matrix for an eye at (eyeX, eyeY, eyeZ) looking at (centerX, centerY, centerZ) with the given up direction
+    public static void setLookAt(float[] m, int off, float eyeX, float eyeY, float eyeZ, float centerX, float centerY, float centerZ,
+                                 float upX, float upY, float upZ) {
+        //forward
+        float fx = centerX - eyeX, fy = centerY - eyeY, fz = centerZ - eyeZ;
+        float rlf = 1f / (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+        fx *= rlf;
+        fy *= rlf;
+        fz *= rlf;
+
+        //side = forward x up
+        float sx = fy * upZ - fz * upY, sy = fz * upX - fx * upZ, sz = fx * upY - fy * upX;
+        float rls = 1f / (float) Math.sqrt(sx * sx + sy * sy + sz * sz);
+        sx *= rls;
+        sy *= rls;
+        sz *= rls;
+
+        //recomputed up = side x forward, already unit length
+        float ux = sy * fz - sz * fy, uy = sz * fx - sx * fz, uz = sx * fy - sy * fx;
+
+        m[off] = sx;
+        m[off + 1] = ux;
+        m[off + 2] = -fx;
+        m[off + 3] = 0f;
+        m[off + 4] = sy;
+        m[off + 5] = uy;
+        m[off + 6] = -fy;
+        m[off + 7] = 0f;
+        m[off + 8] = sz;
+        m[off + 9] = uz;
+        m[off + 10] = -fz;
+        m[off + 11] = 0f;
+
+        //the rotation applied to -eye
+        m[off + 12] = -(sx * eyeX + sy * eyeY + sz * eyeZ);
+        m[off + 13] = -(ux * eyeX + uy * eyeY + uz * eyeZ);
+        m[off + 14] = fx * eyeX + fy * eyeY + fz * eyeZ;
+        m[off + 15] = 1f;
+    }
+
+    //out = m * (x, y, z, 1) for an affine m; writes x, y, z
+    public static void transformPoint(float[] out, int oo, float[] m, int mo, float x, float y, float z) {
+        out[oo] = m[mo] * x + m[mo + 4] * y + m[mo + 8] * z + m[mo + 12];
+        out[oo + 1] = m[mo + 1] * x + m[mo + 5] * y + m[mo + 9] * z + m[mo + 13];
+        out[oo + 2] = m[mo + 2] * x + m[mo + 6] * y + m[mo + 10] * z + m[mo + 14];
+    }
+}
@@ -6,20 +6,18 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.drawable.Drawable;
+import android.opengl.EGL14;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
 import android.opengl.GLU;
 import android.opengl.GLUtils;
-import android.opengl.Matrix;
-import android.os.SystemClock;
 import android.util.DisplayMetrics;
 import android.util.Log;
-import android.widget.Toast;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
+import java.util.concurrent.ExecutorService;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL;
@@ -43,46 +41,176 @@ public class OpenGLRenderer implements GLSurfaceView.Renderer {
     private Square mSquare;
     private ScreenShader mScreenShader;
 
-    private int factor = 1;
+    //every drawable issues its GL calls through this instead of the static GLES20 methods.
+    //the state cache in front of the driver drops redundant state changes (same program, same blend func, ...)
+    private final GlStateCache gles = new GlStateCache(new AndroidGles());
+
+    //compiled shaders and linked programs, shared by every drawable. rebuilt whenever we get a new GL context
+    private ShaderProgramCache shaderCache;
+
+    //what the current context supports, read in onSurfaceCreated
+    private GlCapabilities capabilities;
 
-    private long time;
+    private int factor = 1;
 
-    private int[] frameBuffers = new int[1];
+    //every offscreen framebuffer comes out of this pool and goes back into it, so passes and resizes recycle them
+    private final RenderTargetPool renderTargetPool = new RenderTargetPool(gles);
+
+    //the offscreen target the scene is drawn into, sized from the surface (times the render scale) instead of a fixed 4x screen
+    private final RenderTargetManager renderTargets = new RenderTargetManager(gles, renderTargetPool, RenderTargetManager.DEFAULT_SCALE, RenderTarget.Format.RGBA8888, true);
+
+    //CPU timings per frame and per pass, plus GPU timings where the driver has timer queries
+    private final FrameProfiler profiler = new FrameProfiler();
+    private final int waitScope = profiler.addScope("waiting for a frame");
+    private final int uploadScope = profiler.addScope("texture uploads");
+
+    //the offscreen and screen passes; Android-free so the frame can run in JVM tests
+    private final FrameRenderer frameRenderer = new FrameRenderer(gles, renderTargets, profiler);
+
+    //passes run over the offscreen target before it goes to the screen. all of them start disabled, which costs nothing: the screen pass
+    //then samples the scene target directly, like before there was a pipeline
+    private final PostProcessPipeline postProcess = new PostProcessPipeline(gles, renderTargetPool, profiler);
+
+    //moves the square on its own thread at a fixed 60 ticks a second; while it runs, an on-demand renderer keeps asking for frames
+    private final SimulationThread simulation = new SimulationThread(new SquareSimulation(), 60, 1);
+    private final float[] pose = new float[TransformSnapshot.STRIDE];
+
+    //the CPU half of each frame (poses, culling, matrices, sorting) runs on a producer thread, recording command buffers that
+    //onDrawFrame() only replays, so recording frame N+1 overlaps submitting frame N. the producer owns the scene while it runs: it's
+    //stopped whenever the scene or the camera changes, and started again by the next frame
+    private final CommandBufferPipeline pipeline = new CommandBufferPipeline(new CommandBufferPipeline.Producer() {
+        @Override
+        public void produce(CommandBuffer out) {
+            //the newest poses from the simulation thread. frames show them one tick late, so there's always a tick on either side to
+            //interpolate between and the square moves smoothly whatever the frame rate
+            TransformSnapshot poses = simulation.latest();
+            float alpha = simulation.alpha(poses);
+            if (poses.getCount() > 0) {
+                poses.interpolate(0, alpha, pose, 0);
+                squareNode.getTransform().setPosition(pose[0], pose[1], pose[2]);
+                squareNode.getTransform().setRotation(pose[3], 0, 0, 1);
+            }
+            frameRenderer.record(camera.getViewProjection(), out);
+        }
+    }, 3, 64);
+
+    //when the next frame gets drawn, and how often at most
+    private final RenderScheduler scheduler = new RenderScheduler();
+    private final FramePacer pacer = new FramePacer();
+
+    //textures decode on a couple of worker threads and upload on a shared context (or a slice a frame on this one); whenever one has
+    //something for the next frame, it asks for that frame. the decode threads never time out, so release() shuts them down
+    private final ExecutorService decodePool = TextureLoader.newDecodePool(2);
+    private final TextureLoader textureLoader = new TextureLoader(gles, decodePool, new Runnable() {
+        @Override
+        public void run() {
+            scheduler.requestFrame();
+        }
+    });
 
-    //data for projection and camera view
-    //vPMatrix is abbreviation for "Model View Projection Matrix." Use this matrix if we want to just combine the matrices by matrix multiplication
-    private final float[] vPMatrix = new float[16];
+    //every drawable's textures, shared by source and evicted least recently used first once they'd take more than the budget
+    private final TextureCache textureCache = new TextureCache(textureLoader, TextureCache.DEFAULT_BUDGET_BYTES);
 
-    //store the projection matrix. This is used to project scene onto a 2D viewport.
-    private final float[] projectionMatrix = new float[16];
+    //the square's label; acquired once, and reloaded by the loader after a context loss
+    private TextureCache.Handle squareTexture;
 
-    //store the view matrix. This can be thought of as our camera. The matrix transforms world space to eye space; it positions things relative to our eye.
-    private final float[] viewMatrix = new float[16];
+    //the view and projection matrices; both only change in onSurfaceCreated/onSurfaceChanged
+    private final Camera camera = new Camera();
 
-    //store the model matrix. This is used
-    private float[] mModelMatrix = new float[16];
+    //everything drawn into the offscreen target, culled against the camera every frame. rebuilt with the drawables on a new context
+    private SceneGraph scene;
 
-    //make a rotation matrix
-    private float[] rotationMatrix = new float[16];
+    //culling and sorting big scenes spread over the cores the GL thread isn't using. a scene of one square is far below where that kicks in, so
+    //today this only costs an idle pool, which release() shuts down
+    private final JobSystem sceneJobs = new JobSystem(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
 
-    public static int[] textureBuffer = new int[1];
+    //the square's node. the rotation never changes, so a frame only rewrites the translation
+    private SceneNode squareNode;
 
     private int w, h;
 
     float[] scratch = new float[16];
 
 
-    //text render to texture vars
-    // RENDER TO TEXTURE VARIABLES
-    int[] fb, depthRb, renderTex; // the framebuffer, the renderbuffer and the texture to render
-    int texW = 480 * 2;           // the texture's width
-    int texH = 800 * 2;           // the texture's height
-    IntBuffer texBuffer;          //  Buffer to store the texture
-
     public OpenGLRenderer(Context context, Activity activity) {
         //provide the application context to the square object because the obj itself loads the texture and needs to know the path to the bitmap
         myContext = context;
         myActivity = activity;
+
+        //steady the picture first, then a cheap quarter-resolution blur, then grade the colors of whatever's left
+        postProcess.addPass(new StabilizationPass());
+        postProcess.addPass(new DownsamplePass());
+        postProcess.addPass(BlurPass.horizontal());
+        postProcess.addPass(BlurPass.vertical());
+        postProcess.addPass(new ColorGradePass());
+        for (int i = 0; i < postProcess.getPassCount(); i++) {
+            postProcess.getPass(i).setEnabled(false);
+        }
+        frameRenderer.setPostProcess(postProcess);
+    }
+
+    //start and stop the simulation with the activity
+    public void onResume() {
+        simulation.start();
+    }
+
+    public void onPause() {
+        simulation.stop();
+        pipeline.stop();
+    }
+
+    //let go of the threads and the upload context this renderer started, and whatever's left of its textures: a rotation builds a
+    //new activity and with it a new renderer, so otherwise every one leaks them. GL thread (GLSurfaceView.queueEvent), after onPause()
+    public void release() {
+        textureLoader.release();
+        decodePool.shutdown();
+        sceneJobs.shutdown();
+    }
+
+    //draw only when something changed (GLSurfaceView.RENDERMODE_WHEN_DIRTY, with the view asking for the frames) or at display rate.
+    //switch the view's render mode to match
+    public void setOnDemand(RenderScheduler.Requester view, boolean onDemand) {
+        scheduler.setOnDemand(view, onDemand);
+    }
+
+    //at most this many frames a second, or FramePacer.UNCAPPED; any thread
+    public void setMaxFps(int fps) {
+        pacer.setMaxFps(fps);
+    }
+
+    //start or stop the square's animation; it carries on from where it stopped. UI thread
+    public void setAnimating(boolean animating) {
+        if (animating) {
+            simulation.start();
+        }
+        else {
+            simulation.stop();
+        }
+        scheduler.requestFrame();
+    }
+
+    //offscreen resolution as a multiple of the surface size: >1 supersamples, <1 trades sharpness for fill rate and memory.
+    //has to run on the GL thread, e.g. through GLSurfaceView.queueEvent()
+    public void setRenderScale(float scale) {
+        renderTargets.setScale(scale);
+        Log.d("DBUG", renderTargets.report());
+        Log.d("DBUG", renderTargetPool.report());
+    }
+
+    //how much of each frame got redrawn and how often the frame rate cap held frames back. GL thread
+    public String getFrameReport() {
+        return frameRenderer.report() + "\n" + pipeline.report() + "\n" + pacer.report() + "\n" + simulation.report() + "\n" + textureLoader.report()
+                + "\n" + textureCache.report();
+    }
+
+    //the post-processing passes; enable and tweak them on the GL thread (GLSurfaceView.queueEvent)
+    public PostProcessPipeline getPostProcess() {
+        return postProcess;
+    }
+
+    //frame/pass timings; read it on the GL thread (GLSurfaceView.queueEvent) to get a consistent snapshot
+    public FrameProfiler getProfiler() {
+        return profiler;
     }
 
     //this method transitions the OpenGL context between a few states This is called whenever the surface changes;
@@ -91,10 +219,27 @@ public class OpenGLRenderer implements GLSurfaceView.Renderer {
     public void onSurfaceChanged(GL10 gl, int width, int height) {
         w = width;
         h = height;
+
+        //the producer reads the camera; frames it recorded for the old surface are drawn over in full below anyway
+        pipeline.stop();
+        pipeline.discard();
         //Projection matrix work--since only need to reset projection matrix whenever screen we're projecting onto has changed, this is good place
 
         //reset the current viewport. Set the openGL viewport to same size as the surface
-        GLES20.glViewport(0, 0, width, height);
+        gles.glViewport(0, 0, width, height);
+
+        //(re)size the offscreen target to match; a no-op if the size didn't actually change
+        renderTargets.onSurfaceChanged(width, height);
+
+        //a new window surface: its contents are undefined, and it needs asking again whether it keeps them across swaps. only then can the
+        //screen pass redraw just what changed; the default (and what many configs are stuck with) is a back buffer that's garbage after a swap
+        boolean preserved = EGL14.eglSurfaceAttrib(EGL14.eglGetCurrentDisplay(), EGL14.eglGetCurrentSurface(EGL14.EGL_DRAW),
+                EGL14.EGL_SWAP_BEHAVIOR, EGL14.EGL_BUFFER_PRESERVED);
+        frameRenderer.setScreenPreserved(preserved);
+        frameRenderer.markAllDirty();
+        Log.d("DBUG", frameRenderer.report());
+        Log.d("DBUG", renderTargets.report());
+        Log.d("DBUG", renderTargetPool.report());
 
         //avoid dividing by 0
         if (height==0) {
@@ -112,7 +257,7 @@ public class OpenGLRenderer implements GLSurfaceView.Renderer {
 
 
         //this projection matrix is applied to object coordinates in onDrawFrame()
-        Matrix.frustumM(projectionMatrix, 0, left, right, bottom, top, near, far);
+        camera.setFrustum(left, right, bottom, top, near, far);
     }
 
     //This method is called when the surface is first created. It will also be called if we lose our surface context and it is later recreated by the system.
@@ -123,21 +268,65 @@ public class OpenGLRenderer implements GLSurfaceView.Renderer {
         h = displayMetrics.heightPixels;
         w = displayMetrics.widthPixels;
 
-        //set background clear color to purple
-        GLES20.glClearColor(0.5f, 0, 0.5f, 1f);
+        //the scene and its drawables are about to be rebuilt under the producer, and what it recorded points at the old ones
+        pipeline.stop();
+        pipeline.discard();
 
-        //insantiate a triangle and a square
-        mTriangle = new Triangle();
-        mSquare = new Square();
-        mScreenShader = new ScreenShader();
+        //new context: whatever the state cache remembers belongs to the old one
+        gles.invalidate();
+        renderTargets.invalidate();
+        renderTargetPool.invalidate();
+        postProcess.invalidate();
+        textureLoader.invalidate();
 
+        capabilities = GlCapabilities.query(gles);
+        Log.d("DBUG", capabilities.toString());
 
-        //load the texture for the square, provide the context to our renderer so we can load up the texture at startup
-        mSquare.loadGLTexture(gl, this.myContext);
+        //a placeholder for textures still on their way, and a context of their own to upload them on if EGL will share one with us
+        textureLoader.init();
+        textureLoader.setUploader(SharedContextUploader.create(capabilities));
+        Log.d("DBUG", textureLoader.report());
 
-        //mScreenShader.loadGLTexture(gl, this.myContext);
+        //the old context's queries are gone; time the GPU only if this one can
+        profiler.setGpuTimer(capabilities.supportsTimerQueries() ? new GpuTimer(gles, 4) : null);
+        profiler.reset();
 
-        GLES20.glEnable(GLES20.GL_TEXTURE_2D); //enable texture mapping (NEW)
+        //set background clear color to purple
+        gles.glClearColor(0.5f, 0, 0.5f, 1f);
+
+        //insantiate a triangle and a square
+        //a fresh context means every old shader/program name is dead, so start over with an empty cache
+        shaderCache = new ShaderProgramCache(gles);
+
+        mTriangle = new Triangle(gles, shaderCache);
+        mSquare = new Square(gles, shaderCache);
+        mScreenShader = new ScreenShader(gles, shaderCache);
+
+        //the square's quad spans -0.1..0.1, so this sphere covers it
+        scene = new SceneGraph();
+        scene.setJobs(sceneJobs);
+        squareNode = new SceneNode(mSquare, 0.1f * (float) Math.sqrt(2));
+        squareNode.getTransform().setRotation(180, 0, 0, 1); //was angle instead of 180
+        //where the simulation starts it, until the first snapshot comes in
+        squareNode.getTransform().setPosition(-0.9f, 1.8f, 0);
+        scene.getRoot().addChild(squareNode);
+        frameRenderer.setDrawables(scene, mScreenShader);
+        postProcess.init(shaderCache);
+
+        Log.d("DBUG", shaderCache.report());
+
+
+        //start loading the texture for the square. it used to be drawn and uploaded right here, holding up the first frame; now the
+        //square draws with the placeholder until the label is on the GPU. ARGB_8888 rather than the old ARGB_4444, so the pixels go
+        //up as GL_RGBA bytes as they are
+        if (squareTexture == null) {
+            squareTexture = textureCache.acquire(new TextureCache.Key(R.drawable.ic_launcher_background, "NOSHAKE TEST", 256, 256,
+                    GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE), new LabelTextureSource(myContext.getResources(),
+                    R.drawable.ic_launcher_background, 256, "NOSHAKE TEST", 32, 14, 135, 0xff0000dd), GLES20.GL_NEAREST); //WAS x:16, y:112
+        }
+        mSquare.setTexture(squareTexture);
+
+        gles.glEnable(GLES20.GL_TEXTURE_2D); //enable texture mapping (NEW)
 
         gl.glShadeModel(GL10.GL_SMOOTH); //enable smooth shading
 
@@ -145,37 +334,13 @@ public class OpenGLRenderer implements GLSurfaceView.Renderer {
 
         //GLES20.glClearDepthf(1.0f); //depth buffer setup
 
-        GLES20.glEnable(GLES20.GL_DEPTH_TEST); //enables depth testing
+        gles.glEnable(GLES20.GL_DEPTH_TEST); //enables depth testing
 
-        GLES20.glDepthFunc(GLES20.GL_LEQUAL); //the type of depth testing to do
+        gles.glDepthFunc(GLES20.GL_LEQUAL); //the type of depth testing to do
 
-        GLES20.glHint(gl.GL_PERSPECTIVE_CORRECTION_HINT, GLES20.GL_NICEST);
+        gles.glHint(gl.GL_PERSPECTIVE_CORRECTION_HINT, GLES20.GL_NICEST);
 
-        generateGiantFrameBuffer();
-    }
-
-    //This is called whenever it’s time to draw a new frame.
-    @Override
-    public void onDrawFrame(GL10 gl) {
-        // clear the color buffer (bitmaps) -- clear screen and depth buffer
-        gl.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
-
-        //create a rotation transformation for the triangle
-        time = SystemClock.uptimeMillis() % 4000L;
-
-        myActivity.runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                //Toast.makeText(myContext, String.format("%d", time), Toast.LENGTH_SHORT).show();
-            }
-        });
-
-        //float angle = 0.090f * ((int) time);
-        float angle = (360.0f / 4000.0f) * ((int) time);
-
-        float posTrans = (time/4000f) * 0.1f;
-
-        //set up the camera
+        //set up the camera. it never moves, so this is the only time the view matrix gets built
 
         //Position the eye behind the origin
         final float eyeX = 0.0f;
@@ -193,120 +358,55 @@ public class OpenGLRenderer implements GLSurfaceView.Renderer {
         final float upZ = 0.0f;
 
         //set camera position. NOTE: in Opengl 1, a ModelView matrix is used (a combo of a model and a view matrix). In 2.0, can keep track of these matrices separately.
-        Matrix.setLookAtM(viewMatrix, 0, eyeX, eyeY, eyeZ, lookX, lookY, lookZ, upX, upY, upZ);
-
-        //set model matrix to identity matrix
-        Matrix.setIdentityM(mModelMatrix, 0);
-        Matrix.translateM(mModelMatrix, 0, 0.9f - posTrans, 1.8f, 0); // translation to the left
-
-        //set rotation matrix using angle calculated
-        Matrix.setRotateM(rotationMatrix, 0, 180, 0, 0, 1); //was angle instead of 180
-
-        //multiply model matrix (identity matrix) by rotation matrix
-        Matrix.multiplyMM(vPMatrix, 0, mModelMatrix, 0, rotationMatrix, 0);
-
-        //calculate projection and view transformation
-        Matrix.multiplyMM(vPMatrix, 0, projectionMatrix, 0, vPMatrix, 0); //2nd to last was vPMatrix
-
-        //combine rotation matrix with the projection and camera view
-        //note that vPMatrix factor MUST BE FIRST in order for matrix multiplication product to be correct
-        Matrix.multiplyMM(scratch, 0, vPMatrix, 0, viewMatrix, 0);
-
-        //load up the offscreen FBO
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, frameBuffers[0]);
-
-        GLES20.glViewport(0,0,1080 * 4,2236 * 4); // Render on the whole framebuffer, complete from the lower left corner to the upper right
-
-        //draw the triangle with the final matrix
-        //mTriangle.draw(scratch);
-
-        mSquare.draw(scratch);
-
-        //bind the actual screen
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
-
-        //open up the entire giant buffer
-        GLES20.glViewport(0,0,1080 * 4,2236 * 4);
-
-        mScreenShader.draw(scratch);
-
-        //mTriangle.draw(scratch);
+        camera.setLookAt(eyeX, eyeY, eyeZ, lookX, lookY, lookZ, upX, upY, upZ);
 
-        //draw the square with the final matrix
-        //mSquare.draw(scratch);
+        //the offscreen target gets allocated in onSurfaceChanged, which always follows, once we know the real surface size
     }
 
-    public static int loadShader(int type, String shaderCode) {
-        // create a vertex shader type (GLES20.GL_VERTEX_SHADER)
-        // or a fragment shader type (GLES20.GL_FRAGMENT_SHADER)
-        int shader = GLES20.glCreateShader(type);
-
-        if (shader!=0) {
-            // add the source code to the shader and compile it
-            GLES20.glShaderSource(shader, shaderCode);
-
-            //compile the shader
-            GLES20.glCompileShader(shader);
+    //This is called whenever it’s time to draw a new frame.
+    @Override
+    public void onDrawFrame(GL10 gl) {
+        //hold the frame back if it would go over the frame rate cap
+        pacer.awaitFrame();
 
-            //get the compilation status
-            final int[] compileStatus = new int[1];
-            GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compileStatus, 0);
+        //start a new frame's worth of forwarded/elided state change counts and timings
+        frameRenderer.beginFrame();
 
-            //if compilation failed, delete the shader
-            if (compileStatus[0] == 0) {
-                GLES20.glDeleteShader(shader);
-                shader = 0;
-            }
+        //swap in textures that finished loading, and spend this frame's share of upload bandwidth on the rest. one that became ready
+        //changes how its drawables look without moving them, which the dirty region can't see, so redraw everything
+        profiler.begin(uploadScope);
+        if (textureLoader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET) > 0) {
+            frameRenderer.markAllDirty();
         }
-        if (shader==0) {
-            throw new RuntimeException("Error creating vertex shader.");
+        profiler.end(uploadScope);
+
+        //the producer gets (re)started here rather than in onResume() or onSurfaceCreated(), so it only ever runs once there's a scene
+        pipeline.start();
+
+        //the oldest frame the producer has recorded; usually it's been waiting for us. null only if onPause() stopped the producer
+        //just now, and then there's nothing to draw
+        profiler.begin(waitScope);
+        CommandBuffer frame = pipeline.acquire();
+        profiler.end(waitScope);
+        //the producer records ahead whether or not frames are wanted, so what says the animation is still settling is a frame that
+        //still moved something: the last ones between two ticks do, and the ones after that come out unchanged
+        boolean animating = simulation.isRunning() || textureLoader.hasPendingUploads() || (frame != null && !frame.getDirtyRegion().isEmpty());
+
+        if (frame != null) {
+            frameRenderer.drawFrame(frame);
+            pipeline.release(frame);
         }
+        frameRenderer.endFrame();
 
-        return shader;
-    }
-
-    public void generateGiantFrameBuffer() {
-        // Create a frame buffer
-        // The framebuffer, which regroups 0, 1, or more textures, and 0 or 1 depth buffer.
-        GLES20.glGenFramebuffers(1, frameBuffers, 0);
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, frameBuffers[0]);
-
-        // Generate a texture to hold the colour buffer
-        //the texture we're going to render to
-        GLES20.glGenTextures(1, textureBuffer, 0);
+        //textures the frame didn't use are the ones to go if the cache is over budget
+        textureCache.endFrame();
 
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        // "Bind" the newly created texture : all future texture functions will modify this texture
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureBuffer[0]);
-
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
-
-        // Width and height do not have to be a power of two
-        //// Give an empty image to OpenGL ( the last "0" )
-        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, w*4, h*4, 0, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
-
-        Log.d("DBUG", String.format("Width is %d, height is %d", w, h));
-
-        // Set textureBuffer[0] FBO as our color attachment #0
-        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, textureBuffer[0], 0);
+        //on demand, a running animation is what asks for the next frame
+        scheduler.afterFrame(animating);
 
         //mTriangle.draw(scratch);
 
-        //unbind current framebuffer
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
-
-        // Check FBO status
-        int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
-
-        if (status == GLES20.GL_FRAMEBUFFER_COMPLETE)
-        {
-            Log.d("DBUG", "FBO Success");
-        }
-        else {
-            Log.d("DBUG", String.format("FAIL, status of FBO is %d", status));
-        }
+        //draw the square with the final matrix
+        //mSquare.draw(scratch);
     }
 }
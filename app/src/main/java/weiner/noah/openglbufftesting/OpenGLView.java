@@ -5,7 +5,8 @@ import android.content.Context;
 import android.opengl.GLSurfaceView;
 import android.util.AttributeSet;
 
-public class OpenGLView extends GLSurfaceView {
+//GLSurfaceView.requestRender() is already public and thread safe, so the view is what asks for on-demand frames
+public class OpenGLView extends GLSurfaceView implements RenderScheduler.Requester {
     Context myContext;
     Activity myActivity;
 
@@ -0,0 +1,60 @@
+package weiner.noah.openglbufftesting;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+//rasterizes glyphs with an Android Paint, one small bitmap per glyph instead of a whole string per texture.
+//draw the paint in white: the color of the text comes from the vertex color when it gets drawn
+public class PaintGlyphRasterizer implements GlyphRasterizer {
+    private final Paint paint;
+    private final Rect bounds = new Rect();
+    private final Paint.FontMetrics metrics = new Paint.FontMetrics();
+    private final char[] chars = new char[4];
+
+    public PaintGlyphRasterizer(Paint paint) {
+        this.paint = paint;
+    }
+
+    @Override
+    public Glyph rasterize(int codePoint) {
+        int length = Character.toChars(codePoint, chars, 0);
+        float advance = paint.measureText(chars, 0, length);
+
+        paint.getTextBounds(chars, 0, length, bounds);
+        if (bounds.width() <= 0 || bounds.height() <= 0) {
+            return new Glyph(0, 0, 0, 0, advance, null);
+        }
+
+        //bounds are relative to the pen on the baseline, top is negative (y grows downward in a Canvas)
+        Bitmap bitmap = Bitmap.createBitmap(bounds.width(), bounds.height(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawText(chars, 0, length, -bounds.left, -bounds.top, paint);
+
+        ByteBuffer pixels = ByteBuffer.allocateDirect(bounds.width() * bounds.height() * 4).order(ByteOrder.nativeOrder());
+        bitmap.copyPixelsToBuffer(pixels);
+        pixels.position(0);
+        bitmap.recycle();
+
+        return new Glyph(bounds.width(), bounds.height(), bounds.left, -bounds.top, advance, pixels);
+    }
+
+    @Override
+    public float getKerning(int left, int right) {
+        //the pair measured together vs. each on its own; Paint applies the font's kerning to the pair
+        int leftLength = Character.toChars(left, chars, 0);
+        int rightLength = Character.toChars(right, chars, leftLength);
+        float pair = paint.measureText(chars, 0, leftLength + rightLength);
+        return pair - paint.measureText(chars, 0, leftLength) - paint.measureText(chars, leftLength, rightLength);
+    }
+
+    @Override
+    public float getLineHeight() {
+        paint.getFontMetrics(metrics);
+        return metrics.descent - metrics.ascent + metrics.leading;
+    }
+}
@@ -0,0 +1,123 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+//one step of a PostProcessPipeline: a fragment shader run over a full-screen quad, reading the previous step's color texture and
+//writing a target the pipeline hands it. subclasses supply the shader body, any extra uniforms, and how big the output is relative to
+//the input. a disabled pass is skipped outright; the next pass reads what this one would have.
+public abstract class PostPass {
+    //every pass gets these; a subclass's own uniforms come after them, at BASE_UNIFORMS + i
+    static final String[] ATTRIBUTES = {"a_Position", "a_TexCoordinate"};
+    static final int A_POSITION = 0, A_TEX_COORDINATE = 1;
+    static final int U_TEXTURE = 0, U_TEXEL_SIZE = 1;
+    static final int BASE_UNIFORMS = 2;
+
+    static final String vertexShaderCode =
+            "attribute vec4 a_Position;" +
+                    "attribute vec2 a_TexCoordinate;" +
+                    "varying vec2 v_TexCoordinate;" +
+                    "void main() {" +
+                    "v_TexCoordinate = a_TexCoordinate;" +
+                    "gl_Position = a_Position;" +
+                    "}";
+
+    //what every fragment shader starts with: the input texture, the size of one of its texels in texture coordinates, and the coordinate
+    static final String FRAGMENT_HEADER =
+            "precision mediump float;" +
+                    "uniform sampler2D u_Texture;" +
+                    "uniform vec2 u_TexelSize;" +
+                    "varying vec2 v_TexCoordinate;";
+
+    private final String name;
+    private final float scale;
+    private final RenderTarget.Format format;
+    private boolean enabled = true;
+
+    private ShaderProgram program;
+    private ShaderProgramCache shaders;
+
+    //scale is the output size relative to the input (0.5 halves both sides); format null keeps the input's
+    protected PostPass(String name, float scale, RenderTarget.Format format) {
+        if (scale <= 0f) {
+            throw new IllegalArgumentException(String.format("Pass output scale must be positive, got %f", scale));
+        }
+        this.name = name;
+        this.scale = scale;
+        this.format = format;
+    }
+
+    //the fragment shader after FRAGMENT_HEADER
+    protected abstract String fragmentShaderBody();
+
+    //names of the pass's own uniforms, in the order setUniforms() reads their locations
+    protected String[] extraUniforms() {
+        return new String[0];
+    }
+
+    //upload the pass's own uniforms; the program is already in use
+    protected void setUniforms(Gles gl, ShaderProgram program) {
+    }
+
+    //(re)build the program for the current context
+    void init(ShaderProgramCache shaders) {
+        String[] extra = extraUniforms();
+        String[] uniforms = new String[BASE_UNIFORMS + extra.length];
+        uniforms[U_TEXTURE] = "u_Texture";
+        uniforms[U_TEXEL_SIZE] = "u_TexelSize";
+        System.arraycopy(extra, 0, uniforms, BASE_UNIFORMS, extra.length);
+
+        this.shaders = shaders;
+        program = shaders.acquire(vertexShaderCode, FRAGMENT_HEADER + fragmentShaderBody(), ATTRIBUTES, uniforms);
+    }
+
+    //draw input into output (already bound, viewport set) with the pipeline's full-screen quad
+    void render(Gles gl, QuadMesh quad, RenderTarget input) {
+        program.use();
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, input.getColorTexture());
+        gl.glUniform1i(program.uniformLocation(U_TEXTURE), 0);
+        gl.glUniform2f(program.uniformLocation(U_TEXEL_SIZE), 1f / input.getWidth(), 1f / input.getHeight());
+        setUniforms(gl, program);
+
+        quad.bind(program.attribLocation(A_POSITION), program.attribLocation(A_TEX_COORDINATE));
+        quad.draw();
+    }
+
+    void release() {
+        if (program != null) {
+            shaders.release(program);
+            program = null;
+        }
+    }
+
+    //the context is gone and the program with it; init() builds a new one against the new context's cache
+    void invalidate() {
+        program = null;
+        shaders = null;
+    }
+
+    boolean isInitialized() {
+        return program != null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    //output format for a given input format
+    RenderTarget.Format outputFormat(RenderTarget.Format input) {
+        return format == null ? input : format;
+    }
+}
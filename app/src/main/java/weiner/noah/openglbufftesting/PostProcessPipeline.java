@@ -0,0 +1,171 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.util.ArrayList;
+
+//an ordered list of PostPasses run over the offscreen scene target before the screen pass draws it.
+//each enabled pass reads the previous pass's output and writes a target out of the RenderTargetPool, sized from its input times the
+//pass's scale. an intermediate goes back to the pool as soon as the pass after it has read it, so passes of the same size and format
+//ping-pong between two targets, and the next frame gets the same targets back again. a disabled pass is skipped without a copy: the next
+//pass reads what it would have, and with nothing enabled apply() hands back the scene target itself.
+//every pass gets its own profiler scope, so FrameProfiler.report() shows what each one costs.
+public class PostProcessPipeline {
+    private final Gles gl;
+    private final RenderTargetPool pool;
+    private final FrameProfiler profiler;
+
+    private final ArrayList<PostPass> passes = new ArrayList<>();
+    private final ArrayList<Integer> scopes = new ArrayList<>();
+
+    //full screen quad with texture coordinates matching the target: (0, 0) bottom left, like the framebuffer
+    private static final float[] POSITIONS = {
+            -1f, 1f, 0f,    //top left
+            -1f, -1f, 0f,   //bottom left
+            1f, -1f, 0f,    //bottom right
+            1f, 1f, 0f      //top right
+    };
+    private static final float[] TEX_COORDS = {
+            0f, 1f,
+            0f, 0f,
+            1f, 0f,
+            1f, 1f
+    };
+    private static final short[] DRAW_ORDER = {0, 1, 2, 0, 2, 3};
+
+    private ShaderProgramCache shaders;
+    private QuadMesh quad;
+
+    //what the last apply() returned, if it's ours to give back to the pool
+    private RenderTarget output;
+
+    private int passesRun;
+
+    public PostProcessPipeline(Gles gl, RenderTargetPool pool, FrameProfiler profiler) {
+        this.gl = gl;
+        this.pool = pool;
+        this.profiler = profiler;
+    }
+
+    //append a pass; it runs after every pass added before it. add passes once, up front: each takes one of the profiler's scopes
+    public <T extends PostPass> T addPass(T pass) {
+        if (passes.contains(pass)) {
+            throw new IllegalArgumentException(String.format("Pass %s is already in the pipeline", pass.getName()));
+        }
+        scopes.add(profiler.addScope("post: " + pass.getName()));
+        passes.add(pass);
+        if (quad != null) {
+            pass.init(shaders);
+        }
+        return pass;
+    }
+
+    //build the quad and every pass's program for the current context; call from onSurfaceCreated once the shader cache exists
+    public void init(ShaderProgramCache shaders) {
+        this.shaders = shaders;
+        quad = new QuadMesh(gl, POSITIONS, TEX_COORDS, DRAW_ORDER);
+        for (int i = 0; i < passes.size(); i++) {
+            passes.get(i).init(shaders);
+        }
+    }
+
+    //run the enabled passes over source and return the target holding the result (source itself if no pass is enabled).
+    //the result stays valid until endFrame()
+    public RenderTarget apply(RenderTarget source) {
+        if (output != null) {
+            throw new IllegalStateException("apply() called twice without endFrame()");
+        }
+        passesRun = 0;
+
+        RenderTarget input = source;
+        for (int i = 0; i < passes.size(); i++) {
+            PostPass pass = passes.get(i);
+            if (!pass.isEnabled()) {
+                continue;
+            }
+            if (!pass.isInitialized()) {
+                throw new IllegalStateException(String.format("Pass %s has no program; call init() after the GL context is created", pass.getName()));
+            }
+
+            int scope = scopes.get(i);
+            profiler.begin(scope);
+
+            int width = Math.max(1, Math.round(input.getWidth() * pass.getScale()));
+            int height = Math.max(1, Math.round(input.getHeight() * pass.getScale()));
+            RenderTarget target = pool.acquire(width, height, pass.outputFormat(input.getFormat()), false);
+            target.bind();
+
+            //every pass covers its whole target, so whatever was in there from last time doesn't matter as long as nothing blends with it.
+            //the targets have no depth buffer, so the depth test always passes
+            gl.glDisable(GLES20.GL_BLEND);
+            pass.render(gl, quad, input);
+
+            //the pass after this one reads target, so the one before is done with; the pool hands it out again to the next pass
+            if (input != source) {
+                pool.release(input);
+            }
+            input = target;
+            passesRun++;
+
+            profiler.end(scope);
+        }
+
+        if (input != source) {
+            output = input;
+        }
+        return input;
+    }
+
+    //the screen pass has drawn apply()'s result; give it back to the pool for the next frame
+    public void endFrame() {
+        if (output != null) {
+            pool.release(output);
+            output = null;
+        }
+    }
+
+    //whether apply() will do anything
+    public boolean hasEnabledPasses() {
+        for (int i = 0; i < passes.size(); i++) {
+            if (passes.get(i).isEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //passes that actually ran in the last apply()
+    public int getPassesRun() {
+        return passesRun;
+    }
+
+    public int getPassCount() {
+        return passes.size();
+    }
+
+    public PostPass getPass(int i) {
+        return passes.get(i);
+    }
+
+    //the GL context is gone: forget the quad, the programs and any held target without deleting anything (the pool gets invalidated
+    //separately). init() again once the new context is up
+    public void invalidate() {
+        quad = null;
+        output = null;
+        shaders = null;
+        for (int i = 0; i < passes.size(); i++) {
+            passes.get(i).invalidate();
+        }
+    }
+
+    public void release() {
+        endFrame();
+        for (int i = 0; i < passes.size(); i++) {
+            passes.get(i).release();
+        }
+        if (quad != null) {
+            quad.release();
+            quad = null;
+        }
+    }
+}
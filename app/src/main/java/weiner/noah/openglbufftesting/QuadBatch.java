@@ -0,0 +1,285 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+//draws lots of textured quads with as few draw calls as possible.
+//Square costs a program bind, four uniform uploads and a glDrawElements per quad; thousands of labels that way are thousands of draws.
+//here every add() transforms its quad's corners on the CPU and appends them (position, texcoord, color) to a staging array. the whole
+//lot goes to one streaming vertex buffer and is drawn with a single glDrawElements when the texture or program changes, the buffer fills
+//up, or end() is called. indices never change, so they live in one static index buffer shared by every flush.
+//nothing on the add()/flush() path allocates.
+public class QuadBatch implements QuadDrawer {
+    //attribute/uniform slots. a program handed to setProgram() must use these names
+    public static final String[] ATTRIBUTES = {"a_Position", "a_TexCoordinate", "a_Color"};
+    public static final int A_POSITION = 0, A_TEX_COORDINATE = 1, A_COLOR = 2;
+
+    public static final String[] UNIFORMS = {"uMVPMatrix", "u_Texture"};
+    public static final int U_MVP_MATRIX = 0, U_TEXTURE = 1;
+
+    //per vertex: x, y, z floats, s, t floats, then r, g, b, a bytes
+    static final int STRIDE = 3 * 4 + 2 * 4 + 4;
+    static final int POSITION_OFFSET = 0;
+    static final int TEX_COORD_OFFSET = 3 * 4;
+    static final int COLOR_OFFSET = 5 * 4;
+
+    //ints (4 byte words) per vertex and per quad in the staging array
+    static final int VERTEX_WORDS = STRIDE / 4;
+    static final int QUAD_WORDS = VERTEX_WORDS * 4;
+
+    //with 16 bit indices we can address at most 65536 vertices, i.e. 16384 quads per draw
+    public static final int MAX_QUADS = 65536 / 4;
+
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private final Gles gl;
+    private final ShaderProgramCache shaders;
+    private final ShaderProgram defaultProgram;
+    private ShaderProgram program;
+
+    private final int capacity;
+    private final GpuBuffer vertexBuffer;
+    private final GpuBuffer indexBuffer;
+
+    //CPU side copy of the quads added since the last flush; copied to the direct buffer in one bulk put
+    private final int[] staging;
+    private final IntBuffer upload;
+    private int quadCount;
+
+    //texture of the quads currently in staging, and the view-projection matrix for this begin()/end()
+    private int texture;
+    private float[] viewProjection;
+    private boolean drawing;
+
+    //draws issued and quads drawn since resetStats()
+    private int drawCalls;
+    private int quadsDrawn;
+
+    public QuadBatch(Gles gl, ShaderProgramCache shaders, int capacity) {
+        if (capacity <= 0 || capacity > MAX_QUADS) {
+            throw new IllegalArgumentException(String.format("Batch capacity must be between 1 and %d quads, got %d", MAX_QUADS, capacity));
+        }
+        this.gl = gl;
+        this.shaders = shaders;
+        this.capacity = capacity;
+
+        defaultProgram = shaders.acquire(vertexShaderCode, fragmentShaderCode, ATTRIBUTES, UNIFORMS);
+        program = defaultProgram;
+
+        staging = new int[capacity * QUAD_WORDS];
+        upload = ByteBuffer.allocateDirect(staging.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+
+        //vertex storage is reallocated (orphaned) on every flush, so the driver never has to wait for the GPU to finish with the last one
+        vertexBuffer = new GpuBuffer(gl, GLES20.GL_ARRAY_BUFFER, GpuBuffer.Usage.STREAM);
+        vertexBuffer.allocate(staging.length * 4);
+
+        indexBuffer = quadIndices(gl, capacity);
+    }
+
+    //index buffer for quads laid out 4 vertices each (top left, bottom left, bottom right, top right), two triangles per quad
+    static GpuBuffer quadIndices(Gles gl, int quads) {
+        short[] indices = new short[quads * 6];
+        for (int q = 0; q < quads; q++) {
+            int v = q * 4;
+            int i = q * 6;
+            indices[i] = (short) v;
+            indices[i + 1] = (short) (v + 1);
+            indices[i + 2] = (short) (v + 2);
+            indices[i + 3] = (short) v;
+            indices[i + 4] = (short) (v + 2);
+            indices[i + 5] = (short) (v + 3);
+        }
+        return GpuBuffer.indices(gl, indices, GpuBuffer.Usage.STATIC);
+    }
+
+    //start collecting quads that will be drawn with the given view-projection matrix
+    @Override
+    public void begin(float[] viewProjection) {
+        if (drawing) {
+            throw new IllegalStateException("begin() called twice without end()");
+        }
+        this.viewProjection = viewProjection;
+        drawing = true;
+    }
+
+    //draw everything still pending
+    @Override
+    public void end() {
+        if (!drawing) {
+            throw new IllegalStateException("end() called without begin()");
+        }
+        flush();
+        drawing = false;
+    }
+
+    //switch to a different program (null for the built-in one). it must declare the attributes/uniforms in ATTRIBUTES/UNIFORMS
+    public void setProgram(ShaderProgram program) {
+        ShaderProgram next = program == null ? defaultProgram : program;
+        if (next != this.program) {
+            flush();
+            this.program = next;
+        }
+    }
+
+    //add the -1..1 square (the shape Square draws, before its own scaling) placed by model, showing the whole texture
+    @Override
+    public void add(int texture, float[] model, int argb) {
+        add(texture, model, -1f, -1f, 2f, 2f, 0f, 0f, 1f, 1f, argb);
+    }
+
+    //add the -1..1 square placed by model, showing an atlas tile. tiles on the same atlas page don't break the batch
+    public void add(TextureAtlas.Region region, float[] model, int argb) {
+        add(region.texture, model, -1f, -1f, 2f, 2f, region.u0, region.v0, region.u1, region.v1, argb);
+    }
+
+    //add the rectangle (x, y)..(x + width, y + height) in the quad's own space, transformed by the column major model matrix
+    //(null for none), showing (u0, v0)..(u1, v1) of the texture tinted by the ARGB color. v0 is at the top edge
+    public void add(int texture, float[] model, float x, float y, float width, float height, float u0, float v0, float u1, float v1, int argb) {
+        if (!drawing) {
+            throw new IllegalStateException("add() called outside begin()/end()");
+        }
+        if (texture != this.texture || quadCount == capacity) {
+            flush();
+            this.texture = texture;
+        }
+
+        int color = toRgbaBytes(argb);
+        int out = quadCount * QUAD_WORDS;
+        float left = x, right = x + width, bottom = y, top = y + height;
+
+        out = putVertex(out, model, left, top, u0, v0, color);
+        out = putVertex(out, model, left, bottom, u0, v1, color);
+        out = putVertex(out, model, right, bottom, u1, v1, color);
+        putVertex(out, model, right, top, u1, v0, color);
+
+        quadCount++;
+    }
+
+    private int putVertex(int out, float[] m, float x, float y, float s, float t, int color) {
+        float tx = x, ty = y, tz = 0f;
+        if (m != null) {
+            //z is 0 in the quad's own space, so the third column drops out
+            tx = m[0] * x + m[4] * y + m[12];
+            ty = m[1] * x + m[5] * y + m[13];
+            tz = m[2] * x + m[6] * y + m[14];
+        }
+        staging[out] = Float.floatToRawIntBits(tx);
+        staging[out + 1] = Float.floatToRawIntBits(ty);
+        staging[out + 2] = Float.floatToRawIntBits(tz);
+        staging[out + 3] = Float.floatToRawIntBits(s);
+        staging[out + 4] = Float.floatToRawIntBits(t);
+        staging[out + 5] = color;
+        return out + VERTEX_WORDS;
+    }
+
+    //Android's 0xAARRGGBB to an int whose bytes sit in memory as R, G, B, A (what GL_UNSIGNED_BYTE x4 expects)
+    static int toRgbaBytes(int argb) {
+        int a = argb >>> 24, r = (argb >> 16) & 0xff, g = (argb >> 8) & 0xff, b = argb & 0xff;
+        return LITTLE_ENDIAN ? (a << 24) | (b << 16) | (g << 8) | r : (r << 24) | (g << 16) | (b << 8) | a;
+    }
+
+    //draw the pending quads with one glDrawElements
+    public void flush() {
+        if (quadCount == 0) {
+            return;
+        }
+
+        program.use();
+        gl.glUniformMatrix4fv(program.uniformLocation(U_MVP_MATRIX), 1, false, viewProjection, 0);
+
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+        gl.glUniform1i(program.uniformLocation(U_TEXTURE), 0);
+
+        gl.glDisable(GLES20.GL_CULL_FACE);
+        gl.glEnable(GLES20.GL_BLEND);
+        gl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+
+        //orphan the old storage and write just the part we use
+        int words = quadCount * QUAD_WORDS;
+        upload.clear();
+        upload.put(staging, 0, words);
+        upload.position(0);
+        vertexBuffer.allocate(capacity * QUAD_WORDS * 4);
+        vertexBuffer.update(0, upload, words * 4);
+        indexBuffer.bind();
+
+        pointAttribute(program.attribLocation(A_POSITION), 3, GLES20.GL_FLOAT, false, POSITION_OFFSET);
+        pointAttribute(program.attribLocation(A_TEX_COORDINATE), 2, GLES20.GL_FLOAT, false, TEX_COORD_OFFSET);
+        pointAttribute(program.attribLocation(A_COLOR), 4, GLES20.GL_UNSIGNED_BYTE, true, COLOR_OFFSET);
+
+        gl.glDrawElements(GLES20.GL_TRIANGLES, quadCount * 6, GLES20.GL_UNSIGNED_SHORT, 0);
+
+        drawCalls++;
+        quadsDrawn += quadCount;
+        quadCount = 0;
+    }
+
+    private void pointAttribute(int location, int size, int type, boolean normalized, int offset) {
+        if (location >= 0) {
+            gl.glEnableVertexAttribArray(location);
+            gl.glVertexAttribPointer(location, size, type, normalized, STRIDE, offset);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getPendingQuads() {
+        return quadCount;
+    }
+
+    @Override
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    @Override
+    public int getQuadsDrawn() {
+        return quadsDrawn;
+    }
+
+    public float getQuadsPerDraw() {
+        return drawCalls == 0 ? 0f : (float) quadsDrawn / drawCalls;
+    }
+
+    @Override
+    public void resetStats() {
+        drawCalls = 0;
+        quadsDrawn = 0;
+    }
+
+    @Override
+    public void release() {
+        shaders.release(defaultProgram);
+        vertexBuffer.release();
+        indexBuffer.release();
+    }
+
+    //shared with TextMesh, which writes the same vertex layout
+    static final String vertexShaderCode =
+            "uniform mat4 uMVPMatrix;" +          //view-projection only; the model transform is already baked into a_Position
+                    "attribute vec4 a_Position;" +
+                    "attribute vec2 a_TexCoordinate;" +
+                    "attribute vec4 a_Color;" +         //per-quad tint, normalized from 4 unsigned bytes
+                    "varying vec2 v_TexCoordinate;" +
+                    "varying vec4 v_Color;" +
+                    "void main() {" +
+                    "v_TexCoordinate = a_TexCoordinate;" +
+                    "v_Color = a_Color;" +
+                    "gl_Position = uMVPMatrix * a_Position;" +
+                    "}";
+
+    static final String fragmentShaderCode =
+            "precision mediump float;" +
+                    "uniform sampler2D u_Texture;" +
+                    "varying vec2 v_TexCoordinate;" +
+                    "varying vec4 v_Color;" +
+                    "void main() {" +
+                    "gl_FragColor = v_Color * texture2D(u_Texture, v_TexCoordinate);" +
+                    "}";
+}
@@ -0,0 +1,24 @@
+package weiner.noah.openglbufftesting;
+
+//draws many copies of the -1..1 textured quad (Square's shape), each with its own model matrix and tint.
+//QuadBatch does it by transforming every corner on the CPU; InstancedQuadBatch streams one matrix and color per quad and lets the GPU
+//expand them. InstancedQuadBatch.create() picks whichever the context supports; the two draw the same picture.
+public interface QuadDrawer {
+    //start collecting quads that will be drawn with the given view-projection matrix
+    void begin(float[] viewProjection);
+
+    //add the quad placed by the column major model matrix, showing the whole texture tinted by the ARGB color
+    void add(int texture, float[] model, int argb);
+
+    //draw everything still pending
+    void end();
+
+    //draws issued and quads drawn since resetStats()
+    int getDrawCalls();
+
+    int getQuadsDrawn();
+
+    void resetStats();
+
+    void release();
+}
@@ -0,0 +1,73 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+//a textured quad living in GPU buffers: one interleaved vertex buffer (x, y, z, s, t per vertex) and one index buffer.
+//Square and ScreenShader used to keep positions and texture coordinates in two separate client-side FloatBuffers; interleaving them
+//means each vertex is read from one place in one buffer.
+public class QuadMesh {
+    static final int POSITION_SIZE = 3;
+    static final int TEX_COORD_SIZE = 2;
+
+    //bytes from one vertex to the next, and where each attribute starts inside a vertex
+    static final int STRIDE = (POSITION_SIZE + TEX_COORD_SIZE) * 4;
+    static final int POSITION_OFFSET = 0;
+    static final int TEX_COORD_OFFSET = POSITION_SIZE * 4;
+
+    private final Gles gl;
+    private final GpuBuffer vertexBuffer;
+    private final GpuBuffer indexBuffer;
+    private final int indexCount;
+
+    //positions has 3 floats per vertex, texCoords 2 floats per vertex
+    public QuadMesh(Gles gl, float[] positions, float[] texCoords, short[] drawOrder) {
+        this.gl = gl;
+        vertexBuffer = GpuBuffer.vertices(gl, interleave(positions, texCoords), GpuBuffer.Usage.STATIC);
+        indexBuffer = GpuBuffer.indices(gl, drawOrder, GpuBuffer.Usage.STATIC);
+        indexCount = drawOrder.length;
+    }
+
+    static float[] interleave(float[] positions, float[] texCoords) {
+        int vertexCount = positions.length / POSITION_SIZE;
+        if (texCoords.length / TEX_COORD_SIZE != vertexCount) {
+            throw new IllegalArgumentException(String.format("%d positions but %d texture coordinates", vertexCount, texCoords.length / TEX_COORD_SIZE));
+        }
+
+        float[] interleaved = new float[vertexCount * (POSITION_SIZE + TEX_COORD_SIZE)];
+        int out = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            for (int i = 0; i < POSITION_SIZE; i++) {
+                interleaved[out++] = positions[v * POSITION_SIZE + i];
+            }
+            for (int i = 0; i < TEX_COORD_SIZE; i++) {
+                interleaved[out++] = texCoords[v * TEX_COORD_SIZE + i];
+            }
+        }
+        return interleaved;
+    }
+
+    //bind both buffers and point the given attribute locations at the interleaved data (pass -1 to skip one)
+    public void bind(int positionHandle, int texCoordHandle) {
+        vertexBuffer.bind();
+        indexBuffer.bind();
+
+        if (positionHandle >= 0) {
+            gl.glEnableVertexAttribArray(positionHandle);
+            gl.glVertexAttribPointer(positionHandle, POSITION_SIZE, GLES20.GL_FLOAT, false, STRIDE, POSITION_OFFSET);
+        }
+        if (texCoordHandle >= 0) {
+            gl.glEnableVertexAttribArray(texCoordHandle);
+            gl.glVertexAttribPointer(texCoordHandle, TEX_COORD_SIZE, GLES20.GL_FLOAT, false, STRIDE, TEX_COORD_OFFSET);
+        }
+    }
+
+    //draw the indexed triangles; bind() has to come first
+    public void draw() {
+        gl.glDrawElements(GLES20.GL_TRIANGLES, indexCount, GLES20.GL_UNSIGNED_SHORT, 0);
+    }
+
+    public void release() {
+        vertexBuffer.release();
+        indexBuffer.release();
+    }
+}
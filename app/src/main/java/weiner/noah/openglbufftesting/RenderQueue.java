@@ -0,0 +1,261 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.Arrays;
+
+//collects a frame's draws and replays them in an order that keeps state changes down.
+//every submitted draw gets a 64 bit key, compared unsigned, most significant bits first:
+//
+//  opaque:      pass (4) | 0 | program (12) | texture (16) | depth (24) | unused (7)
+//  translucent: pass (4) | 1 | far-to-near depth (24) | program (12) | texture (16) | unused (7)
+//
+//so passes run in order, opaque before translucent within a pass, opaque draws are grouped by program then texture and go front to back
+//inside a group (early depth rejection), and translucent draws go back to front as blending needs, grouped only where depth ties.
+//depth is the float bits of the (non-negative) view distance, which order the same way the floats do. program and texture names are
+//truncated to their field width; a collision only costs a state change, never a wrong picture.
+//the keys are sorted with an LSD radix sort, 8 bits per pass, skipping any byte that's the same in every key. the sort is stable, and
+//nothing allocates once the arrays have grown to the largest frame seen.
+public class RenderQueue {
+    public static final int MAX_PASS = 15;
+
+    private static final int DEPTH_BITS = 24;
+    private static final int PROGRAM_BITS = 12;
+    private static final int TEXTURE_BITS = 16;
+    private static final int LOW_BITS = 7;
+
+    private static final int PASS_SHIFT = 60;
+    private static final int TRANSLUCENT_SHIFT = 59;
+
+    //below this many items an insertion sort beats building the histograms
+    private static final int INSERTION_SORT_MAX = 32;
+
+    private long[] keys;
+    private int[] order;
+    private Renderable[] renderables;
+    private float[] matrices;
+    private int count;
+
+    //sort scratch space
+    private long[] keysTemp;
+    private int[] orderTemp;
+    private final int[] histograms = new int[8 * 256];
+
+    private final float[] mvp = new float[16];
+
+    //program and texture changes between consecutive draws of the last sorted frame
+    private int programChanges, textureChanges;
+
+    public RenderQueue(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException(String.format("Render queue capacity must be positive, got %d", initialCapacity));
+        }
+        allocate(initialCapacity);
+    }
+
+    private void allocate(int capacity) {
+        long[] newKeys = new long[capacity];
+        int[] newOrder = new int[capacity];
+        Renderable[] newRenderables = new Renderable[capacity];
+        float[] newMatrices = new float[capacity * 16];
+        if (keys != null) {
+            System.arraycopy(keys, 0, newKeys, 0, count);
+            System.arraycopy(order, 0, newOrder, 0, count);
+            System.arraycopy(renderables, 0, newRenderables, 0, count);
+            System.arraycopy(matrices, 0, newMatrices, 0, count * 16);
+        }
+        keys = newKeys;
+        order = newOrder;
+        renderables = newRenderables;
+        matrices = newMatrices;
+        keysTemp = new long[capacity];
+        orderTemp = new int[capacity];
+    }
+
+    //the sort key for a draw. viewDepth is the distance in front of the camera; anything negative counts as 0
+    public static long makeKey(int pass, boolean translucent, int program, int texture, float viewDepth) {
+        if (pass < 0 || pass > MAX_PASS) {
+            throw new IllegalArgumentException(String.format("Render pass must be between 0 and %d, got %d", MAX_PASS, pass));
+        }
+        //positive float bits sort like the floats; keep the top 24 of the 31 that can be set
+        long depth = Float.floatToRawIntBits(Math.max(viewDepth, 0f)) >>> (31 - DEPTH_BITS);
+        long p = program & ((1 << PROGRAM_BITS) - 1);
+        long t = texture & ((1 << TEXTURE_BITS) - 1);
+
+        long key = (long) pass << PASS_SHIFT;
+        if (translucent) {
+            long farToNear = ((1L << DEPTH_BITS) - 1) - depth;
+            key |= 1L << TRANSLUCENT_SHIFT;
+            key |= farToNear << (LOW_BITS + TEXTURE_BITS + PROGRAM_BITS);
+            key |= p << (LOW_BITS + TEXTURE_BITS);
+            key |= t << LOW_BITS;
+        }
+        else {
+            key |= p << (LOW_BITS + DEPTH_BITS + TEXTURE_BITS);
+            key |= t << (LOW_BITS + DEPTH_BITS);
+            key |= depth << LOW_BITS;
+        }
+        return key;
+    }
+
+    //queue a draw of renderable with the given MVP matrix (copied)
+    public void submit(long key, Renderable renderable, float[] mvpMatrix) {
+        submit(key, renderable, mvpMatrix, 0);
+    }
+
+    //the same, with the matrix at offset in matrices
+    public void submit(long key, Renderable renderable, float[] matrices, int offset) {
+        if (count == keys.length) {
+            allocate(count * 2);
+        }
+        keys[count] = key;
+        order[count] = count;
+        renderables[count] = renderable;
+        System.arraycopy(matrices, offset, this.matrices, count * 16, 16);
+        count++;
+    }
+
+    //put the queued draws in key order
+    public void sort() {
+        if (count <= INSERTION_SORT_MAX) {
+            insertionSort();
+        }
+        else {
+            radixSort();
+        }
+        countStateChanges();
+    }
+
+    private void insertionSort() {
+        for (int i = 1; i < count; i++) {
+            long key = keys[i];
+            int item = order[i];
+            int j = i - 1;
+            while (j >= 0 && unsignedGreater(keys[j], key)) {
+                keys[j + 1] = keys[j];
+                order[j + 1] = order[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            order[j + 1] = item;
+        }
+    }
+
+    //Long.compareUnsigned is API 26
+    private static boolean unsignedGreater(long a, long b) {
+        return (a ^ Long.MIN_VALUE) > (b ^ Long.MIN_VALUE);
+    }
+
+    private void radixSort() {
+        //all eight byte histograms in one read of the keys
+        Arrays.fill(histograms, 0);
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            for (int b = 0; b < 8; b++) {
+                histograms[(b << 8) + (int) ((key >>> (b << 3)) & 0xff)]++;
+            }
+        }
+
+        long[] srcKeys = keys, dstKeys = keysTemp;
+        int[] srcOrder = order, dstOrder = orderTemp;
+        for (int b = 0; b < 8; b++) {
+            int base = b << 8;
+            int shift = b << 3;
+            //a byte every key shares doesn't change the order
+            if (histograms[base + (int) ((srcKeys[0] >>> shift) & 0xff)] == count) {
+                continue;
+            }
+
+            //histogram to starting offsets
+            int offset = 0;
+            for (int d = 0; d < 256; d++) {
+                int n = histograms[base + d];
+                histograms[base + d] = offset;
+                offset += n;
+            }
+            for (int i = 0; i < count; i++) {
+                long key = srcKeys[i];
+                int at = histograms[base + (int) ((key >>> shift) & 0xff)]++;
+                dstKeys[at] = key;
+                dstOrder[at] = srcOrder[i];
+            }
+
+            long[] k = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = k;
+            int[] o = srcOrder;
+            srcOrder = dstOrder;
+            dstOrder = o;
+        }
+
+        //an odd number of passes leaves the result in the scratch arrays; swap roles instead of copying back
+        if (srcKeys != keys) {
+            keysTemp = keys;
+            keys = srcKeys;
+            orderTemp = order;
+            order = srcOrder;
+        }
+    }
+
+    private void countStateChanges() {
+        programChanges = 0;
+        textureChanges = 0;
+        int lastProgram = -1, lastTexture = -1;
+        for (int i = 0; i < count; i++) {
+            Renderable r = renderables[order[i]];
+            if (r.getProgramId() != lastProgram) {
+                programChanges++;
+                lastProgram = r.getProgramId();
+            }
+            if (r.getTextureId() != lastTexture) {
+                textureChanges++;
+                lastTexture = r.getTextureId();
+            }
+        }
+    }
+
+    //draw everything in the current order
+    public void draw() {
+        for (int i = 0; i < count; i++) {
+            int item = order[i];
+            System.arraycopy(matrices, item * 16, mvp, 0, 16);
+            renderables[item].draw(mvp);
+        }
+    }
+
+    //record everything in the current order into out, for another thread to replay
+    public void record(CommandBuffer out) {
+        for (int i = 0; i < count; i++) {
+            int item = order[i];
+            out.draw(renderables[item], matrices, item * 16);
+        }
+    }
+
+    //forget the queued draws, keeping the storage
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            renderables[i] = null;
+        }
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    //key of the i-th draw in the current order
+    public long getKey(int i) {
+        return keys[i];
+    }
+
+    //renderable of the i-th draw in the current order
+    public Renderable getRenderable(int i) {
+        return renderables[order[i]];
+    }
+
+    public int getProgramChanges() {
+        return programChanges;
+    }
+
+    public int getTextureChanges() {
+        return textureChanges;
+    }
+}
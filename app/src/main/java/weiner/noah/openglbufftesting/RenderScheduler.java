@@ -0,0 +1,53 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//decides when the next frame gets drawn. continuously, GLSurfaceView draws at display rate whatever happens; on demand
+//(RENDERMODE_WHEN_DIRTY) it only draws after requestRender(), and this asks for one whenever something changed: a caller said so
+//through requestFrame(), or the frame just drawn had animations running, which will have moved by the next one.
+//a static scene then costs nothing at all between frames.
+public class RenderScheduler {
+    //GLSurfaceView.requestRender(); safe to call from any thread
+    public interface Requester {
+        void requestRender();
+    }
+
+    private volatile Requester requester;
+    private volatile boolean onDemand;
+
+    private final AtomicLong requests = new AtomicLong();
+
+    //draw only when asked (true) or at display rate (false); the view's render mode has to be switched to match
+    public void setOnDemand(Requester requester, boolean onDemand) {
+        this.requester = requester;
+        this.onDemand = onDemand;
+        if (onDemand) {
+            requestFrame();
+        }
+    }
+
+    public boolean isOnDemand() {
+        return onDemand;
+    }
+
+    //something changed: draw a frame soon. any thread; a no-op when drawing continuously, which draws soon anyway
+    public void requestFrame() {
+        Requester r = requester;
+        if (onDemand && r != null) {
+            requests.incrementAndGet();
+            r.requestRender();
+        }
+    }
+
+    //call at the end of every frame with whether anything was animating in it
+    public void afterFrame(boolean animating) {
+        if (animating) {
+            requestFrame();
+        }
+    }
+
+    //frames asked for so far
+    public long getRequests() {
+        return requests.get();
+    }
+}
@@ -0,0 +1,145 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+//an offscreen framebuffer: a color texture we can sample from afterwards, plus an optional 16 bit depth renderbuffer.
+//the size is fixed at creation; to resize, release it and make a new one (RenderTargetManager does that for us)
+public class RenderTarget {
+    //color buffer layouts we can render into, with what one pixel costs in memory
+    public enum Format {
+        RGBA8888(GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, 4),
+        RGB565(GLES20.GL_RGB, GLES20.GL_UNSIGNED_SHORT_5_6_5, 2),
+        RGBA4444(GLES20.GL_RGBA, GLES20.GL_UNSIGNED_SHORT_4_4_4_4, 2);
+
+        final int glFormat;
+        final int glType;
+        final int bytesPerPixel;
+
+        Format(int glFormat, int glType, int bytesPerPixel) {
+            this.glFormat = glFormat;
+            this.glType = glType;
+            this.bytesPerPixel = bytesPerPixel;
+        }
+    }
+
+    //GL_DEPTH_COMPONENT16
+    private static final int DEPTH_BYTES_PER_PIXEL = 2;
+
+    private final Gles gl;
+    private final int width, height;
+    private final Format format;
+    private final boolean depth;
+
+    private final int[] framebuffer = new int[1];
+    private final int[] colorTexture = new int[1];
+    private final int[] depthRenderbuffer = new int[1];
+
+    public RenderTarget(Gles gl, int width, int height, Format format, boolean depth) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(String.format("Render target must be at least 1x1, got %dx%d", width, height));
+        }
+        this.gl = gl;
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.depth = depth;
+
+        gl.glGenFramebuffers(1, framebuffer, 0);
+        gl.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+
+        //the texture we're going to render to. linear filtering, so a super/subsampled target still looks right when drawn to the screen
+        gl.glGenTextures(1, colorTexture, 0);
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, colorTexture[0]);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+
+        //give an empty image to OpenGL (the last null); width and height do not have to be a power of two
+        gl.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, format.glFormat, width, height, 0, format.glFormat, format.glType, null);
+        gl.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, colorTexture[0], 0);
+
+        //without a depth attachment GL_DEPTH_TEST does nothing while this target is bound
+        if (depth) {
+            gl.glGenRenderbuffers(1, depthRenderbuffer, 0);
+            gl.glBindRenderbuffer(GLES20.GL_RENDERBUFFER, depthRenderbuffer[0]);
+            gl.glRenderbufferStorage(GLES20.GL_RENDERBUFFER, GLES20.GL_DEPTH_COMPONENT16, width, height);
+            gl.glFramebufferRenderbuffer(GLES20.GL_FRAMEBUFFER, GLES20.GL_DEPTH_ATTACHMENT, GLES20.GL_RENDERBUFFER, depthRenderbuffer[0]);
+        }
+
+        //completeness is a property of the bound framebuffer, so check before unbinding it
+        int status = gl.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+        gl.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+
+        if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+            release();
+            throw new RuntimeException(String.format("Framebuffer %s is incomplete, status 0x%x", describe(width, height, format, depth), status));
+        }
+    }
+
+    //what a target of this shape costs in GPU memory, in bytes
+    public static long bytesFor(int width, int height, Format format, boolean depth) {
+        long pixels = (long) width * height;
+        return pixels * format.bytesPerPixel + (depth ? pixels * DEPTH_BYTES_PER_PIXEL : 0);
+    }
+
+    private static String describe(int width, int height, Format format, boolean depth) {
+        return String.format("%dx%d %s%s", width, height, format, depth ? "+depth" : "");
+    }
+
+    //render into this target from now on, covering all of it
+    public void bind() {
+        gl.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer[0]);
+        gl.glViewport(0, 0, width, height);
+    }
+
+    public void release() {
+        if (framebuffer[0] != 0) {
+            gl.glDeleteFramebuffers(1, framebuffer, 0);
+            framebuffer[0] = 0;
+        }
+        if (colorTexture[0] != 0) {
+            gl.glDeleteTextures(1, colorTexture, 0);
+            colorTexture[0] = 0;
+        }
+        if (depthRenderbuffer[0] != 0) {
+            gl.glDeleteRenderbuffers(1, depthRenderbuffer, 0);
+            depthRenderbuffer[0] = 0;
+        }
+    }
+
+    public int getFramebuffer() {
+        return framebuffer[0];
+    }
+
+    //the texture holding whatever was rendered into this target
+    public int getColorTexture() {
+        return colorTexture[0];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public boolean hasDepth() {
+        return depth;
+    }
+
+    public long getSizeBytes() {
+        return bytesFor(width, height, format, depth);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%.1f MB)", describe(width, height, format, depth), getSizeBytes() / (1024f * 1024f));
+    }
+}
@@ -0,0 +1,124 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+//owns the offscreen target the scene is rendered into before it gets drawn to the screen.
+//the target follows the surface: it is (surface size * scale), reallocated whenever either changes. a scale above 1 supersamples
+//(sharper, costs fill rate and memory with the square of the scale), below 1 subsamples (cheaper, blurrier).
+//the old code allocated a fixed 4x-in-each-direction texture, ~150 MB on a 1080x2236 screen, and rendered it with a hard-coded viewport.
+//targets come from a RenderTargetPool, so rotating back to a size we had before gets the old target back instead of allocating.
+public class RenderTargetManager {
+    public static final float DEFAULT_SCALE = 1f;
+
+    private final Gles gl;
+    private final RenderTargetPool pool;
+    private final RenderTarget.Format format;
+    private final boolean depth;
+    private float scale;
+
+    private int surfaceWidth, surfaceHeight;
+
+    //largest texture the driver accepts, read lazily once per context
+    private int maxTextureSize;
+
+    private RenderTarget sceneTarget;
+
+    public RenderTargetManager(Gles gl, RenderTargetPool pool, float scale, RenderTarget.Format format, boolean depth) {
+        this.gl = gl;
+        this.pool = pool;
+        this.format = format;
+        this.depth = depth;
+        this.scale = checkScale(scale);
+    }
+
+    private static float checkScale(float scale) {
+        if (!(scale > 0)) {
+            throw new IllegalArgumentException("Render scale must be positive, got " + scale);
+        }
+        return scale;
+    }
+
+    //(surface size * scale), rounded, at least 1 pixel, and shrunk (keeping the aspect ratio) to fit under maxSize
+    static int[] targetSize(int surfaceWidth, int surfaceHeight, float scale, int maxSize) {
+        float effective = scale;
+        if (maxSize > 0) {
+            effective = Math.min(effective, Math.min((float) maxSize / surfaceWidth, (float) maxSize / surfaceHeight));
+        }
+        return new int[] {Math.max(1, Math.round(surfaceWidth * effective)), Math.max(1, Math.round(surfaceHeight * effective))};
+    }
+
+    //call from onSurfaceChanged with the real surface size
+    public void onSurfaceChanged(int width, int height) {
+        surfaceWidth = Math.max(1, width);
+        surfaceHeight = Math.max(1, height);
+        reallocate();
+    }
+
+    //change the super/subsampling factor; takes effect right away if we already know the surface size. GL thread only
+    public void setScale(float scale) {
+        this.scale = checkScale(scale);
+        if (surfaceWidth > 0) {
+            reallocate();
+        }
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    private void reallocate() {
+        if (maxTextureSize == 0) {
+            int[] max = new int[1];
+            gl.glGetIntegerv(GLES20.GL_MAX_TEXTURE_SIZE, max, 0);
+            maxTextureSize = max[0];
+        }
+
+        int[] size = targetSize(surfaceWidth, surfaceHeight, scale, maxTextureSize);
+        if (sceneTarget != null && sceneTarget.getWidth() == size[0] && sceneTarget.getHeight() == size[1]) {
+            return;
+        }
+
+        //give the old one back first so the pool can hand it out again if the size flips back
+        if (sceneTarget != null) {
+            pool.release(sceneTarget);
+        }
+        sceneTarget = pool.acquire(size[0], size[1], format, depth);
+    }
+
+    //the target the scene gets rendered into; null until the first onSurfaceChanged
+    public RenderTarget getSceneTarget() {
+        return sceneTarget;
+    }
+
+    //render to the window again, covering the whole surface
+    public void bindScreen() {
+        gl.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        gl.glViewport(0, 0, surfaceWidth, surfaceHeight);
+    }
+
+    public int getSurfaceWidth() {
+        return surfaceWidth;
+    }
+
+    public int getSurfaceHeight() {
+        return surfaceHeight;
+    }
+
+    //the GL context is gone and took our targets with it: forget them without deleting anything (the pool gets invalidated separately)
+    public void invalidate() {
+        sceneTarget = null;
+        maxTextureSize = 0;
+        surfaceWidth = surfaceHeight = 0;
+    }
+
+    public void release() {
+        if (sceneTarget != null) {
+            pool.release(sceneTarget);
+            sceneTarget = null;
+        }
+    }
+
+    public String report() {
+        return String.format("Render targets: scale %.2f, surface %dx%d, scene %s", scale, surfaceWidth, surfaceHeight, sceneTarget);
+    }
+}
@@ -0,0 +1,129 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.ArrayList;
+
+//hands out RenderTargets by shape (width, height, format, depth) and takes them back when a pass is done with them.
+//a released target goes on an idle list, and the next acquire() of the same shape gets it back instead of a fresh glTexImage2D/
+//glRenderbufferStorage, so passes within a frame share targets and rotating the screen back and forth doesn't reallocate.
+//the idle list is an LRU bounded by count and by bytes; the least recently released target is deleted first.
+public class RenderTargetPool {
+    public static final int DEFAULT_MAX_IDLE_TARGETS = 4;
+    public static final long DEFAULT_MAX_IDLE_BYTES = 64L * 1024 * 1024;
+
+    private final Gles gl;
+    private final int maxIdleTargets;
+    private final long maxIdleBytes;
+
+    //handed out and not yet released
+    private final ArrayList<RenderTarget> live = new ArrayList<>();
+
+    //released, oldest first
+    private final ArrayList<RenderTarget> idle = new ArrayList<>();
+
+    private long liveBytes, idleBytes;
+    private int created, reused, evicted;
+
+    public RenderTargetPool(Gles gl) {
+        this(gl, DEFAULT_MAX_IDLE_TARGETS, DEFAULT_MAX_IDLE_BYTES);
+    }
+
+    public RenderTargetPool(Gles gl, int maxIdleTargets, long maxIdleBytes) {
+        this.gl = gl;
+        this.maxIdleTargets = maxIdleTargets;
+        this.maxIdleBytes = maxIdleBytes;
+    }
+
+    //a target of exactly this shape, recycled if one is idle. hand it back with release() once the pass is done with it
+    public RenderTarget acquire(int width, int height, RenderTarget.Format format, boolean depth) {
+        RenderTarget target = null;
+
+        //most recently released first, it's the one most likely to still be warm
+        for (int i = idle.size() - 1; i >= 0; i--) {
+            RenderTarget candidate = idle.get(i);
+            if (candidate.getWidth() == width && candidate.getHeight() == height && candidate.getFormat() == format && candidate.hasDepth() == depth) {
+                target = idle.remove(i);
+                idleBytes -= target.getSizeBytes();
+                reused++;
+                break;
+            }
+        }
+
+        if (target == null) {
+            target = new RenderTarget(gl, width, height, format, depth);
+            created++;
+        }
+
+        live.add(target);
+        liveBytes += target.getSizeBytes();
+        return target;
+    }
+
+    //give a target back. it stays allocated for reuse until the idle limits push it out
+    public void release(RenderTarget target) {
+        if (!live.remove(target)) {
+            throw new IllegalStateException(String.format("Render target %s is not live in this pool", target));
+        }
+        liveBytes -= target.getSizeBytes();
+
+        idle.add(target);
+        idleBytes += target.getSizeBytes();
+        trim(maxIdleTargets, maxIdleBytes);
+    }
+
+    //delete least recently released idle targets until we're within both limits
+    public void trim(int maxTargets, long maxBytes) {
+        while (!idle.isEmpty() && (idle.size() > maxTargets || idleBytes > maxBytes)) {
+            RenderTarget oldest = idle.remove(0);
+            idleBytes -= oldest.getSizeBytes();
+            oldest.release();
+            evicted++;
+        }
+    }
+
+    //delete every idle target, e.g. when the app goes to the background
+    public void trimIdle() {
+        trim(0, 0);
+    }
+
+    //the GL context is gone and every framebuffer/texture/renderbuffer name with it: forget all targets without deleting anything
+    public void invalidate() {
+        live.clear();
+        idle.clear();
+        liveBytes = idleBytes = 0;
+    }
+
+    public int getLiveCount() {
+        return live.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    //GPU memory held by targets that are handed out, in bytes
+    public long getLiveBytes() {
+        return liveBytes;
+    }
+
+    //GPU memory held by targets that are only kept around for reuse, in bytes
+    public long getIdleBytes() {
+        return idleBytes;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getReused() {
+        return reused;
+    }
+
+    public int getEvicted() {
+        return evicted;
+    }
+
+    public String report() {
+        return String.format("Render target pool: %d live (%.1f MB), %d idle (%.1f MB), %d created, %d reused, %d evicted",
+                live.size(), liveBytes / (1024f * 1024f), idle.size(), idleBytes / (1024f * 1024f), created, reused, evicted);
+    }
+}
@@ -0,0 +1,17 @@
+package weiner.noah.openglbufftesting;
+
+//anything that can draw itself given its model-view-projection matrix (Square, Triangle, ...), so a SceneNode can hold it.
+//the other three say which GL state the draw needs, so a RenderQueue can put draws sharing state next to each other. draw() runs on the
+//GL thread, but the other three may be asked from whichever thread records the frame (see CommandBufferPipeline), so they mustn't touch GL
+public interface Renderable {
+    void draw(float[] mvpMatrix);
+
+    //GL name of the program it draws with
+    int getProgramId();
+
+    //GL name of the texture it samples, 0 for none
+    int getTextureId();
+
+    //whether it blends with what's behind it, and so has to be drawn after opaque things, back to front
+    boolean isTranslucent();
+}
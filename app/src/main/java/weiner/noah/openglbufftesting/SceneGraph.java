@@ -0,0 +1,368 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+//a tree of SceneNodes drawn with one view-projection matrix.
+//each frame cull() walks the tree parents-first (so every node's cached world matrix is rebuilt at most once, and only if something
+//above or at it moved) and keeps the nodes whose bounding sphere touches the view frustum. draw() then hands each of those its MVP.
+//off-screen nodes cost a sphere test and nothing else. what survives goes through a RenderQueue, so draws come out grouped by program
+//and texture (opaque, front to back) or back to front (translucent) rather than in tree order.
+//cull() also works out which part of the screen changed since the last cull: the old and new screen rectangles of every node that moved
+//or was marked dirty, the old rectangle of every node that stopped being drawn, or everything if the view-projection matrix changed.
+//the walk uses its own stack, and after the first few frames nothing allocates.
+//with a JobSystem (setJobs()) the per-node work is spread over its workers: the walk only lists the nodes, parents first, then world
+//matrices are rebuilt a tree level at a time, nodes are culled and their dirty rectangles tracked in chunks, and visible nodes get their
+//MVP matrix and sort key in chunks too. every chunk writes into its own slots of preallocated arrays, merged afterwards in chunk order,
+//so the result is exactly what the single threaded path gives. below a few hundred nodes the chunks aren't worth it and it all runs
+//on the calling thread anyway.
+public class SceneGraph {
+    //nodes a chunk gets at least
+    static final int MIN_CHUNK = 128;
+
+    private final SceneNode root = new SceneNode();
+    private final Frustum frustum = new Frustum();
+
+    //nodes with a renderable that survived the last cull, in traversal order, and the ones from the cull before
+    private ArrayList<SceneNode> visible = new ArrayList<>();
+    private ArrayList<SceneNode> lastVisible = new ArrayList<>();
+    private final ArrayList<SceneNode> stack = new ArrayList<>();
+
+    private final RenderQueue queue = new RenderQueue(64);
+    private final float[] mvp = new float[16];
+
+    //the parallel path's state: every node walked this cull (parents first) and its depth, the walk's indices grouped by depth, the
+    //culling chunks' outputs, and each visible node's MVP and key
+    private JobSystem jobs;
+    private final ArrayList<SceneNode> walk = new ArrayList<>();
+    private int[] depths = new int[64], depthStack = new int[64], byDepth = new int[64], levelStarts = new int[8];
+    private int levels;
+    private int[] hits = new int[64];
+    private int[] chunkFrom, chunkHits, chunkCulled;
+    private DirtyRegion[] chunkDirty;
+    private float[][] chunkRect;
+    private long[] keys = new long[64];
+    private float[] matrices = new float[64 * 16];
+    private float[] jobViewProjection;
+    private boolean jobViewChanged;
+
+    private int nodeCount;
+    private int culledCount;
+
+    //what changed on screen between the last two culls
+    private final DirtyRegion dirty = new DirtyRegion();
+    private final float[] lastViewProjection = new float[16];
+    private final float[] rect = new float[4];
+    private long frame;
+
+    public SceneNode getRoot() {
+        return root;
+    }
+
+    //update world matrices, collect the renderable nodes inside the frustum of the view-projection matrix and work out what changed
+    public void cull(float[] viewProjection) {
+        frustum.set(viewProjection, 0);
+        ArrayList<SceneNode> previous = visible;
+        visible = lastVisible;
+        lastVisible = previous;
+        visible.clear();
+        nodeCount = 0;
+        culledCount = 0;
+
+        frame++;
+        dirty.clear();
+        boolean viewChanged = frame == 1;
+        for (int i = 0; i < 16; i++) {
+            if (viewProjection[i] != lastViewProjection[i]) {
+                viewChanged = true;
+                lastViewProjection[i] = viewProjection[i];
+            }
+        }
+
+        if (jobs != null) {
+            cullInChunks(viewProjection, viewChanged);
+        }
+        else {
+            stack.clear();
+            stack.add(root);
+            while (!stack.isEmpty()) {
+                SceneNode node = stack.remove(stack.size() - 1);
+                if (!node.isVisible()) {
+                    continue;
+                }
+                node.refresh();
+                nodeCount++;
+
+                if (node.getRenderable() != null) {
+                    if (node.intersects(frustum)) {
+                        visible.add(node);
+                        track(node, viewProjection, viewChanged, dirty, rect);
+                    }
+                    else {
+                        culledCount++;
+                    }
+                }
+                //pushed back to front so children come off the stack in the order they were added
+                for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                    stack.add(node.getChild(i));
+                }
+            }
+        }
+
+        //whatever was drawn last time and isn't now (culled, hidden or removed) leaves a hole to repaint
+        for (int i = 0; i < lastVisible.size(); i++) {
+            SceneNode node = lastVisible.get(i);
+            if (node.drawnFrame != frame && node.hasDrawnRect) {
+                dirty.add(node.drawnRect[0], node.drawnRect[1], node.drawnRect[2], node.drawnRect[3]);
+                node.hasDrawnRect = false;
+            }
+        }
+        lastVisible.clear();
+
+        if (viewChanged) {
+            dirty.markAll();
+        }
+    }
+
+    //the parallel cull: the same walk, but the per-node work in chunks on the job system's workers
+    private void cullInChunks(float[] viewProjection, boolean viewChanged) {
+        //list every node parents first, in the order the single threaded walk visits them, with its depth in the tree
+        walk.clear();
+        stack.clear();
+        stack.add(root);
+        depthStack[0] = 0;
+        levels = 0;
+        while (!stack.isEmpty()) {
+            int depth = depthStack[stack.size() - 1];
+            SceneNode node = stack.remove(stack.size() - 1);
+            if (!node.isVisible()) {
+                continue;
+            }
+            depths = grow(depths, walk.size() + 1);
+            depths[walk.size()] = depth;
+            walk.add(node);
+            levels = Math.max(levels, depth + 1);
+            for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                depthStack = grow(depthStack, stack.size() + 1);
+                depthStack[stack.size()] = depth + 1;
+                stack.add(node.getChild(i));
+            }
+        }
+        int n = walk.size();
+        nodeCount = n;
+
+        //the walk's indices grouped by depth, in walk order within a level (a counting sort). a level's world matrices only depend on
+        //the level above, so each level is one parallel loop
+        levelStarts = grow(levelStarts, levels + 1);
+        Arrays.fill(levelStarts, 0, levels + 1, 0);
+        for (int i = 0; i < n; i++) {
+            levelStarts[depths[i] + 1]++;
+        }
+        for (int d = 0; d < levels; d++) {
+            levelStarts[d + 1] += levelStarts[d];
+        }
+        byDepth = grow(byDepth, n);
+        //levelStarts[d] is level d's fill cursor while scattering, and ends up as level d + 1's start; shift it back after
+        for (int i = 0; i < n; i++) {
+            byDepth[levelStarts[depths[i]]++] = i;
+        }
+        for (int d = levels; d > 0; d--) {
+            levelStarts[d] = levelStarts[d - 1];
+        }
+        levelStarts[0] = 0;
+        for (int d = 0; d < levels; d++) {
+            level = levelStarts[d];
+            jobs.parallelFor(levelStarts[d + 1] - levelStarts[d], MIN_CHUNK, refreshJob);
+        }
+
+        //cull and track in chunks, then merge the chunks' hits, counts and dirty rectangles in order
+        hits = grow(hits, n);
+        jobViewProjection = viewProjection;
+        jobViewChanged = viewChanged;
+        int chunks = jobs.parallelFor(n, MIN_CHUNK, cullJob);
+        for (int c = 0; c < chunks; c++) {
+            for (int k = 0; k < chunkHits[c]; k++) {
+                visible.add(walk.get(hits[chunkFrom[c] + k]));
+            }
+            culledCount += chunkCulled[c];
+            dirty.add(chunkDirty[c]);
+        }
+        jobViewProjection = null;
+    }
+
+    //first index into byDepth of the level refreshJob works on
+    private int level;
+
+    private final JobSystem.Job refreshJob = new JobSystem.Job() {
+        @Override
+        public void run(int chunk, int from, int to) {
+            for (int i = from; i < to; i++) {
+                walk.get(byDepth[level + i]).refresh();
+            }
+        }
+    };
+
+    //a chunk's visible nodes go into hits from its own first index on
+    private final JobSystem.Job cullJob = new JobSystem.Job() {
+        @Override
+        public void run(int chunk, int from, int to) {
+            DirtyRegion into = chunkDirty[chunk];
+            into.clear();
+            int found = 0, culled = 0;
+            for (int i = from; i < to; i++) {
+                SceneNode node = walk.get(i);
+                if (node.getRenderable() == null) {
+                    continue;
+                }
+                if (node.intersects(frustum)) {
+                    hits[from + found++] = i;
+                    track(node, jobViewProjection, jobViewChanged, into, chunkRect[chunk]);
+                }
+                else {
+                    culled++;
+                }
+            }
+            chunkFrom[chunk] = from;
+            chunkHits[chunk] = found;
+            chunkCulled[chunk] = culled;
+        }
+    };
+
+    private static int[] grow(int[] array, int length) {
+        return array.length >= length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+    }
+
+    //a drawn node dirties where it was and where it is now if it moved or changed since it was last drawn
+    private void track(SceneNode node, float[] viewProjection, boolean viewChanged, DirtyRegion dirty, float[] rect) {
+        node.drawnFrame = frame;
+        if (!viewChanged && node.hasDrawnRect && node.drawnVersion == node.getVersion() && node.drawnChanges == node.getChanges()) {
+            return;
+        }
+        node.drawnVersion = node.getVersion();
+        node.drawnChanges = node.getChanges();
+
+        float[] old = node.drawnRect;
+        if (node.hasDrawnRect) {
+            dirty.add(old[0], old[1], old[2], old[3]);
+        }
+        node.screenRect(viewProjection, rect);
+        System.arraycopy(rect, 0, old, 0, 4);
+        node.hasDrawnRect = true;
+        dirty.add(rect[0], rect[1], rect[2], rect[3]);
+    }
+
+    //cull, then draw everything that's left in sorted order
+    public void draw(float[] viewProjection) {
+        cull(viewProjection);
+        drawVisible(viewProjection);
+    }
+
+    //draw what the last cull() kept, in sorted order
+    public void drawVisible(float[] viewProjection) {
+        queueVisible(viewProjection);
+        queue.draw();
+    }
+
+    //record what the last cull() kept into out, in sorted order, to be replayed on the GL thread. this and cull() are all the CPU
+    //side of a frame, and touch no GL state, so they can run on another thread as long as only that thread changes the scene
+    public void recordVisible(float[] viewProjection, CommandBuffer out) {
+        queueVisible(viewProjection);
+        queue.record(out);
+    }
+
+    private void queueVisible(float[] viewProjection) {
+        queue.clear();
+        if (jobs != null) {
+            //matrices and keys in chunks, each visible node into its own slots; only the submits are in a row
+            int n = visible.size();
+            if (keys.length < n) {
+                keys = new long[Math.max(n, keys.length * 2)];
+                matrices = new float[keys.length * 16];
+            }
+            jobViewProjection = viewProjection;
+            jobs.parallelFor(n, MIN_CHUNK, keyJob);
+            jobViewProjection = null;
+            for (int i = 0; i < n; i++) {
+                queue.submit(keys[i], visible.get(i).getRenderable(), matrices, i * 16);
+            }
+        }
+        else {
+            for (int i = 0; i < visible.size(); i++) {
+                SceneNode node = visible.get(i);
+                Mat4.multiply(mvp, 0, viewProjection, 0, node.cachedWorldMatrix(), 0);
+                queue.submit(key(node, viewProjection), node.getRenderable(), mvp, 0);
+            }
+        }
+        queue.sort();
+    }
+
+    private final JobSystem.Job keyJob = new JobSystem.Job() {
+        @Override
+        public void run(int chunk, int from, int to) {
+            for (int i = from; i < to; i++) {
+                SceneNode node = visible.get(i);
+                Mat4.multiply(matrices, i * 16, jobViewProjection, 0, node.cachedWorldMatrix(), 0);
+                keys[i] = key(node, jobViewProjection);
+            }
+        }
+    };
+
+    private static long key(SceneNode node, float[] viewProjection) {
+        Renderable renderable = node.getRenderable();
+        return RenderQueue.makeKey(node.getPass(), renderable.isTranslucent(), renderable.getProgramId(), renderable.getTextureId(),
+                node.viewDepth(viewProjection));
+    }
+
+    //spread culling and sorting over jobs' workers from the next cull() on; null to go back to doing it all on the calling thread
+    public void setJobs(JobSystem jobs) {
+        this.jobs = jobs;
+        if (jobs != null) {
+            int chunks = jobs.getMaxChunks();
+            chunkFrom = new int[chunks];
+            chunkHits = new int[chunks];
+            chunkCulled = new int[chunks];
+            chunkDirty = new DirtyRegion[chunks];
+            chunkRect = new float[chunks][4];
+            for (int c = 0; c < chunks; c++) {
+                chunkDirty[c] = new DirtyRegion();
+            }
+        }
+    }
+
+    public JobSystem getJobs() {
+        return jobs;
+    }
+
+    //the last frame's draws, in the order they were made
+    public RenderQueue getQueue() {
+        return queue;
+    }
+
+    public Frustum getFrustum() {
+        return frustum;
+    }
+
+    //results of the last cull()
+    public int getVisibleCount() {
+        return visible.size();
+    }
+
+    public SceneNode getVisible(int i) {
+        return visible.get(i);
+    }
+
+    //the part of the screen that differs from what the previous cull() saw, in normalized device coordinates.
+    //the first cull, and any with a new view-projection matrix, dirty everything
+    public DirtyRegion getDirtyRegion() {
+        return dirty;
+    }
+
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    //nodes walked by the last cull(), hidden subtrees not included
+    public int getNodeCount() {
+        return nodeCount;
+    }
+}
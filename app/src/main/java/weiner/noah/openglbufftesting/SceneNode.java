@@ -0,0 +1,234 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.ArrayList;
+
+//one thing in a SceneGraph: a local transform, an optional Renderable with a bounding sphere, and child nodes placed relative to it.
+//the world matrix (parent's world * local) and the world space bounding sphere are cached and only rebuilt when this node's transform
+//or an ancestor's world matrix changed since the last time they were asked for.
+public class SceneNode {
+    private final Transform transform = new Transform();
+    private final float[] world = new float[16];
+    private final ArrayList<SceneNode> children = new ArrayList<>();
+    private SceneNode parent;
+
+    //what the cached world matrix was built from
+    private int localVersion = -1;
+    private int parentVersion = -1;
+    private int version;
+
+    private Renderable renderable;
+
+    //bounding sphere in the node's own space, and the same sphere in world space for the current world matrix
+    private boolean hasBounds;
+    private float boundsX, boundsY, boundsZ, boundsRadius;
+    private final float[] worldCenter = new float[3];
+    private float worldRadius;
+
+    private boolean visible = true;
+    private int pass;
+
+    //bumped by markDirty() and by anything that changes what the node draws without moving it
+    private int changes;
+
+    //what SceneGraph last drew this node as: the frame, the world matrix version and changes it was drawn with, and the screen
+    //rectangle (normalized device coordinates) its bounds covered
+    long drawnFrame = -1;
+    int drawnVersion = -1, drawnChanges = -1;
+    boolean hasDrawnRect;
+    final float[] drawnRect = new float[4];
+
+    public SceneNode() {
+        Mat4.setIdentity(world, 0);
+    }
+
+    public SceneNode(Renderable renderable, float boundsRadius) {
+        this();
+        this.renderable = renderable;
+        setBounds(0f, 0f, 0f, boundsRadius);
+    }
+
+    //where the node sits relative to its parent. change it through its setters; the node picks the changes up. only its local matrix
+    //is used: the node keeps the hierarchy itself, so don't give it a parent transform
+    public Transform getTransform() {
+        return transform;
+    }
+
+    public void addChild(SceneNode child) {
+        for (SceneNode n = this; n != null; n = n.parent) {
+            if (n == child) {
+                throw new IllegalArgumentException("A node can't be its own ancestor");
+            }
+        }
+        if (child.parent != null) {
+            child.parent.removeChild(child);
+        }
+        child.parent = this;
+        child.parentVersion = -1;
+        children.add(child);
+    }
+
+    public boolean removeChild(SceneNode child) {
+        if (!children.remove(child)) {
+            return false;
+        }
+        child.parent = null;
+        child.parentVersion = -1;
+        return true;
+    }
+
+    public SceneNode getParent() {
+        return parent;
+    }
+
+    public int getChildCount() {
+        return children.size();
+    }
+
+    public SceneNode getChild(int i) {
+        return children.get(i);
+    }
+
+    public Renderable getRenderable() {
+        return renderable;
+    }
+
+    public void setRenderable(Renderable renderable) {
+        this.renderable = renderable;
+        changes++;
+    }
+
+    //the renderable looks different (new texture contents, color, ...) though the node didn't move: redraw it on the next frame
+    public void markDirty() {
+        changes++;
+    }
+
+    int getChanges() {
+        return changes;
+    }
+
+    //matches the cached world matrix; only meaningful after refresh()
+    int getVersion() {
+        return version;
+    }
+
+    //a sphere around everything the renderable draws, in the node's own space. nodes without bounds are never culled
+    public void setBounds(float x, float y, float z, float radius) {
+        boundsX = x;
+        boundsY = y;
+        boundsZ = z;
+        boundsRadius = radius;
+        hasBounds = true;
+        localVersion = -1;
+        changes++;
+    }
+
+    public boolean hasBounds() {
+        return hasBounds;
+    }
+
+    //hidden nodes are skipped along with all their children
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    //RenderQueue pass: nodes in lower passes draw before anything in higher ones, whatever their state or depth
+    public void setPass(int pass) {
+        if (pass < 0 || pass > RenderQueue.MAX_PASS) {
+            throw new IllegalArgumentException(String.format("Render pass must be between 0 and %d, got %d", RenderQueue.MAX_PASS, pass));
+        }
+        if (pass != this.pass) {
+            this.pass = pass;
+            changes++;
+        }
+    }
+
+    public int getPass() {
+        return pass;
+    }
+
+    //parent's world matrix * local matrix; don't modify it
+    public float[] getWorldMatrix() {
+        if (parent != null) {
+            parent.getWorldMatrix();
+        }
+        refresh();
+        return world;
+    }
+
+    //bring the cached world matrix and bounds up to date, assuming the parent's already are. SceneGraph walks parents before children,
+    //so this is O(1) per node there
+    void refresh() {
+        int local = transform.getLocalVersion();
+        int parentNow = parent == null ? 0 : parent.version;
+        if (local == localVersion && parentNow == parentVersion) {
+            return;
+        }
+        localVersion = local;
+        parentVersion = parentNow;
+
+        if (parent == null) {
+            System.arraycopy(transform.getLocalMatrix(), 0, world, 0, 16);
+        }
+        else {
+            Mat4.multiplyAffine(world, 0, parent.world, 0, transform.getLocalMatrix(), 0);
+        }
+        version++;
+
+        //the bounds' center (the origin without bounds) is also what draws are depth sorted by
+        Mat4.transformPoint(worldCenter, 0, world, 0, boundsX, boundsY, boundsZ);
+        if (hasBounds) {
+            //a scaled sphere stays inside a sphere scaled by the largest axis scale
+            float sx = world[0] * world[0] + world[1] * world[1] + world[2] * world[2];
+            float sy = world[4] * world[4] + world[5] * world[5] + world[6] * world[6];
+            float sz = world[8] * world[8] + world[9] * world[9] + world[10] * world[10];
+            worldRadius = boundsRadius * (float) Math.sqrt(Math.max(sx, Math.max(sy, sz)));
+        }
+    }
+
+    //the world matrix as of the last refresh(), without checking the parents again
+    float[] cachedWorldMatrix() {
+        return world;
+    }
+
+    //distance in front of the camera of the node's center, i.e. its clip space w, for a projection * view matrix
+    float viewDepth(float[] viewProjection) {
+        return viewProjection[3] * worldCenter[0] + viewProjection[7] * worldCenter[1] + viewProjection[11] * worldCenter[2] + viewProjection[15];
+    }
+
+    //world space bounds for the current world matrix; only meaningful after refresh()
+    boolean intersects(Frustum frustum) {
+        return !hasBounds || frustum.intersectsSphere(worldCenter[0], worldCenter[1], worldCenter[2], worldRadius);
+    }
+
+    //the screen rectangle (left, bottom, right, top in normalized device coordinates) the bounds cover for a projection * view matrix,
+    //as of the last refresh(). the sphere's clip space x, y and w each lie within radius * (length of that matrix row) of the center's,
+    //and x / w is monotonic in both, so the corners of that box bound the projection. nodes without bounds, or reaching behind the
+    //camera, cover the whole screen
+    void screenRect(float[] viewProjection, float[] rect) {
+        float[] m = viewProjection;
+        float cx = worldCenter[0], cy = worldCenter[1], cz = worldCenter[2];
+        float w = m[3] * cx + m[7] * cy + m[11] * cz + m[15];
+        float rw = worldRadius * (float) Math.sqrt(m[3] * m[3] + m[7] * m[7] + m[11] * m[11]);
+        float nearW = w - rw;
+        if (!hasBounds || nearW <= 1e-6f) {
+            rect[0] = rect[1] = -1f;
+            rect[2] = rect[3] = 1f;
+            return;
+        }
+        float farW = w + rw;
+
+        float x = m[0] * cx + m[4] * cy + m[8] * cz + m[12];
+        float y = m[1] * cx + m[5] * cy + m[9] * cz + m[13];
+        float rx = worldRadius * (float) Math.sqrt(m[0] * m[0] + m[4] * m[4] + m[8] * m[8]);
+        float ry = worldRadius * (float) Math.sqrt(m[1] * m[1] + m[5] * m[5] + m[9] * m[9]);
+
+        rect[0] = Math.min((x - rx) / nearW, (x - rx) / farW);
+        rect[1] = Math.min((y - ry) / nearW, (y - ry) / farW);
+        rect[2] = Math.max((x + rx) / nearW, (x + rx) / farW);
+        rect[3] = Math.max((y + ry) / nearW, (y + ry) / farW);
+    }
+}
@@ -1,34 +1,25 @@
 package weiner.noah.openglbufftesting;
 
-import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.drawable.Drawable;
 import android.opengl.GLES20;
-import android.opengl.GLUtils;
-
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
 
 import javax.microedition.khronos.opengles.GL10;
 
 public class ScreenShader {
-    private Bitmap bitmap;
-    private Canvas canvas;
-    private Paint textPaint;
-    private Drawable background;
-    private FloatBuffer vertexBuffer;   // buffer holding the vertices
-    private ShortBuffer drawListBuffer;
-    private final int mProgram;
-    private int positionHandle;
-    private int colorHandle;
+    private final QuadMesh mesh;   //GPU buffers holding the interleaved vertices/texture coords and the draw order
+    private final Gles gl;
+    private final ShaderProgramCache shaders;
+    private final ShaderProgram program;
 
     // number of coordinates per vertex in this array
     static final int COORDS_PER_VERTEX = 3;
 
+    //slots into the program's location table, resolved once at link time
+    private static final String[] ATTRIBUTES = {"vPosition", "a_TexCoordinate"};
+    private static final int A_POSITION = 0, A_TEX_COORDINATE = 1;
+
+    private static final String[] UNIFORMS = {"uMVPMatrix", "vColor", "alpha", "u_Texture"};
+    private static final int U_MVP_MATRIX = 0, U_COLOR = 1, U_ALPHA = 2, U_TEXTURE = 3;
+
     private float vertices[] = {
             -1f, 1f, 0.0f,   //top left
             -1f, -1f, 0.0f,  //bottom left
@@ -38,14 +29,8 @@ public class ScreenShader {
 
     private final int vertexCount = vertices.length / COORDS_PER_VERTEX;
 
-    //how much memory space each vertex takes up
-    private final int vertexStride = COORDS_PER_VERTEX * 4; // 4 bytes per vertex
-
     private short drawOrder[] = {0, 1, 2, 0, 2, 3}; //order to draw vertices
 
-    //buffer holding the texture
-    private FloatBuffer textureBuffer;
-
     //S,T (or X,Y) texture coordinate data.
     //Since images have Y axis pointing downward (vals increase as you move down the image) while OpenGL has Y axis pting upward,
     //we adjust for that here by flipping the Y axis. Tex coords are same for every face.
@@ -57,98 +42,51 @@ public class ScreenShader {
             0f, 0f  //bottom right
     };
 
-    //used to pass in the texture
-    private int mTextureUniformHandle;
-
-    //used to pass in model texture coordinate info
-    private int mTextureCoordinateHandle;
-
-    //size of texture coordinate data (# elements per coord = just x and y)
-    private final int mTextureCoordinateDataSize = 2;
-
-    //handle to texture data in shader program
+    //the texture we draw to the screen: the color buffer of the offscreen target the scene was rendered into
     private int mTextureDataHandle;
 
-    //handle to location of alpha var in shader
-    private int alphaLocation;
-
-    //the texture pointer array, where openGL will store names of textures we'll use in our app
-    private int[] textures = new int[1];
-
     // Set color with red, green, blue and alpha (opacity) values
     //float[] color = {0.63671875f, 0.76953125f, 0.22265625f, 1.0f};
 
     float[] color = {0.7f, 0.3f, 0.3f, 1.0f};
 
-    public ScreenShader() {
-        //load the vertex shader
-        int vertexShader = OpenGLRenderer.loadShader(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
-
-        //load the fragment shader
-        int fragmentShader = OpenGLRenderer.loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
-
-        //create empty openGL ES Program
-        mProgram = GLES20.glCreateProgram();
+    public ScreenShader(Gles gl, ShaderProgramCache shaders) {
+        this.gl = gl;
+        this.shaders = shaders;
 
-        //add the vertex shader to program
-        GLES20.glAttachShader(mProgram, vertexShader);
+        //get our program from the shared cache (compiled and linked only if no other drawable uses the same sources),
+        //with every attribute/uniform location read back in one go
+        program = shaders.acquire(vertexShaderCode, fragmentShaderCode, ATTRIBUTES, UNIFORMS);
 
-        //add fragment shader to program
-        GLES20.glAttachShader(mProgram, fragmentShader);
-
-        //link the program, create OpenGL ES program executable
-        GLES20.glLinkProgram(mProgram);
-
-        // a float has 4 bytes so we allocate for each coordinate 4 bytes
-        ByteBuffer vertexByteBuffer = ByteBuffer.allocateDirect(vertices.length * 4);
-
-        vertexByteBuffer.order(ByteOrder.nativeOrder());
-
-        // allocates the memory from the byte buffer
-        vertexBuffer = vertexByteBuffer.asFloatBuffer();
-
-        // fill the vertexBuffer with the vertices
-        vertexBuffer.put(vertices);
-
-        // set the cursor position to the beginning of the buffer
-        vertexBuffer.position(0);
-
-
-        //initialize byte buffer for the draw list
-        vertexByteBuffer = ByteBuffer.allocateDirect(drawOrder.length * 2);
-        vertexByteBuffer.order(ByteOrder.nativeOrder());
-        drawListBuffer = vertexByteBuffer.asShortBuffer();
-        drawListBuffer.put(drawOrder);
-        drawListBuffer.position(0);
+        //upload the vertices, texture coords and draw order to the GPU once. the positions and texture coords get interleaved
+        //into a single vertex buffer so each vertex comes out of one place in memory
+        mesh = new QuadMesh(gl, vertices, texture, drawOrder);
+    }
 
 
-        vertexByteBuffer = ByteBuffer.allocateDirect(texture.length * 4);
-        vertexByteBuffer.order(ByteOrder.nativeOrder());
-        textureBuffer = vertexByteBuffer.asFloatBuffer();
-        textureBuffer.put(texture);
-        textureBuffer.position(0);
+    //which texture to sample from on the next draw() (RenderTarget.getColorTexture())
+    public void setSourceTexture(int texture) {
+        mTextureDataHandle = texture;
     }
 
+    //give our program back to the cache (it gets deleted once no other drawable is using it) and free our buffers
+    public void release() {
+        shaders.release(program);
+        mesh.release();
+    }
 
     //draw method for square with gl context
     public void draw(float[] mvpMatrix) {
         //add the program to the OpenGL ES environment
-        GLES20.glUseProgram(mProgram);
-
-        //get the vertex shader's vPosition member
-        positionHandle = GLES20.glGetAttribLocation(mProgram, "vPosition");
+        program.use();
 
-        //enable openGL to read from FloatBuffer that contains the square's vertices' coords and to understand that there's a square there
-        GLES20.glEnableVertexAttribArray(positionHandle);
+        //get the vertex shader's vPosition and a_TexCoordinate members (looked up once when the program was linked)
+        int positionHandle = program.attribLocation(A_POSITION);
+        int textureCoordinateHandle = program.attribLocation(A_TEX_COORDINATE);
 
-        //point to our vertex buffer--tells openGL renderer from where to take the vertices and of what type they are
-        //tell OpenGL to use the vertexBuffer to extract the vertices from
-        //@param size = 3 represents number of vertices in the buffer
-        //@param what type of data the buffer holds
-        //@param the offset in the array used for the vertices (in this case they follow each other, no extra data stored)
-        //@param the buffer containing the vertices
-        //prepare the triangle coordinate data
-        GLES20.glVertexAttribPointer(positionHandle, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, vertexStride, vertexBuffer);
+        //bind our vertex and index buffers and point both attributes into the interleaved vertex data that's already on the GPU:
+        //3 position floats at the start of each vertex, followed by 2 texture coordinate floats
+        mesh.bind(positionHandle, textureCoordinateHandle);
 
 
         //GLES20.glClearColor(0.0f, 0.0f,0.0f,0.5f);
@@ -157,43 +95,32 @@ public class ScreenShader {
         //GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
 
         //get fragment shader's vColor member
-        colorHandle = GLES20.glGetUniformLocation(mProgram, "vColor");
+        int colorHandle = program.uniformLocation(U_COLOR);
 
         //set color for triangle -- values of RGB floats are between 0 and 1 inclusif
-        GLES20.glUniform4fv(colorHandle, 1, color, 0);
+        gl.glUniform4fv(colorHandle, 1, color, 0);
 
-        GLES20.glDisable(GLES20.GL_CULL_FACE);
+        gl.glDisable(GLES20.GL_CULL_FACE);
 
         //enable alpha blending
-        GLES20.glEnable (GLES20.GL_BLEND);
-        GLES20.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        gl.glEnable (GLES20.GL_BLEND);
+        gl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
 
         //get alpha variable location
-        alphaLocation = GLES20.glGetUniformLocation(mProgram, "alpha");
+        int alphaLocation = program.uniformLocation(U_ALPHA);
         //set alpha to 0.5
-        GLES20.glUniform1f(alphaLocation, 1f);
+        gl.glUniform1f(alphaLocation, 1f);
 
         //get shape's transformation matrix
-        vPMatrixHandle = GLES20.glGetUniformLocation(mProgram, "uMVPMatrix");
+        int vPMatrixHandle = program.uniformLocation(U_MVP_MATRIX);
 
         //pass projection and view transformation to the shader's uMVPMatrix variable
-        GLES20.glUniformMatrix4fv(vPMatrixHandle, 1, false, mvpMatrix, 0);
+        gl.glUniformMatrix4fv(vPMatrixHandle, 1, false, mvpMatrix, 0);
 
         //set the face rotation
-        GLES20.glFrontFace(GL10.GL_CW);
+        gl.glFrontFace(GL10.GL_CW);
 
-        mTextureDataHandle = OpenGLRenderer.textureBuffer[0];
-
-        mTextureUniformHandle = GLES20.glGetUniformLocation(mProgram, "u_Texture");
-
-        //queries our linked shader program for the attribute variable NAME and returns the index of the generic vertex attribute that's bound to that attribute var
-        mTextureCoordinateHandle = GLES20.glGetAttribLocation(mProgram, "a_TexCoordinate");
-
-        GLES20.glEnableVertexAttribArray(mTextureCoordinateHandle);
-
-        //define an array of generic vertex attribute data. Index of the generic vertex attribute to be modified is mTextureCooordinateHandle, and the pointer to first generic vertex attrib in array is textureBuff
-        //specifies location and data format of the array of generic vertex attribs at index index to use when rendering
-        GLES20.glVertexAttribPointer(mTextureCoordinateHandle, mTextureCoordinateDataSize, GLES20.GL_FLOAT, false, 0, textureBuffer);
+        int textureUniformHandle = program.uniformLocation(U_TEXTURE);
 
 
         /*PROCESS:
@@ -204,14 +131,14 @@ public class ScreenShader {
 
         //set active texture unit to texture unit 0 -- textures need to be bound to texture units before they can be used in rendering
         //texture unit is what reads in texture and actually passes it through shader so can be displayed on screen
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
 
         //bind the previously generated texture to the first texture unit
-        GLES20.glBindTexture(GL10.GL_TEXTURE_2D, mTextureDataHandle);
+        gl.glBindTexture(GL10.GL_TEXTURE_2D, mTextureDataHandle);
 
         //tell texture uniform sampler to use this texture in shader by binding to texture unit 0
-        //tell openGL we want to bind first texture unit to mTextureUniformHandle, which refers to "u_Texture" in fragment shader
-        GLES20.glUniform1i(mTextureUniformHandle, 0);
+        //tell openGL we want to bind first texture unit to textureUniformHandle, which refers to "u_Texture" in fragment shader
+        gl.glUniform1i(textureUniformHandle, 0);
 
         //draw the vertices as a triangle strip
         //tells OpenGL to draw triangle strips found in buffer provided, starting with first element. Also "count" is how many vertices there are
@@ -219,69 +146,11 @@ public class ScreenShader {
 
         //draw triangle -- google version
         //GLES20.glDrawArrays(GLES20.GL_TRIANGLE_FAN, 0, vertexCount);
-        GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6, GLES20.GL_UNSIGNED_SHORT, drawListBuffer);
+        //the indices come from the bound index buffer, starting at byte 0
+        mesh.draw();
 
         //disable vertex array (disable client state before leaving)
-        GLES20.glDisableVertexAttribArray(positionHandle);
-    }
-
-    //read in a graphics file (or make one) and load it into openGL
-    public void loadGLTexture(GL10 gl, Context context) {
-        //loading texture -- loads Android bitmap. It's best if the bitmap is square, because that helps a lot with scaling. Make sure bitmaps for textures are squares;
-        //if not, make sure width and height are pwrs of 2
-        //Bitmap bitmap = BitmapFactory.decodeResource(context.getResources(), R.drawable.android);
-
-        bitmap = Bitmap.createBitmap(256, 256, Bitmap.Config.ARGB_4444);
-
-        canvas = new Canvas(bitmap);
-        bitmap.eraseColor(0);
-
-        background = context.getResources().getDrawable(R.drawable.ic_launcher_background);
-
-        background.setBounds(0, 0, 256, 256);
-
-        background.draw(canvas);
-
-        //create a new paint object
-        textPaint = new Paint();
-
-        //sets the size of the text to display
-        textPaint.setTextSize(32);
-
-        //set antialiasing bit in the flags, which smooths out edges of what is being drawn
-        textPaint.setAntiAlias(true);
-
-        //set the color of the paint
-        textPaint.setARGB(0xff, 0x00, 0x00, 0xdd);
-
-        canvas.drawText("NOSHAKE TEST", 14, 135, textPaint); //WAS x:16, y:112
-
-        //generate one texture ptr/names for textures (actually generates an int)
-        GLES20.glGenTextures(1, textures, 0);
-
-        //and bind it to our array -- binds texture with newly generated name. Meaning, anything using textures in this subroutine will use the bound texture.
-        //Basically activates the texture. If we had had multiple textures and multiples squares for them, would have had to bind (activate) the appropriate textures
-        //for each square just before they were used
-        //tells OpenGL that subsequent OpenGL calls should affect this texture
-        GLES20.glBindTexture(GL10.GL_TEXTURE_2D, textures[0]);
-
-        //create nearest filtered texture -- tells openGL what types of filters to use when it needs to shrink or expand texture to cover the square
-        GLES20.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_NEAREST); //GL_NEAREST is quickest and roughest form of filtering. Picks nearest textel at each pt in screen
-        GLES20.glTexParameterf(GL10.GL_TEXTURE_2D, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_NEAREST);
-
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
-
-        //use Android GLUtils to specify a 2d texture image from our bitmap. Creates the image (texture) internally in its native format based on our bitmap
-        //Load the bitmap into the bound texture
-        //@param: target. Want a regular 2D bitmap
-        //@param: level. Specifies image to use at each level. Not using mip-mapping here so put 0 (default lvl)
-        //@param: bitmap
-        //@param: border. Not using it.
-        GLUtils.texImage2D(GL10.GL_TEXTURE_2D, 0, bitmap, 0);
-
-        //clean up -- free up memory used by original bitmap
-        bitmap.recycle(); //bitmaps contain data that resides in native memory, takes a few cycles to be garbage collected if you don't do it
+        gl.glDisableVertexAttribArray(positionHandle);
     }
 
     private final String vertexShaderCode =
@@ -304,9 +173,6 @@ public class ScreenShader {
                     "v_TexCoordinate = a_TexCoordinate;" +    //pass through the texture coordinate
                     "}";                                      //multiply the vertex by the matrix to get the final point in normalized screen coords
 
-    //use to access and set the view transformation
-    private int vPMatrixHandle;
-
     private final String fragmentShaderCode =
             "uniform float alpha;" +     //alpha constant to control transparency
                     "precision mediump float;" +    //how much precision GPU uses when calculating floats. Don't need as high of precision in fragment shader.
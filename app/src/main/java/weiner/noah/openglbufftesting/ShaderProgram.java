@@ -0,0 +1,95 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//a linked GL program plus a location table for its attributes and uniforms.
+//the drawables used to call glGetAttribLocation/glGetUniformLocation by name on every draw; each of those is a string lookup in the driver
+//on the render thread. here we walk the program's active attributes and uniforms a single time, right after linking, and then hand back
+//plain int slots, so draw() only ever indexes an int array.
+//several ShaderPrograms may wrap the same GL program when drawables share sources; the GL object itself belongs to the ShaderProgramCache
+public class ShaderProgram {
+    private final Gles gl;
+    private final int program;
+
+    //location for each slot the owner asked for, in the order of the names it passed in. -1 means the linker dropped it (unused in the shader)
+    private final int[] attribLocations;
+    private final int[] uniformLocations;
+
+    //wraps an already linked program (see ShaderProgramCache, which does the compiling and linking).
+    //attribNames/uniformNames define the slots: attribLocation(i) is the location of attribNames[i]
+    public ShaderProgram(Gles gl, int program, String[] attribNames, String[] uniformNames) {
+        this.gl = gl;
+        this.program = program;
+
+        //read everything the linker kept, then project it onto the slots the caller declared
+        Map<String, Integer> attribs = readActiveAttributes();
+        Map<String, Integer> uniforms = readActiveUniforms();
+
+        attribLocations = resolve(attribNames, attribs);
+        uniformLocations = resolve(uniformNames, uniforms);
+    }
+
+    //walk GL_ACTIVE_ATTRIBUTES and ask for the real location of each one. glGetActiveAttrib's index is NOT the location
+    private Map<String, Integer> readActiveAttributes() {
+        int[] count = new int[1];
+        int[] size = new int[1];
+        int[] type = new int[1];
+        gl.glGetProgramiv(program, GLES20.GL_ACTIVE_ATTRIBUTES, count, 0);
+
+        Map<String, Integer> found = new HashMap<>();
+        for (int i = 0; i < count[0]; i++) {
+            String name = baseName(gl.glGetActiveAttrib(program, i, size, 0, type, 0));
+            found.put(name, gl.glGetAttribLocation(program, name));
+        }
+        return found;
+    }
+
+    //same as above for GL_ACTIVE_UNIFORMS
+    private Map<String, Integer> readActiveUniforms() {
+        int[] count = new int[1];
+        int[] size = new int[1];
+        int[] type = new int[1];
+        gl.glGetProgramiv(program, GLES20.GL_ACTIVE_UNIFORMS, count, 0);
+
+        Map<String, Integer> found = new HashMap<>();
+        for (int i = 0; i < count[0]; i++) {
+            String name = baseName(gl.glGetActiveUniform(program, i, size, 0, type, 0));
+            found.put(name, gl.glGetUniformLocation(program, name));
+        }
+        return found;
+    }
+
+    //arrays come back as "name[0]"; the owner asks for them by plain name
+    private static String baseName(String name) {
+        int bracket = name.indexOf('[');
+        return bracket < 0 ? name : name.substring(0, bracket);
+    }
+
+    private static int[] resolve(String[] names, Map<String, Integer> active) {
+        int[] locations = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Integer location = active.get(names[i]);
+            locations[i] = location == null ? -1 : location;
+        }
+        return locations;
+    }
+
+    public int getProgram() {
+        return program;
+    }
+
+    public int attribLocation(int slot) {
+        return attribLocations[slot];
+    }
+
+    public int uniformLocation(int slot) {
+        return uniformLocations[slot];
+    }
+
+    public void use() {
+        gl.glUseProgram(program);
+    }
+}
@@ -0,0 +1,330 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//compiles and links every shader program the drawables use, deduplicated by a hash of the source text.
+//Square and ScreenShader use the same fragment shader, so it now gets compiled once and shared; two drawables with identical
+//vertex+fragment sources share one linked program. shader and program objects are reference counted and deleted from the driver
+//once the last drawable lets go of them.
+//all methods must be called on the GL thread.
+public class ShaderProgramCache {
+    private final Gles gl;
+
+    private final Map<SourceKey, ShaderEntry> shaders = new HashMap<>();
+    private final Map<ProgramKey, ProgramEntry> programs = new HashMap<>();
+
+    //lets release() find its entry from the GL program name
+    private final Map<Integer, ProgramEntry> programsByName = new HashMap<>();
+
+    //stats
+    private int shaderCompiles, shaderHits, programLinks, programHits;
+    private long compileNanos, linkNanos;
+
+    public ShaderProgramCache(Gles gl) {
+        this.gl = gl;
+    }
+
+    //get a program for the given sources, compiling/linking only what isn't cached yet. every acquire() needs a matching release()
+    public ShaderProgram acquire(String vertexShaderCode, String fragmentShaderCode, String[] attribNames, String[] uniformNames) {
+        SourceKey vertexKey = new SourceKey(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
+        SourceKey fragmentKey = new SourceKey(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
+        ProgramKey key = new ProgramKey(vertexKey, fragmentKey);
+
+        ProgramEntry entry = programs.get(key);
+        if (entry == null) {
+            entry = link(key);
+            programs.put(key, entry);
+            programsByName.put(entry.program, entry);
+        }
+        else {
+            programHits++;
+        }
+        entry.refs++;
+
+        return new ShaderProgram(gl, entry.program, attribNames, uniformNames);
+    }
+
+    //drop one reference; when a program's count reaches zero it's deleted, along with any shader no other program still uses
+    public void release(ShaderProgram shaderProgram) {
+        ProgramEntry entry = programsByName.get(shaderProgram.getProgram());
+        if (entry == null) {
+            throw new IllegalStateException(String.format("Program %d is not owned by this cache", shaderProgram.getProgram()));
+        }
+
+        if (--entry.refs > 0) {
+            return;
+        }
+
+        programs.remove(entry.key);
+        programsByName.remove(entry.program);
+        gl.glDeleteProgram(entry.program);
+
+        releaseShader(entry.key.vertex);
+        releaseShader(entry.key.fragment);
+    }
+
+    //the GL context is gone (and every object with it): forget everything without touching the driver
+    public void invalidate() {
+        shaders.clear();
+        programs.clear();
+        programsByName.clear();
+    }
+
+    private ShaderEntry acquireShader(SourceKey key) {
+        ShaderEntry entry = shaders.get(key);
+        if (entry == null) {
+            long start = System.nanoTime();
+            entry = compile(key);
+            entry.compileNanos = System.nanoTime() - start;
+
+            shaderCompiles++;
+            compileNanos += entry.compileNanos;
+            shaders.put(key, entry);
+        }
+        else {
+            shaderHits++;
+        }
+        entry.refs++;
+        return entry;
+    }
+
+    private void releaseShader(SourceKey key) {
+        ShaderEntry entry = shaders.get(key);
+        if (--entry.refs == 0) {
+            shaders.remove(key);
+            gl.glDeleteShader(entry.shader);
+        }
+    }
+
+    private ShaderEntry compile(SourceKey key) {
+        // create a vertex shader type (GLES20.GL_VERTEX_SHADER)
+        // or a fragment shader type (GLES20.GL_FRAGMENT_SHADER)
+        int shader = gl.glCreateShader(key.type);
+        if (shader == 0) {
+            throw new RuntimeException(key.type == GLES20.GL_VERTEX_SHADER ? "Error creating vertex shader." : "Error creating fragment shader.");
+        }
+
+        // add the source code to the shader and compile it
+        gl.glShaderSource(shader, key.source);
+        gl.glCompileShader(shader);
+
+        //get the compilation status and the log (warnings even on success); if compilation failed, delete the shader
+        final int[] compileStatus = new int[1];
+        gl.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compileStatus, 0);
+        String log = gl.glGetShaderInfoLog(shader);
+
+        if (compileStatus[0] == 0) {
+            gl.glDeleteShader(shader);
+            throw new RuntimeException((key.type == GLES20.GL_VERTEX_SHADER ? "Error compiling vertex shader: " : "Error compiling fragment shader: ") + log);
+        }
+
+        ShaderEntry entry = new ShaderEntry(shader);
+        entry.infoLog = log;
+        return entry;
+    }
+
+    private ProgramEntry link(ProgramKey key) {
+        ShaderEntry vertex = acquireShader(key.vertex);
+        ShaderEntry fragment;
+        try {
+            fragment = acquireShader(key.fragment);
+        }
+        catch (RuntimeException e) {
+            //don't leave the vertex shader referenced by a program that never got made
+            releaseShader(key.vertex);
+            throw e;
+        }
+
+        long start = System.nanoTime();
+
+        //create empty openGL ES Program, attach both shaders and link it into an executable
+        int program = gl.glCreateProgram();
+        gl.glAttachShader(program, vertex.shader);
+        gl.glAttachShader(program, fragment.shader);
+        gl.glLinkProgram(program);
+
+        final int[] linkStatus = new int[1];
+        gl.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        String log = gl.glGetProgramInfoLog(program);
+
+        if (linkStatus[0] == 0) {
+            gl.glDeleteProgram(program);
+            releaseShader(key.vertex);
+            releaseShader(key.fragment);
+            throw new RuntimeException("Error linking program: " + log);
+        }
+
+        //the executable no longer needs the shader objects; detaching lets the driver free them once we delete them
+        gl.glDetachShader(program, vertex.shader);
+        gl.glDetachShader(program, fragment.shader);
+
+        ProgramEntry entry = new ProgramEntry(key, program);
+        entry.linkNanos = System.nanoTime() - start;
+        entry.infoLog = log;
+
+        programLinks++;
+        linkNanos += entry.linkNanos;
+        return entry;
+    }
+
+    //the linker's info log for a program from this cache (often has warnings even on success)
+    public String getInfoLog(ShaderProgram shaderProgram) {
+        ProgramEntry entry = programsByName.get(shaderProgram.getProgram());
+        return entry == null ? null : entry.infoLog;
+    }
+
+    public long getLinkNanos(ShaderProgram shaderProgram) {
+        ProgramEntry entry = programsByName.get(shaderProgram.getProgram());
+        return entry == null ? 0 : entry.linkNanos;
+    }
+
+    //the compiler's info log for the program's vertex or fragment shader (GL_VERTEX_SHADER/GL_FRAGMENT_SHADER), warnings included
+    public String getShaderInfoLog(ShaderProgram shaderProgram, int type) {
+        ShaderEntry entry = shaderOf(shaderProgram, type);
+        return entry == null ? null : entry.infoLog;
+    }
+
+    //how long the program's vertex or fragment shader took to compile, whichever program it was first compiled for
+    public long getCompileNanos(ShaderProgram shaderProgram, int type) {
+        ShaderEntry entry = shaderOf(shaderProgram, type);
+        return entry == null ? 0 : entry.compileNanos;
+    }
+
+    private ShaderEntry shaderOf(ShaderProgram shaderProgram, int type) {
+        if (type != GLES20.GL_VERTEX_SHADER && type != GLES20.GL_FRAGMENT_SHADER) {
+            throw new IllegalArgumentException(String.format("Not a shader type: 0x%x", type));
+        }
+        ProgramEntry program = programsByName.get(shaderProgram.getProgram());
+        if (program == null) {
+            return null;
+        }
+        return shaders.get(type == GLES20.GL_VERTEX_SHADER ? program.key.vertex : program.key.fragment);
+    }
+
+    public int getShaderCompiles() {
+        return shaderCompiles;
+    }
+
+    public int getShaderHits() {
+        return shaderHits;
+    }
+
+    public int getProgramLinks() {
+        return programLinks;
+    }
+
+    public int getProgramHits() {
+        return programHits;
+    }
+
+    public int getLiveShaders() {
+        return shaders.size();
+    }
+
+    public int getLivePrograms() {
+        return programs.size();
+    }
+
+    public long getTotalCompileNanos() {
+        return compileNanos;
+    }
+
+    public long getTotalLinkNanos() {
+        return linkNanos;
+    }
+
+    //one line summary for the debug log
+    public String report() {
+        return String.format("shaders: %d compiled, %d reused, %d live, %.2f ms compiling; programs: %d linked, %d reused, %d live, %.2f ms linking",
+                shaderCompiles, shaderHits, shaders.size(), compileNanos / 1e6,
+                programLinks, programHits, programs.size(), linkNanos / 1e6);
+    }
+
+    //shader type plus source text. the 64 bit hash makes lookups cheap; the full source is still compared on a hash match
+    private static final class SourceKey {
+        final int type;
+        final String source;
+        final long hash;
+
+        SourceKey(int type, String source) {
+            this.type = type;
+            this.source = source;
+            this.hash = fnv1a(source);
+        }
+
+        //64 bit FNV-1a over the UTF-16 chars
+        private static long fnv1a(String s) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SourceKey)) {
+                return false;
+            }
+            SourceKey other = (SourceKey) o;
+            return type == other.type && hash == other.hash && source.equals(other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32)) * 31 + type;
+        }
+    }
+
+    private static final class ProgramKey {
+        final SourceKey vertex;
+        final SourceKey fragment;
+
+        ProgramKey(SourceKey vertex, SourceKey fragment) {
+            this.vertex = vertex;
+            this.fragment = fragment;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ProgramKey)) {
+                return false;
+            }
+            ProgramKey other = (ProgramKey) o;
+            return vertex.equals(other.vertex) && fragment.equals(other.fragment);
+        }
+
+        @Override
+        public int hashCode() {
+            return vertex.hashCode() * 31 + fragment.hashCode();
+        }
+    }
+
+    private static final class ShaderEntry {
+        final int shader;
+        int refs;
+        long compileNanos;
+        String infoLog;
+
+        ShaderEntry(int shader) {
+            this.shader = shader;
+        }
+    }
+
+    private static final class ProgramEntry {
+        final ProgramKey key;
+        final int program;
+        int refs;
+        long linkNanos;
+        String infoLog;
+
+        ProgramEntry(ProgramKey key, int program) {
+            this.key = key;
+            this.program = program;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+//uploads TextureLoader's textures on a thread of its own, through a second EGL context in the same share group as the renderer's, so
+//texture names it makes are valid on the GL thread too. the context draws into a 1x1 pbuffer it never uses; some drivers won't make a
+//context current without a surface.
+//on ES 3.0 every upload ends with a fence and a glFlush (so the fence reaches the GPU and can signal), and the GL thread waits on the
+//fence before using the texture; on ES 2.0 there are no fences, so the uploader glFinish()es instead and the texture is ready when it
+//gets handed over
+public class SharedContextUploader implements TextureLoader.Uploader {
+    private static final int EGL_OPENGL_ES3_BIT_KHR = 0x40;
+
+    private final EGLDisplay display;
+    private final EGLContext context;
+    private final EGLSurface surface;
+    private final boolean fences;
+
+    //calls the static bindings directly: this context's state has nothing to do with the GL thread's GlStateCache
+    private final Gles gl = new AndroidGles();
+    private final int[] name = new int[1];
+
+    private final ExecutorService thread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "texture upload");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private SharedContextUploader(EGLDisplay display, EGLContext context, EGLSurface surface, boolean fences) {
+        this.display = display;
+        this.context = context;
+        this.surface = surface;
+        this.fences = fences;
+
+        thread.execute(new Runnable() {
+            @Override
+            public void run() {
+                makeCurrent();
+            }
+        });
+    }
+
+    //an uploader sharing with the context current on this thread, or null if EGL won't make one (then the loader uploads on the GL
+    //thread). call on the GL thread, from onSurfaceCreated
+    public static SharedContextUploader create(GlCapabilities capabilities) {
+        EGLDisplay display = EGL14.eglGetCurrentDisplay();
+        EGLContext shareWith = EGL14.eglGetCurrentContext();
+        if (shareWith == null || shareWith.equals(EGL14.EGL_NO_CONTEXT)) {
+            return null;
+        }
+
+        //the same config and client version as the renderer's context; a share group can't mix them
+        int[] value = new int[1];
+        if (!EGL14.eglQueryContext(display, shareWith, EGL14.EGL_CONFIG_ID, value, 0)) {
+            return null;
+        }
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] count = new int[1];
+        if (!EGL14.eglChooseConfig(display, new int[] {EGL14.EGL_CONFIG_ID, value[0], EGL14.EGL_NONE}, 0, configs, 0, 1, count, 0)
+                || count[0] == 0) {
+            return null;
+        }
+        int version = capabilities.isEs3() ? 3 : 2;
+        //Es3ContextFactory only makes a 3.0 renderer context on an ES 3.0 config, but check rather than count on it: a 3.0 context on a
+        //config without the bit may fail with EGL_BAD_MATCH, or quietly come back 2.0 and not share with a 3.0 one
+        if (version >= 3 && !isEs3Renderable(display, configs[0])) {
+            Log.d("DBUG", "The renderer's config isn't ES 3.0 renderable; no shared upload context");
+            return null;
+        }
+
+        EGLContext context = EGL14.eglCreateContext(display, configs[0], shareWith, new int[] {EGL14.EGL_CONTEXT_CLIENT_VERSION, version,
+                EGL14.EGL_NONE}, 0);
+        if (context == null || context.equals(EGL14.EGL_NO_CONTEXT)) {
+            Log.d("DBUG", String.format("No shared upload context: 0x%x", EGL14.eglGetError()));
+            return null;
+        }
+        EGLSurface surface = EGL14.eglCreatePbufferSurface(display, configs[0], new int[] {EGL14.EGL_WIDTH, 1, EGL14.EGL_HEIGHT, 1,
+                EGL14.EGL_NONE}, 0);
+        if (surface == null || surface.equals(EGL14.EGL_NO_SURFACE)) {
+            Log.d("DBUG", String.format("No pbuffer for the upload context: 0x%x", EGL14.eglGetError()));
+            EGL14.eglDestroyContext(display, context);
+            return null;
+        }
+        return new SharedContextUploader(display, context, surface, version >= 3);
+    }
+
+    private static boolean isEs3Renderable(EGLDisplay display, EGLConfig config) {
+        int[] type = new int[1];
+        return EGL14.eglGetConfigAttrib(display, config, EGL14.EGL_RENDERABLE_TYPE, type, 0) && (type[0] & EGL_OPENGL_ES3_BIT_KHR) != 0;
+    }
+
+    private void makeCurrent() {
+        if (!EGL14.eglMakeCurrent(display, surface, surface, context)) {
+            throw new RuntimeException(String.format("eglMakeCurrent failed for the upload context: 0x%x", EGL14.eglGetError()));
+        }
+    }
+
+    @Override
+    public void upload(final TextureLoader.Upload upload) {
+        try {
+            thread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    uploadNow(upload);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            //released while a decode was finishing
+            upload.fallBack();
+        }
+    }
+
+    //upload thread
+    private void uploadNow(TextureLoader.Upload upload) {
+        TexturePixels pixels = upload.getPixels();
+        TextureLoader.createTexture(gl, name, upload.getFilter());
+        gl.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, pixels.getFormat(), pixels.getWidth(), pixels.getHeight(), 0, pixels.getFormat(),
+                pixels.getType(), pixels.rows(0));
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+
+        long fence = 0;
+        if (fences) {
+            fence = gl.glFenceSync(GLES30.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+            gl.glFlush();
+        }
+        else {
+            gl.glFinish();
+        }
+        upload.complete(name[0], fence);
+    }
+
+    //let go of the context on its thread, then destroy it and the pbuffer. textures it made live on in the share group
+    @Override
+    public void release() {
+        thread.execute(new Runnable() {
+            @Override
+            public void run() {
+                EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+                EGL14.eglDestroySurface(display, surface);
+                EGL14.eglDestroyContext(display, context);
+                EGL14.eglReleaseThread();
+            }
+        });
+        thread.shutdown();
+    }
+}
@@ -0,0 +1,168 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.concurrent.locks.LockSupport;
+
+//runs a Simulation at a fixed rate on its own thread, away from the GL thread: a slow frame no longer slows the logic down, and the
+//logic's cost no longer lands in the frame. after each batch of ticks the poses go out through a TripleBuffer as a TransformSnapshot;
+//the GL thread picks up the newest one with latest() whenever it draws and interpolates between its two ticks, so motion stays smooth at
+//any frame rate. neither side ever waits for the other.
+//if the thread falls behind (the device was busy, the app was paused) it runs at most MAX_CATCH_UP_TICKS at once and drops the rest of the
+//backlog instead of spiraling. stop() and start() again resume where the simulation left off, without a burst of catch-up ticks.
+public class SimulationThread implements Runnable {
+    public static final int MAX_CATCH_UP_TICKS = 5;
+
+    //the logic. both methods are only ever called on the simulation thread
+    public interface Simulation {
+        //advance the state by one fixed step
+        void step(float dtSeconds);
+
+        //write the state after the last step into the snapshot, with TransformSnapshot.set()/jump()
+        void write(TransformSnapshot snapshot);
+    }
+
+    private final Simulation simulation;
+    private final FrameProfiler.Clock clock;
+    private final long stepNanos;
+    private final float stepSeconds;
+
+    private final TripleBuffer<TransformSnapshot> snapshots;
+
+    //writer side: the poses written by the last tick, which become the next tick's previous poses
+    private final TransformSnapshot last;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    private long tick;
+    private long nextTick;
+    private volatile long ticks, droppedTicks;
+
+    public SimulationThread(Simulation simulation, int ticksPerSecond, int capacity, FrameProfiler.Clock clock) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException(String.format("Tick rate must be positive, got %d", ticksPerSecond));
+        }
+        this.simulation = simulation;
+        this.clock = clock;
+        stepNanos = 1_000_000_000L / ticksPerSecond;
+        stepSeconds = 1f / ticksPerSecond;
+        snapshots = new TripleBuffer<>(new TransformSnapshot(capacity), new TransformSnapshot(capacity), new TransformSnapshot(capacity));
+        last = new TransformSnapshot(capacity);
+    }
+
+    public SimulationThread(Simulation simulation, int ticksPerSecond, int capacity) {
+        this(simulation, ticksPerSecond, capacity, FrameProfiler.SYSTEM_CLOCK);
+    }
+
+    //start ticking, from now
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        nextTick = clock.nanoTime();
+        running = true;
+        thread = new Thread(this, "simulation");
+        thread.start();
+    }
+
+    //stop ticking and wait for the thread to finish its current tick
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        thread = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            advance(clock.nanoTime());
+            long wait = nextTick - clock.nanoTime();
+            if (wait > 0 && running) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+    }
+
+    //run the ticks that are due at now and publish the result; returns how many ran. simulation thread (or a test driving it by hand)
+    int advance(long now) {
+        int ran = 0;
+        while (now - nextTick >= 0 && ran < MAX_CATCH_UP_TICKS) {
+            simulation.step(stepSeconds);
+            tick++;
+
+            TransformSnapshot out = snapshots.getWriteBuffer();
+            out.begin(last, tick, nextTick);
+            simulation.write(out);
+            last.copyCurrent(out);
+
+            nextTick += stepNanos;
+            ran++;
+        }
+
+        //still behind: give up on the backlog rather than spend the next ticks catching up
+        if (now - nextTick >= 0) {
+            long behind = (now - nextTick) / stepNanos + 1;
+            droppedTicks += behind;
+            nextTick += behind * stepNanos;
+        }
+
+        if (ran > 0) {
+            snapshots.publish();
+            ticks += ran;
+        }
+        return ran;
+    }
+
+    //reset the schedule to start at now, for tests driving advance() by hand
+    void resetSchedule(long now) {
+        nextTick = now;
+    }
+
+    //the newest published poses. one reading thread only (the GL thread, or whichever records the frames); the snapshot stays as it is
+    //until the next call
+    public TransformSnapshot latest() {
+        snapshots.update();
+        return snapshots.getReadBuffer();
+    }
+
+    //latest()'s interpolation factor for a frame drawn now
+    public float alpha(TransformSnapshot snapshot) {
+        return snapshot.alpha(clock.nanoTime(), stepNanos);
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    //ticks skipped because the thread fell too far behind
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    public String report() {
+        return String.format("Simulation: %d ticks at %.0f Hz, %d dropped", ticks, 1e9 / stepNanos, droppedTicks);
+    }
+}
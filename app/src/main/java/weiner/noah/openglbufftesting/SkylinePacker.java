@@ -0,0 +1,216 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.ArrayList;
+
+//packs rectangles into a fixed size page with the skyline bottom-left heuristic.
+//the skyline is the top edge of everything placed so far, stored as horizontal segments. a new rectangle goes wherever it ends up lowest
+//(ties go to the narrowest segment, which wastes the least space), and the skyline is raised over it.
+//removed rectangles leave holes the skyline can't see, so their slots go on a free list that later inserts of the same or smaller size
+//reuse before touching the skyline. once everything is removed the page starts over from scratch.
+//pure Java, no GL: TextureAtlas pairs one of these with each texture page.
+public class SkylinePacker {
+    //a placed rectangle. x/y/width/height is what was asked for; the slot behind it can be bigger (padding, or a reused free slot)
+    public static final class Region {
+        public final int x, y, width, height;
+        final int slotWidth, slotHeight;
+
+        Region(int x, int y, int width, int height, int slotWidth, int slotHeight) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.slotWidth = slotWidth;
+            this.slotHeight = slotHeight;
+        }
+    }
+
+    private final int width, height;
+    private final int padding;
+
+    //skyline segments, left to right: segment i covers [segX[i], segX[i] + segWidth[i]) at height segY[i]
+    private final int[] segX, segY, segWidth;
+    private int segments;
+
+    //slots of removed regions, reused by inserts that fit in them
+    private final ArrayList<Region> freeSlots = new ArrayList<>();
+
+    private int live;
+    private long usedArea;
+
+    //padding is left empty to the right of and below every rectangle so linear filtering doesn't bleed neighbours into each other
+    public SkylinePacker(int width, int height, int padding) {
+        if (width <= 0 || height <= 0 || padding < 0) {
+            throw new IllegalArgumentException(String.format("Bad packer page %dx%d with padding %d", width, height, padding));
+        }
+        this.width = width;
+        this.height = height;
+        this.padding = padding;
+        //one spare entry: raise() inserts before it trims
+        segX = new int[width + 1];
+        segY = new int[width + 1];
+        segWidth = new int[width + 1];
+        reset();
+    }
+
+    //forget every placement
+    public void reset() {
+        segments = 1;
+        segX[0] = 0;
+        segY[0] = 0;
+        segWidth[0] = width;
+        freeSlots.clear();
+        live = 0;
+        usedArea = 0;
+    }
+
+    //place a width x height rectangle, or return null if it doesn't fit anywhere on this page
+    public Region insert(int w, int h) {
+        if (w <= 0 || h <= 0) {
+            throw new IllegalArgumentException(String.format("Can't pack a %dx%d rectangle", w, h));
+        }
+        int slotW = Math.min(width, w + padding);
+        int slotH = Math.min(height, h + padding);
+
+        Region region = takeFreeSlot(w, h, slotW, slotH);
+        if (region == null) {
+            region = insertOnSkyline(w, h, slotW, slotH);
+        }
+        if (region != null) {
+            live++;
+            usedArea += (long) w * h;
+        }
+        return region;
+    }
+
+    //smallest free slot that fits, so big holes are kept for big rectangles
+    private Region takeFreeSlot(int w, int h, int slotW, int slotH) {
+        int best = -1;
+        long bestArea = Long.MAX_VALUE;
+        for (int i = 0; i < freeSlots.size(); i++) {
+            Region slot = freeSlots.get(i);
+            long area = (long) slot.slotWidth * slot.slotHeight;
+            if (slot.slotWidth >= slotW && slot.slotHeight >= slotH && area < bestArea) {
+                best = i;
+                bestArea = area;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        Region slot = freeSlots.remove(best);
+        return new Region(slot.x, slot.y, w, h, slot.slotWidth, slot.slotHeight);
+    }
+
+    private Region insertOnSkyline(int w, int h, int slotW, int slotH) {
+        int bestIndex = -1, bestTop = Integer.MAX_VALUE, bestSegWidth = Integer.MAX_VALUE, bestY = 0;
+        for (int i = 0; i < segments; i++) {
+            int y = fit(i, slotW, slotH);
+            if (y < 0) {
+                continue;
+            }
+            int top = y + slotH;
+            if (top < bestTop || (top == bestTop && segWidth[i] < bestSegWidth)) {
+                bestIndex = i;
+                bestTop = top;
+                bestSegWidth = segWidth[i];
+                bestY = y;
+            }
+        }
+        if (bestIndex < 0) {
+            return null;
+        }
+
+        int x = segX[bestIndex];
+        raise(bestIndex, x, bestTop, slotW);
+        return new Region(x, bestY, w, h, slotW, slotH);
+    }
+
+    //the y a slotW x slotH rectangle would sit at if its left edge is at segment i, or -1 if it runs off the page
+    private int fit(int i, int slotW, int slotH) {
+        int x = segX[i];
+        if (x + slotW > width) {
+            return -1;
+        }
+        int y = 0;
+        int remaining = slotW;
+        for (int j = i; remaining > 0; j++) {
+            y = Math.max(y, segY[j]);
+            if (y + slotH > height) {
+                return -1;
+            }
+            remaining -= segWidth[j];
+        }
+        return y;
+    }
+
+    //put a new segment [x, x + w) at height top in front of segment i, then trim or drop whatever it now covers and merge equal neighbours
+    private void raise(int i, int x, int top, int w) {
+        System.arraycopy(segX, i, segX, i + 1, segments - i);
+        System.arraycopy(segY, i, segY, i + 1, segments - i);
+        System.arraycopy(segWidth, i, segWidth, i + 1, segments - i);
+        segX[i] = x;
+        segY[i] = top;
+        segWidth[i] = w;
+        segments++;
+
+        int end = x + w;
+        int j = i + 1;
+        while (j < segments && segX[j] < end) {
+            int segEnd = segX[j] + segWidth[j];
+            if (segEnd <= end) {
+                removeSegment(j);
+            }
+            else {
+                segWidth[j] = segEnd - end;
+                segX[j] = end;
+                break;
+            }
+        }
+
+        for (int k = 0; k < segments - 1; ) {
+            if (segY[k] == segY[k + 1]) {
+                segWidth[k] += segWidth[k + 1];
+                removeSegment(k + 1);
+            }
+            else {
+                k++;
+            }
+        }
+    }
+
+    private void removeSegment(int i) {
+        System.arraycopy(segX, i + 1, segX, i, segments - i - 1);
+        System.arraycopy(segY, i + 1, segY, i, segments - i - 1);
+        System.arraycopy(segWidth, i + 1, segWidth, i, segments - i - 1);
+        segments--;
+    }
+
+    //give a region's slot back for reuse. the last removal resets the whole page
+    public void remove(Region region) {
+        live--;
+        usedArea -= (long) region.width * region.height;
+        if (live == 0) {
+            reset();
+        }
+        else {
+            freeSlots.add(region);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLiveCount() {
+        return live;
+    }
+
+    //fraction of the page covered by live rectangles (not counting padding)
+    public float getOccupancy() {
+        return (float) usedArea / ((long) width * height);
+    }
+}
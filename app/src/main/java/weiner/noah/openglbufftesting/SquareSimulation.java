@@ -0,0 +1,32 @@
+package weiner.noah.openglbufftesting;
+
+//the square's slide to the right, repeating every 4 seconds, as a fixed-step simulation: what onDrawFrame used to work out from
+//SystemClock.uptimeMillis() % 4000 on the GL thread.
+public class SquareSimulation implements SimulationThread.Simulation {
+    static final float PERIOD_SECONDS = 4f;
+
+    private float time;
+    private boolean wrapped;
+
+    @Override
+    public void step(float dtSeconds) {
+        time += dtSeconds;
+        wrapped = time >= PERIOD_SECONDS;
+        if (wrapped) {
+            time -= PERIOD_SECONDS;
+        }
+    }
+
+    @Override
+    public void write(TransformSnapshot snapshot) {
+        float posTrans = (time / PERIOD_SECONDS) * 0.1f;
+
+        //this camera looks down +z, which mirrors x, so the x translation is negated (see OpenGLRenderer)
+        snapshot.set(0, posTrans - 0.9f, 1.8f, 0f, 180f);
+
+        //back to the start: jump there rather than sliding back across the screen
+        if (wrapped) {
+            snapshot.jump(0);
+        }
+    }
+}
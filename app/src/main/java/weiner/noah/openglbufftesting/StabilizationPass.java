@@ -0,0 +1,48 @@
+package weiner.noah.openglbufftesting;
+
+//shifts the picture by an offset in pixels, the counter-movement that keeps the content still while the device shakes.
+//whatever gets shifted in from outside the picture is black rather than the clamped edge
+public class StabilizationPass extends PostPass {
+    private float offsetX, offsetY;
+
+    public StabilizationPass() {
+        super("stabilization", 1f, null);
+    }
+
+    //how far to move the picture, in pixels of the pass's input; positive x moves right, positive y moves up
+    public void setOffset(float x, float y) {
+        offsetX = x;
+        offsetY = y;
+    }
+
+    public float getOffsetX() {
+        return offsetX;
+    }
+
+    public float getOffsetY() {
+        return offsetY;
+    }
+
+    private static final int U_OFFSET = BASE_UNIFORMS;
+
+    @Override
+    protected String[] extraUniforms() {
+        return new String[] {"u_Offset"};
+    }
+
+    @Override
+    protected void setUniforms(Gles gl, ShaderProgram program) {
+        //in pixels here, the shader turns them into texture coordinates with the texel size
+        gl.glUniform2f(program.uniformLocation(U_OFFSET), offsetX, offsetY);
+    }
+
+    @Override
+    protected String fragmentShaderBody() {
+        return "uniform vec2 u_Offset;" +
+                "void main() {" +
+                "vec2 coord = v_TexCoordinate - u_Offset * u_TexelSize;" +
+                "float inside = step(0.0, coord.x) * step(coord.x, 1.0) * step(0.0, coord.y) * step(coord.y, 1.0);" +
+                "gl_FragColor = texture2D(u_Texture, coord) * inside;" +
+                "}";
+    }
+}
@@ -0,0 +1,350 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES30;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+//one big GL buffer that per-frame data (instance transforms, streamed vertices) is sub-allocated out of, front to back and round again,
+//so a write never lands on bytes the GPU may still be reading for an earlier draw. two ways of making sure of that:
+//
+//  ORPHAN  (ES 2.0) writes go in with glBufferSubData; when the ring wraps, glBufferData(null) swaps in fresh storage and the driver
+//          keeps the old one alive until the GPU is done with it. never waits, costs an allocation in the driver per lap
+//  MAPPED  (ES 3.0) writes go straight into glMapBufferRange(UNSYNCHRONIZED) mappings, and endFrame() puts a fence after each frame's
+//          draws. before reusing a frame's bytes the ring checks its fence, and only if the GPU hasn't got there yet does it wait:
+//          that's a stall, and the ring is too small for how far ahead the CPU runs
+//
+//every allocation starts on a 4 byte boundary, which is all vertex attribute offsets need. offsets returned by write()/unmap() are
+//into getName()'s buffer, for glVertexAttribPointer with the ring bound. GL thread only. the one allocation on the write path is the
+//ByteBuffer glMapBufferRange wraps each MAPPED mapping in, which GLES30 makes anew every call; the ring itself allocates nothing
+public class StreamingBufferRing {
+    public enum Mode {ORPHAN, MAPPED}
+
+    public static final int ALIGNMENT = 4;
+
+    //frames whose fences are kept at most; endFrame() waits for the oldest when there'd be more
+    static final int MAX_FRAMES_IN_FLIGHT = 8;
+
+    //how long one wait for a fence lasts before it's tried again
+    private static final long WAIT_NANOS = 5_000_000L;
+
+    private static final int MAP_ACCESS = GLES30.GL_MAP_WRITE_BIT | GLES30.GL_MAP_INVALIDATE_RANGE_BIT | GLES30.GL_MAP_UNSYNCHRONIZED_BIT;
+
+    private final Gles gl;
+    private final Mode mode;
+    private final int capacity;
+    private final GpuBuffer buffer;
+    private final FrameProfiler.Clock clock;
+
+    //where the next allocation goes, and bytes from the oldest frame in flight up to there (MAPPED)
+    private int head;
+    private int used;
+
+    //frames in flight, oldest first in a circular queue: each one's fence and the bytes it took (wasted ones at a wrap included)
+    private final long[] fences = new long[MAX_FRAMES_IN_FLIGHT];
+    private final int[] frameBytes = new int[MAX_FRAMES_IN_FLIGHT];
+    private int oldest, inFlight;
+    private int currentFrameBytes;
+
+    //the open map(): its offset and length, and in ORPHAN mode the staging it writes into. in MAPPED mode write() goes through the
+    //staging too when its data isn't bytes, since a float/int/short view of a fresh mapping would be one more object per write
+    private ByteBuffer mapping;
+    private int mapOffset, mapLength;
+    private ByteBuffer staging;
+    private FloatBuffer stagingFloats;
+    private IntBuffer stagingInts;
+    private ShortBuffer stagingShorts;
+
+    //stats
+    private long bytesStreamed;
+    private int frames, wraps, orphans, stalls;
+    private long stallNanos;
+
+    //MAPPED where the context has it, ORPHAN otherwise
+    public static StreamingBufferRing create(Gles gl, GlCapabilities capabilities, int target, int capacityBytes) {
+        return new StreamingBufferRing(gl, target, capacityBytes, capabilities.supportsMappedStreaming() ? Mode.MAPPED : Mode.ORPHAN);
+    }
+
+    public StreamingBufferRing(Gles gl, int target, int capacityBytes, Mode mode) {
+        this(gl, target, capacityBytes, mode, FrameProfiler.SYSTEM_CLOCK);
+    }
+
+    public StreamingBufferRing(Gles gl, int target, int capacityBytes, Mode mode, FrameProfiler.Clock clock) {
+        if (capacityBytes <= 0 || capacityBytes % ALIGNMENT != 0) {
+            throw new IllegalArgumentException(String.format("Ring capacity must be a positive multiple of %d bytes, got %d", ALIGNMENT,
+                    capacityBytes));
+        }
+        this.gl = gl;
+        this.mode = mode;
+        this.capacity = capacityBytes;
+        this.clock = clock;
+        buffer = new GpuBuffer(gl, target, GpuBuffer.Usage.STREAM);
+        buffer.allocate(capacityBytes);
+    }
+
+    //copy bytes bytes of data (from its position on) into the ring; returns the offset they went to
+    public int write(Buffer data, int bytes) {
+        if (mode == Mode.ORPHAN) {
+            int offset = reserve(bytes);
+            buffer.update(offset, data, bytes);
+            return offset;
+        }
+        ByteBuffer source = data instanceof ByteBuffer ? (ByteBuffer) data : stage(data, bytes);
+        copy(source, map(bytes), bytes);
+        return unmap();
+    }
+
+    //a native order buffer of exactly bytes bytes to fill in, straight in the mapped GL buffer in MAPPED mode (in a staging buffer
+    //uploaded by unmap() in ORPHAN mode). nothing else may be called on the ring until unmap()
+    public ByteBuffer map(int bytes) {
+        if (mapping != null) {
+            throw new IllegalStateException("map() called twice without unmap()");
+        }
+        mapOffset = reserve(bytes);
+        mapLength = bytes;
+        if (mode == Mode.ORPHAN) {
+            ensureStaging(bytes);
+            staging.clear().limit(bytes);
+            mapping = staging;
+        }
+        else {
+            buffer.bind();
+            mapping = ((ByteBuffer) gl.glMapBufferRange(buffer.getTarget(), mapOffset, bytes, MAP_ACCESS)).order(ByteOrder.nativeOrder());
+        }
+        return mapping;
+    }
+
+    //finish the open map(); returns the offset its bytes are at
+    public int unmap() {
+        if (mapping == null) {
+            throw new IllegalStateException("unmap() called without map()");
+        }
+        if (mode == Mode.ORPHAN) {
+            staging.position(0);
+            buffer.update(mapOffset, staging, mapLength);
+        }
+        else {
+            buffer.bind();
+            //false means the storage went away under the mapping (e.g. a display mode switch); that frame draws garbage once, like
+            //any other lost context, and the ring carries on
+            gl.glUnmapBuffer(buffer.getTarget());
+        }
+        mapping = null;
+        return mapOffset;
+    }
+
+    //room for bytes bytes at the head, wrapping (and in MAPPED mode waiting for the GPU) if need be
+    private int reserve(int bytes) {
+        if (bytes <= 0 || bytes > capacity) {
+            throw new IllegalArgumentException(String.format("Can't stream %d bytes through a %d byte ring", bytes, capacity));
+        }
+        int aligned = (bytes + ALIGNMENT - 1) & -ALIGNMENT;
+        if (head + aligned > capacity) {
+            wraps++;
+            if (mode == Mode.ORPHAN) {
+                buffer.allocate(capacity);
+                orphans++;
+            }
+            else {
+                //the tail end is skipped this lap, but it's only free again once the frame that skipped it is done
+                int waste = capacity - head;
+                makeRoom(waste);
+                used += waste;
+                currentFrameBytes += waste;
+            }
+            head = 0;
+        }
+        if (mode == Mode.MAPPED) {
+            makeRoom(aligned);
+            used += aligned;
+            currentFrameBytes += aligned;
+        }
+        int offset = head;
+        head += aligned;
+        bytesStreamed += bytes;
+        return offset;
+    }
+
+    //retire frames until bytes more fit: the ones the GPU is done with for free, then, if that's not enough, the oldest by waiting
+    private void makeRoom(int bytes) {
+        while (inFlight > 0 && poll(fences[oldest])) {
+            retireOldest();
+        }
+        while (used + bytes > capacity) {
+            if (inFlight == 0) {
+                //the frame being written has gone round the whole ring on its own: fence what it has so far and wait for that
+                fenceCurrentFrame();
+            }
+            waitForOldest();
+        }
+    }
+
+    //mark the end of a frame's writes, after its draws have been issued. MAPPED mode fences them, to know when their bytes are free again
+    public void endFrame() {
+        frames++;
+        if (mode == Mode.MAPPED && currentFrameBytes > 0) {
+            if (inFlight == MAX_FRAMES_IN_FLIGHT) {
+                waitForOldest();
+            }
+            fenceCurrentFrame();
+        }
+    }
+
+    private void fenceCurrentFrame() {
+        int slot = (oldest + inFlight) % MAX_FRAMES_IN_FLIGHT;
+        fences[slot] = gl.glFenceSync(GLES30.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        frameBytes[slot] = currentFrameBytes;
+        inFlight++;
+        currentFrameBytes = 0;
+    }
+
+    private boolean poll(long fence) {
+        int status = gl.glClientWaitSync(fence, 0, 0);
+        return status == GLES30.GL_ALREADY_SIGNALED || status == GLES30.GL_CONDITION_SATISFIED;
+    }
+
+    private void waitForOldest() {
+        long fence = fences[oldest];
+        if (!poll(fence)) {
+            stalls++;
+            long start = clock.nanoTime();
+            while (true) {
+                int status = gl.glClientWaitSync(fence, GLES30.GL_SYNC_FLUSH_COMMANDS_BIT, WAIT_NANOS);
+                if (status == GLES30.GL_ALREADY_SIGNALED || status == GLES30.GL_CONDITION_SATISFIED) {
+                    break;
+                }
+                if (status == GLES30.GL_WAIT_FAILED) {
+                    throw new IllegalStateException("Waiting for a streaming buffer fence failed");
+                }
+            }
+            stallNanos += clock.nanoTime() - start;
+        }
+        retireOldest();
+    }
+
+    private void retireOldest() {
+        gl.glDeleteSync(fences[oldest]);
+        used -= frameBytes[oldest];
+        oldest = (oldest + 1) % MAX_FRAMES_IN_FLIGHT;
+        inFlight--;
+    }
+
+    private void ensureStaging(int bytes) {
+        if (staging == null || staging.capacity() < bytes) {
+            staging = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+            stagingFloats = staging.asFloatBuffer();
+            stagingInts = staging.asIntBuffer();
+            stagingShorts = staging.asShortBuffer();
+        }
+    }
+
+    //bytes bytes of a float/int/short buffer, from its position on, copied to the front of the staging buffer; the data's position
+    //and limit are left as they were
+    private ByteBuffer stage(Buffer data, int bytes) {
+        ensureStaging(bytes);
+        int position = data.position(), limit = data.limit();
+        if (data instanceof FloatBuffer) {
+            data.limit(position + bytes / 4);
+            stagingFloats.clear();
+            stagingFloats.put((FloatBuffer) data);
+        }
+        else if (data instanceof IntBuffer) {
+            data.limit(position + bytes / 4);
+            stagingInts.clear();
+            stagingInts.put((IntBuffer) data);
+        }
+        else if (data instanceof ShortBuffer) {
+            data.limit(position + bytes / 2);
+            stagingShorts.clear();
+            stagingShorts.put((ShortBuffer) data);
+        }
+        else {
+            throw new IllegalArgumentException(String.format("Can't stream a %s", data.getClass().getSimpleName()));
+        }
+        data.limit(limit).position(position);
+        staging.clear();
+        return staging;
+    }
+
+    //bytes bytes of from, from its position on, into to; from's position and limit are left as they were
+    private static void copy(ByteBuffer from, ByteBuffer to, int bytes) {
+        int position = from.position(), limit = from.limit();
+        from.limit(position + bytes);
+        to.put(from);
+        from.limit(limit).position(position);
+    }
+
+    public void bind() {
+        buffer.bind();
+    }
+
+    public int getName() {
+        return buffer.getName();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    //frames fenced and not known to be done yet
+    public int getFramesInFlight() {
+        return inFlight;
+    }
+
+    public long getBytesStreamed() {
+        return bytesStreamed;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    public int getWraps() {
+        return wraps;
+    }
+
+    public int getOrphans() {
+        return orphans;
+    }
+
+    //times a write had to wait for the GPU, and how long all of them took
+    public int getStalls() {
+        return stalls;
+    }
+
+    public double getStallMs() {
+        return stallNanos / 1e6;
+    }
+
+    public void resetStats() {
+        bytesStreamed = 0;
+        frames = 0;
+        wraps = 0;
+        orphans = 0;
+        stalls = 0;
+        stallNanos = 0;
+    }
+
+    public String report() {
+        return String.format("Streaming ring (%s, %d KB): %d KB streamed over %d frames, %d wraps, %d orphans, %d stalls (%.2f ms)", mode,
+                capacity / 1024, bytesStreamed / 1024, frames, wraps, orphans, stalls, getStallMs());
+    }
+
+    //delete the buffer and any fences still pending
+    public void release() {
+        while (inFlight > 0) {
+            gl.glDeleteSync(fences[oldest]);
+            oldest = (oldest + 1) % MAX_FRAMES_IN_FLIGHT;
+            inFlight--;
+        }
+        buffer.release();
+    }
+}
@@ -0,0 +1,49 @@
+package weiner.noah.openglbufftesting;
+
+//places the glyphs of a string: pen starts at (x, y) on the first baseline, moves right by each glyph's advance plus the kerning to the
+//next one, and '\n' starts a new line one line height lower. y grows upward, like in GL.
+//pure layout, no GL, so it runs in JVM tests
+public final class TextLayout {
+    //floats per placed glyph in the corners array: left, bottom, right, top
+    public static final int CORNERS = 4;
+
+    private TextLayout() {
+    }
+
+    //lay out text and write one entry per glyph with ink. returns how many were written; glyphs past maxGlyphs are dropped
+    public static int layout(CharSequence text, GlyphCache glyphs, float x, float y, float[] corners, GlyphCache.Entry[] placed, int maxGlyphs) {
+        float penX = x, penY = y;
+        int count = 0;
+        int previous = -1;
+
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+
+            if (codePoint == '\n') {
+                penX = x;
+                penY -= glyphs.getLineHeight();
+                previous = -1;
+                continue;
+            }
+
+            if (previous >= 0) {
+                penX += glyphs.getKerning(previous, codePoint);
+            }
+
+            GlyphCache.Entry glyph = glyphs.get(codePoint);
+            if (glyph.region != null && count < maxGlyphs) {
+                int out = count * CORNERS;
+                corners[out] = penX + glyph.bearingX;
+                corners[out + 1] = penY + glyph.bearingY - glyph.height;
+                corners[out + 2] = penX + glyph.bearingX + glyph.width;
+                corners[out + 3] = penY + glyph.bearingY;
+                placed[count++] = glyph;
+            }
+
+            penX += glyph.advance;
+            previous = codePoint;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,218 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+//a string drawn as one textured quad per glyph out of a GlyphCache.
+//changing the text re-runs the layout and rewrites the vertex buffer in place (one glBufferSubData); no bitmap is drawn and no texture
+//uploaded unless a glyph is new. vertices use QuadBatch's layout and shaders, so the program is shared with it through the cache.
+public class TextMesh {
+    private final Gles gl;
+    private final ShaderProgramCache shaders;
+    private final ShaderProgram program;
+    private final GlyphCache glyphs;
+    private final int maxGlyphs;
+
+    private final GpuBuffer vertexBuffer;
+    private final GpuBuffer indexBuffer;
+
+    //layout output and vertex staging, sized for maxGlyphs once
+    private final float[] corners;
+    private final GlyphCache.Entry[] placed;
+    private final int[] staging;
+    private final IntBuffer upload;
+
+    //glyphs are written grouped by atlas texture; each run is drawn with one glDrawElements
+    private final int[] runTexture, runStart, runCount;
+    private int runs;
+    private int glyphCount;
+
+    //what the buffer currently holds, to skip rebuilding when nothing changed
+    private final StringBuilder text = new StringBuilder();
+    private float x, y;
+    private int argb;
+    private int builtGeneration = -1;
+
+    private int rebuilds;
+
+    public TextMesh(Gles gl, ShaderProgramCache shaders, GlyphCache glyphs, int maxGlyphs) {
+        if (maxGlyphs <= 0 || maxGlyphs > QuadBatch.MAX_QUADS) {
+            throw new IllegalArgumentException(String.format("Text mesh must hold between 1 and %d glyphs, got %d", QuadBatch.MAX_QUADS, maxGlyphs));
+        }
+        this.gl = gl;
+        this.shaders = shaders;
+        this.glyphs = glyphs;
+        this.maxGlyphs = maxGlyphs;
+
+        program = shaders.acquire(QuadBatch.vertexShaderCode, QuadBatch.fragmentShaderCode, QuadBatch.ATTRIBUTES, QuadBatch.UNIFORMS);
+
+        corners = new float[maxGlyphs * TextLayout.CORNERS];
+        placed = new GlyphCache.Entry[maxGlyphs];
+        staging = new int[maxGlyphs * QuadBatch.QUAD_WORDS];
+        upload = ByteBuffer.allocateDirect(staging.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        runTexture = new int[maxGlyphs];
+        runStart = new int[maxGlyphs];
+        runCount = new int[maxGlyphs];
+
+        vertexBuffer = new GpuBuffer(gl, GLES20.GL_ARRAY_BUFFER, GpuBuffer.Usage.DYNAMIC);
+        vertexBuffer.allocate(staging.length * 4);
+        indexBuffer = QuadBatch.quadIndices(gl, maxGlyphs);
+    }
+
+    //show text with its first baseline starting at (x, y), tinted by the ARGB color. a no-op if nothing changed
+    public void setText(CharSequence text, float x, float y, int argb) {
+        if (builtGeneration == glyphs.getGeneration() && x == this.x && y == this.y && argb == this.argb && contentEquals(text)) {
+            return;
+        }
+        this.text.setLength(0);
+        this.text.append(text);
+        this.x = x;
+        this.y = y;
+        this.argb = argb;
+        rebuild();
+    }
+
+    private boolean contentEquals(CharSequence other) {
+        if (other.length() != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < other.length(); i++) {
+            if (other.charAt(i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rebuild() {
+        //if laying out this string evicted one of its own earlier glyphs, lay it out again: the string's glyphs are now the most recently
+        //used, so a second pass only evicts other glyphs. if it still happens, the atlas is smaller than this one string
+        int generation = glyphs.getGeneration();
+        glyphCount = TextLayout.layout(text, glyphs, x, y, corners, placed, maxGlyphs);
+        if (glyphs.getGeneration() != generation) {
+            generation = glyphs.getGeneration();
+            glyphCount = TextLayout.layout(text, glyphs, x, y, corners, placed, maxGlyphs);
+            if (glyphs.getGeneration() != generation) {
+                throw new IllegalStateException(String.format("\"%s\" needs more glyphs than the glyph atlas can hold", text));
+            }
+        }
+        builtGeneration = generation;
+
+        int color = QuadBatch.toRgbaBytes(argb);
+        runs = 0;
+        int written = 0;
+        for (int i = 0; i < glyphCount; i++) {
+            //the first glyph on a page we haven't written yet starts a run with every glyph on that page. usually there's just one page
+            int texture = placed[i].region.texture;
+            if (isWritten(texture)) {
+                continue;
+            }
+            runTexture[runs] = texture;
+            runStart[runs] = written;
+            for (int j = i; j < glyphCount; j++) {
+                if (placed[j].region.texture == texture) {
+                    writeQuad(written++, j, color);
+                }
+            }
+            runCount[runs] = written - runStart[runs];
+            runs++;
+        }
+
+        if (glyphCount > 0) {
+            int words = glyphCount * QuadBatch.QUAD_WORDS;
+            upload.clear();
+            upload.put(staging, 0, words);
+            upload.position(0);
+            vertexBuffer.update(0, upload, words * 4);
+        }
+        rebuilds++;
+    }
+
+    private boolean isWritten(int texture) {
+        for (int r = 0; r < runs; r++) {
+            if (runTexture[r] == texture) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeQuad(int quad, int glyph, int color) {
+        TextureAtlas.Region region = placed[glyph].region;
+        int c = glyph * TextLayout.CORNERS;
+        float left = corners[c], bottom = corners[c + 1], right = corners[c + 2], top = corners[c + 3];
+
+        int out = quad * QuadBatch.QUAD_WORDS;
+        out = putVertex(out, left, top, region.u0, region.v0, color);
+        out = putVertex(out, left, bottom, region.u0, region.v1, color);
+        out = putVertex(out, right, bottom, region.u1, region.v1, color);
+        putVertex(out, right, top, region.u1, region.v0, color);
+    }
+
+    private int putVertex(int out, float x, float y, float s, float t, int color) {
+        staging[out] = Float.floatToRawIntBits(x);
+        staging[out + 1] = Float.floatToRawIntBits(y);
+        staging[out + 2] = Float.floatToRawIntBits(0f);
+        staging[out + 3] = Float.floatToRawIntBits(s);
+        staging[out + 4] = Float.floatToRawIntBits(t);
+        staging[out + 5] = color;
+        return out + QuadBatch.VERTEX_WORDS;
+    }
+
+    //draw the text with the given model-view-projection matrix, one draw call per atlas page it uses
+    public void draw(float[] mvpMatrix) {
+        //glyphs we placed earlier may have been evicted for someone else's text since
+        if (builtGeneration != glyphs.getGeneration()) {
+            rebuild();
+        }
+        if (glyphCount == 0) {
+            return;
+        }
+
+        program.use();
+        gl.glUniformMatrix4fv(program.uniformLocation(QuadBatch.U_MVP_MATRIX), 1, false, mvpMatrix, 0);
+        gl.glUniform1i(program.uniformLocation(QuadBatch.U_TEXTURE), 0);
+
+        gl.glDisable(GLES20.GL_CULL_FACE);
+        gl.glEnable(GLES20.GL_BLEND);
+        gl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+
+        vertexBuffer.bind();
+        indexBuffer.bind();
+        pointAttribute(program.attribLocation(QuadBatch.A_POSITION), 3, GLES20.GL_FLOAT, false, QuadBatch.POSITION_OFFSET);
+        pointAttribute(program.attribLocation(QuadBatch.A_TEX_COORDINATE), 2, GLES20.GL_FLOAT, false, QuadBatch.TEX_COORD_OFFSET);
+        pointAttribute(program.attribLocation(QuadBatch.A_COLOR), 4, GLES20.GL_UNSIGNED_BYTE, true, QuadBatch.COLOR_OFFSET);
+
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        for (int r = 0; r < runs; r++) {
+            gl.glBindTexture(GLES20.GL_TEXTURE_2D, runTexture[r]);
+            //6 two-byte indices per quad
+            gl.glDrawElements(GLES20.GL_TRIANGLES, runCount[r] * 6, GLES20.GL_UNSIGNED_SHORT, runStart[r] * 6 * 2);
+        }
+    }
+
+    private void pointAttribute(int location, int size, int type, boolean normalized, int offset) {
+        if (location >= 0) {
+            gl.glEnableVertexAttribArray(location);
+            gl.glVertexAttribPointer(location, size, type, normalized, QuadBatch.STRIDE, offset);
+        }
+    }
+
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    //how many times the vertices were rebuilt and uploaded
+    public int getRebuilds() {
+        return rebuilds;
+    }
+
+    public void release() {
+        shaders.release(program);
+        vertexBuffer.release();
+        indexBuffer.release();
+    }
+}
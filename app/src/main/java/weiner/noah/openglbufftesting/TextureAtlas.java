@@ -0,0 +1,185 @@
+package weiner.noah.openglbufftesting;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+//many small images (the Canvas-drawn label/background tiles) packed into a few big RGBA textures ("pages").
+//every tile used to be its own 256x256 texture, so drawing N of them meant N texture binds; out of the atlas, tiles that share a page
+//share a texture and a QuadBatch can draw all of them in one go. tiles are looked up by key and can be added and removed at any time;
+//a SkylinePacker per page decides where they go.
+public class TextureAtlas {
+    public static final int DEFAULT_PAGE_SIZE = 2048;
+    public static final int DEFAULT_PADDING = 2;
+
+    //where a tile ended up: which texture, and the part of it to sample. v0 is the top edge of the tile
+    public static final class Region {
+        public final String key;
+        public final int texture;
+        public final float u0, v0, u1, v1;
+        final int page;
+        final SkylinePacker.Region rect;
+
+        Region(String key, int texture, int page, SkylinePacker.Region rect, int pageSize) {
+            this.key = key;
+            this.texture = texture;
+            this.page = page;
+            this.rect = rect;
+            u0 = (float) rect.x / pageSize;
+            v0 = (float) rect.y / pageSize;
+            u1 = (float) (rect.x + rect.width) / pageSize;
+            v1 = (float) (rect.y + rect.height) / pageSize;
+        }
+
+        public int getWidth() {
+            return rect.width;
+        }
+
+        public int getHeight() {
+            return rect.height;
+        }
+    }
+
+    private static final class Page {
+        final int[] texture = new int[1];
+        final SkylinePacker packer;
+
+        Page(SkylinePacker packer) {
+            this.packer = packer;
+        }
+    }
+
+    private final Gles gl;
+    private final int pageSize;
+    private final int padding;
+    private final int maxPages;
+
+    private final ArrayList<Page> pages = new ArrayList<>();
+    private final Map<String, Region> regions = new HashMap<>();
+
+    public TextureAtlas(Gles gl, int pageSize, int padding, int maxPages) {
+        this.gl = gl;
+        this.pageSize = pageSize;
+        this.padding = padding;
+        this.maxPages = maxPages;
+    }
+
+    //add (or replace) the tile for key from tightly packed RGBA bytes. returns null if no page has room and we're at maxPages;
+    //remove() something and try again
+    public Region add(String key, int width, int height, Buffer rgbaPixels) {
+        if (width > pageSize || height > pageSize) {
+            throw new IllegalArgumentException(String.format("A %dx%d tile doesn't fit on a %d page", width, height, pageSize));
+        }
+        remove(key);
+
+        //first fit over the existing pages, then a fresh page
+        SkylinePacker.Region rect = null;
+        int page = -1;
+        for (int i = 0; i < pages.size() && rect == null; i++) {
+            rect = pages.get(i).packer.insert(width, height);
+            page = i;
+        }
+        if (rect == null) {
+            if (pages.size() == maxPages) {
+                return null;
+            }
+            pages.add(newPage());
+            page = pages.size() - 1;
+            rect = pages.get(page).packer.insert(width, height);
+        }
+
+        Page into = pages.get(page);
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, into.texture[0]);
+        gl.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, rect.x, rect.y, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, rgbaPixels);
+
+        Region region = new Region(key, into.texture[0], page, rect, pageSize);
+        regions.put(key, region);
+        return region;
+    }
+
+    //add (or replace) the tile for key from a bitmap, e.g. one drawn with a Canvas
+    public Region add(String key, Bitmap bitmap) {
+        Bitmap argb = bitmap.getConfig() == Bitmap.Config.ARGB_8888 ? bitmap : bitmap.copy(Bitmap.Config.ARGB_8888, false);
+
+        //ARGB_8888 bitmaps copy out as R, G, B, A bytes, which is exactly GL_RGBA/GL_UNSIGNED_BYTE
+        ByteBuffer pixels = ByteBuffer.allocateDirect(argb.getWidth() * argb.getHeight() * 4).order(ByteOrder.nativeOrder());
+        argb.copyPixelsToBuffer(pixels);
+        pixels.position(0);
+
+        Region region = add(key, argb.getWidth(), argb.getHeight(), pixels);
+        if (argb != bitmap) {
+            argb.recycle();
+        }
+        return region;
+    }
+
+    private Page newPage() {
+        Page page = new Page(new SkylinePacker(pageSize, pageSize, padding));
+        gl.glGenTextures(1, page.texture, 0);
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, page.texture[0]);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        gl.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, pageSize, pageSize, 0, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        return page;
+    }
+
+    public Region get(String key) {
+        return regions.get(key);
+    }
+
+    //evict a tile; its space is reused by later adds. the page's texture stays allocated
+    public boolean remove(String key) {
+        Region region = regions.remove(key);
+        if (region == null) {
+            return false;
+        }
+        pages.get(region.page).packer.remove(region.rect);
+        return true;
+    }
+
+    public int getTileCount() {
+        return regions.size();
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    public int getPageTexture(int page) {
+        return pages.get(page).texture[0];
+    }
+
+    //fraction of a page's area covered by tiles
+    public float getOccupancy(int page) {
+        return pages.get(page).packer.getOccupancy();
+    }
+
+    //GPU memory held by the pages, in bytes
+    public long getSizeBytes() {
+        return (long) pages.size() * pageSize * pageSize * 4;
+    }
+
+    //delete every page texture and forget every tile
+    public void release() {
+        for (Page page : pages) {
+            gl.glDeleteTextures(1, page.texture, 0);
+        }
+        invalidate();
+    }
+
+    //the GL context is gone and the page textures with it: forget them without deleting anything
+    public void invalidate() {
+        pages.clear();
+        regions.clear();
+    }
+}
@@ -0,0 +1,288 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+//every texture the drawables use, deduplicated by what it's made from: drawables asking for the same Key share one Handle and one
+//texture on the GPU. each texture's size is estimated from its key (width x height x bytes per pixel), and once the total goes over the
+//budget the least recently used textures are unloaded until it fits again. a texture used this frame is never evicted, so a budget
+//smaller than one frame's textures costs memory, not thrashing.
+//a drawable doesn't notice an eviction: the next getTextureId() on its handle loads the texture again through the TextureLoader and
+//hands out the placeholder until it's back. lost textures (a new GL context) come back the same way through the loader's invalidate().
+//all methods must be called on the GL thread.
+public class TextureCache {
+    public static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+
+    //what a texture is made from. two sources with equal keys have to produce the same pixels
+    public static final class Key {
+        final int resourceId;
+        final String text;
+        final int width, height;
+        final int format, type;
+
+        //resourceId of the image or background drawable (0 for none), text drawn over it (null for none), and the size and GL
+        //format/type the source decodes to
+        public Key(int resourceId, String text, int width, int height, int format, int type) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException(String.format("Texture size must be positive, got %dx%d", width, height));
+            }
+            this.resourceId = resourceId;
+            this.text = text;
+            this.width = width;
+            this.height = height;
+            this.format = format;
+            this.type = type;
+        }
+
+        //estimated GPU memory, ignoring whatever padding the driver adds
+        public long getBytes() {
+            return (long) width * height * TexturePixels.bytesPerPixel(format, type);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return resourceId == other.resourceId && width == other.width && height == other.height && format == other.format
+                    && type == other.type && (text == null ? other.text == null : text.equals(other.text));
+        }
+
+        @Override
+        public int hashCode() {
+            int h = resourceId;
+            h = h * 31 + (text == null ? 0 : text.hashCode());
+            h = h * 31 + width;
+            h = h * 31 + height;
+            h = h * 31 + format;
+            return h * 31 + type;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("0x%x \"%s\" %dx%d 0x%x/0x%x", resourceId, text, width, height, format, type);
+        }
+    }
+
+    //a drawable's share of a cached texture. bind getTextureId() every time; it changes when the texture is (re)loaded
+    public static final class Handle {
+        private final TextureCache cache;
+        final Key key;
+        final TextureSource source;
+        final int filter;
+
+        AsyncTexture texture;
+        int refs;
+        long lastUsedFrame;
+
+        //what getTextureId() last returned, for other threads
+        private volatile int lastTextureId;
+
+        Handle(TextureCache cache, Key key, TextureSource source, int filter) {
+            this.cache = cache;
+            this.key = key;
+            this.source = source;
+            this.filter = filter;
+        }
+
+        //the texture, or the loader's placeholder while it loads. marks it used this frame, and starts loading it again if it was evicted
+        public int getTextureId() {
+            lastUsedFrame = cache.frame;
+            if (texture == null) {
+                cache.reload(this);
+            }
+            lastTextureId = texture.getTextureId();
+            return lastTextureId;
+        }
+
+        //what getTextureId() last returned, without marking the texture used or reloading it. any thread; good for sort keys, where
+        //a name that's a frame out of date costs at worst a texture change
+        public int peekTextureId() {
+            return lastTextureId;
+        }
+
+        public boolean isResident() {
+            return texture != null;
+        }
+
+        public boolean isReady() {
+            return texture != null && texture.isReady();
+        }
+
+        public Key getKey() {
+            return key;
+        }
+    }
+
+    private final TextureLoader loader;
+    private long budgetBytes;
+
+    private final Map<Key, Handle> handles = new HashMap<>();
+    private final ArrayList<Handle> evictable = new ArrayList<>();
+
+    private long frame;
+    private long residentBytes;
+
+    //stats
+    private int hits, misses, evictions, reloads;
+
+    public TextureCache(TextureLoader loader, long budgetBytes) {
+        this.loader = loader;
+        setBudget(budgetBytes);
+    }
+
+    public void setBudget(long budgetBytes) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException(String.format("Texture budget can't be negative, got %d", budgetBytes));
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    //the shared texture for key, loading it from source if nobody has it yet. every acquire() needs a matching release()
+    public Handle acquire(Key key, TextureSource source, int filter) {
+        Handle handle = handles.get(key);
+        if (handle == null) {
+            handle = new Handle(this, key, source, filter);
+            handles.put(key, handle);
+            misses++;
+            load(handle);
+        }
+        else {
+            hits++;
+        }
+        handle.refs++;
+        handle.lastUsedFrame = frame;
+        return handle;
+    }
+
+    //drop one reference. a texture nobody holds stays cached, first in line for eviction, until something acquires it again
+    public void release(Handle handle) {
+        if (handle.cache != this || handles.get(handle.key) != handle) {
+            throw new IllegalStateException(String.format("Texture %s is not owned by this cache", handle.key));
+        }
+        if (handle.refs == 0) {
+            throw new IllegalStateException(String.format("Texture %s released more often than acquired", handle.key));
+        }
+        handle.refs--;
+    }
+
+    private void load(Handle handle) {
+        handle.texture = loader.load(handle.source, handle.filter);
+        residentBytes += handle.key.getBytes();
+    }
+
+    void reload(Handle handle) {
+        reloads++;
+        load(handle);
+    }
+
+    //end of a frame: evict least recently used textures until the rest fit the budget. run after the frame's draws
+    public void endFrame() {
+        if (residentBytes > budgetBytes) {
+            trim();
+        }
+        frame++;
+    }
+
+    private void trim() {
+        //everything not used this frame, oldest first; unreferenced textures before referenced ones of the same age
+        evictable.clear();
+        for (Handle handle : handles.values()) {
+            if (handle.texture != null && handle.lastUsedFrame < frame) {
+                evictable.add(handle);
+            }
+        }
+        //there are few textures and this only runs over budget, so a plain insertion sort does
+        for (int i = 1; i < evictable.size(); i++) {
+            Handle handle = evictable.get(i);
+            int j = i - 1;
+            while (j >= 0 && evictsAfter(evictable.get(j), handle)) {
+                evictable.set(j + 1, evictable.get(j));
+                j--;
+            }
+            evictable.set(j + 1, handle);
+        }
+
+        for (int i = 0; i < evictable.size() && residentBytes > budgetBytes; i++) {
+            evict(evictable.get(i));
+        }
+        evictable.clear();
+    }
+
+    private static boolean evictsAfter(Handle a, Handle b) {
+        if (a.lastUsedFrame != b.lastUsedFrame) {
+            return a.lastUsedFrame > b.lastUsedFrame;
+        }
+        return a.refs > 0 && b.refs == 0;
+    }
+
+    private void evict(Handle handle) {
+        loader.unload(handle.texture);
+        handle.texture = null;
+        residentBytes -= handle.key.getBytes();
+        evictions++;
+        //nobody holds it, so nobody will ask for it through this handle again
+        if (handle.refs == 0) {
+            handles.remove(handle.key);
+        }
+    }
+
+    public int getTextureCount() {
+        return handles.size();
+    }
+
+    //textures on the GPU or on their way there
+    public int getResidentCount() {
+        int resident = 0;
+        for (Handle handle : handles.values()) {
+            if (handle.texture != null) {
+                resident++;
+            }
+        }
+        return resident;
+    }
+
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    public int getEvictions() {
+        return evictions;
+    }
+
+    public int getReloads() {
+        return reloads;
+    }
+
+    //one line summary for the debug log
+    public String report() {
+        return String.format("texture cache: %d textures, %d resident, %d KB of %d KB; %d hits, %d misses, %d evictions, %d reloads",
+                handles.size(), getResidentCount(), residentBytes / 1024, budgetBytes / 1024, hits, misses, evictions, reloads);
+    }
+
+    //unload every texture and forget every handle; handles still out there stop working
+    public void release() {
+        for (Handle handle : handles.values()) {
+            if (handle.texture != null) {
+                loader.unload(handle.texture);
+                handle.texture = null;
+            }
+        }
+        handles.clear();
+        residentBytes = 0;
+    }
+}
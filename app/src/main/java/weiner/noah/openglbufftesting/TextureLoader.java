@@ -0,0 +1,451 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//loads textures without holding up a frame. load() returns at once with an AsyncTexture that draws as a 1x1 white placeholder; the
+//source decodes on a worker pool, and the pixels then get onto the GPU one of two ways:
+//
+//  - with an Uploader (SharedContextUploader: a background thread with its own EGL context sharing names with ours), the whole image
+//    goes up off the GL thread. on ES 3.0 the uploader puts a fence after it, and update() only swaps the texture in once the fence has
+//    signaled, so a draw never waits on a half finished upload; without fences the uploader glFinish()es before handing it over.
+//  - without one, update() uploads on the GL thread, a band of rows at a time: glTexImage2D allocates the texture, then glTexSubImage2D
+//    copies as many rows as the frame's byte budget allows (at least one, so every texture gets there eventually).
+//
+//update() runs once a frame on the GL thread and returns how many textures became ready, i.e. whether the frame has to be redrawn.
+//onWorkReady runs (on whichever thread finished something) when update() has work to do, so an on-demand renderer can ask for a frame
+public class TextureLoader {
+    public static final int DEFAULT_UPLOAD_BUDGET = 128 * 1024;
+
+    //uploads textures somewhere other than the GL thread
+    public interface Uploader {
+        //put upload.getPixels() into a new texture and call upload.complete(), or upload.fallBack() if it can't. any thread
+        void upload(Upload upload);
+
+        //stop and free the uploader's resources; GL thread
+        void release();
+    }
+
+    //one texture's pixels on their way to the GPU
+    public static final class Upload {
+        private final TextureLoader loader;
+        final AsyncTexture texture;
+        final int request;
+        final TexturePixels pixels;
+
+        //the uploader it went to, if any
+        Uploader via;
+
+        int name;
+        long fence;
+
+        //rows uploaded so far by a time-sliced upload
+        int rowsDone;
+
+        Upload(TextureLoader loader, AsyncTexture texture, int request, TexturePixels pixels) {
+            this.loader = loader;
+            this.texture = texture;
+            this.request = request;
+            this.pixels = pixels;
+        }
+
+        public TexturePixels getPixels() {
+            return pixels;
+        }
+
+        public int getFilter() {
+            return texture.getFilter();
+        }
+
+        //the pixels are in texture name; fence signals once the GPU has them (0 if the uploader already waited for that)
+        public void complete(int name, long fence) {
+            this.name = name;
+            this.fence = fence;
+            loader.completed.add(this);
+            loader.onWorkReady.run();
+        }
+
+        //the uploader couldn't take it; the GL thread uploads it in slices instead
+        public void fallBack() {
+            via = null;
+            loader.decoded.add(this);
+            loader.onWorkReady.run();
+        }
+    }
+
+    private final Gles gl;
+    private final Executor decodePool;
+    private final Runnable onWorkReady;
+
+    private volatile Uploader uploader;
+
+    //every texture load() has handed out, to reload after a context loss
+    private final ArrayList<AsyncTexture> textures = new ArrayList<>();
+
+    //decoded, waiting for a time-sliced upload; uploaded by the uploader; waiting on their fences
+    private final ConcurrentLinkedQueue<Upload> decoded = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Upload> completed = new ConcurrentLinkedQueue<>();
+    private final ArrayList<Upload> fenced = new ArrayList<>();
+
+    //the time-sliced upload in progress
+    private Upload current;
+
+    private final int[] placeholder = new int[1];
+    private final int[] name = new int[1];
+
+    private int texturesLoaded;
+    private final AtomicInteger failures = new AtomicInteger();
+    private long bytesUploaded;
+    private int lastFrameBytes;
+    private int slices;
+
+    public TextureLoader(Gles gl, Executor decodePool, Runnable onWorkReady) {
+        this.gl = gl;
+        this.decodePool = decodePool;
+        this.onWorkReady = onWorkReady;
+    }
+
+    //a pool of low priority daemon threads for decoding, so decodes never compete with the GL thread or keep the process alive
+    public static ExecutorService newDecodePool(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "texture decode " + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    //make the placeholder in the current context; call from onSurfaceCreated
+    public void init() {
+        ByteBuffer white = ByteBuffer.allocateDirect(4).order(ByteOrder.nativeOrder());
+        white.putInt(0, 0xffffffff);
+        createTexture(gl, placeholder, GLES20.GL_NEAREST);
+        gl.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, 1, 1, 0, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, white);
+    }
+
+    //upload through uploader from now on, or on the GL thread if it's null. releases the one before. GL thread
+    public void setUploader(Uploader uploader) {
+        Uploader old = this.uploader;
+        this.uploader = uploader;
+        if (old != null) {
+            old.release();
+        }
+    }
+
+    public boolean hasUploader() {
+        return uploader != null;
+    }
+
+    //start loading source; filter is GL_NEAREST or GL_LINEAR. GL thread
+    public AsyncTexture load(TextureSource source, int filter) {
+        AsyncTexture texture = new AsyncTexture(this, source, filter);
+        textures.add(texture);
+        submit(texture);
+        return texture;
+    }
+
+    private void submit(final AsyncTexture texture) {
+        final int request = texture.request + 1;
+        texture.request = request;
+        texture.state = AsyncTexture.State.PENDING;
+        texture.error = null;
+        decodePool.execute(new Runnable() {
+            @Override
+            public void run() {
+                decode(texture, request);
+            }
+        });
+    }
+
+    //worker thread
+    private void decode(AsyncTexture texture, int request) {
+        TexturePixels pixels;
+        try {
+            pixels = texture.getSource().decode();
+        }
+        catch (RuntimeException e) {
+            if (texture.request == request) {
+                texture.error = e;
+                texture.state = AsyncTexture.State.FAILED;
+                failures.incrementAndGet();
+            }
+            return;
+        }
+
+        //reloaded in the meantime; the newer decode takes over
+        if (texture.request != request) {
+            return;
+        }
+        texture.state = AsyncTexture.State.DECODED;
+        Upload upload = new Upload(this, texture, request, pixels);
+        Uploader to = uploader;
+        if (to != null) {
+            upload.via = to;
+            to.upload(upload);
+        }
+        else {
+            decoded.add(upload);
+            onWorkReady.run();
+        }
+    }
+
+    //swap in whatever finished uploading and spend up to budgetBytes on time-sliced uploads. returns how many textures became ready.
+    //GL thread, once a frame
+    public int update(int budgetBytes) {
+        int ready = 0;
+
+        //whole uploads from the uploader, straight in or to wait on their fences
+        Upload upload;
+        while ((upload = completed.poll()) != null) {
+            //unloaded or reloaded since. an upload through the current uploader left a texture in our share group to delete; one
+            //from before a context loss went with the old uploader's context
+            if (upload.request != upload.texture.request) {
+                if (upload.via == uploader) {
+                    deleteUpload(upload);
+                }
+                continue;
+            }
+            bytesUploaded += upload.pixels.getBytes();
+            if (upload.fence != 0) {
+                fenced.add(upload);
+            }
+            else {
+                ready += finish(upload);
+            }
+        }
+
+        //a zero timeout only asks; a fence that hasn't signaled gets asked again next frame
+        for (int i = 0; i < fenced.size(); ) {
+            upload = fenced.get(i);
+            int status = gl.glClientWaitSync(upload.fence, 0, 0);
+            if (status == GLES30.GL_TIMEOUT_EXPIRED) {
+                i++;
+                continue;
+            }
+            gl.glDeleteSync(upload.fence);
+            fenced.remove(i);
+            ready += finish(upload);
+        }
+
+        //time-sliced uploads on this thread
+        int frameBytes = 0;
+        while (true) {
+            if (current == null) {
+                current = decoded.poll();
+                if (current == null) {
+                    break;
+                }
+            }
+            if (current.request != current.texture.request) {
+                deleteUpload(current);
+                current = null;
+                continue;
+            }
+
+            TexturePixels pixels = current.pixels;
+            int rowBytes = pixels.getRowBytes();
+            int rows = Math.min(pixels.getHeight() - current.rowsDone, (budgetBytes - frameBytes) / rowBytes);
+            if (rows <= 0) {
+                if (frameBytes > 0) {
+                    break;
+                }
+                //over budget before anything went up this frame: one row anyway, so big textures still get there
+                rows = 1;
+            }
+
+            if (current.rowsDone == 0 && rows == pixels.getHeight()) {
+                //fits whole, so allocate and fill it in one call
+                createTexture(gl, name, current.getFilter());
+                gl.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, pixels.getFormat(), pixels.getWidth(), pixels.getHeight(), 0, pixels.getFormat(),
+                        pixels.getType(), pixels.rows(0));
+                current.name = name[0];
+            }
+            else {
+                if (current.rowsDone == 0) {
+                    createTexture(gl, name, current.getFilter());
+                    gl.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, pixels.getFormat(), pixels.getWidth(), pixels.getHeight(), 0, pixels.getFormat(),
+                            pixels.getType(), null);
+                    current.name = name[0];
+                }
+                else {
+                    gl.glActiveTexture(GLES20.GL_TEXTURE0);
+                    gl.glBindTexture(GLES20.GL_TEXTURE_2D, current.name);
+                }
+                gl.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, current.rowsDone, pixels.getWidth(), rows, pixels.getFormat(), pixels.getType(),
+                        pixels.rows(current.rowsDone));
+            }
+            slices++;
+            current.rowsDone += rows;
+            frameBytes += rows * rowBytes;
+
+            //same context, so draws after this see the whole texture without a fence
+            if (current.rowsDone == pixels.getHeight()) {
+                ready += finish(current);
+                current = null;
+            }
+        }
+        bytesUploaded += frameBytes;
+        lastFrameBytes = frameBytes;
+        return ready;
+    }
+
+    private int finish(Upload upload) {
+        AsyncTexture texture = upload.texture;
+        texture.name = upload.name;
+        texture.width = upload.pixels.getWidth();
+        texture.height = upload.pixels.getHeight();
+        texture.state = AsyncTexture.State.READY;
+        texturesLoaded++;
+        return 1;
+    }
+
+    //delete what an upload has made so far
+    private void deleteUpload(Upload upload) {
+        if (upload.fence != 0) {
+            gl.glDeleteSync(upload.fence);
+            upload.fence = 0;
+        }
+        if (upload.name != 0) {
+            name[0] = upload.name;
+            gl.glDeleteTextures(1, name, 0);
+            upload.name = 0;
+        }
+    }
+
+    //stop loading texture and delete it from the GPU; it goes back to PENDING for good, drawing as the placeholder. GL thread
+    public void unload(AsyncTexture texture) {
+        if (!textures.remove(texture)) {
+            throw new IllegalArgumentException("Texture was not loaded by this loader");
+        }
+        //a newer request turns any decode or upload still on its way into a stale one, dropped (and deleted) when it shows up
+        texture.request++;
+        texture.state = AsyncTexture.State.PENDING;
+        if (texture.name != 0) {
+            name[0] = texture.name;
+            gl.glDeleteTextures(1, name, 0);
+            texture.name = 0;
+        }
+        for (int i = fenced.size() - 1; i >= 0; i--) {
+            if (fenced.get(i).texture == texture) {
+                deleteUpload(fenced.remove(i));
+            }
+        }
+    }
+
+    //generate a texture into name[0] and leave it bound to unit 0 with filter and clamped edges. any thread with a current context
+    static void createTexture(Gles gl, int[] name, int filter) {
+        gl.glGenTextures(1, name, 0);
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, name[0]);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, filter);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, filter);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        gl.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+    }
+
+    //whether update() still has something to do: a time-sliced upload, a decoded texture waiting for one, or a fence to check.
+    //decodes still running don't count; onWorkReady says when they're done
+    public boolean hasPendingUploads() {
+        return current != null || !fenced.isEmpty() || !decoded.isEmpty() || !completed.isEmpty();
+    }
+
+    public int getPlaceholder() {
+        return placeholder[0];
+    }
+
+    public int getTextureCount() {
+        return textures.size();
+    }
+
+    public int getTexturesLoaded() {
+        return texturesLoaded;
+    }
+
+    public int getFailures() {
+        return failures.get();
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    //bytes the last update() uploaded on the GL thread
+    public int getLastFrameBytes() {
+        return lastFrameBytes;
+    }
+
+    //glTexImage2D/glTexSubImage2D calls the time-sliced uploads took
+    public int getSlices() {
+        return slices;
+    }
+
+    public String report() {
+        return String.format("textures: %d, %d loaded, %d failed, %d KB uploaded in %d slices (%d KB last frame), %s",
+                textures.size(), texturesLoaded, failures.get(), bytesUploaded / 1024, slices, lastFrameBytes / 1024,
+                uploader != null ? "shared context uploads" : "time-sliced uploads");
+    }
+
+    //the GL context is gone, and every texture with it: forget the names without deleting anything, drop the uploader (its context
+    //shared with the dead one) and decode everything again. init() and setUploader() once the new context is up
+    public void invalidate() {
+        setUploader(null);
+        placeholder[0] = 0;
+        current = null;
+        decoded.clear();
+        completed.clear();
+        fenced.clear();
+        for (int i = 0; i < textures.size(); i++) {
+            AsyncTexture texture = textures.get(i);
+            texture.name = 0;
+            if (texture.state != AsyncTexture.State.FAILED) {
+                submit(texture);
+            }
+        }
+    }
+
+    //delete every texture, the placeholder and any pending fences, and stop the uploader
+    public void release() {
+        setUploader(null);
+        for (int i = 0; i < textures.size(); i++) {
+            AsyncTexture texture = textures.get(i);
+            //a newer request drops anything still decoding
+            texture.request++;
+            if (texture.state == AsyncTexture.State.READY) {
+                name[0] = texture.name;
+                gl.glDeleteTextures(1, name, 0);
+            }
+            texture.name = 0;
+            texture.state = AsyncTexture.State.PENDING;
+        }
+        if (current != null) {
+            deleteUpload(current);
+        }
+        Upload upload;
+        while ((upload = completed.poll()) != null) {
+            deleteUpload(upload);
+        }
+        for (int i = 0; i < fenced.size(); i++) {
+            deleteUpload(fenced.get(i));
+        }
+        if (placeholder[0] != 0) {
+            gl.glDeleteTextures(1, placeholder, 0);
+        }
+        textures.clear();
+        invalidate();
+    }
+}
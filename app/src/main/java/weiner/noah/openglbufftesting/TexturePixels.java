@@ -0,0 +1,87 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+
+//a decoded image ready for glTexImage2D: tightly packed rows, bottom row first as far as GL is concerned (row 0 is texture t = 0).
+//rows have to start on 4 byte boundaries, GL's default GL_UNPACK_ALIGNMENT, so every format can be uploaded a band of rows at a time
+public class TexturePixels {
+    private final int width, height;
+    private final int format, type;
+    private final ByteBuffer pixels;
+    private final int rowBytes;
+
+    public TexturePixels(int width, int height, int format, int type, ByteBuffer pixels) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(String.format("Texture size must be positive, got %dx%d", width, height));
+        }
+        if (!pixels.isDirect()) {
+            throw new IllegalArgumentException("Texture pixels have to be in a direct buffer");
+        }
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.type = type;
+        this.pixels = pixels;
+
+        rowBytes = width * bytesPerPixel(format, type);
+        if (rowBytes % 4 != 0) {
+            throw new IllegalArgumentException(String.format("A %d pixel row is %d bytes, which isn't 4 byte aligned", width, rowBytes));
+        }
+        if (pixels.capacity() < rowBytes * height) {
+            throw new IllegalArgumentException(String.format("A %dx%d texture needs %d bytes, got %d", width, height, rowBytes * height,
+                    pixels.capacity()));
+        }
+    }
+
+    static int bytesPerPixel(int format, int type) {
+        if (type == GLES20.GL_UNSIGNED_SHORT_4_4_4_4 || type == GLES20.GL_UNSIGNED_SHORT_5_6_5) {
+            return 2;
+        }
+        if (type != GLES20.GL_UNSIGNED_BYTE) {
+            throw new IllegalArgumentException(String.format("Unsupported texture type 0x%x", type));
+        }
+        switch (format) {
+            case GLES20.GL_RGBA:
+                return 4;
+            case GLES20.GL_RGB:
+                return 3;
+            case GLES20.GL_LUMINANCE:
+            case GLES20.GL_ALPHA:
+                return 1;
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported texture format 0x%x", format));
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getRowBytes() {
+        return rowBytes;
+    }
+
+    public int getBytes() {
+        return rowBytes * height;
+    }
+
+    //the pixels positioned at the start of row; what glTexImage2D/glTexSubImage2D read from
+    ByteBuffer rows(int row) {
+        pixels.position(row * rowBytes);
+        return pixels;
+    }
+}
@@ -0,0 +1,9 @@
+package weiner.noah.openglbufftesting;
+
+//where a texture's pixels come from: a resource, generated text, a file. TextureLoader calls decode() on one of its worker threads,
+//so it mustn't touch GL and has to be safe to run next to other sources' decodes. it runs again if the texture has to be reloaded
+//after the GL context is lost
+public interface TextureSource {
+    //the decoded image. throw if it can't be made; the texture then stays on the placeholder
+    TexturePixels decode();
+}
@@ -0,0 +1,145 @@
+package weiner.noah.openglbufftesting;
+
+//position, rotation and scale of something, optionally relative to a parent transform, with its matrices cached.
+//the local matrix (translate * rotate * scale) is only rebuilt when a setter actually changed something, and the rotation/scale part
+//(the sin/cos) only when those changed. the world matrix (parent's world * local) is rebuilt when the local matrix changed or the parent's
+//world did: every transform counts how many times its world matrix changed, and children remember the count they were built against.
+//parents don't know their children, and nothing is recomputed until someone asks for a matrix.
+public class Transform {
+    private final float[] local = new float[16];
+    private final float[] world = new float[16];
+
+    private float x, y, z;
+    private float degrees, axisX, axisY = 0f, axisZ = 1f;
+    private float scaleX = 1f, scaleY = 1f, scaleZ = 1f;
+
+    private boolean localDirty = true;
+    private boolean rotationScaleDirty = true;
+    private boolean worldDirty = true;
+
+    private Transform parent;
+    private int parentVersion;
+    private int version;
+    private int localVersion;
+
+    public Transform() {
+        Mat4.setIdentity(local, 0);
+        Mat4.setIdentity(world, 0);
+    }
+
+    public void setPosition(float x, float y, float z) {
+        if (x != this.x || y != this.y || z != this.z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            localDirty = true;
+        }
+    }
+
+    //rotation by degrees around the axis (ax, ay, az)
+    public void setRotation(float degrees, float ax, float ay, float az) {
+        if (degrees != this.degrees || ax != axisX || ay != axisY || az != axisZ) {
+            this.degrees = degrees;
+            axisX = ax;
+            axisY = ay;
+            axisZ = az;
+            localDirty = true;
+            rotationScaleDirty = true;
+        }
+    }
+
+    public void setScale(float sx, float sy, float sz) {
+        if (sx != scaleX || sy != scaleY || sz != scaleZ) {
+            scaleX = sx;
+            scaleY = sy;
+            scaleZ = sz;
+            localDirty = true;
+            rotationScaleDirty = true;
+        }
+    }
+
+    //make this transform relative to parent (null for none)
+    public void setParent(Transform parent) {
+        for (Transform p = parent; p != null; p = p.parent) {
+            if (p == this) {
+                throw new IllegalArgumentException("A transform can't be its own ancestor");
+            }
+        }
+        if (parent != this.parent) {
+            this.parent = parent;
+            worldDirty = true;
+        }
+    }
+
+    public Transform getParent() {
+        return parent;
+    }
+
+    //the local matrix; don't modify it
+    public float[] getLocalMatrix() {
+        updateLocal();
+        return local;
+    }
+
+    //parent's world matrix * local matrix, or just the local matrix without a parent; don't modify it
+    public float[] getWorldMatrix() {
+        updateWorld();
+        return world;
+    }
+
+    //changes every time the world matrix does, so callers can cache things derived from it
+    public int getVersion() {
+        updateWorld();
+        return version;
+    }
+
+    //changes every time the local matrix does. for owners that keep their own hierarchy (SceneNode), which only need the local matrix
+    //and shouldn't make this transform rebuild a world matrix they never read
+    public int getLocalVersion() {
+        updateLocal();
+        return localVersion;
+    }
+
+    private void updateLocal() {
+        if (!localDirty) {
+            return;
+        }
+        if (rotationScaleDirty) {
+            Mat4.setRotation3x3(local, 0, degrees, axisX, axisY, axisZ);
+            for (int i = 0; i < 3; i++) {
+                local[i] *= scaleX;
+                local[4 + i] *= scaleY;
+                local[8 + i] *= scaleZ;
+            }
+            rotationScaleDirty = false;
+        }
+        local[12] = x;
+        local[13] = y;
+        local[14] = z;
+        localDirty = false;
+        worldDirty = true;
+        localVersion++;
+    }
+
+    private void updateWorld() {
+        updateLocal();
+        if (parent != null) {
+            int current = parent.getVersion();
+            if (current != parentVersion) {
+                parentVersion = current;
+                worldDirty = true;
+            }
+        }
+        if (!worldDirty) {
+            return;
+        }
+        if (parent == null) {
+            System.arraycopy(local, 0, world, 0, 16);
+        }
+        else {
+            Mat4.multiplyAffine(world, 0, parent.world, 0, local, 0);
+        }
+        worldDirty = false;
+        version++;
+    }
+}
@@ -0,0 +1,114 @@
+package weiner.noah.openglbufftesting;
+
+//the poses of a fixed set of simulated things (position plus a rotation angle) after one simulation tick, along with the poses from the
+//tick before, so a renderer drawing between ticks can interpolate. a SimulationThread fills one, publishes it, and doesn't touch it again
+//until the reader has moved on to a newer one: from the reader's side it never changes.
+public class TransformSnapshot {
+    //x, y, z, degrees
+    public static final int STRIDE = 4;
+
+    private final float[] previous;
+    private final float[] current;
+    private final boolean[] jumped;
+    private final int capacity;
+
+    private int previousCount, count;
+    private long tick;
+    private long timeNanos;
+
+    public TransformSnapshot(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("Snapshot capacity must be positive, got %d", capacity));
+        }
+        this.capacity = capacity;
+        previous = new float[capacity * STRIDE];
+        current = new float[capacity * STRIDE];
+        jumped = new boolean[capacity];
+    }
+
+    //the pose of thing i after this tick. things are numbered from 0 without gaps; the count is the highest index set plus one
+    public void set(int i, float x, float y, float z, float degrees) {
+        if (i < 0 || i >= capacity) {
+            throw new IndexOutOfBoundsException(String.format("Snapshot index %d outside 0..%d", i, capacity - 1));
+        }
+        int at = i * STRIDE;
+        current[at] = x;
+        current[at + 1] = y;
+        current[at + 2] = z;
+        current[at + 3] = degrees;
+        jumped[i] = false;
+        count = Math.max(count, i + 1);
+    }
+
+    //thing i teleported this tick (a looping animation wrapped around, ...): show its new pose right away instead of sliding there
+    public void jump(int i) {
+        jumped[i] = true;
+    }
+
+    //start a new tick: what the last tick wrote, in last, becomes the previous poses
+    void begin(TransformSnapshot last, long tick, long timeNanos) {
+        previousCount = last.count;
+        System.arraycopy(last.current, 0, previous, 0, last.count * STRIDE);
+        count = 0;
+        this.tick = tick;
+        this.timeNanos = timeNanos;
+    }
+
+    //take over the current poses of other (writer side bookkeeping)
+    void copyCurrent(TransformSnapshot other) {
+        count = other.count;
+        System.arraycopy(other.current, 0, current, 0, count * STRIDE);
+        System.arraycopy(other.jumped, 0, jumped, 0, count);
+        tick = other.tick;
+        timeNanos = other.timeNanos;
+    }
+
+    //how far (0..1) a frame at nowNanos is from the previous poses to these, for ticks stepNanos apart. frames show the simulation one
+    //tick late, so they always have both ends to interpolate between
+    public float alpha(long nowNanos, long stepNanos) {
+        float alpha = (float) (nowNanos - timeNanos) / stepNanos;
+        return Math.max(0f, Math.min(1f, alpha));
+    }
+
+    //the pose of thing i alpha of the way from the previous tick to this one, into out (x, y, z, degrees) at offset
+    public void interpolate(int i, float alpha, float[] out, int offset) {
+        int at = i * STRIDE;
+        if (i >= previousCount || jumped[i]) {
+            System.arraycopy(current, at, out, offset, STRIDE);
+            return;
+        }
+        for (int k = 0; k < STRIDE; k++) {
+            out[offset + k] = previous[at + k] + (current[at + k] - previous[at + k]) * alpha;
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    //the simulation tick these poses are from, counting from 1; 0 for a snapshot nothing was written to yet
+    public long getTick() {
+        return tick;
+    }
+
+    //when this tick was due, on the simulation's clock
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    public float getX(int i) {
+        return current[i * STRIDE];
+    }
+
+    public float getY(int i) {
+        return current[i * STRIDE + 1];
+    }
+
+    public float getZ(int i) {
+        return current[i * STRIDE + 2];
+    }
+
+    public float getDegrees(int i) {
+        return current[i * STRIDE + 3];
+    }
+}
@@ -2,22 +2,25 @@ package weiner.noah.openglbufftesting;
 
 import android.opengl.GLES20;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-
 import javax.microedition.khronos.opengles.GL;
 import javax.microedition.khronos.opengles.GL10;
 
-public class Triangle {
-    private FloatBuffer vertexBuffer;
-    private final int mProgram;
-    private int positionHandle;
-    private int colorHandle;
+public class Triangle implements Renderable {
+    private final GpuBuffer vertexBuffer;   //GPU buffer holding the vertices
+    private final Gles gl;
+    private final ShaderProgramCache shaders;
+    private final ShaderProgram program;
 
     // number of coordinates per vertex in this array
     static final int COORDS_PER_VERTEX = 3;
 
+    //slots into the program's location table, resolved once at link time
+    private static final String[] ATTRIBUTES = {"vPosition"};
+    private static final int A_POSITION = 0;
+
+    private static final String[] UNIFORMS = {"uMVPMatrix", "vColor"};
+    private static final int U_MVP_MATRIX = 0, U_COLOR = 1;
+
 
     static float[] triangleCoords = {   // in counterclockwise order:
             0.0f, 0.622008459f, 0.0f, // top
@@ -34,40 +37,16 @@ public class Triangle {
     private final int vertexStride = COORDS_PER_VERTEX * 4; // 4 bytes per vertex
 
 
-    public Triangle() {
-        //load the vertex shader
-        int vertexShader = OpenGLRenderer.loadShader(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
-
-        //load the fragment shader
-        int fragmentShader = OpenGLRenderer.loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
-
-        //create empty openGL ES Program
-        mProgram = GLES20.glCreateProgram();
-
-        //add the vertex shader to program
-        GLES20.glAttachShader(mProgram, vertexShader);
-
-        //add fragment shader to program
-        GLES20.glAttachShader(mProgram, fragmentShader);
-
-        //link the program, create OpenGL ES program executable
-        GLES20.glLinkProgram(mProgram);
-
-        // initialize vertex byte buffer for shape coordinates
-        ByteBuffer bb = ByteBuffer.allocateDirect(
-                // (number of coordinate values * 4 bytes per float)
-                triangleCoords.length * 4);
-
-        // use the device hardware's native byte order (C order)
-        bb.order(ByteOrder.nativeOrder());
+    public Triangle(Gles gl, ShaderProgramCache shaders) {
+        this.gl = gl;
+        this.shaders = shaders;
 
-        // create a floating point buffer from the ByteBuffer
-        vertexBuffer = bb.asFloatBuffer();
-        // add the coordinates to the FloatBuffer
-        vertexBuffer.put(triangleCoords);
+        //get our program from the shared cache (compiled and linked only if no other drawable uses the same sources),
+        //with every attribute/uniform location read back in one go
+        program = shaders.acquire(vertexShaderCode, fragmentShaderCode, ATTRIBUTES, UNIFORMS);
 
-        // set the buffer to read the first coordinate (set cursor position to beginning of buffer)
-        vertexBuffer.position(0);
+        //upload the shape coordinates to a GPU-side vertex buffer once instead of handing them over on every draw
+        vertexBuffer = GpuBuffer.vertices(gl, triangleCoords, GpuBuffer.Usage.STATIC);
     }
 
     private final String vertexShaderCode =
@@ -80,9 +59,6 @@ public class Triangle {
                 "gl_Position = uMVPMatrix * vPosition;" +
             "}";
 
-    //use to access and set the view transformation
-    private int vPMatrixHandle;
-
     private final String fragmentShaderCode =
             "precision mediump float;" +    //how much precision GPU uses when calculating floats
             "uniform vec4 vColor;" +
@@ -90,52 +66,76 @@ public class Triangle {
                 "gl_FragColor = vColor;" +
             "}";
 
+    //give our program back to the cache (it gets deleted once no other drawable is using it) and free our buffer
+    public void release() {
+        shaders.release(program);
+        vertexBuffer.release();
+    }
+
     //actually draw the triangle on the display
+    @Override
     public void draw(float[] mvpMatrix) { //pass in calculated transformation matrix  //WAS (float[] mvpMatrix)
         //add the program to the OpenGL ES environment
-        GLES20.glUseProgram(mProgram);
+        program.use();
 
-        //get the vertex shader's vPosition member
-        positionHandle = GLES20.glGetAttribLocation(mProgram, "vPosition");
+        //get the vertex shader's vPosition member (looked up once when the program was linked)
+        int positionHandle = program.attribLocation(A_POSITION);
 
-        //enable openGL to read from FloatBuffer that contains the triangle's vertices' coords and to understand that there's a triangle there
-        GLES20.glEnableVertexAttribArray(positionHandle);
+        //enable openGL to read from the vertex buffer that contains the triangle's vertices' coords and to understand that there's a triangle there
+        gl.glEnableVertexAttribArray(positionHandle);
 
         //point to our vertex buffer
-        //tell OpenGL to use the vertexBuffer to extract the vertices from
+        //bind the GPU-side vertexBuffer so OpenGL extracts the vertices from it
         //@param size = 3 represents number of vertices in the buffer
         //@param what type of data the buffer holds
-        //@param the offset in the array used for the vertices (in this case they follow each other, no extra data stored)
-        //@param the buffer containing the vertices
+        //@param the stride between consecutive vertices
+        //@param the byte offset into the bound buffer where the first vertex starts
         //prepare the triangle coordinate data/pass in the position information
-        GLES20.glVertexAttribPointer(positionHandle, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, vertexStride, vertexBuffer);
+        vertexBuffer.bind();
+        gl.glVertexAttribPointer(positionHandle, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, vertexStride, 0);
 
         //GLES20.glClearColor(0.0f, 0.0f,0.0f,0.5f);
 
-        // clear the color buffer (bitmaps) -- clear screen and depth buffer
-       GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+        // clear the color buffer (bitmaps) -- clear screen and depth buffer. left to the pass, see Square
+       //gl.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
 
         //get fragment shader's vColor member
-        colorHandle = GLES20.glGetUniformLocation(mProgram, "vColor");
+        int colorHandle = program.uniformLocation(U_COLOR);
 
         //set color for triangle -- values of RGB floats are between 0 and 1 inclusif
-        GLES20.glUniform4fv(colorHandle, 1, color, 0);
+        gl.glUniform4fv(colorHandle, 1, color, 0);
 
         //get shape's transformation matrix
-        vPMatrixHandle = GLES20.glGetUniformLocation(mProgram, "uMVPMatrix");
+        int vPMatrixHandle = program.uniformLocation(U_MVP_MATRIX);
 
         //pass projection and view transformation to the shader.
-        GLES20.glUniformMatrix4fv(vPMatrixHandle, 1, false, mvpMatrix, 0);
+        gl.glUniformMatrix4fv(vPMatrixHandle, 1, false, mvpMatrix, 0);
 
         //draw the vertices as a triangle strip
         //tells OpenGL to draw triangle strips found in buffer provided, starting with first element. Also "count" is how many vertices there are
         //GLES20.glDrawArrays(GL10.GL_TRIANGLE_STRIP, 0, triangleCoords.length / COORDS_PER_VERTEX);
 
         //draw triangle -- google version
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, vertexCount);
+        gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, vertexCount);
 
         //disable vertex array (disable client state before leaving)
-        GLES20.glDisableVertexAttribArray(positionHandle);
+        gl.glDisableVertexAttribArray(positionHandle);
+    }
+
+    @Override
+    public int getProgramId() {
+        return program.getProgram();
+    }
+
+    //flat colored, no texture
+    @Override
+    public int getTextureId() {
+        return 0;
+    }
+
+    @Override
+    public boolean isTranslucent() {
+        return false;
     }
 }
 
@@ -0,0 +1,50 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+//hands the newest of a stream of values from one writer thread to one reader thread without locks and without either waiting on the other.
+//three buffers: the writer fills its back buffer and publish() swaps it with the middle one; the reader's update() swaps its front buffer
+//with the middle one if something was published since. each swap is a single getAndSet on the middle slot, which also carries a "fresh" bit,
+//so a buffer is only ever touched by one side at a time and everything written before publish() is visible after the update() that gets it.
+//a writer running ahead just overwrites the middle buffer's turn; the reader always gets the latest complete value, never a torn one.
+public class TripleBuffer<T> {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final Object[] buffers;
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    //owned by the writer and the reader respectively
+    private int back = 0;
+    private int front = 2;
+
+    public TripleBuffer(T first, T second, T third) {
+        buffers = new Object[] {first, second, third};
+    }
+
+    //the writer's buffer; fill it, then publish()
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T) buffers[back];
+    }
+
+    //make the write buffer the latest value, and get a free one to write next
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    //take the latest published value if there's one we haven't seen; true if getReadBuffer() changed
+    public boolean update() {
+        if ((middle.get() & FRESH) == 0) {
+            return false;
+        }
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return true;
+    }
+
+    //the reader's buffer: the latest value as of the last update(). nothing writes it until the reader lets go of it
+    @SuppressWarnings("unchecked")
+    public T getReadBuffer() {
+        return (T) buffers[front];
+    }
+}
@@ -0,0 +1,35 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CameraTest {
+    private static final float EPSILON = 1e-5f;
+
+    @Test
+    public void viewProjectionIsProjectionTimesView() {
+        Camera camera = new Camera();
+        camera.setLookAt(0f, 0f, -7f, 0f, 0f, -1.5f, 0f, 1f, 0f);
+        camera.setFrustum(-1.5f, 1.5f, -1f, 1f, 3f, 7f);
+
+        float[] expected = new float[16];
+        Mat4.multiply(expected, 0, camera.getProjection(), 0, camera.getView(), 0);
+        assertArrayEquals(expected, camera.getViewProjection(), EPSILON);
+    }
+
+    @Test
+    public void viewProjectionOnlyRebuiltAfterChanges() {
+        Camera camera = new Camera();
+        camera.setPerspective(60f, 1f, 1f, 10f);
+        float[] first = camera.getViewProjection().clone();
+        int version = camera.getVersion();
+
+        camera.getViewProjection();
+        assertEquals(version, camera.getVersion());
+
+        camera.setLookAt(0f, 0f, 5f, 0f, 0f, 0f, 0f, 1f, 0f);
+        assertEquals(version + 1, camera.getVersion());
+        assertFalse(first[14] == camera.getViewProjection()[14]);
+    }
+}
@@ -0,0 +1,102 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+//frames per second for 2000 moving squares, with the whole frame on one thread and with it split by a CommandBufferPipeline: the
+//producer culls, multiplies and sorts frame N+1 while this thread replays frame N into FakeGles. with both halves costing about the
+//same, the split should come close to doubling throughput on a machine with a core to spare.
+//benchmarks are skipped by the normal test run; run them with ./gradlew testDebugUnitTest -Pbenchmarks
+public class CommandBufferBenchmark {
+    private static final int SQUARES = 2000;
+    private static final int WARMUP_FRAMES = 300;
+    private static final int FRAMES = 1000;
+
+    private final float[] mvp = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+
+    private static final class Setup {
+        final FrameRenderer frameRenderer;
+        final SceneNode[] nodes = new SceneNode[SQUARES];
+        int frame;
+
+        Setup() {
+            GlStateCache gl = new GlStateCache(new FakeGles());
+            ShaderProgramCache shaders = new ShaderProgramCache(gl);
+            RenderTargetManager targets = new RenderTargetManager(gl, new RenderTargetPool(gl), 1f, RenderTarget.Format.RGBA8888, true);
+            targets.onSurfaceChanged(1080, 2236);
+            frameRenderer = new FrameRenderer(gl, targets, new FrameProfiler());
+            SceneGraph scene = new SceneGraph();
+            for (int i = 0; i < SQUARES; i++) {
+                nodes[i] = new SceneNode(new Square(gl, shaders), 0.15f);
+                scene.getRoot().addChild(nodes[i]);
+            }
+            frameRenderer.setDrawables(scene, new ScreenShader(gl, shaders));
+        }
+
+        //the CPU side of the app's frame: every square gets a new pose
+        void move() {
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i].getTransform().setPosition((i % 50) * 0.04f - 1f + (frame % 10) * 0.001f, (i / 50) * 0.05f - 1f, 0f);
+                nodes[i].getTransform().setRotation(frame + i, 0f, 0f, 1f);
+            }
+            frame++;
+        }
+    }
+
+    @Test
+    public void inlineVersusPipelined() {
+        final Setup inline = new Setup();
+        for (int f = 0; f < WARMUP_FRAMES; f++) {
+            inlineFrame(inline);
+        }
+        long start = System.nanoTime();
+        for (int f = 0; f < FRAMES; f++) {
+            inlineFrame(inline);
+        }
+        long inlineNanos = System.nanoTime() - start;
+
+        final Setup split = new Setup();
+        CommandBufferPipeline pipeline = new CommandBufferPipeline(new CommandBufferPipeline.Producer() {
+            @Override
+            public void produce(CommandBuffer out) {
+                split.move();
+                split.frameRenderer.record(mvp, out);
+            }
+        }, 3, SQUARES);
+        pipeline.start();
+        try {
+            for (int f = 0; f < WARMUP_FRAMES; f++) {
+                pipelinedFrame(split, pipeline);
+            }
+            start = System.nanoTime();
+            for (int f = 0; f < FRAMES; f++) {
+                pipelinedFrame(split, pipeline);
+            }
+        }
+        finally {
+            pipeline.stop();
+        }
+        long pipelinedNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("%d squares on %d cores: %.0f fps inline, %.0f fps pipelined (%.2fx); %s", SQUARES,
+                Runtime.getRuntime().availableProcessors(), FRAMES * 1e9 / inlineNanos, FRAMES * 1e9 / pipelinedNanos,
+                (double) inlineNanos / pipelinedNanos, pipeline.report()));
+        assertEquals(inline.frameRenderer.getFullFrames(), split.frameRenderer.getFullFrames());
+    }
+
+    private void inlineFrame(Setup setup) {
+        setup.move();
+        setup.frameRenderer.beginFrame();
+        setup.frameRenderer.drawFrame(mvp);
+        setup.frameRenderer.endFrame();
+    }
+
+    private void pipelinedFrame(Setup setup, CommandBufferPipeline pipeline) {
+        CommandBuffer frame = pipeline.acquire();
+        setup.frameRenderer.beginFrame();
+        setup.frameRenderer.drawFrame(frame);
+        setup.frameRenderer.endFrame();
+        pipeline.release(frame);
+    }
+}
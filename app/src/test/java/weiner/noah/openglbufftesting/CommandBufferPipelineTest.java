@@ -0,0 +1,183 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CommandBufferPipelineTest {
+    private final float[] viewProjection = new float[16];
+    private CommandBufferPipeline pipeline;
+
+    //records frame numbers into the view-projection matrix, one frame per permit
+    private final class CountingProducer implements CommandBufferPipeline.Producer {
+        final Semaphore permits = new Semaphore(0);
+        volatile int produced;
+
+        @Override
+        public void produce(CommandBuffer out) {
+            try {
+                permits.acquire();
+            }
+            catch (InterruptedException e) {
+                //stop(): let it finish this frame
+                Thread.currentThread().interrupt();
+            }
+            viewProjection[0] = produced++;
+            out.begin(viewProjection);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+    }
+
+    private static void waitFor(CommandBufferPipeline pipeline, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pipeline.getQueuedFrames() < queued) {
+            assertTrue("producer never got there", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void framesComeOutInTheOrderTheyWereRecorded() {
+        CountingProducer producer = new CountingProducer();
+        producer.permits.release(100);
+        pipeline = new CommandBufferPipeline(producer, 3, 4);
+        pipeline.start();
+
+        for (int i = 0; i < 50; i++) {
+            CommandBuffer frame = pipeline.acquire();
+            assertEquals(i, frame.getViewProjection()[0], 0f);
+            pipeline.release(frame);
+        }
+        assertEquals(50, pipeline.getFramesReplayed());
+    }
+
+    @Test
+    public void producerRunsAheadByTheBuffersItHas() throws InterruptedException {
+        CountingProducer producer = new CountingProducer();
+        producer.permits.release(100);
+        pipeline = new CommandBufferPipeline(producer, 3, 4);
+        pipeline.start();
+        waitFor(pipeline, 3);
+
+        //every buffer is recorded and none has come back, so it's stuck there
+        Thread.sleep(20);
+        assertEquals(3, producer.produced);
+
+        pipeline.release(pipeline.acquire());
+        waitFor(pipeline, 3);
+        assertEquals(4, producer.produced);
+    }
+
+    @Test
+    public void stoppedWithNothingRecordedGivesNoFrame() throws InterruptedException {
+        CountingProducer producer = new CountingProducer();
+        pipeline = new CommandBufferPipeline(producer, 2, 4);
+        assertNull(pipeline.acquire());
+
+        //what was recorded before the stop is still there
+        producer.permits.release(2);
+        pipeline.start();
+        waitFor(pipeline, 2);
+        pipeline.stop();
+        assertFalse(pipeline.isRunning());
+        assertNotNull(pipeline.acquire());
+        assertNotNull(pipeline.acquire());
+        assertNull(pipeline.acquire());
+    }
+
+    @Test
+    public void discardDropsRecordedFramesAndFreesTheirBuffers() throws InterruptedException {
+        CountingProducer producer = new CountingProducer();
+        producer.permits.release(2);
+        pipeline = new CommandBufferPipeline(producer, 2, 4);
+        pipeline.start();
+        waitFor(pipeline, 2);
+        pipeline.stop();
+
+        pipeline.discard();
+        assertEquals(0, pipeline.getQueuedFrames());
+
+        //both buffers are back: the producer can record two more
+        producer.permits.release(2);
+        pipeline.start();
+        waitFor(pipeline, 2);
+        assertEquals(2f, pipeline.acquire().getViewProjection()[0], 0f);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void discardWhileRunningThrows() {
+        pipeline = new CommandBufferPipeline(new CountingProducer(), 2, 4);
+        pipeline.start();
+        pipeline.discard();
+    }
+
+    @Test
+    public void pipelinedFramesDrawLikeTheSameFramesInline() {
+        //two identical setups, one drawing inline and one through the pipeline, should redraw the same way frame by frame
+        FakeGles inlineGl = new FakeGles(), pipelinedGl = new FakeGles();
+        SceneNode[] inlineNodes = new SceneNode[2];
+        final SceneNode[] nodes = new SceneNode[2];
+        FrameRenderer inline = frameRenderer(inlineGl, inlineNodes);
+        final FrameRenderer pipelined = frameRenderer(pipelinedGl, nodes);
+        final float[] mvp = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+
+        final int[] recorded = new int[1];
+        pipeline = new CommandBufferPipeline(new CommandBufferPipeline.Producer() {
+            @Override
+            public void produce(CommandBuffer out) {
+                move(nodes[0], recorded[0]++);
+                pipelined.record(mvp, out);
+            }
+        }, 3, 4);
+        pipeline.start();
+
+        for (int frame = 0; frame < 20; frame++) {
+            move(inlineNodes[0], frame);
+            inline.beginFrame();
+            inline.drawFrame(mvp);
+            inline.endFrame();
+
+            CommandBuffer recordedFrame = pipeline.acquire();
+            pipelined.beginFrame();
+            pipelined.drawFrame(recordedFrame);
+            pipelined.endFrame();
+            pipeline.release(recordedFrame);
+        }
+        assertEquals(inline.getFullFrames(), pipelined.getFullFrames());
+        assertEquals(inline.getPartialFrames(), pipelined.getPartialFrames());
+        assertEquals(inlineGl.count(FakeGles.Call.DRAW_ELEMENTS), pipelinedGl.count(FakeGles.Call.DRAW_ELEMENTS));
+        assertEquals(inlineGl.count(FakeGles.Call.SCISSOR), pipelinedGl.count(FakeGles.Call.SCISSOR));
+    }
+
+    //a square that moves only every other frame, next to one that never does
+    private static void move(SceneNode node, int frame) {
+        node.getTransform().setPosition((frame / 2) * 0.01f, 0f, 0f);
+    }
+
+    private static FrameRenderer frameRenderer(FakeGles fake, SceneNode[] nodes) {
+        GlStateCache gl = new GlStateCache(fake);
+        ShaderProgramCache shaders = new ShaderProgramCache(gl);
+        RenderTargetManager targets = new RenderTargetManager(gl, new RenderTargetPool(gl), 1f, RenderTarget.Format.RGBA8888, true);
+        targets.onSurfaceChanged(400, 400);
+        FrameRenderer frameRenderer = new FrameRenderer(gl, targets, new FrameProfiler());
+        frameRenderer.setScreenPreserved(true);
+        SceneGraph scene = new SceneGraph();
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new SceneNode(new Square(gl, shaders), 0.15f);
+            nodes[i].getTransform().setPosition(i * 0.5f - 0.5f, 0f, 0f);
+            scene.getRoot().addChild(nodes[i]);
+        }
+        frameRenderer.setDrawables(scene, new ScreenShader(gl, shaders));
+        return frameRenderer;
+    }
+}
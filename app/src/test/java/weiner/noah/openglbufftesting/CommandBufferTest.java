@@ -0,0 +1,95 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class CommandBufferTest {
+    private final float[] viewProjection = new float[16];
+
+    private static float[] matrices(int n) {
+        float[] m = new float[n * 16];
+        for (int i = 0; i < n; i++) {
+            m[i * 16] = i;
+        }
+        return m;
+    }
+
+    @Test
+    public void drawsAreRecordedInOrderWithACopyOfTheirMatrix() {
+        CommandBuffer buffer = new CommandBuffer(4);
+        buffer.begin(viewProjection);
+        float[] m = matrices(3);
+        FakeRenderable a = new FakeRenderable(), b = new FakeRenderable();
+        buffer.draw(a, m, 32);
+        buffer.draw(b, m, 16);
+        m[32] = 7f;
+
+        assertEquals(2, buffer.getDrawCount());
+        assertSame(a, buffer.getRenderable(0));
+        assertSame(b, buffer.getRenderable(1));
+        assertEquals(2f, buffer.getMatrix(0, 0), 0f);
+        assertEquals(1f, buffer.getMatrix(1, 0), 0f);
+    }
+
+    @Test
+    public void replayDrawsInOrderWithEachDrawsMatrix() {
+        ArrayList<FakeRenderable> log = new ArrayList<>();
+        FakeRenderable a = new FakeRenderable(1, 0, false, log);
+        FakeRenderable b = new FakeRenderable(2, 0, false, log);
+
+        //starts small, so this grows it too
+        CommandBuffer buffer = new CommandBuffer(1);
+        buffer.begin(viewProjection);
+        float[] m = matrices(40);
+        for (int i = 0; i < 40; i++) {
+            buffer.draw(i < 20 ? a : b, m, i * 16);
+        }
+        buffer.replay();
+
+        assertEquals(40, log.size());
+        assertSame(a, log.get(19));
+        assertSame(b, log.get(20));
+        assertEquals(39f, b.lastMvp[0], 0f);
+    }
+
+    @Test
+    public void resetLetsGoOfTheRenderables() {
+        CommandBuffer buffer = new CommandBuffer(2);
+        buffer.begin(viewProjection);
+        buffer.draw(new FakeRenderable(), matrices(1), 0);
+        buffer.getDirtyRegion().markAll();
+        buffer.reset();
+
+        assertEquals(0, buffer.getDrawCount());
+        assertNull(buffer.getRenderable(0));
+        assertTrue(buffer.getDirtyRegion().isEmpty());
+    }
+
+    @Test
+    public void recordedQueueReplaysLikeTheQueueDraws() {
+        ArrayList<FakeRenderable> drawn = new ArrayList<>();
+        ArrayList<FakeRenderable> replayed = new ArrayList<>();
+        RenderQueue queue = new RenderQueue(4);
+        float[] mvp = new float[16];
+        for (int i = 0; i < 10; i++) {
+            mvp[0] = i;
+            FakeRenderable r = new FakeRenderable(1 + i % 3, i % 2, i % 4 == 0, null);
+            queue.submit(RenderQueue.makeKey(0, r.translucent, r.program, r.texture, i), r, mvp);
+        }
+        queue.sort();
+        for (int i = 0; i < queue.size(); i++) {
+            drawn.add((FakeRenderable) queue.getRenderable(i));
+        }
+
+        CommandBuffer buffer = new CommandBuffer(4);
+        buffer.begin(viewProjection);
+        queue.record(buffer);
+        for (int i = 0; i < buffer.getDrawCount(); i++) {
+            replayed.add((FakeRenderable) buffer.getRenderable(i));
+        }
+        assertEquals(drawn, replayed);
+    }
+}
@@ -0,0 +1,50 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DirtyRegionTest {
+    @Test
+    public void growsToCoverEverythingAdded() {
+        DirtyRegion region = new DirtyRegion();
+        assertTrue(region.isEmpty());
+
+        region.add(-0.5f, -0.5f, 0f, 0f);
+        region.add(0.2f, 0.1f, 0.4f, 0.3f);
+        assertEquals(-0.5f, region.getLeft(), 0f);
+        assertEquals(-0.5f, region.getBottom(), 0f);
+        assertEquals(0.4f, region.getRight(), 0f);
+        assertEquals(0.3f, region.getTop(), 0f);
+        assertFalse(region.isFull());
+
+        //clipped to the screen, and anything entirely off it is ignored
+        region.add(2f, 2f, 3f, 3f);
+        assertEquals(0.4f, region.getRight(), 0f);
+        region.add(-5f, -5f, 5f, 5f);
+        assertTrue(region.isFull());
+
+        region.clear();
+        assertTrue(region.isEmpty());
+        assertEquals(0f, region.getArea(), 0f);
+    }
+
+    @Test
+    public void windowBoxIsRoundedOutAndPadded() {
+        DirtyRegion region = new DirtyRegion();
+        region.add(0f, 0f, 0.5f, 0.5f);
+
+        int[] box = new int[4];
+        region.toWindow(100, 200, false, box);
+        assertArrayEquals(new int[] {49, 99, 27, 52}, box);
+
+        //rotated 180 degrees: the top right quadrant's corner lands in the bottom left
+        region.toWindow(100, 200, true, box);
+        assertArrayEquals(new int[] {24, 49, 27, 52}, box);
+
+        //never outside the surface
+        region.markAll();
+        region.toWindow(100, 200, true, box);
+        assertArrayEquals(new int[] {0, 0, 100, 200}, box);
+    }
+}
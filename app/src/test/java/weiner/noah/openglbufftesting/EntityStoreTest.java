@@ -0,0 +1,118 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class EntityStoreTest {
+    private EntityStore store;
+
+    @Before
+    public void setUp() {
+        store = new EntityStore(2);
+    }
+
+    @Test
+    public void handlesSurviveSwapRemoves() {
+        int a = store.create(1f, 0f, 0f);
+        int b = store.create(2f, 0f, 0f);
+        int c = store.create(3f, 0f, 0f);
+        store.setColor(c, 0xff0000ff);
+
+        //c moves into a's place, but its handle still finds it
+        store.remove(a);
+        assertEquals(2, store.getCount());
+        assertEquals(0, store.index(c));
+        assertEquals(3f, store.getX()[store.index(c)], 0f);
+        assertEquals(0xff0000ff, store.getColor(c));
+        assertEquals(c, store.handle(0));
+        assertEquals(2f, store.getX()[store.index(b)], 0f);
+    }
+
+    @Test
+    public void removedHandlesStayDeadWhenTheirSlotIsReused() {
+        int a = store.create(1f, 0f, 0f);
+        store.remove(a);
+        int b = store.create(2f, 0f, 0f);
+
+        assertFalse(store.contains(a));
+        assertTrue(store.contains(b));
+        assertNotEquals(a, b);
+        assertEquals(2f, store.getX()[store.index(b)], 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void usingADeadHandleThrows() {
+        int a = store.create(1f, 0f, 0f);
+        store.remove(a);
+        store.setPosition(a, 0f, 0f, 0f);
+    }
+
+    @Test
+    public void clearKillsEveryHandle() {
+        int a = store.create(1f, 0f, 0f);
+        int b = store.create(2f, 0f, 0f);
+        store.clear();
+
+        assertEquals(0, store.getCount());
+        assertFalse(store.contains(a) || store.contains(b));
+        int c = store.create(3f, 0f, 0f);
+        assertEquals(0, store.index(c));
+    }
+
+    @Test
+    public void instanceDataIsTheTransformsMatrixAndTheColor() {
+        int handle = store.create(1f, 2f, 3f);
+        store.setRotation(handle, 30f);
+        store.setScale(handle, 2f, 0.5f);
+        store.setColor(handle, 0x80102030);
+        store.setTexture(handle, 7);
+
+        Transform expected = new Transform();
+        expected.setPosition(1f, 2f, 3f);
+        expected.setRotation(30f, 0f, 0f, 1f);
+        expected.setScale(2f, 0.5f, 1f);
+
+        assertEquals(1, store.writeInstances());
+        ByteBuffer data = store.getInstanceData();
+        assertEquals(0, data.position());
+        assertEquals(InstancedQuadBatch.INSTANCE_STRIDE, data.remaining());
+        assertEquals(ByteOrder.nativeOrder(), data.order());
+        for (int i = 0; i < 16; i++) {
+            assertEquals(expected.getLocalMatrix()[i], data.getFloat(i * 4), 1e-6f);
+        }
+        assertEquals(QuadBatch.toRgbaBytes(0x80102030), data.getInt(InstancedQuadBatch.COLOR_OFFSET));
+        assertEquals(7, store.getWrittenTexture(0));
+    }
+
+    @Test
+    public void hiddenInstancesAreNotWritten() {
+        int a = store.create(1f, 0f, 0f);
+        int b = store.create(2f, 0f, 0f);
+        int c = store.create(3f, 0f, 0f);
+        store.setFlags(b, EntityStore.HIDDEN);
+        store.setTexture(c, 9);
+
+        assertEquals(2, store.writeInstances());
+        ByteBuffer data = store.getInstanceData();
+        assertEquals(1f, data.getFloat(12 * 4), 0f);
+        assertEquals(3f, data.getFloat(InstancedQuadBatch.INSTANCE_STRIDE + 12 * 4), 0f);
+        assertEquals(9, store.getWrittenTexture(1));
+        assertTrue(store.contains(a));
+    }
+
+    @Test
+    public void wholeStoreLoopsMoveEveryInstance() {
+        int a = store.create(1f, 0f, 0f);
+        int b = store.create(2f, 1f, 0f);
+        store.translateAll(0.5f, -1f, 2f);
+
+        assertEquals(1.5f, store.getX()[store.index(a)], 0f);
+        assertEquals(0f, store.getY()[store.index(b)], 0f);
+        assertEquals(2f, store.getZ()[store.index(b)], 0f);
+    }
+}
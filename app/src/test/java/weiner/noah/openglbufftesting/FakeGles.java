@@ -0,0 +1,630 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//a GL backend for JVM tests: hands out object names, pretends every compile/link succeeds, and counts each call it sees.
+//linking "reflects" the attached sources: every attribute/uniform declaration becomes active, in declaration order.
+//counting goes into a plain int array indexed by Call so the fake itself never allocates on the draw path
+public class FakeGles implements Gles {
+    public enum Call {
+        CREATE_SHADER, SHADER_SOURCE, COMPILE_SHADER, GET_SHADERIV, DELETE_SHADER,
+        CREATE_PROGRAM, ATTACH_SHADER, DETACH_SHADER, LINK_PROGRAM, GET_PROGRAMIV, DELETE_PROGRAM, USE_PROGRAM,
+        GET_ACTIVE_ATTRIB, GET_ACTIVE_UNIFORM, GET_ATTRIB_LOCATION, GET_UNIFORM_LOCATION,
+        UNIFORM, ENABLE_VERTEX_ATTRIB_ARRAY, DISABLE_VERTEX_ATTRIB_ARRAY, VERTEX_ATTRIB_POINTER,
+        DRAW_ARRAYS, DRAW_ELEMENTS, CLEAR, CLEAR_COLOR, ENABLE, DISABLE, BLEND_FUNC, DEPTH_FUNC, DEPTH_MASK,
+        CULL_FACE, FRONT_FACE, HINT, VIEWPORT,
+        GEN_TEXTURES, DELETE_TEXTURES, ACTIVE_TEXTURE, BIND_TEXTURE, TEX_PARAMETER, TEX_IMAGE_2D,
+        GEN_BUFFERS, DELETE_BUFFERS, BIND_BUFFER, BUFFER_DATA, BUFFER_SUB_DATA,
+        GEN_FRAMEBUFFERS, DELETE_FRAMEBUFFERS, BIND_FRAMEBUFFER, FRAMEBUFFER_TEXTURE_2D, CHECK_FRAMEBUFFER_STATUS,
+        GEN_RENDERBUFFERS, DELETE_RENDERBUFFERS, BIND_RENDERBUFFER, RENDERBUFFER_STORAGE, FRAMEBUFFER_RENDERBUFFER,
+        GET_INTEGERV, GET_STRING,
+        TEX_SUB_IMAGE_2D,
+        GEN_QUERIES, DELETE_QUERIES, BEGIN_QUERY, END_QUERY, GET_QUERY_OBJECT,
+        DRAW_ELEMENTS_INSTANCED, VERTEX_ATTRIB_DIVISOR,
+        SCISSOR,
+        FLUSH, FINISH,
+        FENCE_SYNC, CLIENT_WAIT_SYNC, DELETE_SYNC,
+        MAP_BUFFER_RANGE, UNMAP_BUFFER
+    }
+
+    private static final Pattern DECLARATION = Pattern.compile("(attribute|uniform)\\s+(?:(?:lowp|mediump|highp)\\s+)?\\w+\\s+(\\w+)(\\[\\d+\\])?\\s*;");
+
+    private final int[] calls = new int[Call.values().length];
+    private int nextName = 1;
+
+    //flip these to make the next compile/link report failure
+    public boolean failCompile, failLink;
+
+    //or set this to make only the shaders whose source contains it fail to compile
+    public String failCompileOf;
+
+    //the info log of shaders that do compile
+    public String compileWarning = "";
+
+    //bytes handed to glBufferData/glBufferSubData, i.e. what a real driver would have to copy to the GPU
+    public long bufferBytesUploaded;
+
+    //the data of the most recent glBufferSubData, so tests can look at what would have reached the GPU
+    public Buffer lastSubData;
+
+    //what glGetIntegerv/glGetString report; tests tweak these to pretend to be a different device
+    public int maxTextureSize = 4096;
+    public String version = "OpenGL ES 2.0 FakeGles";
+    public String extensions = "";
+
+    //what glGetQueryObjectuiv reports for every query, and what glGetIntegerv says about GL_GPU_DISJOINT_EXT
+    public boolean queryAvailable = true;
+    public int queryResultNanos;
+    public boolean gpuDisjoint;
+
+    //instance count of the last glDrawElementsInstanced, and the current divisor of each attribute location
+    public int lastInstanceCount;
+    public final int[] divisors = new int[16];
+
+    //the last glScissor box (x, y, width, height), and whether GL_SCISSOR_TEST is on
+    public final int[] scissor = new int[4];
+    public boolean scissorTest;
+
+    //what glClientWaitSync reports for every fence when polled (a timeout of 0), and how many fences are created but not yet deleted.
+    //a wait with a timeout always ends signaled, as if the GPU caught up in the meantime
+    public boolean fencesSignaled = true;
+    public int liveFences;
+
+    //the storage handed out by the most recent glMapBufferRange, and the range and access bits it was asked for. one buffer is reused
+    //while it's big enough, so allocation tests don't count the fake's own garbage
+    public ByteBuffer lastMapped;
+    public int lastMapOffset, lastMapLength, lastMapAccess;
+
+    private final Map<Integer, String> shaderSources = new HashMap<>();
+    private final Map<Integer, List<Integer>> attachedShaders = new HashMap<>();
+    private final Map<Integer, List<String>> activeAttribs = new HashMap<>();
+    private final Map<Integer, List<String>> activeUniforms = new HashMap<>();
+
+    //what the last link of program made active, in location order
+    protected List<String> activeAttribNames(int program) {
+        return activeAttribs.get(program);
+    }
+
+    protected List<String> activeUniformNames(int program) {
+        return activeUniforms.get(program);
+    }
+
+    public int count(Call call) {
+        return calls[call.ordinal()];
+    }
+
+    public int totalCalls() {
+        int total = 0;
+        for (int c : calls) {
+            total += c;
+        }
+        return total;
+    }
+
+    public void resetCounts() {
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = 0;
+        }
+    }
+
+    private void record(Call call) {
+        calls[call.ordinal()]++;
+    }
+
+    private void genNames(int n, int[] names, int offset) {
+        for (int i = 0; i < n; i++) {
+            names[offset + i] = nextName++;
+        }
+    }
+
+    @Override
+    public int glCreateShader(int type) {
+        record(Call.CREATE_SHADER);
+        return nextName++;
+    }
+
+    @Override
+    public void glShaderSource(int shader, String source) {
+        record(Call.SHADER_SOURCE);
+        shaderSources.put(shader, source);
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        record(Call.COMPILE_SHADER);
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        record(Call.GET_SHADERIV);
+        params[offset] = pname == GLES20.GL_COMPILE_STATUS && !compileFails(shader) ? 1 : 0;
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader) {
+        return compileFails(shader) ? "ERROR: 0:1: syntax error" : compileWarning;
+    }
+
+    private boolean compileFails(int shader) {
+        String source = shaderSources.get(shader);
+        return failCompile || (failCompileOf != null && source != null && source.contains(failCompileOf));
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        record(Call.DELETE_SHADER);
+        shaderSources.remove(shader);
+    }
+
+    @Override
+    public int glCreateProgram() {
+        record(Call.CREATE_PROGRAM);
+        int program = nextName++;
+        attachedShaders.put(program, new ArrayList<Integer>());
+        return program;
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        record(Call.ATTACH_SHADER);
+        attachedShaders.get(program).add(shader);
+    }
+
+    @Override
+    public void glDetachShader(int program, int shader) {
+        record(Call.DETACH_SHADER);
+        attachedShaders.get(program).remove((Integer) shader);
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        record(Call.LINK_PROGRAM);
+        List<String> attribs = new ArrayList<>();
+        List<String> uniforms = new ArrayList<>();
+        for (int shader : attachedShaders.get(program)) {
+            Matcher m = DECLARATION.matcher(shaderSources.get(shader));
+            while (m.find()) {
+                String name = m.group(3) == null ? m.group(2) : m.group(2) + "[0]";
+                List<String> into = m.group(1).equals("attribute") ? attribs : uniforms;
+                if (!into.contains(name)) {
+                    into.add(name);
+                }
+            }
+        }
+        activeAttribs.put(program, attribs);
+        activeUniforms.put(program, uniforms);
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        record(Call.GET_PROGRAMIV);
+        switch (pname) {
+            case GLES20.GL_ACTIVE_ATTRIBUTES:
+                params[offset] = activeAttribs.get(program).size();
+                break;
+            case GLES20.GL_ACTIVE_UNIFORMS:
+                params[offset] = activeUniforms.get(program).size();
+                break;
+            case GLES20.GL_LINK_STATUS:
+                params[offset] = failLink ? 0 : 1;
+                break;
+            default:
+                params[offset] = 0;
+        }
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        return failLink ? "ERROR: varying v_Color not written" : "";
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        record(Call.DELETE_PROGRAM);
+        attachedShaders.remove(program);
+        activeAttribs.remove(program);
+        activeUniforms.remove(program);
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        record(Call.USE_PROGRAM);
+    }
+
+    @Override
+    public String glGetActiveAttrib(int program, int index, int[] size, int sizeOffset, int[] type, int typeOffset) {
+        record(Call.GET_ACTIVE_ATTRIB);
+        size[sizeOffset] = 1;
+        return activeAttribs.get(program).get(index);
+    }
+
+    @Override
+    public String glGetActiveUniform(int program, int index, int[] size, int sizeOffset, int[] type, int typeOffset) {
+        record(Call.GET_ACTIVE_UNIFORM);
+        size[sizeOffset] = 1;
+        return activeUniforms.get(program).get(index);
+    }
+
+    //locations are the declaration index; attributes and uniforms are separate namespaces just like in GL
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        record(Call.GET_ATTRIB_LOCATION);
+        return activeAttribs.get(program).indexOf(name);
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        record(Call.GET_UNIFORM_LOCATION);
+        List<String> uniforms = activeUniforms.get(program);
+        int location = uniforms.indexOf(name);
+        return location >= 0 ? location : uniforms.indexOf(name + "[0]");
+    }
+
+    @Override
+    public void glUniform1i(int location, int x) {
+        record(Call.UNIFORM);
+    }
+
+    @Override
+    public void glUniform1f(int location, float x) {
+        record(Call.UNIFORM);
+    }
+
+    @Override
+    public void glUniform2f(int location, float x, float y) {
+        record(Call.UNIFORM);
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+        record(Call.UNIFORM);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        record(Call.UNIFORM);
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        record(Call.ENABLE_VERTEX_ATTRIB_ARRAY);
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        record(Call.DISABLE_VERTEX_ATTRIB_ARRAY);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr) {
+        record(Call.VERTEX_ATTRIB_POINTER);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+        record(Call.VERTEX_ATTRIB_POINTER);
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        record(Call.DRAW_ARRAYS);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, Buffer indices) {
+        record(Call.DRAW_ELEMENTS);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        record(Call.DRAW_ELEMENTS);
+    }
+
+    @Override
+    public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+        record(Call.DRAW_ELEMENTS_INSTANCED);
+        lastInstanceCount = instanceCount;
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        record(Call.VERTEX_ATTRIB_DIVISOR);
+        divisors[index] = divisor;
+    }
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        record(Call.GEN_BUFFERS);
+        genNames(n, buffers, offset);
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        record(Call.DELETE_BUFFERS);
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        record(Call.BIND_BUFFER);
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        record(Call.BUFFER_DATA);
+        if (data != null) {
+            bufferBytesUploaded += size;
+        }
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        record(Call.BUFFER_SUB_DATA);
+        bufferBytesUploaded += size;
+        lastSubData = data;
+    }
+
+    @Override
+    public Buffer glMapBufferRange(int target, int offset, int length, int access) {
+        record(Call.MAP_BUFFER_RANGE);
+        bufferBytesUploaded += length;
+        if (lastMapped == null || lastMapped.capacity() < length) {
+            lastMapped = ByteBuffer.allocateDirect(length);
+        }
+        lastMapped.clear().limit(length);
+        lastMapOffset = offset;
+        lastMapLength = length;
+        lastMapAccess = access;
+        return lastMapped;
+    }
+
+    @Override
+    public boolean glUnmapBuffer(int target) {
+        record(Call.UNMAP_BUFFER);
+        return true;
+    }
+
+    @Override
+    public void glClear(int mask) {
+        record(Call.CLEAR);
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        record(Call.CLEAR_COLOR);
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        record(Call.ENABLE);
+        if (cap == GLES20.GL_SCISSOR_TEST) {
+            scissorTest = true;
+        }
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        record(Call.DISABLE);
+        if (cap == GLES20.GL_SCISSOR_TEST) {
+            scissorTest = false;
+        }
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        record(Call.BLEND_FUNC);
+    }
+
+    @Override
+    public void glDepthFunc(int func) {
+        record(Call.DEPTH_FUNC);
+    }
+
+    @Override
+    public void glDepthMask(boolean flag) {
+        record(Call.DEPTH_MASK);
+    }
+
+    @Override
+    public void glCullFace(int mode) {
+        record(Call.CULL_FACE);
+    }
+
+    @Override
+    public void glFrontFace(int mode) {
+        record(Call.FRONT_FACE);
+    }
+
+    @Override
+    public void glHint(int target, int mode) {
+        record(Call.HINT);
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        record(Call.VIEWPORT);
+    }
+
+    @Override
+    public void glScissor(int x, int y, int width, int height) {
+        record(Call.SCISSOR);
+        scissor[0] = x;
+        scissor[1] = y;
+        scissor[2] = width;
+        scissor[3] = height;
+    }
+
+    @Override
+    public void glGenTextures(int n, int[] textures, int offset) {
+        record(Call.GEN_TEXTURES);
+        genNames(n, textures, offset);
+    }
+
+    @Override
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        record(Call.DELETE_TEXTURES);
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        record(Call.ACTIVE_TEXTURE);
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        record(Call.BIND_TEXTURE);
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pname, int param) {
+        record(Call.TEX_PARAMETER);
+    }
+
+    @Override
+    public void glTexParameterf(int target, int pname, float param) {
+        record(Call.TEX_PARAMETER);
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels) {
+        record(Call.TEX_IMAGE_2D);
+    }
+
+    @Override
+    public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels) {
+        record(Call.TEX_SUB_IMAGE_2D);
+    }
+
+    @Override
+    public void glGenFramebuffers(int n, int[] framebuffers, int offset) {
+        record(Call.GEN_FRAMEBUFFERS);
+        genNames(n, framebuffers, offset);
+    }
+
+    @Override
+    public void glDeleteFramebuffers(int n, int[] framebuffers, int offset) {
+        record(Call.DELETE_FRAMEBUFFERS);
+    }
+
+    @Override
+    public void glBindFramebuffer(int target, int framebuffer) {
+        record(Call.BIND_FRAMEBUFFER);
+    }
+
+    @Override
+    public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level) {
+        record(Call.FRAMEBUFFER_TEXTURE_2D);
+    }
+
+    @Override
+    public int glCheckFramebufferStatus(int target) {
+        record(Call.CHECK_FRAMEBUFFER_STATUS);
+        return GLES20.GL_FRAMEBUFFER_COMPLETE;
+    }
+
+    @Override
+    public void glGenRenderbuffers(int n, int[] renderbuffers, int offset) {
+        record(Call.GEN_RENDERBUFFERS);
+        genNames(n, renderbuffers, offset);
+    }
+
+    @Override
+    public void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset) {
+        record(Call.DELETE_RENDERBUFFERS);
+    }
+
+    @Override
+    public void glBindRenderbuffer(int target, int renderbuffer) {
+        record(Call.BIND_RENDERBUFFER);
+    }
+
+    @Override
+    public void glRenderbufferStorage(int target, int internalformat, int width, int height) {
+        record(Call.RENDERBUFFER_STORAGE);
+    }
+
+    @Override
+    public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer) {
+        record(Call.FRAMEBUFFER_RENDERBUFFER);
+    }
+
+    @Override
+    public void glGetIntegerv(int pname, int[] params, int offset) {
+        record(Call.GET_INTEGERV);
+        params[offset] = pname == GLES20.GL_MAX_TEXTURE_SIZE ? maxTextureSize : pname == GpuTimer.GL_GPU_DISJOINT_EXT && gpuDisjoint ? 1 : 0;
+    }
+
+    @Override
+    public String glGetString(int name) {
+        record(Call.GET_STRING);
+        return name == GLES20.GL_VERSION ? version : name == GLES20.GL_EXTENSIONS ? extensions : "fake";
+    }
+
+    @Override
+    public void glGenQueries(int n, int[] ids, int offset) {
+        record(Call.GEN_QUERIES);
+        genNames(n, ids, offset);
+    }
+
+    @Override
+    public void glDeleteQueries(int n, int[] ids, int offset) {
+        record(Call.DELETE_QUERIES);
+    }
+
+    @Override
+    public void glBeginQuery(int target, int id) {
+        record(Call.BEGIN_QUERY);
+    }
+
+    @Override
+    public void glEndQuery(int target) {
+        record(Call.END_QUERY);
+    }
+
+    @Override
+    public void glGetQueryObjectuiv(int id, int pname, int[] params, int offset) {
+        record(Call.GET_QUERY_OBJECT);
+        params[offset] = pname == GLES30.GL_QUERY_RESULT_AVAILABLE ? (queryAvailable ? 1 : 0) : queryResultNanos;
+    }
+
+    @Override
+    public void glFlush() {
+        record(Call.FLUSH);
+    }
+
+    @Override
+    public void glFinish() {
+        record(Call.FINISH);
+    }
+
+    @Override
+    public long glFenceSync(int condition, int flags) {
+        record(Call.FENCE_SYNC);
+        liveFences++;
+        return nextName++;
+    }
+
+    @Override
+    public int glClientWaitSync(long sync, int flags, long timeout) {
+        record(Call.CLIENT_WAIT_SYNC);
+        if (timeout > 0) {
+            return GLES30.GL_CONDITION_SATISFIED;
+        }
+        return fencesSignaled ? GLES30.GL_ALREADY_SIGNALED : GLES30.GL_TIMEOUT_EXPIRED;
+    }
+
+    @Override
+    public void glDeleteSync(long sync) {
+        record(Call.DELETE_SYNC);
+        liveFences--;
+    }
+}
@@ -0,0 +1,48 @@
+package weiner.noah.openglbufftesting;
+
+import java.util.List;
+
+//a Renderable that only records its draws: how many, the last MVP, and (optionally) its place in a shared draw log
+class FakeRenderable implements Renderable {
+    final int program, texture;
+    final boolean translucent;
+    private final List<FakeRenderable> log;
+
+    int draws;
+    final float[] lastMvp = new float[16];
+
+    FakeRenderable() {
+        this(1, 0, false, null);
+    }
+
+    FakeRenderable(int program, int texture, boolean translucent, List<FakeRenderable> log) {
+        this.program = program;
+        this.texture = texture;
+        this.translucent = translucent;
+        this.log = log;
+    }
+
+    @Override
+    public void draw(float[] mvpMatrix) {
+        draws++;
+        System.arraycopy(mvpMatrix, 0, lastMvp, 0, 16);
+        if (log != null) {
+            log.add(this);
+        }
+    }
+
+    @Override
+    public int getProgramId() {
+        return program;
+    }
+
+    @Override
+    public int getTextureId() {
+        return texture;
+    }
+
+    @Override
+    public boolean isTranslucent() {
+        return translucent;
+    }
+}
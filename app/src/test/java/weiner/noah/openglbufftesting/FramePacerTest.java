@@ -0,0 +1,82 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FramePacerTest {
+    private static final long MS = 1_000_000L;
+
+    //time only moves when the test (or a sleep) says so
+    private static class FakeTime implements FrameProfiler.Clock, FramePacer.Sleeper {
+        long now = 1000 * MS;
+        long slept;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public void sleepNanos(long nanos) {
+            now += nanos;
+            slept += nanos;
+        }
+    }
+
+    private FakeTime time;
+    private FramePacer pacer;
+
+    @Before
+    public void setUp() {
+        time = new FakeTime();
+        pacer = new FramePacer(time, time);
+    }
+
+    @Test
+    public void uncappedNeverSleeps() {
+        for (int i = 0; i < 10; i++) {
+            pacer.awaitFrame();
+            time.now += 2 * MS;
+        }
+        assertEquals(0, time.slept);
+        assertEquals(FramePacer.UNCAPPED, pacer.getMaxFps());
+    }
+
+    @Test
+    public void fastFramesAreHeldToTheCap() {
+        pacer.setMaxFps(30);
+        assertEquals(30, pacer.getMaxFps());
+
+        long start = time.now;
+        for (int i = 0; i < 31; i++) {
+            pacer.awaitFrame();
+            time.now += 5 * MS;
+        }
+        //30 intervals between 31 frame starts, give or take the last frame's work
+        assertEquals(1000 * MS, time.now - start - 5 * MS, MS);
+        assertEquals(30, pacer.getThrottledFrames());
+    }
+
+    @Test
+    public void aStallStartsOverInsteadOfCatchingUp() {
+        pacer.setMaxFps(60);
+        pacer.awaitFrame();
+
+        //an idle second, as an on-demand renderer would have
+        time.now += 1000 * MS;
+        pacer.awaitFrame();
+        long slept = time.slept;
+        time.now += 1 * MS;
+
+        //the frame after it still waits out a whole interval
+        pacer.awaitFrame();
+        assertEquals(1_000_000_000L / 60 - MS, time.slept - slept);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCapIsRejected() {
+        pacer.setMaxFps(-1);
+    }
+}
@@ -0,0 +1,135 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameProfilerTest {
+    private static final long MS = 1_000_000L;
+
+    //a clock that only moves when the test says so
+    private static class FakeClock implements FrameProfiler.Clock {
+        long now = 1;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    private FakeClock clock;
+    private FrameProfiler profiler;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        profiler = new FrameProfiler(100, 4, 16 * MS, clock);
+    }
+
+    private void frame(long cpuMs, long intervalMs) {
+        profiler.beginFrame();
+        clock.now += cpuMs * MS;
+        profiler.endFrame();
+        clock.now += (intervalMs - cpuMs) * MS;
+    }
+
+    @Test
+    public void percentilesUseNearestRank() {
+        for (int i = 1; i <= 100; i++) {
+            frame(i, 16);
+        }
+
+        assertEquals(50 * MS, profiler.getPercentileNanos(FrameProfiler.METRIC_FRAME_CPU, 50));
+        assertEquals(95 * MS, profiler.getPercentileNanos(FrameProfiler.METRIC_FRAME_CPU, 95));
+        assertEquals(99 * MS, profiler.getPercentileNanos(FrameProfiler.METRIC_FRAME_CPU, 99));
+        assertEquals(100, profiler.getFrames());
+    }
+
+    @Test
+    public void ringKeepsOnlyTheLatestFrames() {
+        for (int i = 0; i < 100; i++) {
+            frame(50, 60);
+        }
+        for (int i = 0; i < 100; i++) {
+            frame(2, 16);
+        }
+
+        assertEquals(100, profiler.getSampleCount(FrameProfiler.METRIC_FRAME_CPU));
+        assertEquals(2 * MS, profiler.getPercentileNanos(FrameProfiler.METRIC_FRAME_CPU, 99));
+    }
+
+    @Test
+    public void longIntervalsCountAsDroppedFrames() {
+        frame(1, 16);
+        frame(1, 16);
+        //a 48 ms gap is two missed vsyncs
+        frame(1, 48);
+        frame(1, 16);
+        frame(1, 20);
+
+        assertEquals(2, profiler.getDroppedFrames());
+    }
+
+    @Test
+    public void scopesAccumulateWithinAFrame() {
+        int pass = profiler.addScope("pass");
+        profiler.beginFrame();
+        for (int i = 0; i < 3; i++) {
+            profiler.begin(pass);
+            clock.now += 2 * MS;
+            profiler.end(pass);
+            clock.now += MS;
+        }
+        profiler.endFrame();
+
+        assertEquals(1, profiler.getSampleCount(pass));
+        assertEquals(6 * MS, profiler.getPercentileNanos(pass, 50));
+        assertEquals("pass", profiler.getName(pass));
+        assertTrue(profiler.report().contains("pass: p50 6.00 ms"));
+    }
+
+    @Test
+    public void gpuTimesArriveLate() {
+        FakeGles gl = new FakeGles();
+        gl.queryResultNanos = (int) (5 * MS);
+        gl.queryAvailable = false;
+        profiler.setGpuTimer(new GpuTimer(gl, 3));
+
+        frame(1, 16);
+        frame(1, 16);
+        assertEquals(0, profiler.getSampleCount(FrameProfiler.METRIC_GPU));
+
+        gl.queryAvailable = true;
+        frame(1, 16);
+        //one result per frame that finishes; the newest is recorded
+        assertEquals(1, profiler.getSampleCount(FrameProfiler.METRIC_GPU));
+        assertEquals(5 * MS, profiler.getPercentileNanos(FrameProfiler.METRIC_GPU, 50));
+    }
+
+    @Test
+    public void gpuTimerSkipsFramesWhenEveryQueryIsInFlight() {
+        FakeGles gl = new FakeGles();
+        gl.queryAvailable = false;
+        GpuTimer timer = new GpuTimer(gl, 2);
+
+        for (int i = 0; i < 4; i++) {
+            timer.begin();
+            timer.end();
+        }
+
+        assertEquals(2, gl.count(FakeGles.Call.BEGIN_QUERY));
+        assertEquals(2, timer.getSkipped());
+    }
+
+    @Test
+    public void disjointResultsAreDiscarded() {
+        FakeGles gl = new FakeGles();
+        gl.gpuDisjoint = true;
+        GpuTimer timer = new GpuTimer(gl, 2);
+
+        timer.begin();
+        assertEquals(-1, timer.end());
+        assertEquals(1, timer.getDiscarded());
+    }
+}
@@ -0,0 +1,94 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameRendererTest {
+    private final Camera camera = new Camera();
+    private FakeGles fake;
+    private FrameRenderer frameRenderer;
+    private SceneNode node;
+    private FakeRenderable renderable;
+
+    @Before
+    public void setUp() {
+        camera.setLookAt(0f, 0f, 0f, 0f, 0f, -1f, 0f, 1f, 0f);
+        camera.setPerspective(90f, 1f, 1f, 10f);
+
+        fake = new FakeGles();
+        GlStateCache gl = new GlStateCache(fake);
+        RenderTargetManager targets = new RenderTargetManager(gl, new RenderTargetPool(gl), 1f, RenderTarget.Format.RGBA8888, true);
+        targets.onSurfaceChanged(400, 400);
+
+        frameRenderer = new FrameRenderer(gl, targets, new FrameProfiler());
+        SceneGraph scene = new SceneGraph();
+        renderable = new FakeRenderable();
+        node = new SceneNode(renderable, 0.5f);
+        node.getTransform().setPosition(0f, 0f, -5f);
+        scene.getRoot().addChild(node);
+        frameRenderer.setDrawables(scene, new ScreenShader(gl, new ShaderProgramCache(gl)));
+    }
+
+    private void frame() {
+        frameRenderer.beginFrame();
+        frameRenderer.drawFrame(camera.getViewProjection());
+        frameRenderer.endFrame();
+    }
+
+    @Test
+    public void anUnchangedFrameOnlyCopiesTheTargetToTheScreen() {
+        frame();
+        assertEquals(1, frameRenderer.getFullFrames());
+
+        fake.resetCounts();
+        frame();
+        assertEquals(1, frameRenderer.getUnchangedFrames());
+        assertEquals(1, renderable.draws);
+        //the screen pass's quad, nothing else: the back buffer didn't keep last frame
+        assertEquals(1, fake.count(FakeGles.Call.DRAW_ELEMENTS));
+        assertEquals(1, fake.count(FakeGles.Call.CLEAR));
+    }
+
+    @Test
+    public void aPreservedScreenIsLeftAloneWhenNothingChanged() {
+        frameRenderer.setScreenPreserved(true);
+        frame();
+
+        fake.resetCounts();
+        frame();
+        assertEquals(0, fake.count(FakeGles.Call.DRAW_ELEMENTS));
+        assertEquals(0, fake.count(FakeGles.Call.CLEAR));
+    }
+
+    @Test
+    public void aMovedNodeRedrawsBothPassesScissoredToItsRectangles() {
+        frameRenderer.setScreenPreserved(true);
+        frame();
+
+        node.getTransform().setPosition(0.5f, 0f, -5f);
+        frame();
+        assertEquals(1, frameRenderer.getPartialFrames());
+        assertEquals(2, renderable.draws);
+
+        //the last scissor box was the screen pass's: the target's box (from 0 to right of center) rotated 180 degrees, so centered left
+        assertTrue(fake.scissor[0] + fake.scissor[2] / 2 < 200);
+        assertTrue(fake.scissor[2] < 100 && fake.scissor[3] < 100);
+        assertFalse(fake.scissorTest);
+    }
+
+    @Test
+    public void enabledPostPassesRedrawEverything() {
+        GlStateCache gl = new GlStateCache(fake);
+        PostProcessPipeline postProcess = new PostProcessPipeline(gl, new RenderTargetPool(gl), new FrameProfiler());
+        postProcess.addPass(new ColorGradePass());
+        postProcess.init(new ShaderProgramCache(gl));
+        frameRenderer.setPostProcess(postProcess);
+
+        frame();
+        frame();
+        assertEquals(2, frameRenderer.getFullFrames());
+        assertEquals(2, renderable.draws);
+    }
+}
@@ -0,0 +1,41 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrustumTest {
+    private final Frustum frustum = new Frustum();
+
+    @Before
+    public void setUp() {
+        //eye at the origin looking down -z, 90 degree field of view, depth 1..10
+        Camera camera = new Camera();
+        camera.setLookAt(0f, 0f, 0f, 0f, 0f, -1f, 0f, 1f, 0f);
+        camera.setPerspective(90f, 1f, 1f, 10f);
+        frustum.set(camera.getViewProjection(), 0);
+    }
+
+    @Test
+    public void planesAreNormalized() {
+        //5 units in front of the eye is 4 past the near plane and 5 before the far one
+        assertEquals(4f, frustum.distance(Frustum.NEAR, 0f, 0f, -5f), 1e-4f);
+        assertEquals(5f, frustum.distance(Frustum.FAR, 0f, 0f, -5f), 1e-4f);
+    }
+
+    @Test
+    public void spheresAreCulledOnlyWhenFullyOutside() {
+        assertTrue(frustum.intersectsSphere(0f, 0f, -5f, 0.1f));
+
+        //behind the eye, past the far plane, off to either side
+        assertFalse(frustum.intersectsSphere(0f, 0f, 5f, 1f));
+        assertFalse(frustum.intersectsSphere(0f, 0f, -20f, 1f));
+        assertFalse(frustum.intersectsSphere(-10f, 0f, -5f, 1f));
+        assertFalse(frustum.intersectsSphere(0f, 10f, -5f, 1f));
+
+        //straddling the far plane or a side plane still counts
+        assertTrue(frustum.intersectsSphere(0f, 0f, -10.5f, 1f));
+        assertTrue(frustum.intersectsSphere(5.5f, 0f, -5f, 1f));
+    }
+}
@@ -0,0 +1,30 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GlCapabilitiesTest {
+    @Test
+    public void versionIsReadFromTheVersionString() {
+        assertArrayEquals(new int[] {3, 2}, GlCapabilities.parseVersion("OpenGL ES 3.2 V@415.0 (GIT@663be55, I724753c5e3)"));
+        assertArrayEquals(new int[] {2, 0}, GlCapabilities.parseVersion("OpenGL ES 2.0 build 1.13@4926397"));
+        assertArrayEquals(new int[] {2, 0}, GlCapabilities.parseVersion("garbage"));
+        assertArrayEquals(new int[] {2, 0}, GlCapabilities.parseVersion(null));
+    }
+
+    @Test
+    public void timerQueriesNeedEs3AndTheExtension() {
+        FakeGles gl = new FakeGles();
+        gl.version = "OpenGL ES 3.1 FakeGles";
+        gl.extensions = "GL_OES_EGL_image GL_EXT_disjoint_timer_query GL_OES_depth24";
+
+        GlCapabilities caps = GlCapabilities.query(gl);
+        assertTrue(caps.isEs3());
+        assertTrue(caps.supportsTimerQueries());
+        assertEquals(4096, caps.getMaxTextureSize());
+
+        gl.version = "OpenGL ES 2.0 FakeGles";
+        assertFalse(GlCapabilities.query(gl).supportsTimerQueries());
+    }
+}
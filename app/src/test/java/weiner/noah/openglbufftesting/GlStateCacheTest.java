@@ -0,0 +1,147 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GlStateCacheTest {
+    private FakeGles driver;
+    private GlStateCache gl;
+
+    @Before
+    public void setUp() {
+        driver = new FakeGles();
+        gl = new GlStateCache(driver);
+    }
+
+    @Test
+    public void repeatedStateIsForwardedOnce() {
+        for (int i = 0; i < 5; i++) {
+            gl.glUseProgram(3);
+            gl.glEnable(GLES20.GL_BLEND);
+            gl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+            gl.glDisable(GLES20.GL_CULL_FACE);
+            gl.glFrontFace(GLES20.GL_CW);
+            gl.glViewport(0, 0, 1080, 2236);
+        }
+
+        assertEquals(1, driver.count(FakeGles.Call.USE_PROGRAM));
+        assertEquals(1, driver.count(FakeGles.Call.ENABLE));
+        assertEquals(1, driver.count(FakeGles.Call.BLEND_FUNC));
+        assertEquals(1, driver.count(FakeGles.Call.DISABLE));
+        assertEquals(1, driver.count(FakeGles.Call.FRONT_FACE));
+        assertEquals(1, driver.count(FakeGles.Call.VIEWPORT));
+        assertEquals(6, gl.getForwarded());
+        assertEquals(24, gl.getElided());
+    }
+
+    @Test
+    public void realTransitionsAlwaysGoThrough() {
+        gl.glEnable(GLES20.GL_BLEND);
+        gl.glDisable(GLES20.GL_BLEND);
+        gl.glEnable(GLES20.GL_BLEND);
+        gl.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 1);
+        gl.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+
+        assertEquals(2, driver.count(FakeGles.Call.ENABLE));
+        assertEquals(1, driver.count(FakeGles.Call.DISABLE));
+        assertEquals(2, driver.count(FakeGles.Call.BIND_FRAMEBUFFER));
+        assertEquals(0, gl.getElided());
+    }
+
+    @Test
+    public void texturesAreTrackedPerUnit() {
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, 7);
+        gl.glActiveTexture(GLES20.GL_TEXTURE1);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, 7);
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, 7);
+
+        assertEquals(3, driver.count(FakeGles.Call.ACTIVE_TEXTURE));
+        assertEquals(2, driver.count(FakeGles.Call.BIND_TEXTURE));
+    }
+
+    @Test
+    public void deletingABoundTextureRebindsZero() {
+        gl.glActiveTexture(GLES20.GL_TEXTURE0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, 7);
+        gl.glDeleteTextures(1, new int[] {7}, 0);
+
+        //GL already unbound it, so binding 0 is elided but binding a new texture is not
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, 7);
+        assertEquals(2, driver.count(FakeGles.Call.BIND_TEXTURE));
+    }
+
+    @Test
+    public void bufferBindingsAreShadowedPerTarget() {
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 4);
+        gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 4);
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 4);
+        gl.glDeleteBuffers(1, new int[] {4}, 0);
+        gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 4);
+
+        assertEquals(3, driver.count(FakeGles.Call.BIND_BUFFER));
+    }
+
+    @Test
+    public void vertexAttribArraysAreShadowed() {
+        gl.glEnableVertexAttribArray(0);
+        gl.glEnableVertexAttribArray(0);
+        gl.glDisableVertexAttribArray(0);
+        gl.glDisableVertexAttribArray(0);
+
+        assertEquals(1, driver.count(FakeGles.Call.ENABLE_VERTEX_ATTRIB_ARRAY));
+        assertEquals(1, driver.count(FakeGles.Call.DISABLE_VERTEX_ATTRIB_ARRAY));
+    }
+
+    @Test
+    public void invalidateForcesTheNextCallThrough() {
+        gl.glUseProgram(3);
+        gl.invalidate();
+        gl.glUseProgram(3);
+
+        assertEquals(2, driver.count(FakeGles.Call.USE_PROGRAM));
+    }
+
+    @Test
+    public void beginFrameRollsCountersOver() {
+        gl.glUseProgram(3);
+        gl.glUseProgram(3);
+        gl.beginFrame();
+
+        assertEquals(1, gl.getLastFrameForwarded());
+        assertEquals(1, gl.getLastFrameElided());
+        assertEquals(0, gl.getForwarded());
+        assertEquals(2, gl.getTotalForwarded() + gl.getTotalElided());
+    }
+
+    @Test
+    public void steadyStateDrawsSkipRedundantState() {
+        ShaderProgramCache shaders = new ShaderProgramCache(gl);
+        Square square = new Square(gl, shaders);
+        float[] mvp = new float[16];
+
+        square.draw(mvp);
+        driver.resetCounts();
+        gl.beginFrame();
+
+        square.draw(mvp);
+        square.draw(mvp);
+
+        //program, blend, cull, blend func, front face and texture state were all set by the first draw
+        assertEquals(0, driver.count(FakeGles.Call.USE_PROGRAM));
+        assertEquals(0, driver.count(FakeGles.Call.ENABLE));
+        assertEquals(0, driver.count(FakeGles.Call.DISABLE));
+        assertEquals(0, driver.count(FakeGles.Call.BLEND_FUNC));
+        assertEquals(0, driver.count(FakeGles.Call.FRONT_FACE));
+        assertEquals(0, driver.count(FakeGles.Call.ACTIVE_TEXTURE));
+        assertEquals(0, driver.count(FakeGles.Call.BIND_TEXTURE));
+        assertEquals(2, driver.count(FakeGles.Call.DRAW_ELEMENTS));
+        assertTrue(gl.getElided() > 0);
+    }
+}
@@ -0,0 +1,129 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class GlyphCacheTest {
+    //monospace: every glyph is a 8x10 box, 1 pixel right of the pen, with its top 8 above the baseline, advancing 10.
+    //spaces have no ink, and "AV" kerns by -2
+    private static class FakeRasterizer implements GlyphRasterizer {
+        int rasterized;
+
+        @Override
+        public Glyph rasterize(int codePoint) {
+            rasterized++;
+            if (codePoint == ' ') {
+                return new Glyph(0, 0, 0, 0, 10, null);
+            }
+            return new Glyph(8, 10, 1, 8, 10, ByteBuffer.allocate(8 * 10 * 4));
+        }
+
+        @Override
+        public float getKerning(int left, int right) {
+            return left == 'A' && right == 'V' ? -2 : 0;
+        }
+
+        @Override
+        public float getLineHeight() {
+            return 12;
+        }
+    }
+
+    private FakeGles gl;
+    private FakeRasterizer rasterizer;
+    private GlyphCache glyphs;
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        rasterizer = new FakeRasterizer();
+        glyphs = new GlyphCache(new TextureAtlas(gl, 256, 0, 1), rasterizer);
+    }
+
+    @Test
+    public void eachGlyphIsRasterizedOnce() {
+        glyphs.get('A');
+        glyphs.get('A');
+        glyphs.get('B');
+
+        assertEquals(2, rasterizer.rasterized);
+        assertEquals(2, glyphs.getMisses());
+        assertEquals(1, glyphs.getHits());
+    }
+
+    @Test
+    public void layoutAppliesBearingsAdvancesAndKerning() {
+        float[] corners = new float[16];
+        GlyphCache.Entry[] placed = new GlyphCache.Entry[4];
+        int count = TextLayout.layout("AVA", glyphs, 100, 50, corners, placed, 4);
+
+        assertEquals(3, count);
+        //A at pen 100: left 101, bottom 50 + 8 - 10, right 109, top 58
+        assertArrayEquals(new float[] {101, 48, 109, 58}, Arrays.copyOfRange(corners, 0, 4), 0f);
+        //V kerned 2 closer: pen 108
+        assertEquals(109, corners[4], 0f);
+        //second A: pen 118
+        assertEquals(119, corners[8], 0f);
+    }
+
+    @Test
+    public void spacesAdvanceWithoutAQuadAndNewlinesDropALine() {
+        float[] corners = new float[16];
+        GlyphCache.Entry[] placed = new GlyphCache.Entry[4];
+        int count = TextLayout.layout("A B\nC", glyphs, 0, 0, corners, placed, 4);
+
+        assertEquals(3, count);
+        assertEquals(21, corners[4], 0f);
+        //C goes back to x 0, one line height down
+        assertEquals(1, corners[8], 0f);
+        assertEquals(-12 + 8, corners[11], 0f);
+    }
+
+    @Test
+    public void fullAtlasEvictsTheLeastRecentlyUsedGlyph() {
+        //a 20x20 page holds exactly 4 of our 8x10 glyphs
+        glyphs = new GlyphCache(new TextureAtlas(gl, 20, 0, 1), rasterizer);
+        glyphs.get('A');
+        glyphs.get('B');
+        glyphs.get('C');
+        glyphs.get('D');
+        glyphs.get('A');
+        int generation = glyphs.getGeneration();
+
+        glyphs.get('E');
+
+        assertEquals(1, glyphs.getEvictions());
+        assertEquals(generation + 1, glyphs.getGeneration());
+        //B was the least recently used, A was touched again
+        int before = rasterizer.rasterized;
+        glyphs.get('A');
+        assertEquals(before, rasterizer.rasterized);
+        glyphs.get('B');
+        assertEquals(before + 1, rasterizer.rasterized);
+    }
+
+    @Test
+    public void changingTextOnlyUpdatesTheVertexBuffer() {
+        glyphs = new GlyphCache(new TextureAtlas(gl, 64, 0, 1), rasterizer);
+        TextMesh mesh = new TextMesh(gl, new ShaderProgramCache(gl), glyphs, 32);
+        mesh.setText("NOSHAKE", 0, 0, 0xffffffff);
+        gl.resetCounts();
+
+        mesh.setText("SHAKEN", 0, 0, 0xffffffff);
+        assertEquals(1, gl.count(FakeGles.Call.BUFFER_SUB_DATA));
+        assertEquals(0, gl.count(FakeGles.Call.TEX_SUB_IMAGE_2D));
+        assertEquals(6, mesh.getGlyphCount());
+
+        mesh.setText("SHAKEN", 0, 0, 0xffffffff);
+        assertEquals(1, gl.count(FakeGles.Call.BUFFER_SUB_DATA));
+        assertEquals(2, mesh.getRebuilds());
+
+        mesh.draw(new float[16]);
+        assertEquals(1, gl.count(FakeGles.Call.DRAW_ELEMENTS));
+    }
+}
@@ -0,0 +1,88 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class GpuBufferTest {
+    private FakeGles gl;
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+    }
+
+    @Test
+    public void interleavesPositionsAndTexCoords() {
+        float[] positions = {1, 2, 3, 4, 5, 6};
+        float[] texCoords = {0.1f, 0.2f, 0.3f, 0.4f};
+
+        float[] interleaved = QuadMesh.interleave(positions, texCoords);
+
+        assertArrayEquals(new float[] {1, 2, 3, 0.1f, 0.2f, 4, 5, 6, 0.3f, 0.4f}, interleaved, 0f);
+        assertEquals(20, QuadMesh.STRIDE);
+        assertEquals(12, QuadMesh.TEX_COORD_OFFSET);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mismatchedVertexCountsAreRejected() {
+        QuadMesh.interleave(new float[6], new float[6]);
+    }
+
+    @Test
+    public void updateMustFitInsideTheAllocation() {
+        GpuBuffer buffer = new GpuBuffer(gl, GLES20.GL_ARRAY_BUFFER, GpuBuffer.Usage.DYNAMIC);
+        buffer.allocate(64);
+
+        buffer.update(48, ByteBuffer.allocateDirect(16), 16);
+        assertEquals(1, gl.count(FakeGles.Call.BUFFER_SUB_DATA));
+
+        try {
+            buffer.update(56, ByteBuffer.allocateDirect(16), 16);
+            fail("update past the end should throw");
+        }
+        catch (IndexOutOfBoundsException expected) {
+            assertEquals(1, gl.count(FakeGles.Call.BUFFER_SUB_DATA));
+        }
+    }
+
+    @Test
+    public void geometryIsUploadedOnceNotPerDraw() {
+        ShaderProgramCache shaders = new ShaderProgramCache(gl);
+        Square square = new Square(gl, shaders);
+        ScreenShader screenShader = new ScreenShader(gl, shaders);
+        Triangle triangle = new Triangle(gl, shaders);
+        long uploadedAtCreation = gl.bufferBytesUploaded;
+        float[] mvp = new float[16];
+
+        //two quads of 4 interleaved vertices + 6 indices, one triangle of 3 positions
+        assertEquals(2 * (4 * QuadMesh.STRIDE + 6 * 2) + 9 * 4, uploadedAtCreation);
+
+        for (int frame = 0; frame < 10; frame++) {
+            square.draw(mvp);
+            screenShader.draw(mvp);
+            triangle.draw(mvp);
+        }
+
+        assertEquals(uploadedAtCreation, gl.bufferBytesUploaded);
+        //every glBufferData happened at creation time: 2 buffers per quad and 1 for the triangle
+        assertEquals(5, gl.count(FakeGles.Call.BUFFER_DATA));
+    }
+
+    @Test
+    public void releaseDeletesTheBufferOnce() {
+        GpuBuffer buffer = GpuBuffer.indices(gl, new short[] {0, 1, 2}, GpuBuffer.Usage.STATIC);
+        assertEquals(6, buffer.getSizeBytes());
+
+        buffer.release();
+        buffer.release();
+
+        assertEquals(1, gl.count(FakeGles.Call.DELETE_BUFFERS));
+        assertEquals(0, buffer.getName());
+    }
+}
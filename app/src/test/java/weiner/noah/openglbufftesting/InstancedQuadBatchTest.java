@@ -0,0 +1,166 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InstancedQuadBatchTest {
+    private FakeGles gl;
+    private ShaderProgramCache shaders;
+    private final float[] identity = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        shaders = new ShaderProgramCache(gl);
+    }
+
+    private QuadDrawer create(String version, String extensions) {
+        gl.version = version;
+        gl.extensions = extensions;
+        return InstancedQuadBatch.create(gl, shaders, GlCapabilities.query(gl), 100);
+    }
+
+    @Test
+    public void es3GetsTheInstancedPath() {
+        assertTrue(create("OpenGL ES 3.0 FakeGles", "") instanceof InstancedQuadBatch);
+    }
+
+    @Test
+    public void es2FallsBackToTheCpuBatchEvenWithTheExtension() {
+        assertTrue(create("OpenGL ES 2.0 FakeGles", "") instanceof QuadBatch);
+
+        QuadDrawer drawer = create("OpenGL ES 2.0 FakeGles", GlCapabilities.EXT_INSTANCED_ARRAYS);
+        assertTrue(drawer instanceof QuadBatch);
+        assertTrue(GlCapabilities.query(gl).hasInstancedArrays());
+        assertFalse(GlCapabilities.query(gl).supportsInstancing());
+    }
+
+    @Test
+    public void quadsSharingATextureAreOneInstancedDraw() {
+        QuadDrawer drawer = create("OpenGL ES 3.2 FakeGles", "");
+        gl.resetCounts();
+
+        drawer.begin(identity);
+        for (int i = 0; i < 80; i++) {
+            drawer.add(7, identity, 0xffffffff);
+        }
+        drawer.add(8, identity, 0xffffffff);
+        drawer.end();
+
+        assertEquals(2, gl.count(FakeGles.Call.DRAW_ELEMENTS_INSTANCED));
+        assertEquals(0, gl.count(FakeGles.Call.DRAW_ELEMENTS));
+        assertEquals(1, gl.lastInstanceCount);
+        assertEquals(2, drawer.getDrawCalls());
+        assertEquals(81, drawer.getQuadsDrawn());
+    }
+
+    @Test
+    public void instanceDataIsTheMatrixAndColor() {
+        QuadDrawer drawer = create("OpenGL ES 3.0 FakeGles", "");
+        float[] model = new float[16];
+        for (int i = 0; i < 16; i++) {
+            model[i] = i + 0.5f;
+        }
+
+        drawer.begin(identity);
+        drawer.add(7, model, 0xff102030);
+        drawer.end();
+
+        //ES 3.0 streams it through a mapping
+        for (int i = 0; i < 16; i++) {
+            assertEquals(model[i], gl.lastMapped.getFloat(i * 4), 0f);
+        }
+        assertEquals(QuadBatch.toRgbaBytes(0xff102030), gl.lastMapped.getInt(16 * 4));
+    }
+
+    @Test
+    public void divisorsAreResetAfterEachDraw() {
+        QuadDrawer drawer = create("OpenGL ES 3.0 FakeGles", "");
+        drawer.begin(identity);
+        drawer.add(7, identity, 0xffffffff);
+        drawer.end();
+
+        assertTrue(gl.count(FakeGles.Call.VERTEX_ATTRIB_DIVISOR) > 0);
+        for (int divisor : gl.divisors) {
+            assertEquals(0, divisor);
+        }
+    }
+
+    @Test
+    public void entityStoresStreamThroughTheRingAndDrawPerTextureRun() {
+        InstancedQuadBatch batch = (InstancedQuadBatch) create("OpenGL ES 3.0 FakeGles", "");
+        EntityStore entities = new EntityStore(16);
+        for (int i = 0; i < 10; i++) {
+            entities.setTexture(entities.create(i, 0f, 0f), i < 6 ? 7 : 8);
+        }
+        gl.resetCounts();
+
+        batch.begin(identity);
+        batch.add(5, identity, 0xffffffff);
+        batch.draw(entities);
+        batch.end();
+
+        //the pending add() first, then the store's two runs out of one write further along the same ring, with nothing orphaned
+        StreamingBufferRing ring = batch.getInstanceStream();
+        assertEquals(3, gl.count(FakeGles.Call.DRAW_ELEMENTS_INSTANCED));
+        assertEquals(2, gl.count(FakeGles.Call.MAP_BUFFER_RANGE));
+        assertEquals(InstancedQuadBatch.INSTANCE_STRIDE, gl.lastMapOffset);
+        assertEquals(10 * InstancedQuadBatch.INSTANCE_STRIDE, gl.lastMapLength);
+        assertEquals(0, gl.count(FakeGles.Call.BUFFER_DATA));
+        assertEquals(0, gl.count(FakeGles.Call.BUFFER_SUB_DATA));
+        assertEquals(11L * InstancedQuadBatch.INSTANCE_STRIDE, ring.getBytesStreamed());
+        assertEquals(0, entities.getInstanceData().position());
+        assertEquals(4, gl.lastInstanceCount);
+        assertEquals(11, batch.getQuadsDrawn());
+        for (int divisor : gl.divisors) {
+            assertEquals(0, divisor);
+        }
+    }
+
+    @Test
+    public void entityStoresBiggerThanTheRingGoInRingSizedWrites() {
+        //a ring of 2 * RING_FLUSHES = 8 instances
+        InstancedQuadBatch batch = new InstancedQuadBatch(gl, shaders, 2);
+        EntityStore entities = new EntityStore(16);
+        for (int i = 0; i < 10; i++) {
+            entities.setTexture(entities.create(i, 0f, 0f), 7);
+        }
+        gl.resetCounts();
+
+        batch.begin(identity);
+        batch.draw(entities);
+        batch.end();
+
+        //8 instances at the front, then the last 2 after one wrap
+        StreamingBufferRing ring = batch.getInstanceStream();
+        assertEquals(2, gl.count(FakeGles.Call.DRAW_ELEMENTS_INSTANCED));
+        assertEquals(2, gl.count(FakeGles.Call.BUFFER_SUB_DATA));
+        assertEquals(2, gl.lastInstanceCount);
+        assertEquals(10, batch.getQuadsDrawn());
+        assertEquals(10L * InstancedQuadBatch.INSTANCE_STRIDE, ring.getBytesStreamed());
+        assertEquals(1, ring.getWraps());
+        assertEquals(0, entities.getInstanceData().position());
+    }
+
+    @Test
+    public void flushesGoToSuccessiveStretchesOfTheRing() {
+        InstancedQuadBatch batch = new InstancedQuadBatch(gl, shaders, 10);
+        gl.resetCounts();
+
+        //a texture change per quad: a flush per quad, each one further along the ring and none orphaning it
+        batch.begin(identity);
+        for (int i = 0; i < 3; i++) {
+            batch.add(7 + i, identity, 0xffffffff);
+        }
+        batch.end();
+
+        StreamingBufferRing ring = batch.getInstanceStream();
+        assertEquals(StreamingBufferRing.Mode.ORPHAN, ring.getMode());
+        assertEquals(3, gl.count(FakeGles.Call.BUFFER_SUB_DATA));
+        assertEquals(0, gl.count(FakeGles.Call.BUFFER_DATA));
+        assertEquals(3L * InstancedQuadBatch.INSTANCE_STRIDE, ring.getBytesStreamed());
+        assertEquals(1, ring.getFrames());
+    }
+}
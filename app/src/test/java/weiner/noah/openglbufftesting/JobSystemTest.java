@@ -0,0 +1,108 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class JobSystemTest {
+    private JobSystem jobs = new JobSystem(4);
+
+    @After
+    public void tearDown() {
+        jobs.shutdown();
+    }
+
+    @Test
+    public void everyIndexRunsExactlyOnce() {
+        final int[] runs = new int[10_000];
+        for (int round = 0; round < 20; round++) {
+            jobs.parallelFor(runs.length, 16, new JobSystem.Job() {
+                @Override
+                public void run(int chunk, int from, int to) {
+                    for (int i = from; i < to; i++) {
+                        runs[i]++;
+                    }
+                }
+            });
+        }
+        int[] expected = new int[runs.length];
+        Arrays.fill(expected, 20);
+        assertArrayEquals(expected, runs);
+    }
+
+    @Test
+    public void chunksAreTheSameRangesEveryTime() {
+        final int count = 1000;
+        final int[] from = new int[jobs.getMaxChunks()], to = new int[jobs.getMaxChunks()];
+        int chunks = jobs.parallelFor(count, 10, new JobSystem.Job() {
+            @Override
+            public void run(int chunk, int start, int end) {
+                from[chunk] = start;
+                to[chunk] = end;
+            }
+        });
+
+        assertEquals(jobs.getMaxChunks(), chunks);
+        assertEquals(0, from[0]);
+        assertEquals(count, to[chunks - 1]);
+        for (int c = 0; c < chunks; c++) {
+            assertEquals(count * c / chunks, from[c]);
+            assertEquals(count * (c + 1) / chunks, to[c]);
+            assertTrue(to[c] - from[c] >= 10);
+        }
+    }
+
+    @Test
+    public void smallRangesAreNotSplit() {
+        assertEquals(0, jobs.chunkCount(0, 100));
+        assertEquals(1, jobs.chunkCount(150, 100));
+        assertEquals(3, jobs.chunkCount(300, 100));
+        assertEquals(jobs.getMaxChunks(), jobs.chunkCount(1_000_000, 100));
+
+        final Thread caller = Thread.currentThread();
+        final Thread[] ranOn = new Thread[1];
+        jobs.parallelFor(50, 100, new JobSystem.Job() {
+            @Override
+            public void run(int chunk, int from, int to) {
+                ranOn[0] = Thread.currentThread();
+            }
+        });
+        assertSame(caller, ranOn[0]);
+    }
+
+    @Test
+    public void oneWorkerRunsEverythingOnTheCallingThread() {
+        jobs.shutdown();
+        jobs = new JobSystem(1);
+        final Thread caller = Thread.currentThread();
+        final int[] chunks = new int[1];
+        jobs.parallelFor(10_000, 1, new JobSystem.Job() {
+            @Override
+            public void run(int chunk, int from, int to) {
+                assertSame(caller, Thread.currentThread());
+                chunks[0]++;
+            }
+        });
+        assertEquals(JobSystem.CHUNKS_PER_WORKER, chunks[0]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void aFailingChunkFailsTheCall() {
+        jobs.parallelFor(1000, 1, new JobSystem.Job() {
+            @Override
+            public void run(int chunk, int from, int to) {
+                if (chunk == 3) {
+                    throw new IllegalStateException("chunk 3");
+                }
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsAWorker() {
+        new JobSystem(0);
+    }
+}
@@ -0,0 +1,105 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+//Mat4 against the android.opengl.Matrix-style code it replaces (ReferenceMatrix), on the JVM.
+//results are summed into a sink so the JIT can't drop the work. numbers only compare the two on the same machine; ART will differ.
+//benchmarks are skipped by the normal test run; run them with ./gradlew testDebugUnitTest -Pbenchmarks
+public class Mat4Benchmark {
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 2_000_000;
+
+    private float sink;
+
+    @Test
+    public void multiplyVsReference() {
+        float[] a = new float[16], b = new float[16], r = new float[16];
+        for (int i = 0; i < 16; i++) {
+            a[i] = i * 0.25f;
+            b[i] = 1f - i * 0.125f;
+        }
+
+        for (int i = 0; i < WARMUP; i++) {
+            ReferenceMatrix.multiplyMM(r, 0, a, 0, b, 0);
+            Mat4.multiply(r, 0, a, 0, b, 0);
+            Mat4.multiplyAffine(r, 0, a, 0, b, 0);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            b[0] = i;
+            ReferenceMatrix.multiplyMM(r, 0, a, 0, b, 0);
+            sink += r[0];
+        }
+        long reference = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            b[0] = i;
+            Mat4.multiply(r, 0, a, 0, b, 0);
+            sink += r[0];
+        }
+        long general = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            b[0] = i;
+            Mat4.multiplyAffine(r, 0, a, 0, b, 0);
+            sink += r[0];
+        }
+        long affine = System.nanoTime() - start;
+
+        System.out.println(String.format("multiplyMM loop: %.1f ns, Mat4.multiply: %.1f ns, Mat4.multiplyAffine: %.1f ns (sink %f)",
+                (double) reference / ITERATIONS, (double) general / ITERATIONS, (double) affine / ITERATIONS, sink));
+    }
+
+    @Test
+    public void squareMatrixPerFrame() {
+        float[] projection = new float[16];
+        ReferenceMatrix.frustumM(projection, 0, -1.6f, 1.6f, -1f, 1f, 3f, 7f);
+        float[] view = new float[16], model = new float[16], rotation = new float[16], temp = new float[16], old = new float[16];
+
+        Camera camera = new Camera();
+        camera.setFrustum(-1.6f, 1.6f, -1f, 1f, 3f, 7f);
+        camera.setLookAt(0f, 0f, -7f, 0f, 0f, -1.5f, 0f, 1f, 0f);
+        Transform square = new Transform();
+        square.setRotation(180, 0, 0, 1);
+        float[] modelView = new float[16], mvp = new float[16];
+
+        for (int i = 0; i < WARMUP; i++) {
+            float posTrans = (i % 4000) / 4000f * 0.1f;
+            ReferenceMatrix.squareMvp(old, projection, view, model, rotation, temp, posTrans);
+            cachedMvp(mvp, camera, square, modelView, posTrans);
+            if (i % 1000 == 0) {
+                assertArrayEquals(old, mvp, 1e-5f);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            ReferenceMatrix.squareMvp(old, projection, view, model, rotation, temp, (i % 4000) / 4000f * 0.1f);
+            sink += old[12];
+        }
+        long reference = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            cachedMvp(mvp, camera, square, modelView, (i % 4000) / 4000f * 0.1f);
+            sink += mvp[12];
+        }
+        long cached = System.nanoTime() - start;
+
+        System.out.println(String.format("square MVP per frame: Matrix chain %.1f ns, Camera/Transform %.1f ns (sink %f)",
+                (double) reference / ITERATIONS, (double) cached / ITERATIONS, sink));
+        assertTrue(cached < reference);
+    }
+
+    //what onDrawFrame does now
+    private static void cachedMvp(float[] out, Camera camera, Transform square, float[] modelView, float posTrans) {
+        square.setPosition(0.9f - posTrans, 1.8f, 0);
+        Mat4.multiplyAffine(modelView, 0, square.getWorldMatrix(), 0, camera.getView(), 0);
+        Mat4.multiply(out, 0, camera.getProjection(), 0, modelView, 0);
+    }
+}
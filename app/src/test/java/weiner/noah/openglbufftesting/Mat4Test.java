@@ -0,0 +1,101 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Mat4Test {
+    private static final float EPSILON = 1e-4f;
+
+    private final Random random = new Random(42);
+
+    private float[] randomMatrix() {
+        float[] m = new float[16];
+        for (int i = 0; i < 16; i++) {
+            m[i] = random.nextFloat() * 4f - 2f;
+        }
+        return m;
+    }
+
+    private float[] randomAffine() {
+        float[] m = randomMatrix();
+        m[3] = 0f;
+        m[7] = 0f;
+        m[11] = 0f;
+        m[15] = 1f;
+        return m;
+    }
+
+    @Test
+    public void multiplyMatchesReference() {
+        for (int n = 0; n < 100; n++) {
+            //offsets on both sides, as the API allows
+            float[] a = new float[20], b = new float[20];
+            System.arraycopy(randomMatrix(), 0, a, 4, 16);
+            System.arraycopy(randomMatrix(), 0, b, 2, 16);
+
+            float[] expected = new float[16], actual = new float[17];
+            ReferenceMatrix.multiplyMM(expected, 0, a, 4, b, 2);
+            Mat4.multiply(actual, 1, a, 4, b, 2);
+            for (int i = 0; i < 16; i++) {
+                assertEquals(expected[i], actual[i + 1], EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void affineMultiplyMatchesGeneralOnAffineInputs() {
+        for (int n = 0; n < 100; n++) {
+            float[] a = randomAffine(), b = randomAffine();
+            float[] expected = new float[16], actual = new float[16];
+            Mat4.multiply(expected, 0, a, 0, b, 0);
+            Mat4.multiplyAffine(actual, 0, a, 0, b, 0);
+            assertArrayEquals(expected, actual, EPSILON);
+        }
+    }
+
+    @Test
+    public void buildersMatchReference() {
+        float[] expected = new float[16], actual = new float[16];
+
+        ReferenceMatrix.setLookAtM(expected, 0, 1f, 2f, -7f, 0.5f, 0f, -1.5f, 0.1f, 1f, 0f);
+        Mat4.setLookAt(actual, 0, 1f, 2f, -7f, 0.5f, 0f, -1.5f, 0.1f, 1f, 0f);
+        assertArrayEquals(expected, actual, EPSILON);
+
+        ReferenceMatrix.frustumM(expected, 0, -1.6f, 1.6f, -1f, 1f, 3f, 7f);
+        Mat4.setFrustum(actual, 0, -1.6f, 1.6f, -1f, 1f, 3f, 7f);
+        assertArrayEquals(expected, actual, EPSILON);
+
+        ReferenceMatrix.setRotateM(expected, 0, 37f, 1f, 2f, 3f);
+        Mat4.setRotate(actual, 0, 37f, 1f, 2f, 3f);
+        assertArrayEquals(expected, actual, EPSILON);
+
+        ReferenceMatrix.setIdentityM(expected, 0);
+        ReferenceMatrix.translateM(expected, 0, 0.3f, -2f, 5f);
+        Mat4.setIdentity(actual, 0);
+        Mat4.translate(actual, 0, 0.3f, -2f, 5f);
+        assertArrayEquals(expected, actual, EPSILON);
+    }
+
+    @Test
+    public void transformPointAppliesRotationThenTranslation() {
+        float[] m = new float[16];
+        Mat4.setIdentity(m, 0);
+        Mat4.translate(m, 0, 1f, 2f, 3f);
+        float[] rotation = new float[16];
+        Mat4.setRotate(rotation, 0, 90f, 0f, 0f, 1f);
+        float[] both = new float[16];
+        Mat4.multiplyAffine(both, 0, m, 0, rotation, 0);
+
+        float[] out = new float[3];
+        Mat4.transformPoint(out, 0, both, 0, 1f, 0f, 0f);
+        assertArrayEquals(new float[]{1f, 3f, 3f}, out, EPSILON);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroRotationAxisThrows() {
+        Mat4.setRotate(new float[16], 0, 45f, 0f, 0f, 0f);
+    }
+}
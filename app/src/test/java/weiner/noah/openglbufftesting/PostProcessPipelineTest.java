@@ -0,0 +1,136 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PostProcessPipelineTest {
+    private FakeGles gl;
+    private RenderTargetPool pool;
+    private FrameProfiler profiler;
+    private PostProcessPipeline pipeline;
+    private RenderTarget scene;
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        pool = new RenderTargetPool(gl);
+        profiler = new FrameProfiler();
+        pipeline = new PostProcessPipeline(gl, pool, profiler);
+        scene = pool.acquire(800, 600, RenderTarget.Format.RGBA8888, true);
+    }
+
+    private RenderTarget frame() {
+        profiler.beginFrame();
+        RenderTarget result = pipeline.apply(scene);
+        pipeline.endFrame();
+        profiler.endFrame();
+        return result;
+    }
+
+    @Test
+    public void disabledPassesAreSkippedWithoutACopy() {
+        pipeline.addPass(new ColorGradePass()).setEnabled(false);
+        pipeline.addPass(BlurPass.horizontal()).setEnabled(false);
+        pipeline.init(new ShaderProgramCache(gl));
+        gl.resetCounts();
+
+        assertSame(scene, frame());
+        assertEquals(0, pipeline.getPassesRun());
+        assertEquals(0, gl.count(FakeGles.Call.DRAW_ELEMENTS));
+        assertEquals(0, gl.count(FakeGles.Call.BIND_FRAMEBUFFER));
+        assertEquals(1, pool.getCreated());
+    }
+
+    @Test
+    public void sameShapePassesPingPongBetweenTwoTargets() {
+        pipeline.addPass(BlurPass.horizontal());
+        pipeline.addPass(BlurPass.vertical());
+        pipeline.addPass(new ColorGradePass());
+        pipeline.init(new ShaderProgramCache(gl));
+        gl.resetCounts();
+
+        RenderTarget result = frame();
+        assertNotSame(scene, result);
+        assertEquals(3, pipeline.getPassesRun());
+        assertEquals(3, gl.count(FakeGles.Call.DRAW_ELEMENTS));
+        //the scene target plus a pair for the passes
+        assertEquals(3, pool.getCreated());
+
+        //and the next frames get the same pair back
+        for (int i = 0; i < 10; i++) {
+            frame();
+        }
+        assertEquals(3, pool.getCreated());
+        assertEquals(1, pool.getLiveCount());
+    }
+
+    @Test
+    public void disablingAPassMidChainLetsTheNextReadItsInput() {
+        pipeline.addPass(BlurPass.horizontal());
+        BlurPass middle = pipeline.addPass(BlurPass.vertical());
+        pipeline.addPass(new ColorGradePass());
+        pipeline.init(new ShaderProgramCache(gl));
+
+        middle.setEnabled(false);
+        gl.resetCounts();
+        frame();
+        assertEquals(2, pipeline.getPassesRun());
+        assertEquals(2, gl.count(FakeGles.Call.DRAW_ELEMENTS));
+    }
+
+    @Test
+    public void downsampleHalvesTheTargetAndLaterPassesFollow() {
+        pipeline.addPass(new DownsamplePass());
+        pipeline.addPass(BlurPass.horizontal());
+        pipeline.init(new ShaderProgramCache(gl));
+
+        profiler.beginFrame();
+        RenderTarget result = pipeline.apply(scene);
+        assertEquals(400, result.getWidth());
+        assertEquals(300, result.getHeight());
+        assertFalse(result.hasDepth());
+        assertEquals(RenderTarget.Format.RGBA8888, result.getFormat());
+
+        //held until the screen pass is done with it
+        assertEquals(2, pool.getLiveCount());
+        pipeline.endFrame();
+        profiler.endFrame();
+        assertEquals(1, pool.getLiveCount());
+    }
+
+    @Test
+    public void everyPassGetsAProfilerScope() {
+        pipeline.addPass(new StabilizationPass());
+        pipeline.addPass(new DownsamplePass());
+        pipeline.init(new ShaderProgramCache(gl));
+
+        for (int i = 0; i < 5; i++) {
+            frame();
+        }
+        //the three built-in metrics come first
+        assertEquals("post: stabilization", profiler.getName(FrameProfiler.METRIC_GPU + 1));
+        assertEquals("post: downsample", profiler.getName(FrameProfiler.METRIC_GPU + 2));
+        assertEquals(5, profiler.getSampleCount(FrameProfiler.METRIC_GPU + 1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void passesNeedInitBeforeApply() {
+        pipeline.addPass(new ColorGradePass());
+        pipeline.apply(scene);
+    }
+
+    @Test
+    public void invalidateDropsTheHeldTargetWithoutReleasingIt() {
+        pipeline.addPass(new ColorGradePass());
+        pipeline.init(new ShaderProgramCache(gl));
+        pipeline.apply(scene);
+
+        pipeline.invalidate();
+        pool.invalidate();
+        gl.resetCounts();
+        pipeline.endFrame();
+        assertEquals(0, gl.count(FakeGles.Call.DELETE_TEXTURES));
+    }
+}
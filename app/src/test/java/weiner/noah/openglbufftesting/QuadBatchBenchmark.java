@@ -0,0 +1,167 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+//N separate Square.draw() calls vs. the same N quads through one QuadBatch (and through InstancedQuadBatch), against FakeGles behind
+//the state cache. and N moving quads kept as objects with a Transform each vs. kept in an EntityStore.
+//this measures what we control on the CPU side (Java work plus the number of GL calls we make), not GPU time.
+//benchmarks are skipped by the normal test run; run them with ./gradlew testDebugUnitTest -Pbenchmarks
+public class QuadBatchBenchmark {
+    private static final int QUADS = 2000;
+    private static final int WARMUP_FRAMES = 50;
+    private static final int FRAMES = 200;
+    //the EntityStore's loops take a lot longer than the rest to be fully compiled
+    private static final int STORE_WARMUP_FRAMES = 1000;
+    //the two sides of transformObjectsVsEntityStore take turns this many times, and each keeps its best round, so a GC or a
+    //recompile landing in one round doesn't decide the comparison
+    private static final int STORE_ROUNDS = 10;
+
+    private final float[] mvp = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+
+    @Test
+    public void squareDrawsVsOneBatch() {
+        FakeGles squareDriver = new FakeGles();
+        GlStateCache squareGl = new GlStateCache(squareDriver);
+        Square square = new Square(squareGl, new ShaderProgramCache(squareGl));
+
+        FakeGles batchDriver = new FakeGles();
+        GlStateCache batchGl = new GlStateCache(batchDriver);
+        QuadBatch batch = new QuadBatch(batchGl, new ShaderProgramCache(batchGl), QUADS);
+
+        for (int f = 0; f < WARMUP_FRAMES; f++) {
+            drawSquares(square);
+            drawBatch(batch);
+        }
+        squareDriver.resetCounts();
+        batchDriver.resetCounts();
+        batch.resetStats();
+
+        long start = System.nanoTime();
+        for (int f = 0; f < FRAMES; f++) {
+            drawSquares(square);
+        }
+        long squareNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int f = 0; f < FRAMES; f++) {
+            drawBatch(batch);
+        }
+        long batchNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Square.draw x%d: %.1f us/frame, %d GL calls/frame, %d draws/frame",
+                QUADS, squareNanos / 1000.0 / FRAMES, squareDriver.totalCalls() / FRAMES, squareDriver.count(FakeGles.Call.DRAW_ELEMENTS) / FRAMES));
+        System.out.println(String.format("QuadBatch x%d:   %.1f us/frame, %d GL calls/frame, %d draws/frame, %.0f quads/draw",
+                QUADS, batchNanos / 1000.0 / FRAMES, batchDriver.totalCalls() / FRAMES, batch.getDrawCalls() / FRAMES, batch.getQuadsPerDraw()));
+
+        assertEquals(1, batch.getDrawCalls() / FRAMES);
+        assertTrue(batchDriver.totalCalls() < squareDriver.totalCalls());
+    }
+
+    @Test
+    public void cpuBatchVsInstanced() {
+        FakeGles batchDriver = new FakeGles();
+        QuadDrawer batch = new QuadBatch(batchDriver, new ShaderProgramCache(batchDriver), QUADS);
+        FakeGles instancedDriver = new FakeGles();
+        QuadDrawer instanced = new InstancedQuadBatch(instancedDriver, new ShaderProgramCache(instancedDriver), QUADS);
+
+        for (int f = 0; f < WARMUP_FRAMES; f++) {
+            drawBatch(batch);
+            drawBatch(instanced);
+        }
+        batchDriver.bufferBytesUploaded = 0;
+        instancedDriver.bufferBytesUploaded = 0;
+
+        long start = System.nanoTime();
+        for (int f = 0; f < FRAMES; f++) {
+            drawBatch(batch);
+        }
+        long batchNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int f = 0; f < FRAMES; f++) {
+            drawBatch(instanced);
+        }
+        long instancedNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("QuadBatch x%d:          %.1f us/frame, %d bytes uploaded/frame",
+                QUADS, batchNanos / 1000.0 / FRAMES, batchDriver.bufferBytesUploaded / FRAMES));
+        System.out.println(String.format("InstancedQuadBatch x%d: %.1f us/frame, %d bytes uploaded/frame",
+                QUADS, instancedNanos / 1000.0 / FRAMES, instancedDriver.bufferBytesUploaded / FRAMES));
+        System.out.println(((InstancedQuadBatch) instanced).getInstanceStream().report());
+
+        assertTrue(instancedDriver.bufferBytesUploaded < batchDriver.bufferBytesUploaded);
+    }
+
+    @Test
+    public void transformObjectsVsEntityStore() {
+        FakeGles driver = new FakeGles();
+        InstancedQuadBatch instanced = new InstancedQuadBatch(driver, new ShaderProgramCache(driver), QUADS);
+        Transform[] transforms = new Transform[QUADS];
+        EntityStore entities = new EntityStore(QUADS);
+        for (int i = 0; i < QUADS; i++) {
+            transforms[i] = new Transform();
+            transforms[i].setPosition(i * 0.01f, 0f, 0f);
+            transforms[i].setRotation(i, 0f, 0f, 1f);
+            entities.setRotation(entities.create(i * 0.01f, 0f, 0f), i);
+        }
+
+        for (int f = 0; f < STORE_WARMUP_FRAMES; f++) {
+            drawTransforms(instanced, transforms, f);
+            drawEntities(instanced, entities, f);
+        }
+
+        long objectNanos = Long.MAX_VALUE, storeNanos = Long.MAX_VALUE;
+        for (int round = 0; round < STORE_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int f = 0; f < FRAMES; f++) {
+                drawTransforms(instanced, transforms, f);
+            }
+            objectNanos = Math.min(objectNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int f = 0; f < FRAMES; f++) {
+                drawEntities(instanced, entities, f);
+            }
+            storeNanos = Math.min(storeNanos, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format("Transform objects x%d: %.1f us/frame", QUADS, objectNanos / 1000.0 / FRAMES));
+        System.out.println(String.format("EntityStore x%d:       %.1f us/frame (%.2fx the objects' time)", QUADS,
+                storeNanos / 1000.0 / FRAMES, (double) storeNanos / objectNanos));
+        assertEquals(QUADS, entities.getWrittenCount());
+    }
+
+    private void drawTransforms(InstancedQuadBatch batch, Transform[] transforms, int frame) {
+        float dx = (frame & 1) == 0 ? 0.01f : -0.01f;
+        batch.begin(mvp);
+        for (Transform transform : transforms) {
+            float[] m = transform.getLocalMatrix();
+            transform.setPosition(m[12] + dx, m[13], m[14]);
+            batch.add(1, transform.getLocalMatrix(), 0xffffffff);
+        }
+        batch.end();
+    }
+
+    private void drawEntities(InstancedQuadBatch batch, EntityStore entities, int frame) {
+        entities.translateAll((frame & 1) == 0 ? 0.01f : -0.01f, 0f, 0f);
+        batch.begin(mvp);
+        batch.draw(entities);
+        batch.end();
+    }
+
+    private void drawSquares(Square square) {
+        for (int i = 0; i < QUADS; i++) {
+            square.draw(mvp);
+        }
+    }
+
+    private void drawBatch(QuadDrawer batch) {
+        batch.begin(mvp);
+        for (int i = 0; i < QUADS; i++) {
+            batch.add(1, mvp, 0xffffffff);
+        }
+        batch.end();
+    }
+}
@@ -0,0 +1,102 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import static org.junit.Assert.*;
+
+public class QuadBatchTest {
+    private FakeGles gl;
+    private QuadBatch batch;
+    private final float[] identity = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        batch = new QuadBatch(gl, new ShaderProgramCache(gl), 100);
+        gl.resetCounts();
+    }
+
+    @Test
+    public void quadsSharingATextureAreOneDraw() {
+        batch.begin(identity);
+        for (int i = 0; i < 50; i++) {
+            batch.add(7, identity, 0xffffffff);
+        }
+        batch.end();
+
+        assertEquals(1, gl.count(FakeGles.Call.DRAW_ELEMENTS));
+        assertEquals(1, batch.getDrawCalls());
+        assertEquals(50, batch.getQuadsDrawn());
+        assertEquals(50f, batch.getQuadsPerDraw(), 0f);
+    }
+
+    @Test
+    public void textureChangeFlushes() {
+        batch.begin(identity);
+        batch.add(7, identity, 0xffffffff);
+        batch.add(7, identity, 0xffffffff);
+        batch.add(8, identity, 0xffffffff);
+        batch.add(7, identity, 0xffffffff);
+        batch.end();
+
+        assertEquals(3, batch.getDrawCalls());
+        assertEquals(4, batch.getQuadsDrawn());
+    }
+
+    @Test
+    public void fullBatchFlushesOnItsOwn() {
+        batch.begin(identity);
+        for (int i = 0; i < 250; i++) {
+            batch.add(7, identity, 0xffffffff);
+        }
+        assertEquals(2, batch.getDrawCalls());
+        assertEquals(50, batch.getPendingQuads());
+        batch.end();
+
+        assertEquals(3, batch.getDrawCalls());
+        assertEquals(250, batch.getQuadsDrawn());
+    }
+
+    @Test
+    public void cornersAreTransformedOnTheCpu() {
+        float[] translate = identity.clone();
+        translate[12] = 5;
+        translate[13] = -2;
+
+        batch.begin(identity);
+        batch.add(7, translate, 0, 0, 1, 1, 0, 0, 1, 1, 0xff000000);
+        batch.end();
+
+        IntBuffer data = (IntBuffer) gl.lastSubData;
+        //first vertex is the top left corner: (0, 1) moved by (5, -2), texcoord (0, 0)
+        assertEquals(5f, Float.intBitsToFloat(data.get(0)), 0f);
+        assertEquals(-1f, Float.intBitsToFloat(data.get(1)), 0f);
+        assertEquals(0f, Float.intBitsToFloat(data.get(3)), 0f);
+        assertEquals(0f, Float.intBitsToFloat(data.get(4)), 0f);
+        //third vertex is the bottom right corner with texcoord (1, 1)
+        assertEquals(6f, Float.intBitsToFloat(data.get(12)), 0f);
+        assertEquals(-2f, Float.intBitsToFloat(data.get(13)), 0f);
+        assertEquals(1f, Float.intBitsToFloat(data.get(15)), 0f);
+        assertEquals(1f, Float.intBitsToFloat(data.get(16)), 0f);
+    }
+
+    @Test
+    public void colorsArePackedAsRgbaBytes() {
+        int packed = QuadBatch.toRgbaBytes(0x80112233);
+        if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+            assertEquals(0x80332211, packed);
+        }
+        else {
+            assertEquals(0x11223380, packed);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addOutsideBeginIsAnError() {
+        batch.add(7, identity, 0xffffffff);
+    }
+}
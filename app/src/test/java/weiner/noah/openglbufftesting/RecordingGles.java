@@ -0,0 +1,1159 @@
+package weiner.noah.openglbufftesting;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+//a Gles that writes every call into a compact binary command stream before passing it on, so a frame's GL traffic can be compared
+//against a golden stream, diffed between two versions of a draw path, or counted per call. behind a GlStateCache it records what
+//would reach the driver.
+//a command is one opcode byte (Op's ordinal) followed by its arguments, big endian, as Op's signature lists them:
+//
+//  i int, f float, z boolean (1 byte), j long
+//  S string: length, then a 64 bit FNV-1a hash of the chars
+//  B buffer: remaining bytes (-1 for null), then a 64 bit FNV-1a hash of them
+//  F float array, I int array: element count, then the elements
+//
+//outputs (generated names, queried values) and return values aren't recorded; they're the delegate's business. the stream grows as
+//needed and is reused after reset(), so recording steady state frames doesn't allocate.
+public class RecordingGles extends ForwardingGles {
+    public enum Op {
+        CREATE_SHADER("glCreateShader", "i"),
+        SHADER_SOURCE("glShaderSource", "iS"),
+        COMPILE_SHADER("glCompileShader", "i"),
+        GET_SHADERIV("glGetShaderiv", "ii"),
+        GET_SHADER_INFO_LOG("glGetShaderInfoLog", "i"),
+        DELETE_SHADER("glDeleteShader", "i"),
+        CREATE_PROGRAM("glCreateProgram", ""),
+        ATTACH_SHADER("glAttachShader", "ii"),
+        DETACH_SHADER("glDetachShader", "ii"),
+        LINK_PROGRAM("glLinkProgram", "i"),
+        GET_PROGRAMIV("glGetProgramiv", "ii"),
+        GET_PROGRAM_INFO_LOG("glGetProgramInfoLog", "i"),
+        DELETE_PROGRAM("glDeleteProgram", "i"),
+        USE_PROGRAM("glUseProgram", "i"),
+        GET_ACTIVE_ATTRIB("glGetActiveAttrib", "ii"),
+        GET_ACTIVE_UNIFORM("glGetActiveUniform", "ii"),
+        GET_ATTRIB_LOCATION("glGetAttribLocation", "iS"),
+        GET_UNIFORM_LOCATION("glGetUniformLocation", "iS"),
+        UNIFORM1I("glUniform1i", "ii"),
+        UNIFORM1F("glUniform1f", "if"),
+        UNIFORM2F("glUniform2f", "iff"),
+        UNIFORM4FV("glUniform4fv", "iiF"),
+        UNIFORM_MATRIX4FV("glUniformMatrix4fv", "iizF"),
+        ENABLE_VERTEX_ATTRIB_ARRAY("glEnableVertexAttribArray", "i"),
+        DISABLE_VERTEX_ATTRIB_ARRAY("glDisableVertexAttribArray", "i"),
+        VERTEX_ATTRIB_POINTER_CLIENT("glVertexAttribPointer", "iiiziB"),
+        VERTEX_ATTRIB_POINTER("glVertexAttribPointer", "iiizii"),
+        DRAW_ARRAYS("glDrawArrays", "iii"),
+        DRAW_ELEMENTS_CLIENT("glDrawElements", "iiiB"),
+        DRAW_ELEMENTS("glDrawElements", "iiii"),
+        VERTEX_ATTRIB_DIVISOR("glVertexAttribDivisor", "ii"),
+        DRAW_ELEMENTS_INSTANCED("glDrawElementsInstanced", "iiiii"),
+        GEN_BUFFERS("glGenBuffers", "i"),
+        DELETE_BUFFERS("glDeleteBuffers", "iI"),
+        BIND_BUFFER("glBindBuffer", "ii"),
+        BUFFER_DATA("glBufferData", "iiBi"),
+        BUFFER_SUB_DATA("glBufferSubData", "iiiB"),
+        CLEAR("glClear", "i"),
+        CLEAR_COLOR("glClearColor", "ffff"),
+        ENABLE("glEnable", "i"),
+        DISABLE("glDisable", "i"),
+        BLEND_FUNC("glBlendFunc", "ii"),
+        DEPTH_FUNC("glDepthFunc", "i"),
+        DEPTH_MASK("glDepthMask", "z"),
+        CULL_FACE("glCullFace", "i"),
+        FRONT_FACE("glFrontFace", "i"),
+        HINT("glHint", "ii"),
+        VIEWPORT("glViewport", "iiii"),
+        SCISSOR("glScissor", "iiii"),
+        GEN_TEXTURES("glGenTextures", "i"),
+        DELETE_TEXTURES("glDeleteTextures", "iI"),
+        ACTIVE_TEXTURE("glActiveTexture", "i"),
+        BIND_TEXTURE("glBindTexture", "ii"),
+        TEX_PARAMETERI("glTexParameteri", "iii"),
+        TEX_PARAMETERF("glTexParameterf", "iif"),
+        TEX_IMAGE2_D("glTexImage2D", "iiiiiiiiB"),
+        TEX_SUB_IMAGE2_D("glTexSubImage2D", "iiiiiiiiB"),
+        GEN_FRAMEBUFFERS("glGenFramebuffers", "i"),
+        DELETE_FRAMEBUFFERS("glDeleteFramebuffers", "iI"),
+        BIND_FRAMEBUFFER("glBindFramebuffer", "ii"),
+        FRAMEBUFFER_TEXTURE2_D("glFramebufferTexture2D", "iiiii"),
+        CHECK_FRAMEBUFFER_STATUS("glCheckFramebufferStatus", "i"),
+        GEN_RENDERBUFFERS("glGenRenderbuffers", "i"),
+        DELETE_RENDERBUFFERS("glDeleteRenderbuffers", "iI"),
+        BIND_RENDERBUFFER("glBindRenderbuffer", "ii"),
+        RENDERBUFFER_STORAGE("glRenderbufferStorage", "iiii"),
+        FRAMEBUFFER_RENDERBUFFER("glFramebufferRenderbuffer", "iiii"),
+        GET_INTEGERV("glGetIntegerv", "i"),
+        GET_STRING("glGetString", "i"),
+        GEN_QUERIES("glGenQueries", "i"),
+        DELETE_QUERIES("glDeleteQueries", "iI"),
+        BEGIN_QUERY("glBeginQuery", "ii"),
+        END_QUERY("glEndQuery", "i"),
+        GET_QUERY_OBJECTUIV("glGetQueryObjectuiv", "ii"),
+        FLUSH("glFlush", ""),
+        FINISH("glFinish", ""),
+        FENCE_SYNC("glFenceSync", "ii"),
+        CLIENT_WAIT_SYNC("glClientWaitSync", "jij"),
+        DELETE_SYNC("glDeleteSync", "j"),
+        MAP_BUFFER_RANGE("glMapBufferRange", "iiii"),
+        UNMAP_BUFFER("glUnmapBuffer", "i");
+
+        public final String glName;
+        public final String signature;
+
+        Op(String glName, String signature) {
+            this.glName = glName;
+            this.signature = signature;
+        }
+    }
+
+    private static final Op[] OPS = Op.values();
+
+    private byte[] stream = new byte[4096];
+    private int size;
+    private int commands;
+    private final int[] counts = new int[OPS.length];
+    private boolean recording = true;
+
+    public RecordingGles(Gles delegate) {
+        super(delegate);
+    }
+
+    //stop (or start again) recording without taking the recorder out of the chain; calls still go through
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    //forget everything recorded so far, keeping the storage
+    public void reset() {
+        size = 0;
+        commands = 0;
+        Arrays.fill(counts, 0);
+    }
+
+    //the stream recorded since the last reset()
+    public byte[] toByteArray() {
+        return Arrays.copyOf(stream, size);
+    }
+
+    //bytes recorded
+    public int size() {
+        return size;
+    }
+
+    public int getCommandCount() {
+        return commands;
+    }
+
+    public int count(Op op) {
+        return counts[op.ordinal()];
+    }
+
+    private boolean begin(Op op) {
+        if (!recording) {
+            return false;
+        }
+        counts[op.ordinal()]++;
+        commands++;
+        ensure(1);
+        stream[size++] = (byte) op.ordinal();
+        return true;
+    }
+
+    private void ensure(int bytes) {
+        if (size + bytes > stream.length) {
+            stream = Arrays.copyOf(stream, Math.max(stream.length * 2, size + bytes));
+        }
+    }
+
+    private void putInt(int v) {
+        ensure(4);
+        stream[size++] = (byte) (v >>> 24);
+        stream[size++] = (byte) (v >>> 16);
+        stream[size++] = (byte) (v >>> 8);
+        stream[size++] = (byte) v;
+    }
+
+    private void putLong(long v) {
+        putInt((int) (v >>> 32));
+        putInt((int) v);
+    }
+
+    private void putFloat(float v) {
+        putInt(Float.floatToRawIntBits(v));
+    }
+
+    private void putBoolean(boolean v) {
+        ensure(1);
+        stream[size++] = (byte) (v ? 1 : 0);
+    }
+
+    private void putString(String s) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        putInt(s.length());
+        putLong(h);
+    }
+
+    private void putFloats(float[] v, int offset, int n) {
+        putInt(n);
+        for (int i = 0; i < n; i++) {
+            putFloat(v[offset + i]);
+        }
+    }
+
+    private void putInts(int[] v, int offset, int n) {
+        putInt(n);
+        for (int i = 0; i < n; i++) {
+            putInt(v[offset + i]);
+        }
+    }
+
+    //the buffer's remaining contents, position to limit, hashed a byte at a time in the order the driver reads them.
+    //absolute gets, so the buffer's position is left alone
+    private void putBuffer(Buffer data) {
+        if (data == null) {
+            putInt(-1);
+            putLong(0);
+            return;
+        }
+        long h = FNV_OFFSET;
+        int bytes;
+        if (data instanceof ByteBuffer) {
+            ByteBuffer b = (ByteBuffer) data;
+            for (int i = b.position(); i < b.limit(); i++) {
+                h = (h ^ (b.get(i) & 0xff)) * FNV_PRIME;
+            }
+            bytes = b.remaining();
+        }
+        else if (data instanceof FloatBuffer) {
+            FloatBuffer b = (FloatBuffer) data;
+            for (int i = b.position(); i < b.limit(); i++) {
+                h = hashInt(h, Float.floatToRawIntBits(b.get(i)));
+            }
+            bytes = b.remaining() * 4;
+        }
+        else if (data instanceof IntBuffer) {
+            IntBuffer b = (IntBuffer) data;
+            for (int i = b.position(); i < b.limit(); i++) {
+                h = hashInt(h, b.get(i));
+            }
+            bytes = b.remaining() * 4;
+        }
+        else if (data instanceof ShortBuffer) {
+            ShortBuffer b = (ShortBuffer) data;
+            for (int i = b.position(); i < b.limit(); i++) {
+                short s = b.get(i);
+                h = (h ^ ((s >>> 8) & 0xff)) * FNV_PRIME;
+                h = (h ^ (s & 0xff)) * FNV_PRIME;
+            }
+            bytes = b.remaining() * 2;
+        }
+        else {
+            throw new IllegalArgumentException(String.format("Can't record a %s", data.getClass().getSimpleName()));
+        }
+        putInt(bytes);
+        putLong(h);
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static long hashInt(long h, int v) {
+        h = (h ^ ((v >>> 24) & 0xff)) * FNV_PRIME;
+        h = (h ^ ((v >>> 16) & 0xff)) * FNV_PRIME;
+        h = (h ^ ((v >>> 8) & 0xff)) * FNV_PRIME;
+        return (h ^ (v & 0xff)) * FNV_PRIME;
+    }
+
+    //a recorded stream as text, one command per line like "glViewport(0, 0, 1080, 2236)"; strings and buffers show as their size and hash
+    public static String disassemble(byte[] stream) {
+        StringBuilder out = new StringBuilder();
+        Reader in = new Reader(stream);
+        while (in.hasMore()) {
+            out.append(in.next()).append('\n');
+        }
+        return out.toString();
+    }
+
+    //index of the first command that differs between two streams, or -1 if they're the same
+    public static int firstDifference(byte[] a, byte[] b) {
+        Reader ra = new Reader(a);
+        Reader rb = new Reader(b);
+        for (int i = 0; ; i++) {
+            if (!ra.hasMore() || !rb.hasMore()) {
+                return ra.hasMore() == rb.hasMore() ? -1 : i;
+            }
+            int startA = ra.at, startB = rb.at;
+            ra.skip();
+            rb.skip();
+            if (ra.at - startA != rb.at - startB) {
+                return i;
+            }
+            for (int k = 0; k < ra.at - startA; k++) {
+                if (a[startA + k] != b[startB + k]) {
+                    return i;
+                }
+            }
+        }
+    }
+
+    //the index-th command of a stream as disassemble() prints it, or null past the end
+    public static String command(byte[] stream, int index) {
+        Reader in = new Reader(stream);
+        for (int i = 0; i < index && in.hasMore(); i++) {
+            in.skip();
+        }
+        return in.hasMore() ? in.next() : null;
+    }
+
+    //walks a stream command by command
+    private static final class Reader {
+        final byte[] stream;
+        int at;
+
+        Reader(byte[] stream) {
+            this.stream = stream;
+        }
+
+        boolean hasMore() {
+            return at < stream.length;
+        }
+
+        int readInt() {
+            int v = ((stream[at] & 0xff) << 24) | ((stream[at + 1] & 0xff) << 16) | ((stream[at + 2] & 0xff) << 8) | (stream[at + 3] & 0xff);
+            at += 4;
+            return v;
+        }
+
+        long readLong() {
+            long high = readInt() & 0xffffffffL;
+            return (high << 32) | (readInt() & 0xffffffffL);
+        }
+
+        Op readOp() {
+            int op = stream[at++] & 0xff;
+            if (op >= OPS.length) {
+                throw new IllegalArgumentException(String.format("Not a command stream: opcode %d at byte %d", op, at - 1));
+            }
+            return OPS[op];
+        }
+
+        void skip() {
+            next();
+        }
+
+        String next() {
+            Op op = readOp();
+            StringBuilder out = new StringBuilder(op.glName).append('(');
+            for (int i = 0; i < op.signature.length(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                switch (op.signature.charAt(i)) {
+                    case 'i':
+                        out.append(readInt());
+                        break;
+                    case 'f':
+                        out.append(Float.intBitsToFloat(readInt()));
+                        break;
+                    case 'z':
+                        out.append(stream[at++] != 0);
+                        break;
+                    case 'j':
+                        out.append(readLong());
+                        break;
+                    case 'S':
+                        out.append(String.format("string[%d] %016x", readInt(), readLong()));
+                        break;
+                    case 'B': {
+                        int bytes = readInt();
+                        long hash = readLong();
+                        out.append(bytes < 0 ? "null" : String.format("buffer[%d] %016x", bytes, hash));
+                        break;
+                    }
+                    case 'F': {
+                        int n = readInt();
+                        out.append('{');
+                        for (int k = 0; k < n; k++) {
+                            out.append(k > 0 ? ", " : "").append(Float.intBitsToFloat(readInt()));
+                        }
+                        out.append('}');
+                        break;
+                    }
+                    case 'I': {
+                        int n = readInt();
+                        out.append('{');
+                        for (int k = 0; k < n; k++) {
+                            out.append(k > 0 ? ", " : "").append(readInt());
+                        }
+                        out.append('}');
+                        break;
+                    }
+                    default:
+                        throw new IllegalStateException(String.format("Bad signature %s for %s", op.signature, op.glName));
+                }
+            }
+            return out.append(')').toString();
+        }
+    }
+
+    @Override
+    public int glCreateShader(int type) {
+        if (begin(Op.CREATE_SHADER)) {
+            putInt(type);
+        }
+        return delegate.glCreateShader(type);
+    }
+
+    @Override
+    public void glShaderSource(int shader, String source) {
+        if (begin(Op.SHADER_SOURCE)) {
+            putInt(shader);
+            putString(source);
+        }
+        delegate.glShaderSource(shader, source);
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        if (begin(Op.COMPILE_SHADER)) {
+            putInt(shader);
+        }
+        delegate.glCompileShader(shader);
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        if (begin(Op.GET_SHADERIV)) {
+            putInt(shader);
+            putInt(pname);
+        }
+        delegate.glGetShaderiv(shader, pname, params, offset);
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader) {
+        if (begin(Op.GET_SHADER_INFO_LOG)) {
+            putInt(shader);
+        }
+        return delegate.glGetShaderInfoLog(shader);
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        if (begin(Op.DELETE_SHADER)) {
+            putInt(shader);
+        }
+        delegate.glDeleteShader(shader);
+    }
+
+    @Override
+    public int glCreateProgram() {
+        begin(Op.CREATE_PROGRAM);
+        return delegate.glCreateProgram();
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        if (begin(Op.ATTACH_SHADER)) {
+            putInt(program);
+            putInt(shader);
+        }
+        delegate.glAttachShader(program, shader);
+    }
+
+    @Override
+    public void glDetachShader(int program, int shader) {
+        if (begin(Op.DETACH_SHADER)) {
+            putInt(program);
+            putInt(shader);
+        }
+        delegate.glDetachShader(program, shader);
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        if (begin(Op.LINK_PROGRAM)) {
+            putInt(program);
+        }
+        delegate.glLinkProgram(program);
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        if (begin(Op.GET_PROGRAMIV)) {
+            putInt(program);
+            putInt(pname);
+        }
+        delegate.glGetProgramiv(program, pname, params, offset);
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        if (begin(Op.GET_PROGRAM_INFO_LOG)) {
+            putInt(program);
+        }
+        return delegate.glGetProgramInfoLog(program);
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        if (begin(Op.DELETE_PROGRAM)) {
+            putInt(program);
+        }
+        delegate.glDeleteProgram(program);
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        if (begin(Op.USE_PROGRAM)) {
+            putInt(program);
+        }
+        delegate.glUseProgram(program);
+    }
+
+    @Override
+    public String glGetActiveAttrib(int program, int index, int[] size, int sizeOffset, int[] type, int typeOffset) {
+        if (begin(Op.GET_ACTIVE_ATTRIB)) {
+            putInt(program);
+            putInt(index);
+        }
+        return delegate.glGetActiveAttrib(program, index, size, sizeOffset, type, typeOffset);
+    }
+
+    @Override
+    public String glGetActiveUniform(int program, int index, int[] size, int sizeOffset, int[] type, int typeOffset) {
+        if (begin(Op.GET_ACTIVE_UNIFORM)) {
+            putInt(program);
+            putInt(index);
+        }
+        return delegate.glGetActiveUniform(program, index, size, sizeOffset, type, typeOffset);
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        if (begin(Op.GET_ATTRIB_LOCATION)) {
+            putInt(program);
+            putString(name);
+        }
+        return delegate.glGetAttribLocation(program, name);
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        if (begin(Op.GET_UNIFORM_LOCATION)) {
+            putInt(program);
+            putString(name);
+        }
+        return delegate.glGetUniformLocation(program, name);
+    }
+
+    @Override
+    public void glUniform1i(int location, int x) {
+        if (begin(Op.UNIFORM1I)) {
+            putInt(location);
+            putInt(x);
+        }
+        delegate.glUniform1i(location, x);
+    }
+
+    @Override
+    public void glUniform1f(int location, float x) {
+        if (begin(Op.UNIFORM1F)) {
+            putInt(location);
+            putFloat(x);
+        }
+        delegate.glUniform1f(location, x);
+    }
+
+    @Override
+    public void glUniform2f(int location, float x, float y) {
+        if (begin(Op.UNIFORM2F)) {
+            putInt(location);
+            putFloat(x);
+            putFloat(y);
+        }
+        delegate.glUniform2f(location, x, y);
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+        if (begin(Op.UNIFORM4FV)) {
+            putInt(location);
+            putInt(count);
+            putFloats(v, offset, count * 4);
+        }
+        delegate.glUniform4fv(location, count, v, offset);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        if (begin(Op.UNIFORM_MATRIX4FV)) {
+            putInt(location);
+            putInt(count);
+            putBoolean(transpose);
+            putFloats(value, offset, count * 16);
+        }
+        delegate.glUniformMatrix4fv(location, count, transpose, value, offset);
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        if (begin(Op.ENABLE_VERTEX_ATTRIB_ARRAY)) {
+            putInt(index);
+        }
+        delegate.glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        if (begin(Op.DISABLE_VERTEX_ATTRIB_ARRAY)) {
+            putInt(index);
+        }
+        delegate.glDisableVertexAttribArray(index);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr) {
+        if (begin(Op.VERTEX_ATTRIB_POINTER_CLIENT)) {
+            putInt(index);
+            putInt(size);
+            putInt(type);
+            putBoolean(normalized);
+            putInt(stride);
+            putBuffer(ptr);
+        }
+        delegate.glVertexAttribPointer(index, size, type, normalized, stride, ptr);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+        if (begin(Op.VERTEX_ATTRIB_POINTER)) {
+            putInt(index);
+            putInt(size);
+            putInt(type);
+            putBoolean(normalized);
+            putInt(stride);
+            putInt(offset);
+        }
+        delegate.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        if (begin(Op.DRAW_ARRAYS)) {
+            putInt(mode);
+            putInt(first);
+            putInt(count);
+        }
+        delegate.glDrawArrays(mode, first, count);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, Buffer indices) {
+        if (begin(Op.DRAW_ELEMENTS_CLIENT)) {
+            putInt(mode);
+            putInt(count);
+            putInt(type);
+            putBuffer(indices);
+        }
+        delegate.glDrawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        if (begin(Op.DRAW_ELEMENTS)) {
+            putInt(mode);
+            putInt(count);
+            putInt(type);
+            putInt(offset);
+        }
+        delegate.glDrawElements(mode, count, type, offset);
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        if (begin(Op.VERTEX_ATTRIB_DIVISOR)) {
+            putInt(index);
+            putInt(divisor);
+        }
+        delegate.glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+        if (begin(Op.DRAW_ELEMENTS_INSTANCED)) {
+            putInt(mode);
+            putInt(count);
+            putInt(type);
+            putInt(offset);
+            putInt(instanceCount);
+        }
+        delegate.glDrawElementsInstanced(mode, count, type, offset, instanceCount);
+    }
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        if (begin(Op.GEN_BUFFERS)) {
+            putInt(n);
+        }
+        delegate.glGenBuffers(n, buffers, offset);
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        if (begin(Op.DELETE_BUFFERS)) {
+            putInt(n);
+            putInts(buffers, offset, n);
+        }
+        delegate.glDeleteBuffers(n, buffers, offset);
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        if (begin(Op.BIND_BUFFER)) {
+            putInt(target);
+            putInt(buffer);
+        }
+        delegate.glBindBuffer(target, buffer);
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        if (begin(Op.BUFFER_DATA)) {
+            putInt(target);
+            putInt(size);
+            putBuffer(data);
+            putInt(usage);
+        }
+        delegate.glBufferData(target, size, data, usage);
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        if (begin(Op.BUFFER_SUB_DATA)) {
+            putInt(target);
+            putInt(offset);
+            putInt(size);
+            putBuffer(data);
+        }
+        delegate.glBufferSubData(target, offset, size, data);
+    }
+
+    //what gets written into the mapping isn't seen here; a stream that maps buffers records where, not what
+    @Override
+    public Buffer glMapBufferRange(int target, int offset, int length, int access) {
+        if (begin(Op.MAP_BUFFER_RANGE)) {
+            putInt(target);
+            putInt(offset);
+            putInt(length);
+            putInt(access);
+        }
+        return delegate.glMapBufferRange(target, offset, length, access);
+    }
+
+    @Override
+    public boolean glUnmapBuffer(int target) {
+        if (begin(Op.UNMAP_BUFFER)) {
+            putInt(target);
+        }
+        return delegate.glUnmapBuffer(target);
+    }
+
+    @Override
+    public void glClear(int mask) {
+        if (begin(Op.CLEAR)) {
+            putInt(mask);
+        }
+        delegate.glClear(mask);
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        if (begin(Op.CLEAR_COLOR)) {
+            putFloat(red);
+            putFloat(green);
+            putFloat(blue);
+            putFloat(alpha);
+        }
+        delegate.glClearColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        if (begin(Op.ENABLE)) {
+            putInt(cap);
+        }
+        delegate.glEnable(cap);
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        if (begin(Op.DISABLE)) {
+            putInt(cap);
+        }
+        delegate.glDisable(cap);
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        if (begin(Op.BLEND_FUNC)) {
+            putInt(sfactor);
+            putInt(dfactor);
+        }
+        delegate.glBlendFunc(sfactor, dfactor);
+    }
+
+    @Override
+    public void glDepthFunc(int func) {
+        if (begin(Op.DEPTH_FUNC)) {
+            putInt(func);
+        }
+        delegate.glDepthFunc(func);
+    }
+
+    @Override
+    public void glDepthMask(boolean flag) {
+        if (begin(Op.DEPTH_MASK)) {
+            putBoolean(flag);
+        }
+        delegate.glDepthMask(flag);
+    }
+
+    @Override
+    public void glCullFace(int mode) {
+        if (begin(Op.CULL_FACE)) {
+            putInt(mode);
+        }
+        delegate.glCullFace(mode);
+    }
+
+    @Override
+    public void glFrontFace(int mode) {
+        if (begin(Op.FRONT_FACE)) {
+            putInt(mode);
+        }
+        delegate.glFrontFace(mode);
+    }
+
+    @Override
+    public void glHint(int target, int mode) {
+        if (begin(Op.HINT)) {
+            putInt(target);
+            putInt(mode);
+        }
+        delegate.glHint(target, mode);
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        if (begin(Op.VIEWPORT)) {
+            putInt(x);
+            putInt(y);
+            putInt(width);
+            putInt(height);
+        }
+        delegate.glViewport(x, y, width, height);
+    }
+
+    @Override
+    public void glScissor(int x, int y, int width, int height) {
+        if (begin(Op.SCISSOR)) {
+            putInt(x);
+            putInt(y);
+            putInt(width);
+            putInt(height);
+        }
+        delegate.glScissor(x, y, width, height);
+    }
+
+    @Override
+    public void glGenTextures(int n, int[] textures, int offset) {
+        if (begin(Op.GEN_TEXTURES)) {
+            putInt(n);
+        }
+        delegate.glGenTextures(n, textures, offset);
+    }
+
+    @Override
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        if (begin(Op.DELETE_TEXTURES)) {
+            putInt(n);
+            putInts(textures, offset, n);
+        }
+        delegate.glDeleteTextures(n, textures, offset);
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        if (begin(Op.ACTIVE_TEXTURE)) {
+            putInt(texture);
+        }
+        delegate.glActiveTexture(texture);
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        if (begin(Op.BIND_TEXTURE)) {
+            putInt(target);
+            putInt(texture);
+        }
+        delegate.glBindTexture(target, texture);
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pname, int param) {
+        if (begin(Op.TEX_PARAMETERI)) {
+            putInt(target);
+            putInt(pname);
+            putInt(param);
+        }
+        delegate.glTexParameteri(target, pname, param);
+    }
+
+    @Override
+    public void glTexParameterf(int target, int pname, float param) {
+        if (begin(Op.TEX_PARAMETERF)) {
+            putInt(target);
+            putInt(pname);
+            putFloat(param);
+        }
+        delegate.glTexParameterf(target, pname, param);
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels) {
+        if (begin(Op.TEX_IMAGE2_D)) {
+            putInt(target);
+            putInt(level);
+            putInt(internalformat);
+            putInt(width);
+            putInt(height);
+            putInt(border);
+            putInt(format);
+            putInt(type);
+            putBuffer(pixels);
+        }
+        delegate.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+    }
+
+    @Override
+    public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels) {
+        if (begin(Op.TEX_SUB_IMAGE2_D)) {
+            putInt(target);
+            putInt(level);
+            putInt(xoffset);
+            putInt(yoffset);
+            putInt(width);
+            putInt(height);
+            putInt(format);
+            putInt(type);
+            putBuffer(pixels);
+        }
+        delegate.glTexSubImage2D(target, level, xoffset, yoffset, width, height, format, type, pixels);
+    }
+
+    @Override
+    public void glGenFramebuffers(int n, int[] framebuffers, int offset) {
+        if (begin(Op.GEN_FRAMEBUFFERS)) {
+            putInt(n);
+        }
+        delegate.glGenFramebuffers(n, framebuffers, offset);
+    }
+
+    @Override
+    public void glDeleteFramebuffers(int n, int[] framebuffers, int offset) {
+        if (begin(Op.DELETE_FRAMEBUFFERS)) {
+            putInt(n);
+            putInts(framebuffers, offset, n);
+        }
+        delegate.glDeleteFramebuffers(n, framebuffers, offset);
+    }
+
+    @Override
+    public void glBindFramebuffer(int target, int framebuffer) {
+        if (begin(Op.BIND_FRAMEBUFFER)) {
+            putInt(target);
+            putInt(framebuffer);
+        }
+        delegate.glBindFramebuffer(target, framebuffer);
+    }
+
+    @Override
+    public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level) {
+        if (begin(Op.FRAMEBUFFER_TEXTURE2_D)) {
+            putInt(target);
+            putInt(attachment);
+            putInt(textarget);
+            putInt(texture);
+            putInt(level);
+        }
+        delegate.glFramebufferTexture2D(target, attachment, textarget, texture, level);
+    }
+
+    @Override
+    public int glCheckFramebufferStatus(int target) {
+        if (begin(Op.CHECK_FRAMEBUFFER_STATUS)) {
+            putInt(target);
+        }
+        return delegate.glCheckFramebufferStatus(target);
+    }
+
+    @Override
+    public void glGenRenderbuffers(int n, int[] renderbuffers, int offset) {
+        if (begin(Op.GEN_RENDERBUFFERS)) {
+            putInt(n);
+        }
+        delegate.glGenRenderbuffers(n, renderbuffers, offset);
+    }
+
+    @Override
+    public void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset) {
+        if (begin(Op.DELETE_RENDERBUFFERS)) {
+            putInt(n);
+            putInts(renderbuffers, offset, n);
+        }
+        delegate.glDeleteRenderbuffers(n, renderbuffers, offset);
+    }
+
+    @Override
+    public void glBindRenderbuffer(int target, int renderbuffer) {
+        if (begin(Op.BIND_RENDERBUFFER)) {
+            putInt(target);
+            putInt(renderbuffer);
+        }
+        delegate.glBindRenderbuffer(target, renderbuffer);
+    }
+
+    @Override
+    public void glRenderbufferStorage(int target, int internalformat, int width, int height) {
+        if (begin(Op.RENDERBUFFER_STORAGE)) {
+            putInt(target);
+            putInt(internalformat);
+            putInt(width);
+            putInt(height);
+        }
+        delegate.glRenderbufferStorage(target, internalformat, width, height);
+    }
+
+    @Override
+    public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer) {
+        if (begin(Op.FRAMEBUFFER_RENDERBUFFER)) {
+            putInt(target);
+            putInt(attachment);
+            putInt(renderbuffertarget);
+            putInt(renderbuffer);
+        }
+        delegate.glFramebufferRenderbuffer(target, attachment, renderbuffertarget, renderbuffer);
+    }
+
+    @Override
+    public void glGetIntegerv(int pname, int[] params, int offset) {
+        if (begin(Op.GET_INTEGERV)) {
+            putInt(pname);
+        }
+        delegate.glGetIntegerv(pname, params, offset);
+    }
+
+    @Override
+    public String glGetString(int name) {
+        if (begin(Op.GET_STRING)) {
+            putInt(name);
+        }
+        return delegate.glGetString(name);
+    }
+
+    @Override
+    public void glGenQueries(int n, int[] ids, int offset) {
+        if (begin(Op.GEN_QUERIES)) {
+            putInt(n);
+        }
+        delegate.glGenQueries(n, ids, offset);
+    }
+
+    @Override
+    public void glDeleteQueries(int n, int[] ids, int offset) {
+        if (begin(Op.DELETE_QUERIES)) {
+            putInt(n);
+            putInts(ids, offset, n);
+        }
+        delegate.glDeleteQueries(n, ids, offset);
+    }
+
+    @Override
+    public void glBeginQuery(int target, int id) {
+        if (begin(Op.BEGIN_QUERY)) {
+            putInt(target);
+            putInt(id);
+        }
+        delegate.glBeginQuery(target, id);
+    }
+
+    @Override
+    public void glEndQuery(int target) {
+        if (begin(Op.END_QUERY)) {
+            putInt(target);
+        }
+        delegate.glEndQuery(target);
+    }
+
+    @Override
+    public void glGetQueryObjectuiv(int id, int pname, int[] params, int offset) {
+        if (begin(Op.GET_QUERY_OBJECTUIV)) {
+            putInt(id);
+            putInt(pname);
+        }
+        delegate.glGetQueryObjectuiv(id, pname, params, offset);
+    }
+
+    @Override
+    public void glFlush() {
+        begin(Op.FLUSH);
+        delegate.glFlush();
+    }
+
+    @Override
+    public void glFinish() {
+        begin(Op.FINISH);
+        delegate.glFinish();
+    }
+
+    @Override
+    public long glFenceSync(int condition, int flags) {
+        if (begin(Op.FENCE_SYNC)) {
+            putInt(condition);
+            putInt(flags);
+        }
+        return delegate.glFenceSync(condition, flags);
+    }
+
+    @Override
+    public int glClientWaitSync(long sync, int flags, long timeout) {
+        if (begin(Op.CLIENT_WAIT_SYNC)) {
+            putLong(sync);
+            putInt(flags);
+            putLong(timeout);
+        }
+        return delegate.glClientWaitSync(sync, flags, timeout);
+    }
+
+    @Override
+    public void glDeleteSync(long sync) {
+        if (begin(Op.DELETE_SYNC)) {
+            putLong(sync);
+        }
+        delegate.glDeleteSync(sync);
+    }
+}
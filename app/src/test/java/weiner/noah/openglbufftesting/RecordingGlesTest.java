@@ -0,0 +1,163 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class RecordingGlesTest {
+    //a golden stream lives under src/test/resources/golden. when a frame stops matching, the stream it recorded instead is written to
+    //build/golden; if the change was on purpose, copy that over the golden one
+    private static final String GOLDEN = "golden/square_frame.bin";
+
+    //what one steady state frame of SQUARES moving squares may send to the driver
+    private static final int SQUARES = 50;
+    private static final int COMMAND_BUDGET = 20 * SQUARES + 40;
+    private static final int DRAW_BUDGET = SQUARES + 1;
+
+    private final float[] mvp = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+    private RecordingGles recorder;
+    private FrameRenderer frameRenderer;
+    private SceneGraph scene;
+    private ShaderProgramCache shaders;
+    private GlStateCache gl;
+
+    @Before
+    public void setUp() {
+        //record behind the state cache: what would actually reach the driver
+        recorder = new RecordingGles(new FakeGles());
+        recorder.setRecording(false);
+        gl = new GlStateCache(recorder);
+        shaders = new ShaderProgramCache(gl);
+        RenderTargetManager targets = new RenderTargetManager(gl, new RenderTargetPool(gl), 1f, RenderTarget.Format.RGBA8888, true);
+        targets.onSurfaceChanged(1080, 2236);
+
+        frameRenderer = new FrameRenderer(gl, targets, new FrameProfiler());
+        scene = new SceneGraph();
+        frameRenderer.setDrawables(scene, new ScreenShader(gl, shaders));
+    }
+
+    private void frame() {
+        frameRenderer.beginFrame();
+        frameRenderer.drawFrame(mvp);
+        frameRenderer.endFrame();
+    }
+
+    private byte[] recordFrame() {
+        recorder.reset();
+        recorder.setRecording(true);
+        frame();
+        recorder.setRecording(false);
+        return recorder.toByteArray();
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        InputStream in = RecordingGlesTest.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            for (int n; (n = in.read(chunk)) > 0; ) {
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static void assertMatchesGolden(String name, byte[] actual) throws IOException {
+        byte[] golden = readResource(name);
+        int difference = golden == null ? 0 : RecordingGles.firstDifference(golden, actual);
+        if (difference < 0) {
+            return;
+        }
+        File out = new File("build", name);
+        out.getParentFile().mkdirs();
+        FileOutputStream file = new FileOutputStream(out);
+        try {
+            file.write(actual);
+        }
+        finally {
+            file.close();
+        }
+        if (golden == null) {
+            fail(String.format("No golden stream %s; this run's is in %s", name, out.getAbsolutePath()));
+        }
+        fail(String.format("Command %d differs from %s: expected %s, got %s. this run's stream is in %s", difference, name,
+                RecordingGles.command(golden, difference), RecordingGles.command(actual, difference), out.getAbsolutePath()));
+    }
+
+    @Test
+    public void squareFrameMatchesTheGoldenStream() throws IOException {
+        SceneNode node = new SceneNode(new Square(gl, shaders), 0.5f);
+        node.getTransform().setPosition(0.2f, -0.1f, 0f);
+        scene.getRoot().addChild(node);
+
+        assertMatchesGolden(GOLDEN, recordFrame());
+    }
+
+    @Test
+    public void unchangedFrameOnlyRecordsTheScreenPass() {
+        scene.getRoot().addChild(new SceneNode(new Square(gl, shaders), 0.5f));
+        recordFrame();
+        assertEquals(2, recorder.count(RecordingGles.Op.DRAW_ELEMENTS));
+
+        recordFrame();
+        assertEquals(1, recorder.count(RecordingGles.Op.DRAW_ELEMENTS));
+        assertEquals(0, recorder.count(RecordingGles.Op.LINK_PROGRAM));
+        assertEquals(0, recorder.count(RecordingGles.Op.BUFFER_DATA));
+    }
+
+    @Test
+    public void movingSquaresStayWithinTheCommandBudget() {
+        SceneNode[] nodes = new SceneNode[SQUARES];
+        for (int i = 0; i < SQUARES; i++) {
+            nodes[i] = new SceneNode(new Square(gl, shaders), 0.1f);
+            scene.getRoot().addChild(nodes[i]);
+        }
+        recordFrame();
+
+        for (int frame = 1; frame <= 3; frame++) {
+            for (int i = 0; i < SQUARES; i++) {
+                nodes[i].getTransform().setPosition((i % 10) * 0.2f - 1f + frame * 0.01f, (i / 10) * 0.4f - 1f, 0f);
+            }
+            recordFrame();
+            String frameReport = String.format("frame %d: %d commands, %d draws, %d bytes", frame, recorder.getCommandCount(),
+                    recorder.count(RecordingGles.Op.DRAW_ELEMENTS), recorder.size());
+            assertTrue(frameReport, recorder.getCommandCount() <= COMMAND_BUDGET);
+            assertTrue(frameReport, recorder.count(RecordingGles.Op.DRAW_ELEMENTS) <= DRAW_BUDGET);
+            //every square shares the one program, so it's bound once
+            assertTrue(frameReport, recorder.count(RecordingGles.Op.USE_PROGRAM) <= 2);
+        }
+    }
+
+    @Test
+    public void streamsDisassembleAndCompareCommandByCommand() {
+        recorder.setRecording(true);
+        recorder.glViewport(0, 0, 64, 32);
+        recorder.glUniform4fv(3, 1, new float[]{0f, 1f, 0.5f, 1f}, 0);
+        byte[] a = recorder.toByteArray();
+
+        recorder.reset();
+        recorder.glViewport(0, 0, 64, 32);
+        recorder.glUniform4fv(3, 1, new float[]{0f, 1f, 0.25f, 1f}, 0);
+        byte[] b = recorder.toByteArray();
+
+        assertEquals("glViewport(0, 0, 64, 32)\nglUniform4fv(3, 1, {0.0, 1.0, 0.5, 1.0})\n", RecordingGles.disassemble(a));
+        assertEquals(-1, RecordingGles.firstDifference(a, a));
+        assertEquals(1, RecordingGles.firstDifference(a, b));
+        assertEquals(1, RecordingGles.firstDifference(a, Arrays.copyOf(a, 17)));
+        assertEquals(2, recorder.getCommandCount());
+    }
+}
@@ -0,0 +1,144 @@
+package weiner.noah.openglbufftesting;
+
+//the android.opengl.Matrix calls the renderer used to make, written the way the platform does them (plain loops, no special cases),
+//so Mat4 can be checked and timed against them on the JVM, where the real android.jar only has stubs
+final class ReferenceMatrix {
+    private ReferenceMatrix() {
+    }
+
+    static void multiplyMM(float[] result, int resultOffset, float[] lhs, int lhsOffset, float[] rhs, int rhsOffset) {
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                float sum = 0f;
+                for (int k = 0; k < 4; k++) {
+                    sum += lhs[lhsOffset + k * 4 + j] * rhs[rhsOffset + i * 4 + k];
+                }
+                result[resultOffset + i * 4 + j] = sum;
+            }
+        }
+    }
+
+    static void setIdentityM(float[] sm, int smOffset) {
+        for (int i = 0; i < 16; i++) {
+            sm[smOffset + i] = 0;
+        }
+        for (int i = 0; i < 16; i += 5) {
+            sm[smOffset + i] = 1.0f;
+        }
+    }
+
+    static void translateM(float[] m, int mOffset, float x, float y, float z) {
+        for (int i = 0; i < 4; i++) {
+            int mi = mOffset + i;
+            m[12 + mi] += m[mi] * x + m[4 + mi] * y + m[8 + mi] * z;
+        }
+    }
+
+    static void setRotateM(float[] rm, int rmOffset, float a, float x, float y, float z) {
+        rm[rmOffset + 3] = 0;
+        rm[rmOffset + 7] = 0;
+        rm[rmOffset + 11] = 0;
+        rm[rmOffset + 12] = 0;
+        rm[rmOffset + 13] = 0;
+        rm[rmOffset + 14] = 0;
+        rm[rmOffset + 15] = 1;
+        a *= (float) (Math.PI / 180.0f);
+        float s = (float) Math.sin(a);
+        float c = (float) Math.cos(a);
+        float len = (float) Math.sqrt(x * x + y * y + z * z);
+        if (len != 1.0f) {
+            float recipLen = 1.0f / len;
+            x *= recipLen;
+            y *= recipLen;
+            z *= recipLen;
+        }
+        float nc = 1.0f - c;
+        float xy = x * y, yz = y * z, zx = z * x, xs = x * s, ys = y * s, zs = z * s;
+        rm[rmOffset] = x * x * nc + c;
+        rm[rmOffset + 4] = xy * nc - zs;
+        rm[rmOffset + 8] = zx * nc + ys;
+        rm[rmOffset + 1] = xy * nc + zs;
+        rm[rmOffset + 5] = y * y * nc + c;
+        rm[rmOffset + 9] = yz * nc - xs;
+        rm[rmOffset + 2] = zx * nc - ys;
+        rm[rmOffset + 6] = yz * nc + xs;
+        rm[rmOffset + 10] = z * z * nc + c;
+    }
+
+    static void frustumM(float[] m, int offset, float left, float right, float bottom, float top, float near, float far) {
+        float rWidth = 1.0f / (right - left);
+        float rHeight = 1.0f / (top - bottom);
+        float rDepth = 1.0f / (near - far);
+        m[offset] = 2.0f * (near * rWidth);
+        m[offset + 5] = 2.0f * (near * rHeight);
+        m[offset + 8] = (right + left) * rWidth;
+        m[offset + 9] = (top + bottom) * rHeight;
+        m[offset + 10] = (far + near) * rDepth;
+        m[offset + 14] = 2.0f * (far * near * rDepth);
+        m[offset + 11] = -1.0f;
+        m[offset + 1] = 0.0f;
+        m[offset + 2] = 0.0f;
+        m[offset + 3] = 0.0f;
+        m[offset + 4] = 0.0f;
+        m[offset + 6] = 0.0f;
+        m[offset + 7] = 0.0f;
+        m[offset + 12] = 0.0f;
+        m[offset + 13] = 0.0f;
+        m[offset + 15] = 0.0f;
+    }
+
+    static void setLookAtM(float[] rm, int rmOffset, float eyeX, float eyeY, float eyeZ, float centerX, float centerY, float centerZ,
+                           float upX, float upY, float upZ) {
+        float fx = centerX - eyeX;
+        float fy = centerY - eyeY;
+        float fz = centerZ - eyeZ;
+
+        float rlf = 1.0f / (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+        fx *= rlf;
+        fy *= rlf;
+        fz *= rlf;
+
+        float sx = fy * upZ - fz * upY;
+        float sy = fz * upX - fx * upZ;
+        float sz = fx * upY - fy * upX;
+
+        float rls = 1.0f / (float) Math.sqrt(sx * sx + sy * sy + sz * sz);
+        sx *= rls;
+        sy *= rls;
+        sz *= rls;
+
+        float ux = sy * fz - sz * fy;
+        float uy = sz * fx - sx * fz;
+        float uz = sx * fy - sy * fx;
+
+        rm[rmOffset] = sx;
+        rm[rmOffset + 1] = ux;
+        rm[rmOffset + 2] = -fx;
+        rm[rmOffset + 3] = 0.0f;
+        rm[rmOffset + 4] = sy;
+        rm[rmOffset + 5] = uy;
+        rm[rmOffset + 6] = -fy;
+        rm[rmOffset + 7] = 0.0f;
+        rm[rmOffset + 8] = sz;
+        rm[rmOffset + 9] = uz;
+        rm[rmOffset + 10] = -fz;
+        rm[rmOffset + 11] = 0.0f;
+        rm[rmOffset + 12] = 0.0f;
+        rm[rmOffset + 13] = 0.0f;
+        rm[rmOffset + 14] = 0.0f;
+        rm[rmOffset + 15] = 1.0f;
+
+        translateM(rm, rmOffset, -eyeX, -eyeY, -eyeZ);
+    }
+
+    //what onDrawFrame used to do every frame: rebuild the view, model and rotation and multiply them together
+    static void squareMvp(float[] out, float[] projection, float[] view, float[] model, float[] rotation, float[] temp, float posTrans) {
+        setLookAtM(view, 0, 0f, 0f, -7f, 0f, 0f, -1.5f, 0f, 1f, 0f);
+        setIdentityM(model, 0);
+        translateM(model, 0, 0.9f - posTrans, 1.8f, 0);
+        setRotateM(rotation, 0, 180, 0, 0, 1);
+        multiplyMM(temp, 0, model, 0, rotation, 0);
+        multiplyMM(model, 0, projection, 0, temp, 0);
+        multiplyMM(out, 0, model, 0, view, 0);
+    }
+}
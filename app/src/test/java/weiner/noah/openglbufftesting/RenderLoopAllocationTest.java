@@ -0,0 +1,116 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+//runs the frame loop against FakeGles and fails if steady state frames allocate.
+//per-frame garbage means GC pauses on device, which show up as dropped frames; this catches it on the build machine instead.
+//needs a JVM that counts allocated bytes per thread (HotSpot does); skipped elsewhere
+public class RenderLoopAllocationTest {
+    private static final int WARMUP_FRAMES = 2000;
+    private static final int FRAMES = 2000;
+
+    private com.sun.management.ThreadMXBean threads;
+    private FrameRenderer frameRenderer;
+    private InstancedQuadBatch batch;
+    private EntityStore entities;
+    private final float[] mvp = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        GlStateCache gl = new GlStateCache(new FakeGles());
+        ShaderProgramCache shaders = new ShaderProgramCache(gl);
+        RenderTargetPool pool = new RenderTargetPool(gl);
+        RenderTargetManager targets = new RenderTargetManager(gl, pool, 1f, RenderTarget.Format.RGBA8888, true);
+        targets.onSurfaceChanged(1080, 2236);
+
+        FrameProfiler profiler = new FrameProfiler();
+        frameRenderer = new FrameRenderer(gl, targets, profiler);
+        SceneGraph scene = new SceneGraph();
+        scene.getRoot().addChild(new SceneNode(new Square(gl, shaders), 0.15f));
+        frameRenderer.setDrawables(scene, new ScreenShader(gl, shaders));
+
+        //a couple of post passes, so acquiring and releasing their targets is covered too
+        PostProcessPipeline postProcess = new PostProcessPipeline(gl, pool, profiler);
+        postProcess.addPass(new DownsamplePass());
+        postProcess.addPass(BlurPass.horizontal());
+        postProcess.addPass(BlurPass.vertical());
+        postProcess.init(shaders);
+        frameRenderer.setPostProcess(postProcess);
+
+        //the instanced path on ES 3.0, streaming through mapped, fenced stretches of its ring; small enough to come round every few
+        //frames, so wrapping and retiring fences are covered too
+        FakeGles es3 = new FakeGles();
+        es3.version = "OpenGL ES 3.0 FakeGles";
+        ShaderProgramCache es3Shaders = new ShaderProgramCache(es3);
+        batch = (InstancedQuadBatch) InstancedQuadBatch.create(es3, es3Shaders, GlCapabilities.query(es3), 64);
+        entities = new EntityStore(100);
+        for (int i = 0; i < 100; i++) {
+            entities.setTexture(entities.create(i, 0f, 0f), i < 50 ? 7 : 8);
+        }
+    }
+
+    private void frame() {
+        frameRenderer.beginFrame();
+        frameRenderer.drawFrame(mvp);
+        frameRenderer.endFrame();
+    }
+
+    private void instancedFrame() {
+        batch.begin(mvp);
+        for (int i = 0; i < 40; i++) {
+            batch.add(i < 20 ? 7 : 8, mvp, 0xffffffff);
+        }
+        batch.draw(entities);
+        batch.end();
+    }
+
+    @Test
+    public void steadyStateFramesDoNotAllocate() {
+        //let lazy initialization and the JIT settle
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            frame();
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < FRAMES; i++) {
+            frame();
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        //reading the counter itself costs a few bytes; anything allocated per frame is at least FRAMES * 16
+        assertTrue(String.format("%d frames allocated %d bytes", FRAMES, allocated), allocated < FRAMES);
+    }
+
+    @Test
+    public void steadyStateInstancedFramesDoNotAllocate() {
+        assertEquals(StreamingBufferRing.Mode.MAPPED, batch.getInstanceStream().getMode());
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            instancedFrame();
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < FRAMES; i++) {
+            instancedFrame();
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue(batch.getInstanceStream().getWraps() > 0);
+
+        //FakeGles hands out one mapping over and over, so this is the batch's and the ring's own garbage, without the ByteBuffer a
+        //real glMapBufferRange wraps each mapping in
+        assertTrue(String.format("%d frames allocated %d bytes", FRAMES, allocated), allocated < FRAMES);
+    }
+}
@@ -0,0 +1,74 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+//CPU cost of a whole frame of 200 moving squares through FrameRenderer on the headless backends: FakeGles (the Java side of the
+//render path alone), RecordingGles over it (plus encoding every command) and SoftwareGles (plus rasterizing, at a small resolution).
+//benchmarks are skipped by the normal test run; run them with ./gradlew testDebugUnitTest -Pbenchmarks
+public class RenderPathBenchmark {
+    private static final int SQUARES = 200;
+    private static final int WARMUP_FRAMES = 500;
+    private static final int FRAMES = 2000;
+
+    private final float[] mvp = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+
+    @Test
+    public void fake() {
+        run("fake", new FakeGles(), 1080, 2236);
+    }
+
+    @Test
+    public void recording() {
+        RecordingGles recorder = new RecordingGles(new FakeGles());
+        run("recording", recorder, 1080, 2236);
+        System.out.println(String.format("  last frame: %d commands, %d bytes", recorder.getCommandCount(), recorder.size()));
+    }
+
+    @Test
+    public void software() {
+        SoftwareGles software = new SoftwareGles(108, 224);
+        run("software 108x224", software, 108, 224);
+        System.out.println(String.format("  %d triangles, %d fragments in all", software.getTrianglesDrawn(), software.getFragmentsShaded()));
+    }
+
+    private void run(String name, Gles backend, int width, int height) {
+        GlStateCache gl = new GlStateCache(backend);
+        ShaderProgramCache shaders = new ShaderProgramCache(gl);
+        RenderTargetManager targets = new RenderTargetManager(gl, new RenderTargetPool(gl), 1f, RenderTarget.Format.RGBA8888, true);
+        targets.onSurfaceChanged(width, height);
+        FrameRenderer frameRenderer = new FrameRenderer(gl, targets, new FrameProfiler());
+        SceneGraph scene = new SceneGraph();
+        SceneNode[] nodes = new SceneNode[SQUARES];
+        for (int i = 0; i < SQUARES; i++) {
+            nodes[i] = new SceneNode(new Square(gl, shaders), 0.15f);
+            scene.getRoot().addChild(nodes[i]);
+        }
+        frameRenderer.setDrawables(scene, new ScreenShader(gl, shaders));
+
+        for (int f = 0; f < WARMUP_FRAMES; f++) {
+            frame(backend, frameRenderer, nodes, f);
+        }
+        long start = System.nanoTime();
+        for (int f = 0; f < FRAMES; f++) {
+            frame(backend, frameRenderer, nodes, f);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("%s: %d squares, %.1f us/frame", name, SQUARES, elapsed / 1000.0 / FRAMES));
+        assertEquals(WARMUP_FRAMES + FRAMES, frameRenderer.getFullFrames() + frameRenderer.getPartialFrames());
+    }
+
+    private void frame(Gles backend, FrameRenderer frameRenderer, SceneNode[] nodes, int f) {
+        if (backend instanceof RecordingGles) {
+            ((RecordingGles) backend).reset();
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i].getTransform().setPosition((i % 20) * 0.1f - 1f + (f % 10) * 0.01f, (i / 20) * 0.2f - 1f, 0f);
+        }
+        frameRenderer.beginFrame();
+        frameRenderer.drawFrame(mvp);
+        frameRenderer.endFrame();
+    }
+}
@@ -0,0 +1,89 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+//submit + sort for 1k, 10k and 100k draws with realistic keys (a handful of programs, a few dozen textures, random depths), next to
+//Arrays.sort on the bare keys, which sorts less (no payload) and isn't stable.
+//benchmarks are skipped by the normal test run; run them with ./gradlew testDebugUnitTest -Pbenchmarks
+public class RenderQueueBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final int WARMUP_ROUNDS = 50;
+
+    private final float[] mvp = new float[16];
+
+    @Test
+    public void sortThroughput() {
+        for (int size : SIZES) {
+            Random random = new Random(size);
+            long[] keys = new long[size];
+            FakeRenderable[] items = new FakeRenderable[size];
+            for (int i = 0; i < size; i++) {
+                items[i] = new FakeRenderable(random.nextInt(6), random.nextInt(40), random.nextInt(5) == 0, null);
+                keys[i] = RenderQueue.makeKey(0, items[i].translucent, items[i].program, items[i].texture, random.nextFloat() * 100f);
+            }
+            int rounds = Math.max(20, 2_000_000 / size);
+            RenderQueue queue = new RenderQueue(size);
+            long[] copy = new long[size];
+
+            for (int r = 0; r < WARMUP_ROUNDS; r++) {
+                fill(queue, keys, items);
+                queue.sort();
+                System.arraycopy(keys, 0, copy, 0, size);
+                Arrays.sort(copy);
+            }
+
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                fill(queue, keys, items);
+                queue.sort();
+            }
+            long radix = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                System.arraycopy(keys, 0, copy, 0, size);
+                Arrays.sort(copy);
+            }
+            long comparison = System.nanoTime() - start;
+
+            System.out.println(String.format("%6d draws: RenderQueue submit+sort %.1f us, Arrays.sort keys only %.1f us, "
+                            + "program changes %d unsorted / %d sorted, texture changes %d / %d",
+                    size, radix / 1000.0 / rounds, comparison / 1000.0 / rounds, programChanges(items), queue.getProgramChanges(),
+                    textureChanges(items), queue.getTextureChanges()));
+            assertTrue(queue.getProgramChanges() < programChanges(items));
+        }
+    }
+
+    private void fill(RenderQueue queue, long[] keys, Renderable[] items) {
+        queue.clear();
+        for (int i = 0; i < keys.length; i++) {
+            queue.submit(keys[i], items[i], mvp);
+        }
+    }
+
+    //state changes if the draws were made in submission order
+    private static int programChanges(FakeRenderable[] items) {
+        int changes = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (i == 0 || items[i].program != items[i - 1].program) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    private static int textureChanges(FakeRenderable[] items) {
+        int changes = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (i == 0 || items[i].texture != items[i - 1].texture) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,123 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RenderQueueTest {
+    private final float[] mvp = new float[16];
+
+    private void submit(RenderQueue queue, int pass, FakeRenderable r, float depth) {
+        queue.submit(RenderQueue.makeKey(pass, r.translucent, r.program, r.texture, depth), r, mvp);
+    }
+
+    @Test
+    public void opaqueIsGroupedByStateAndFrontToBack() {
+        List<FakeRenderable> log = new ArrayList<>();
+        FakeRenderable a1 = new FakeRenderable(1, 10, false, log);
+        FakeRenderable a2 = new FakeRenderable(1, 10, false, log);
+        FakeRenderable b = new FakeRenderable(1, 11, false, log);
+        FakeRenderable c = new FakeRenderable(2, 10, false, log);
+
+        RenderQueue queue = new RenderQueue(4);
+        submit(queue, 0, c, 1f);
+        submit(queue, 0, a2, 5f);
+        submit(queue, 0, b, 2f);
+        submit(queue, 0, a1, 3f);
+        queue.sort();
+        queue.draw();
+
+        assertEquals(4, log.size());
+        assertSame(a1, log.get(0));
+        assertSame(a2, log.get(1));
+        assertSame(b, log.get(2));
+        assertSame(c, log.get(3));
+        assertEquals(2, queue.getProgramChanges());
+        assertEquals(3, queue.getTextureChanges());
+    }
+
+    @Test
+    public void translucentGoesAfterOpaqueBackToFront() {
+        List<FakeRenderable> log = new ArrayList<>();
+        FakeRenderable near = new FakeRenderable(1, 1, true, log);
+        FakeRenderable far = new FakeRenderable(2, 2, true, log);
+        FakeRenderable opaque = new FakeRenderable(3, 3, false, log);
+
+        RenderQueue queue = new RenderQueue(4);
+        submit(queue, 0, near, 1f);
+        submit(queue, 0, far, 100f);
+        submit(queue, 0, opaque, 50f);
+        queue.sort();
+        queue.draw();
+
+        assertSame(opaque, log.get(0));
+        assertSame(far, log.get(1));
+        assertSame(near, log.get(2));
+    }
+
+    @Test
+    public void passesComeFirst() {
+        List<FakeRenderable> log = new ArrayList<>();
+        FakeRenderable overlay = new FakeRenderable(1, 1, false, log);
+        FakeRenderable scene = new FakeRenderable(9, 9, true, log);
+
+        RenderQueue queue = new RenderQueue(1);
+        submit(queue, RenderQueue.MAX_PASS, overlay, 0f);
+        submit(queue, 0, scene, 0f);
+        queue.sort();
+        queue.draw();
+
+        assertSame(scene, log.get(0));
+        assertSame(overlay, log.get(1));
+    }
+
+    @Test
+    public void radixSortMatchesAComparisonSort() {
+        Random random = new Random(7);
+        FakeRenderable r = new FakeRenderable();
+        for (int n : new int[]{33, 1000, 5000}) {
+            RenderQueue queue = new RenderQueue(16);
+            long[] expected = new long[n];
+            for (int i = 0; i < n; i++) {
+                long key = RenderQueue.makeKey(random.nextInt(RenderQueue.MAX_PASS + 1), random.nextBoolean(), random.nextInt(8),
+                        random.nextInt(100), random.nextFloat() * 50f);
+                expected[i] = key;
+                queue.submit(key, r, mvp);
+            }
+            queue.sort();
+
+            //unsigned order, which for these keys is signed order with the top bit flipped
+            for (int i = 0; i < n; i++) {
+                expected[i] ^= Long.MIN_VALUE;
+            }
+            Arrays.sort(expected);
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected[i] ^ Long.MIN_VALUE, queue.getKey(i));
+            }
+        }
+    }
+
+    @Test
+    public void equalKeysKeepSubmissionOrder() {
+        List<FakeRenderable> log = new ArrayList<>();
+        RenderQueue queue = new RenderQueue(8);
+        FakeRenderable[] items = new FakeRenderable[100];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = new FakeRenderable(1, 1, false, log);
+            //every other one in front, so the radix sort has something to move
+            submit(queue, 0, items[i], i % 2 == 0 ? 1f : 2f);
+        }
+        queue.sort();
+        queue.draw();
+
+        for (int i = 0; i < 50; i++) {
+            assertSame(items[i * 2], log.get(i));
+            assertSame(items[i * 2 + 1], log.get(50 + i));
+        }
+    }
+}
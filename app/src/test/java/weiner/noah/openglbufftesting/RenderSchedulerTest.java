@@ -0,0 +1,33 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RenderSchedulerTest {
+    @Test
+    public void onDemandFramesFollowTheAnimation() {
+        final int[] requests = new int[1];
+        RenderScheduler.Requester view = new RenderScheduler.Requester() {
+            @Override
+            public void requestRender() {
+                requests[0]++;
+            }
+        };
+
+        RenderScheduler scheduler = new RenderScheduler();
+        scheduler.setOnDemand(view, false);
+        scheduler.afterFrame(true);
+        assertEquals(0, requests[0]);
+
+        //switching over draws once, then only while animating or when asked
+        scheduler.setOnDemand(view, true);
+        assertEquals(1, requests[0]);
+        scheduler.afterFrame(false);
+        assertEquals(1, requests[0]);
+        scheduler.afterFrame(true);
+        scheduler.requestFrame();
+        assertEquals(3, requests[0]);
+        assertEquals(3, scheduler.getRequests());
+    }
+}
@@ -0,0 +1,109 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RenderTargetPoolTest {
+    private static final RenderTarget.Format RGBA = RenderTarget.Format.RGBA8888;
+
+    private FakeGles gl;
+    private RenderTargetPool pool;
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        pool = new RenderTargetPool(gl, 2, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void passesWithinAFrameShareATarget() {
+        RenderTarget blur = pool.acquire(256, 256, RGBA, false);
+        pool.release(blur);
+        RenderTarget bloom = pool.acquire(256, 256, RGBA, false);
+
+        assertSame(blur, bloom);
+        assertEquals(1, pool.getCreated());
+        assertEquals(1, pool.getReused());
+        assertEquals(1, gl.count(FakeGles.Call.GEN_FRAMEBUFFERS));
+    }
+
+    @Test
+    public void shapesMustMatchExactly() {
+        pool.release(pool.acquire(256, 256, RGBA, false));
+
+        RenderTarget withDepth = pool.acquire(256, 256, RGBA, true);
+        RenderTarget otherFormat = pool.acquire(256, 256, RenderTarget.Format.RGB565, false);
+        RenderTarget otherSize = pool.acquire(256, 128, RGBA, false);
+
+        assertEquals(4, pool.getCreated());
+        assertEquals(0, pool.getReused());
+        assertTrue(withDepth.hasDepth());
+        assertEquals(RenderTarget.Format.RGB565, otherFormat.getFormat());
+        assertEquals(128, otherSize.getHeight());
+    }
+
+    @Test
+    public void liveAndIdleBytesAreTracked() {
+        RenderTarget a = pool.acquire(100, 100, RGBA, false);
+        RenderTarget b = pool.acquire(100, 100, RGBA, true);
+        assertEquals(100 * 100 * 4 + 100 * 100 * 6, pool.getLiveBytes());
+        assertEquals(0, pool.getIdleBytes());
+
+        pool.release(a);
+        assertEquals(100 * 100 * 6, pool.getLiveBytes());
+        assertEquals(100 * 100 * 4, pool.getIdleBytes());
+
+        pool.release(b);
+        assertEquals(0, pool.getLiveBytes());
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    public void leastRecentlyReleasedIdleTargetIsEvictedFirst() {
+        RenderTarget a = pool.acquire(10, 10, RGBA, false);
+        RenderTarget b = pool.acquire(20, 20, RGBA, false);
+        RenderTarget c = pool.acquire(30, 30, RGBA, false);
+        pool.release(a);
+        pool.release(b);
+        pool.release(c);
+
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(1, pool.getEvicted());
+        assertEquals(0, a.getFramebuffer());
+        assertNotEquals(0, b.getFramebuffer());
+        assertNotEquals(0, c.getFramebuffer());
+    }
+
+    @Test
+    public void idleBytesAreBounded() {
+        RenderTargetPool small = new RenderTargetPool(gl, 10, 100 * 100 * 4);
+        RenderTarget a = small.acquire(100, 100, RGBA, false);
+        RenderTarget b = small.acquire(100, 100, RGBA, false);
+        small.release(a);
+        small.release(b);
+
+        assertEquals(1, small.getIdleCount());
+        assertEquals(100 * 100 * 4, small.getIdleBytes());
+    }
+
+    @Test
+    public void invalidateForgetsWithoutDeleting() {
+        pool.release(pool.acquire(64, 64, RGBA, true));
+        pool.acquire(64, 64, RGBA, false);
+        pool.invalidate();
+
+        assertEquals(0, pool.getLiveCount());
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(0, pool.getLiveBytes() + pool.getIdleBytes());
+        assertEquals(0, gl.count(FakeGles.Call.DELETE_FRAMEBUFFERS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releasingTwiceIsAnError() {
+        RenderTarget target = pool.acquire(64, 64, RGBA, false);
+        pool.release(target);
+        pool.release(target);
+    }
+}
@@ -0,0 +1,78 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RenderTargetTest {
+    private FakeGles gl;
+    private RenderTargetPool pool;
+    private RenderTargetManager targets;
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        pool = new RenderTargetPool(gl);
+        targets = new RenderTargetManager(gl, pool, 1f, RenderTarget.Format.RGBA8888, true);
+    }
+
+    @Test
+    public void targetFollowsTheSurfaceTimesTheScale() {
+        targets.onSurfaceChanged(1080, 2236);
+        assertEquals(1080, targets.getSceneTarget().getWidth());
+        assertEquals(2236, targets.getSceneTarget().getHeight());
+
+        targets.setScale(0.5f);
+        assertEquals(540, targets.getSceneTarget().getWidth());
+        assertEquals(1118, targets.getSceneTarget().getHeight());
+    }
+
+    @Test
+    public void footprintCountsColorAndDepth() {
+        targets.onSurfaceChanged(100, 50);
+
+        //4 bytes of RGBA8888 plus 2 bytes of DEPTH_COMPONENT16 per pixel
+        assertEquals(100 * 50 * 6, targets.getSceneTarget().getSizeBytes());
+        assertEquals(100 * 50 * 6, pool.getLiveBytes());
+        assertEquals(100 * 50 * 2, RenderTarget.bytesFor(100, 50, RenderTarget.Format.RGB565, false));
+    }
+
+    @Test
+    public void sameSizeDoesNotReallocate() {
+        targets.onSurfaceChanged(1080, 2236);
+        RenderTarget first = targets.getSceneTarget();
+        targets.onSurfaceChanged(1080, 2236);
+
+        assertSame(first, targets.getSceneTarget());
+        assertEquals(1, gl.count(FakeGles.Call.GEN_FRAMEBUFFERS));
+    }
+
+    @Test
+    public void rotatingBackReusesTheOldTarget() {
+        targets.onSurfaceChanged(1080, 2236);
+        RenderTarget portrait = targets.getSceneTarget();
+        targets.onSurfaceChanged(2236, 1080);
+        targets.onSurfaceChanged(1080, 2236);
+
+        assertSame(portrait, targets.getSceneTarget());
+        assertEquals(2, gl.count(FakeGles.Call.GEN_FRAMEBUFFERS));
+        assertEquals(0, gl.count(FakeGles.Call.DELETE_FRAMEBUFFERS));
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void supersamplingIsClampedToTheMaxTextureSize() {
+        gl.maxTextureSize = 4096;
+        int[] size = RenderTargetManager.targetSize(1080, 2236, 4f, gl.maxTextureSize);
+
+        //the long side hits the limit and the short side shrinks with it
+        assertEquals(4096, size[1]);
+        assertEquals(Math.round(1080 * (4096f / 2236)), size[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void scaleMustBePositive() {
+        targets.setScale(0f);
+    }
+}
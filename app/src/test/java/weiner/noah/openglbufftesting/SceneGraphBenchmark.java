@@ -0,0 +1,71 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+//per-frame cost of walking and culling a 10k node scene, with nothing moving and with 10% of the nodes moving every frame.
+//the renderables don't draw anything, so this is just the traversal, world matrix upkeep, sphere tests and sorting what's left.
+//benchmarks are skipped by the normal test run; run them with ./gradlew testDebugUnitTest -Pbenchmarks
+public class SceneGraphBenchmark {
+    private static final int GROUPS = 100;
+    private static final int PER_GROUP = 100;
+    private static final int WARMUP_FRAMES = 500;
+    private static final int FRAMES = 2000;
+
+    private static final Renderable NOTHING = new FakeRenderable();
+
+    @Test
+    public void cull10kNodes() {
+        Random random = new Random(1);
+        SceneGraph scene = new SceneGraph();
+        SceneNode[] leaves = new SceneNode[GROUPS * PER_GROUP];
+        for (int g = 0; g < GROUPS; g++) {
+            SceneNode group = new SceneNode();
+            group.getTransform().setPosition(random.nextFloat() * 200f - 100f, random.nextFloat() * 200f - 100f, -random.nextFloat() * 100f);
+            scene.getRoot().addChild(group);
+            for (int i = 0; i < PER_GROUP; i++) {
+                SceneNode leaf = new SceneNode(NOTHING, 0.5f);
+                leaf.getTransform().setPosition(random.nextFloat() * 10f - 5f, random.nextFloat() * 10f - 5f, random.nextFloat() * 10f - 5f);
+                group.addChild(leaf);
+                leaves[g * PER_GROUP + i] = leaf;
+            }
+        }
+
+        Camera camera = new Camera();
+        camera.setLookAt(0f, 0f, 0f, 0f, 0f, -1f, 0f, 1f, 0f);
+        camera.setPerspective(60f, 1.5f, 1f, 100f);
+        float[] viewProjection = camera.getViewProjection();
+
+        for (int f = 0; f < WARMUP_FRAMES; f++) {
+            scene.draw(viewProjection);
+            move(leaves, f);
+        }
+
+        long start = System.nanoTime();
+        for (int f = 0; f < FRAMES; f++) {
+            scene.draw(viewProjection);
+        }
+        long still = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int f = 0; f < FRAMES; f++) {
+            move(leaves, f);
+            scene.draw(viewProjection);
+        }
+        long moving = System.nanoTime() - start;
+
+        System.out.println(String.format("%d nodes, %d visible, %d culled: %.1f us/frame still, %.1f us/frame with 10%% moving",
+                scene.getNodeCount(), scene.getVisibleCount(), scene.getCulledCount(), still / 1000.0 / FRAMES, moving / 1000.0 / FRAMES));
+        assertTrue(scene.getCulledCount() > 0);
+        assertTrue(scene.getVisibleCount() > 0);
+    }
+
+    private static void move(SceneNode[] leaves, int frame) {
+        for (int i = frame % 10; i < leaves.length; i += 10) {
+            leaves[i].getTransform().setRotation(frame, 0f, 1f, 0f);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SceneGraphTest {
+    private final Camera camera = new Camera();
+    private SceneGraph scene;
+
+    @Before
+    public void setUp() {
+        camera.setLookAt(0f, 0f, 0f, 0f, 0f, -1f, 0f, 1f, 0f);
+        camera.setPerspective(90f, 1f, 1f, 10f);
+        scene = new SceneGraph();
+    }
+
+    private SceneNode add(SceneNode parent, float x, float y, float z) {
+        return add(parent, new FakeRenderable(), x, y, z);
+    }
+
+    private SceneNode add(SceneNode parent, Renderable renderable, float x, float y, float z) {
+        SceneNode node = new SceneNode(renderable, 0.5f);
+        node.getTransform().setPosition(x, y, z);
+        parent.addChild(node);
+        return node;
+    }
+
+    @Test
+    public void offscreenNodesAreNotDrawn() {
+        SceneNode inside = add(scene.getRoot(), 0f, 0f, -5f);
+        SceneNode behind = add(scene.getRoot(), 0f, 0f, 5f);
+        SceneNode farAway = add(scene.getRoot(), 100f, 0f, -5f);
+
+        scene.draw(camera.getViewProjection());
+
+        assertEquals(1, ((FakeRenderable) inside.getRenderable()).draws);
+        assertEquals(0, ((FakeRenderable) behind.getRenderable()).draws);
+        assertEquals(0, ((FakeRenderable) farAway.getRenderable()).draws);
+        assertEquals(1, scene.getVisibleCount());
+        assertEquals(2, scene.getCulledCount());
+    }
+
+    @Test
+    public void childrenArePlacedRelativeToTheirParent() {
+        SceneNode group = new SceneNode();
+        scene.getRoot().addChild(group);
+        SceneNode child = add(group, 20f, 0f, 0f);
+
+        //out at x = 20 on its own
+        group.getTransform().setPosition(0f, 0f, -5f);
+        scene.draw(camera.getViewProjection());
+        assertEquals(0, scene.getVisibleCount());
+
+        //brought into view by moving the group
+        group.getTransform().setPosition(-20f, 0f, -5f);
+        scene.draw(camera.getViewProjection());
+        assertEquals(1, scene.getVisibleCount());
+
+        float[] expected = new float[16];
+        Mat4.multiply(expected, 0, camera.getViewProjection(), 0, child.getWorldMatrix(), 0);
+        assertArrayEquals(expected, ((FakeRenderable) child.getRenderable()).lastMvp, 1e-5f);
+        assertEquals(-5f, child.getWorldMatrix()[14], 1e-5f);
+    }
+
+    @Test
+    public void worldMatricesAreOnlyRebuiltWhenSomethingMoved() {
+        SceneNode group = new SceneNode();
+        scene.getRoot().addChild(group);
+        SceneNode child = add(group, 0f, 0f, -5f);
+        SceneNode sibling = add(scene.getRoot(), 1f, 0f, -5f);
+
+        scene.cull(camera.getViewProjection());
+        float[] childWorld = child.getWorldMatrix();
+        float before = childWorld[12];
+
+        //moving the group changes the child's cached matrix in place, and only after the next cull or get
+        group.getTransform().setPosition(2f, 0f, 0f);
+        assertEquals(before, childWorld[12], 0f);
+        scene.cull(camera.getViewProjection());
+        assertEquals(before + 2f, childWorld[12], 1e-6f);
+        assertEquals(1f, sibling.getWorldMatrix()[12], 0f);
+    }
+
+    @Test
+    public void hiddenSubtreesAreSkipped() {
+        SceneNode group = new SceneNode();
+        scene.getRoot().addChild(group);
+        add(group, 0f, 0f, -5f);
+        add(group, 0f, 0f, -6f);
+
+        group.setVisible(false);
+        scene.cull(camera.getViewProjection());
+        assertEquals(0, scene.getVisibleCount());
+        assertEquals(1, scene.getNodeCount());
+    }
+
+    @Test
+    public void visibleNodesAreDrawnInQueueOrder() {
+        List<FakeRenderable> log = new ArrayList<>();
+        FakeRenderable nearGlass = new FakeRenderable(1, 1, true, log);
+        FakeRenderable farGlass = new FakeRenderable(1, 1, true, log);
+        FakeRenderable wall = new FakeRenderable(2, 3, false, log);
+        add(scene.getRoot(), nearGlass, 0f, 0f, -2f);
+        add(scene.getRoot(), farGlass, 0f, 0f, -8f);
+        add(scene.getRoot(), wall, 0f, 0f, -9f);
+
+        scene.draw(camera.getViewProjection());
+
+        //opaque first, then translucent from the back
+        assertEquals(Arrays.asList(wall, farGlass, nearGlass), log);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cyclesAreRejected() {
+        SceneNode a = new SceneNode();
+        SceneNode b = new SceneNode();
+        a.addChild(b);
+        b.addChild(a);
+    }
+
+    @Test
+    public void onlyWhatMovedIsDirty() {
+        SceneNode still = add(scene.getRoot(), -2f, 0f, -5f);
+        SceneNode moving = add(scene.getRoot(), 2f, 0f, -5f);
+        float[] vp = camera.getViewProjection();
+
+        //everything is new on the first frame
+        scene.draw(vp);
+        assertTrue(scene.getDirtyRegion().isFull());
+
+        //and nothing changed on the second
+        scene.draw(vp);
+        assertTrue(scene.getDirtyRegion().isEmpty());
+
+        moving.getTransform().setPosition(2f, 1f, -5f);
+        scene.draw(vp);
+        DirtyRegion dirty = scene.getDirtyRegion();
+        assertFalse(dirty.isEmpty());
+        assertFalse(dirty.isFull());
+        //covers where it was (y = 0 projects to 0) and where it is (y = 1 projects to 0.2), but not the node on the left
+        assertTrue(dirty.getBottom() < 0f && dirty.getTop() > 0.2f);
+        assertTrue(dirty.getLeft() > 0f);
+        assertTrue(still.drawnRect[2] < dirty.getLeft());
+
+        //a node marked dirty in place repaints its own rectangle
+        still.markDirty();
+        scene.draw(vp);
+        assertEquals(still.drawnRect[0], scene.getDirtyRegion().getLeft(), 0f);
+        assertEquals(still.drawnRect[2], scene.getDirtyRegion().getRight(), 0f);
+    }
+
+    @Test
+    public void nodesThatStopBeingDrawnLeaveTheirRectangleDirty() {
+        SceneNode hidden = add(scene.getRoot(), -2f, 0f, -5f);
+        SceneNode removed = add(scene.getRoot(), 2f, 0f, -5f);
+        float[] vp = camera.getViewProjection();
+        scene.draw(vp);
+
+        float hiddenLeft = hidden.drawnRect[0];
+        hidden.setVisible(false);
+        scene.draw(vp);
+        assertEquals(hiddenLeft, scene.getDirtyRegion().getLeft(), 0f);
+        assertTrue(scene.getDirtyRegion().getRight() < 0f);
+
+        float removedRight = removed.drawnRect[2];
+        scene.getRoot().removeChild(removed);
+        scene.draw(vp);
+        assertEquals(removedRight, scene.getDirtyRegion().getRight(), 0f);
+
+        scene.draw(vp);
+        assertTrue(scene.getDirtyRegion().isEmpty());
+    }
+
+    @Test
+    public void aCameraChangeDirtiesEverything() {
+        add(scene.getRoot(), 0f, 0f, -5f);
+        scene.draw(camera.getViewProjection());
+        scene.draw(camera.getViewProjection());
+        assertTrue(scene.getDirtyRegion().isEmpty());
+
+        camera.setLookAt(0f, 0f, 1f, 0f, 0f, -1f, 0f, 1f, 0f);
+        scene.draw(camera.getViewProjection());
+        assertTrue(scene.getDirtyRegion().isFull());
+    }
+
+    @Test
+    public void screenRectCoversTheProjectedSphere() {
+        SceneNode node = add(scene.getRoot(), 1f, -1f, -4f);
+        float[] vp = camera.getViewProjection();
+        scene.cull(vp);
+
+        float[] rect = new float[4];
+        node.screenRect(vp, rect);
+        //points on the sphere's surface all land inside
+        float[] clip = new float[4];
+        for (int i = 0; i < 64; i++) {
+            double theta = i * Math.PI / 32, phi = (i % 8) * Math.PI / 8;
+            float x = 1f + 0.5f * (float) (Math.sin(phi) * Math.cos(theta));
+            float y = -1f + 0.5f * (float) (Math.sin(phi) * Math.sin(theta));
+            float z = -4f + 0.5f * (float) Math.cos(phi);
+            for (int r = 0; r < 4; r++) {
+                clip[r] = vp[r] * x + vp[4 + r] * y + vp[8 + r] * z + vp[12 + r];
+            }
+            float ndcX = clip[0] / clip[3], ndcY = clip[1] / clip[3];
+            assertTrue(ndcX >= rect[0] && ndcX <= rect[2]);
+            assertTrue(ndcY >= rect[1] && ndcY <= rect[3]);
+        }
+    }
+
+    @Test
+    public void culledInChunksComesOutTheSameAsInOneGo() {
+        //the same random forest twice, one culled on a single thread and one spread over workers
+        List<FakeRenderable> oneLog = new ArrayList<>(), chunkedLog = new ArrayList<>();
+        List<SceneNode> one = forest(scene, oneLog);
+        SceneGraph chunked = new SceneGraph();
+        List<SceneNode> chunkedNodes = forest(chunked, chunkedLog);
+        JobSystem jobs = new JobSystem(4);
+        chunked.setJobs(jobs);
+
+        IdentityHashMap<FakeRenderable, Integer> oneIds = ids(one), chunkedIds = ids(chunkedNodes);
+        Random random = new Random(2);
+        float[] vp = camera.getViewProjection();
+        try {
+            for (int frame = 0; frame < 10; frame++) {
+                oneLog.clear();
+                chunkedLog.clear();
+                scene.draw(vp);
+                chunked.draw(vp);
+
+                assertEquals(scene.getNodeCount(), chunked.getNodeCount());
+                assertEquals(scene.getVisibleCount(), chunked.getVisibleCount());
+                assertEquals(scene.getCulledCount(), chunked.getCulledCount());
+                DirtyRegion a = scene.getDirtyRegion(), b = chunked.getDirtyRegion();
+                assertEquals(a.isEmpty(), b.isEmpty());
+                assertEquals(a.isFull(), b.isFull());
+                assertArrayEquals(new float[] {a.getLeft(), a.getBottom(), a.getRight(), a.getTop()},
+                        new float[] {b.getLeft(), b.getBottom(), b.getRight(), b.getTop()}, 0f);
+                assertEquals(oneLog.size(), chunkedLog.size());
+                for (int i = 0; i < oneLog.size(); i++) {
+                    assertEquals(oneIds.get(oneLog.get(i)), chunkedIds.get(chunkedLog.get(i)));
+                    assertArrayEquals(oneLog.get(i).lastMvp, chunkedLog.get(i).lastMvp, 0f);
+                }
+
+                //move, hide and show a few of them, the same ones in both
+                for (int k = 0; k < 50; k++) {
+                    int n = random.nextInt(one.size());
+                    float x = random.nextFloat() * 4f - 2f;
+                    one.get(n).getTransform().setPosition(x, 0f, -3f);
+                    chunkedNodes.get(n).getTransform().setPosition(x, 0f, -3f);
+                }
+                int hide = random.nextInt(one.size());
+                one.get(hide).setVisible(!one.get(hide).isVisible());
+                chunkedNodes.get(hide).setVisible(!chunkedNodes.get(hide).isVisible());
+            }
+            assertTrue(scene.getVisibleCount() > SceneGraph.MIN_CHUNK * 4);
+            assertTrue(scene.getCulledCount() > 0);
+        }
+        finally {
+            jobs.shutdown();
+        }
+    }
+
+    //three levels of nodes spread around the camera, with different programs, textures and translucency to sort by
+    private List<SceneNode> forest(SceneGraph into, List<FakeRenderable> log) {
+        Random random = new Random(1);
+        List<SceneNode> nodes = new ArrayList<>();
+        for (int g = 0; g < 20; g++) {
+            SceneNode group = add(into.getRoot(), new FakeRenderable(1, 0, false, log), random.nextFloat() * 40f - 20f, 0f,
+                    -random.nextFloat() * 9f);
+            nodes.add(group);
+            for (int c = 0; c < 10; c++) {
+                SceneNode child = add(group, new FakeRenderable(2, c % 3, false, log), random.nextFloat() * 6f - 3f,
+                        random.nextFloat() * 6f - 3f, random.nextFloat() * 2f - 1f);
+                nodes.add(child);
+                for (int l = 0; l < 20; l++) {
+                    nodes.add(add(child, new FakeRenderable(3, l % 4, l % 5 == 0, log), random.nextFloat() * 2f - 1f,
+                            random.nextFloat() * 2f - 1f, random.nextFloat() * 2f - 1f));
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private static IdentityHashMap<FakeRenderable, Integer> ids(List<SceneNode> nodes) {
+        IdentityHashMap<FakeRenderable, Integer> ids = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            ids.put((FakeRenderable) nodes.get(i).getRenderable(), i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,79 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+//per-frame cost of culling and queueing a 20k node scene with every leaf moving, on 1, 2, 4 and 8 workers, and the speedup over one.
+//the speedup is capped by the cores the machine actually has (and the walk, which stays on one thread).
+//benchmarks are skipped by the normal test run; run them with ./gradlew testDebugUnitTest -Pbenchmarks
+public class SceneJobsBenchmark {
+    private static final int GROUPS = 200;
+    private static final int PER_GROUP = 100;
+    private static final int WARMUP_FRAMES = 200;
+    private static final int FRAMES = 500;
+
+    private static final Renderable NOTHING = new FakeRenderable();
+
+    @Test
+    public void cull20kMovingNodes() {
+        Random random = new Random(1);
+        SceneGraph scene = new SceneGraph();
+        SceneNode[] leaves = new SceneNode[GROUPS * PER_GROUP];
+        for (int g = 0; g < GROUPS; g++) {
+            SceneNode group = new SceneNode();
+            group.getTransform().setPosition(random.nextFloat() * 200f - 100f, random.nextFloat() * 200f - 100f, -random.nextFloat() * 100f);
+            scene.getRoot().addChild(group);
+            for (int i = 0; i < PER_GROUP; i++) {
+                SceneNode leaf = new SceneNode(NOTHING, 0.5f);
+                leaf.getTransform().setPosition(random.nextFloat() * 10f - 5f, random.nextFloat() * 10f - 5f, random.nextFloat() * 10f - 5f);
+                group.addChild(leaf);
+                leaves[g * PER_GROUP + i] = leaf;
+            }
+        }
+
+        Camera camera = new Camera();
+        camera.setLookAt(0f, 0f, 0f, 0f, 0f, -1f, 0f, 1f, 0f);
+        camera.setPerspective(60f, 1.5f, 1f, 100f);
+        float[] viewProjection = camera.getViewProjection();
+        CommandBuffer out = new CommandBuffer(1024);
+
+        System.out.println(String.format("%d cores", Runtime.getRuntime().availableProcessors()));
+        double single = 0;
+        for (int workers = 1; workers <= 8; workers *= 2) {
+            JobSystem jobs = new JobSystem(workers);
+            scene.setJobs(jobs);
+            try {
+                for (int f = 0; f < WARMUP_FRAMES; f++) {
+                    frame(scene, leaves, f, viewProjection, out);
+                }
+                long start = System.nanoTime();
+                for (int f = 0; f < FRAMES; f++) {
+                    frame(scene, leaves, f, viewProjection, out);
+                }
+                double ms = (System.nanoTime() - start) / 1e6 / FRAMES;
+                if (workers == 1) {
+                    single = ms;
+                }
+                System.out.println(String.format("%d workers: %d nodes, %d visible, %.3f ms/frame, %.2fx", workers, scene.getNodeCount(),
+                        scene.getVisibleCount(), ms, single / ms));
+            }
+            finally {
+                jobs.shutdown();
+            }
+        }
+        scene.setJobs(null);
+        assertTrue(scene.getVisibleCount() > 0);
+    }
+
+    private static void frame(SceneGraph scene, SceneNode[] leaves, int frame, float[] viewProjection, CommandBuffer out) {
+        for (SceneNode leaf : leaves) {
+            leaf.getTransform().setRotation(frame, 0f, 1f, 0f);
+        }
+        out.begin(viewProjection);
+        scene.cull(viewProjection);
+        scene.recordVisible(viewProjection, out);
+    }
+}
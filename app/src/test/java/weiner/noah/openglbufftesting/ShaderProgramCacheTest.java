@@ -0,0 +1,146 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShaderProgramCacheTest {
+    private static final String VERTEX_A = "attribute vec4 vPosition; void main() { gl_Position = vPosition; }";
+    private static final String VERTEX_B = "attribute vec4 vPosition; void main() { gl_Position = vPosition * 2.0; }";
+    private static final String FRAGMENT = "precision mediump float; uniform vec4 vColor; void main() { gl_FragColor = vColor; }";
+
+    private static final String[] ATTRIBUTES = {"vPosition"};
+    private static final String[] UNIFORMS = {"vColor"};
+
+    private FakeGles gl;
+    private ShaderProgramCache cache;
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        cache = new ShaderProgramCache(gl);
+    }
+
+    @Test
+    public void identicalSourcesShareOneProgram() {
+        ShaderProgram first = cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+        ShaderProgram second = cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+
+        assertEquals(first.getProgram(), second.getProgram());
+        assertEquals(1, gl.count(FakeGles.Call.LINK_PROGRAM));
+        assertEquals(2, gl.count(FakeGles.Call.COMPILE_SHADER));
+        assertEquals(1, cache.getProgramHits());
+    }
+
+    @Test
+    public void sharedFragmentShaderIsCompiledOnce() {
+        ShaderProgram a = cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+        ShaderProgram b = cache.acquire(VERTEX_B, FRAGMENT, ATTRIBUTES, UNIFORMS);
+
+        assertNotEquals(a.getProgram(), b.getProgram());
+        assertEquals(3, gl.count(FakeGles.Call.COMPILE_SHADER));
+        assertEquals(1, cache.getShaderHits());
+        assertEquals(3, cache.getLiveShaders());
+    }
+
+    @Test
+    public void drawablesWithTheSameFragmentShaderShareIt() {
+        new Square(gl, cache);
+        new ScreenShader(gl, cache);
+
+        //two vertex shaders, one fragment shader
+        assertEquals(3, cache.getShaderCompiles());
+        assertEquals(2, cache.getProgramLinks());
+    }
+
+    @Test
+    public void releaseDeletesOnlyWhenUnreferenced() {
+        ShaderProgram a = cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+        ShaderProgram b = cache.acquire(VERTEX_B, FRAGMENT, ATTRIBUTES, UNIFORMS);
+        ShaderProgram aAgain = cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+
+        cache.release(a);
+        assertEquals(0, gl.count(FakeGles.Call.DELETE_PROGRAM));
+
+        cache.release(aAgain);
+        assertEquals(1, gl.count(FakeGles.Call.DELETE_PROGRAM));
+        //VERTEX_A goes with it, FRAGMENT is still used by b
+        assertEquals(1, gl.count(FakeGles.Call.DELETE_SHADER));
+
+        cache.release(b);
+        assertEquals(2, gl.count(FakeGles.Call.DELETE_PROGRAM));
+        assertEquals(3, gl.count(FakeGles.Call.DELETE_SHADER));
+        assertEquals(0, cache.getLivePrograms());
+        assertEquals(0, cache.getLiveShaders());
+    }
+
+    @Test
+    public void shadersAreDetachedAfterLinking() {
+        cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+
+        assertEquals(2, gl.count(FakeGles.Call.DETACH_SHADER));
+    }
+
+    @Test
+    public void failedLinkThrowsWithInfoLogAndCleansUp() {
+        gl.failLink = true;
+        try {
+            cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+            fail("link failure should throw");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("v_Color not written"));
+        }
+
+        assertEquals(1, gl.count(FakeGles.Call.DELETE_PROGRAM));
+        assertEquals(2, gl.count(FakeGles.Call.DELETE_SHADER));
+        assertEquals(0, cache.getLiveShaders());
+    }
+
+    @Test
+    public void failedCompileThrowsWithInfoLog() {
+        gl.failCompile = true;
+        try {
+            cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+            fail("compile failure should throw");
+        }
+        catch (RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Error compiling vertex shader"));
+            assertTrue(e.getMessage().contains("syntax error"));
+        }
+    }
+
+    @Test
+    public void successfulCompilesKeepTheirLogAndTime() {
+        gl.compileWarning = "WARNING: 0:1: precision defaulted";
+        ShaderProgram a = cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+
+        assertEquals(gl.compileWarning, cache.getShaderInfoLog(a, GLES20.GL_VERTEX_SHADER));
+        assertEquals(gl.compileWarning, cache.getShaderInfoLog(a, GLES20.GL_FRAGMENT_SHADER));
+        assertEquals(cache.getTotalCompileNanos(), cache.getCompileNanos(a, GLES20.GL_VERTEX_SHADER)
+                + cache.getCompileNanos(a, GLES20.GL_FRAGMENT_SHADER));
+
+        //the shared fragment shader keeps what its first compile reported
+        gl.compileWarning = "";
+        ShaderProgram b = cache.acquire(VERTEX_B, FRAGMENT, ATTRIBUTES, UNIFORMS);
+        assertEquals("", cache.getShaderInfoLog(b, GLES20.GL_VERTEX_SHADER));
+        assertEquals(cache.getShaderInfoLog(a, GLES20.GL_FRAGMENT_SHADER), cache.getShaderInfoLog(b, GLES20.GL_FRAGMENT_SHADER));
+        assertEquals(cache.getCompileNanos(a, GLES20.GL_FRAGMENT_SHADER), cache.getCompileNanos(b, GLES20.GL_FRAGMENT_SHADER));
+    }
+
+    @Test
+    public void invalidateForgetsWithoutDeleting() {
+        cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+        cache.invalidate();
+
+        assertEquals(0, cache.getLivePrograms());
+        assertEquals(0, gl.count(FakeGles.Call.DELETE_PROGRAM));
+
+        //next acquire has to compile again
+        cache.acquire(VERTEX_A, FRAGMENT, ATTRIBUTES, UNIFORMS);
+        assertEquals(2, gl.count(FakeGles.Call.LINK_PROGRAM));
+    }
+}
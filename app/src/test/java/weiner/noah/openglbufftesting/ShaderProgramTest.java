@@ -0,0 +1,108 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShaderProgramTest {
+    private static final String VERTEX =
+            "uniform mat4 uMVPMatrix;" +
+            "uniform vec4 uOffsets[4];" +
+            "attribute vec4 vPosition;" +
+            "attribute vec2 a_TexCoordinate;" +
+            "void main() { gl_Position = uMVPMatrix * vPosition; }";
+
+    private static final String FRAGMENT =
+            "precision mediump float;" +
+            "uniform vec4 vColor;" +
+            "void main() { gl_FragColor = vColor; }";
+
+    private FakeGles gl;
+    private ShaderProgramCache shaders;
+    private final float[] mvp = new float[16];
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        shaders = new ShaderProgramCache(gl);
+    }
+
+    @Test
+    public void locationTableFollowsRequestedSlotOrder() {
+        ShaderProgram program = shaders.acquire(VERTEX, FRAGMENT,
+                new String[] {"a_TexCoordinate", "vPosition"},
+                new String[] {"vColor", "uMVPMatrix", "uOffsets"});
+
+        //the fake hands out locations in declaration order
+        assertEquals(1, program.attribLocation(0));
+        assertEquals(0, program.attribLocation(1));
+        assertEquals(2, program.uniformLocation(0));
+        assertEquals(0, program.uniformLocation(1));
+
+        //arrays are reported as "uOffsets[0]" but looked up by their plain name
+        assertEquals(1, program.uniformLocation(2));
+    }
+
+    @Test
+    public void namesTheLinkerDroppedResolveToMinusOne() {
+        ShaderProgram program = shaders.acquire(VERTEX, FRAGMENT,
+                new String[] {"a_Normal"}, new String[] {"u_Missing"});
+
+        assertEquals(-1, program.attribLocation(0));
+        assertEquals(-1, program.uniformLocation(0));
+    }
+
+    @Test
+    public void locationsAreQueriedOncePerActiveVariableAtLinkTime() {
+        shaders.acquire(VERTEX, FRAGMENT, new String[] {"vPosition"}, new String[] {"vColor"});
+
+        //2 active attributes, 3 active uniforms, regardless of how many slots were requested
+        assertEquals(2, gl.count(FakeGles.Call.GET_ATTRIB_LOCATION));
+        assertEquals(3, gl.count(FakeGles.Call.GET_UNIFORM_LOCATION));
+    }
+
+    @Test
+    public void steadyStateFrameDoesNoLocationQueries() {
+        Square square = new Square(gl, shaders);
+        ScreenShader screenShader = new ScreenShader(gl, shaders);
+        Triangle triangle = new Triangle(gl, shaders);
+
+        //first frame, then start counting
+        square.draw(mvp);
+        screenShader.draw(mvp);
+        triangle.draw(mvp);
+        gl.resetCounts();
+
+        for (int frame = 0; frame < 100; frame++) {
+            square.draw(mvp);
+            screenShader.draw(mvp);
+            triangle.draw(mvp);
+        }
+
+        assertEquals(0, gl.count(FakeGles.Call.GET_ATTRIB_LOCATION));
+        assertEquals(0, gl.count(FakeGles.Call.GET_UNIFORM_LOCATION));
+        assertEquals(0, gl.count(FakeGles.Call.GET_ACTIVE_ATTRIB));
+        assertEquals(0, gl.count(FakeGles.Call.GET_ACTIVE_UNIFORM));
+        assertEquals(0, gl.count(FakeGles.Call.GET_PROGRAMIV));
+
+        //sanity check that the frames actually drew something
+        assertEquals(200, gl.count(FakeGles.Call.DRAW_ELEMENTS));
+        assertEquals(100, gl.count(FakeGles.Call.DRAW_ARRAYS));
+    }
+
+    @Test
+    public void aFailedFragmentCompileDoesNotLeakTheVertexShader() {
+        gl.failCompileOf = "gl_FragColor";
+        try {
+            shaders.acquire(VERTEX, FRAGMENT, new String[] {"vPosition"}, new String[] {"vColor"});
+            fail("the fragment shader should not have compiled");
+        }
+        catch (RuntimeException expected) {
+        }
+
+        assertEquals(0, shaders.getLiveShaders());
+        assertEquals(0, shaders.getLivePrograms());
+        assertEquals(gl.count(FakeGles.Call.CREATE_SHADER), gl.count(FakeGles.Call.DELETE_SHADER));
+    }
+}
@@ -0,0 +1,152 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SimulationThreadTest {
+    private static final long MS = 1_000_000L;
+
+    private static class FakeClock implements FrameProfiler.Clock {
+        long now = 1000 * MS;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+    //one thing moving along x at one unit a second
+    private static class Slide implements SimulationThread.Simulation {
+        float x;
+        int steps;
+
+        @Override
+        public void step(float dtSeconds) {
+            x += dtSeconds;
+            steps++;
+        }
+
+        @Override
+        public void write(TransformSnapshot snapshot) {
+            snapshot.set(0, x, 0f, 0f, 0f);
+        }
+    }
+
+    private FakeClock clock;
+    private Slide slide;
+    private SimulationThread simulation;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        slide = new Slide();
+        //100 ticks a second, driven by hand through advance()
+        simulation = new SimulationThread(slide, 100, 4, clock);
+        simulation.resetSchedule(clock.now);
+    }
+
+    @Test
+    public void ticksRunAtTheFixedRate() {
+        assertEquals(1, simulation.advance(clock.now));
+        clock.now += 5 * MS;
+        assertEquals(0, simulation.advance(clock.now));
+        clock.now += 25 * MS;
+        assertEquals(3, simulation.advance(clock.now));
+
+        TransformSnapshot latest = simulation.latest();
+        assertEquals(4, latest.getTick());
+        assertEquals(0.04f, latest.getX(0), 1e-6f);
+        assertEquals(4, slide.steps);
+    }
+
+    @Test
+    public void framesInterpolateBetweenTheLastTwoTicks() {
+        simulation.advance(clock.now);
+        clock.now += 10 * MS;
+        simulation.advance(clock.now);
+
+        TransformSnapshot latest = simulation.latest();
+        float[] pose = new float[TransformSnapshot.STRIDE];
+
+        //just as the tick ran: still at the previous pose
+        latest.interpolate(0, simulation.alpha(latest), pose, 0);
+        assertEquals(0.01f, pose[0], 1e-6f);
+
+        //half a tick later, half way there
+        clock.now += 5 * MS;
+        latest.interpolate(0, simulation.alpha(latest), pose, 0);
+        assertEquals(0.015f, pose[0], 1e-6f);
+
+        //and no further than the newest pose however late the frame is
+        clock.now += 50 * MS;
+        latest.interpolate(0, simulation.alpha(latest), pose, 0);
+        assertEquals(0.02f, pose[0], 1e-6f);
+    }
+
+    @Test
+    public void jumpsAreNotInterpolated() {
+        SquareSimulation square = new SquareSimulation();
+        SimulationThread thread = new SimulationThread(square, 10, 1, clock);
+        thread.resetSchedule(clock.now);
+        float[] pose = new float[TransformSnapshot.STRIDE];
+
+        //somewhere around 4 seconds (40 ticks) it wraps back to the start
+        float lastX = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < 45; i++) {
+            thread.advance(clock.now);
+            clock.now += 100 * MS;
+
+            TransformSnapshot latest = thread.latest();
+            if (latest.getX(0) < lastX) {
+                //even at the very start of the frame's interpolation it's already back there
+                latest.interpolate(0, 0f, pose, 0);
+                assertEquals(latest.getX(0), pose[0], 0f);
+                assertTrue(pose[0] < -0.89f);
+                return;
+            }
+            lastX = latest.getX(0);
+        }
+        fail("never wrapped around");
+    }
+
+    @Test
+    public void aLongStallDropsTheBacklogInsteadOfCatchingUp() {
+        simulation.advance(clock.now);
+        clock.now += 1000 * MS;
+        assertEquals(SimulationThread.MAX_CATCH_UP_TICKS, simulation.advance(clock.now));
+        assertTrue(simulation.getDroppedTicks() > 90);
+
+        //back on schedule right away
+        clock.now += 10 * MS;
+        assertEquals(1, simulation.advance(clock.now));
+    }
+
+    @Test(timeout = 10000)
+    public void theThreadPublishesWhileTheReaderPolls() throws InterruptedException {
+        SimulationThread live = new SimulationThread(new Slide(), 1000, 1);
+        live.start();
+        assertTrue(live.isRunning());
+
+        long lastTick = 0;
+        float lastX = -1f;
+        while (lastTick < 50) {
+            TransformSnapshot latest = live.latest();
+            if (latest.getTick() > lastTick) {
+                //one unit a second at 1000 ticks a second
+                assertEquals(latest.getTick() / 1000f, latest.getX(0), 1e-4f);
+                assertTrue(latest.getX(0) > lastX);
+                lastTick = latest.getTick();
+                lastX = latest.getX(0);
+            }
+            Thread.sleep(1);
+        }
+
+        live.stop();
+        assertFalse(live.isRunning());
+        long ticks = live.getTicks();
+        Thread.sleep(20);
+        assertEquals(ticks, live.getTicks());
+    }
+}
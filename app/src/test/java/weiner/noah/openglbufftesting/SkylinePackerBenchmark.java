@@ -0,0 +1,46 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+//how well and how fast the skyline packer fills pages with tile-sized rectangles.
+//benchmarks are skipped by the normal test run; run them with ./gradlew testDebugUnitTest -Pbenchmarks
+public class SkylinePackerBenchmark {
+    private static final int PAGE = 2048;
+    private static final int RUNS = 20;
+
+    @Test
+    public void uniformLabelTiles() {
+        //the NOSHAKE TEST tile is 256x256; label tiles are usually all the same size
+        run("256x256 tiles", 256, 256, 0);
+    }
+
+    @Test
+    public void mixedTileSizes() {
+        run("32..256 mixed tiles", 32, 256, 2);
+    }
+
+    private void run(String name, int minSize, int maxSize, int padding) {
+        float occupancy = 0;
+        long nanos = 0;
+        int inserts = 0;
+        for (int r = 0; r < RUNS; r++) {
+            Random random = new Random(r);
+            SkylinePacker packer = new SkylinePacker(PAGE, PAGE, padding);
+            long start = System.nanoTime();
+            while (packer.insert(minSize + random.nextInt(maxSize - minSize + 1), minSize + random.nextInt(maxSize - minSize + 1)) != null) {
+                inserts++;
+            }
+            nanos += System.nanoTime() - start;
+            occupancy += packer.getOccupancy();
+        }
+        occupancy /= RUNS;
+
+        System.out.println(String.format("%s on %dx%d: %.1f%% occupancy until the first miss, %.2f us/insert",
+                name, PAGE, PAGE, occupancy * 100, nanos / 1000.0 / inserts));
+        assertTrue(occupancy > 0.5f);
+    }
+}
@@ -0,0 +1,107 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SkylinePackerTest {
+    @Test
+    public void firstRectangleGoesInTheCorner() {
+        SkylinePacker packer = new SkylinePacker(256, 256, 0);
+        SkylinePacker.Region region = packer.insert(100, 50);
+
+        assertEquals(0, region.x);
+        assertEquals(0, region.y);
+        assertEquals(100, region.width);
+        assertEquals(50, region.height);
+    }
+
+    @Test
+    public void rectanglesFillARowBeforeStackingUp() {
+        SkylinePacker packer = new SkylinePacker(256, 256, 0);
+        SkylinePacker.Region a = packer.insert(128, 64);
+        SkylinePacker.Region b = packer.insert(128, 64);
+        SkylinePacker.Region c = packer.insert(128, 64);
+
+        assertEquals(128, b.x);
+        assertEquals(0, b.y);
+        assertEquals(0, c.x);
+        assertEquals(64, c.y);
+        assertEquals(3, packer.getLiveCount());
+        assertNotNull(a);
+    }
+
+    @Test
+    public void fullPageReturnsNull() {
+        SkylinePacker packer = new SkylinePacker(256, 256, 0);
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(packer.insert(128, 128));
+        }
+        assertNull(packer.insert(1, 1));
+        assertEquals(1f, packer.getOccupancy(), 0f);
+    }
+
+    @Test
+    public void paddingSeparatesNeighbours() {
+        SkylinePacker packer = new SkylinePacker(256, 256, 2);
+        packer.insert(10, 10);
+        SkylinePacker.Region second = packer.insert(10, 10);
+
+        assertEquals(12, second.x);
+    }
+
+    @Test
+    public void removedSlotsAreReused() {
+        SkylinePacker packer = new SkylinePacker(256, 256, 0);
+        List<SkylinePacker.Region> regions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            regions.add(packer.insert(128, 128));
+        }
+        packer.remove(regions.get(2));
+        SkylinePacker.Region reused = packer.insert(100, 100);
+
+        assertEquals(regions.get(2).x, reused.x);
+        assertEquals(regions.get(2).y, reused.y);
+    }
+
+    @Test
+    public void removingEverythingResetsThePage() {
+        SkylinePacker packer = new SkylinePacker(256, 256, 0);
+        SkylinePacker.Region a = packer.insert(200, 200);
+        packer.remove(a);
+
+        assertEquals(0f, packer.getOccupancy(), 0f);
+        assertNotNull(packer.insert(256, 256));
+    }
+
+    @Test
+    public void randomRectanglesNeverOverlapOrLeaveThePage() {
+        SkylinePacker packer = new SkylinePacker(512, 512, 1);
+        Random random = new Random(42);
+        List<SkylinePacker.Region> placed = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            SkylinePacker.Region r = packer.insert(4 + random.nextInt(60), 4 + random.nextInt(60));
+            if (r != null) {
+                placed.add(r);
+            }
+            //evict now and then so free slots get exercised too
+            if (i % 7 == 0 && !placed.isEmpty()) {
+                packer.remove(placed.remove(random.nextInt(placed.size())));
+            }
+        }
+
+        for (int i = 0; i < placed.size(); i++) {
+            SkylinePacker.Region a = placed.get(i);
+            assertTrue(a.x >= 0 && a.y >= 0 && a.x + a.width <= 512 && a.y + a.height <= 512);
+            for (int j = i + 1; j < placed.size(); j++) {
+                SkylinePacker.Region b = placed.get(j);
+                boolean apart = a.x + a.width <= b.x || b.x + b.width <= a.x || a.y + a.height <= b.y || b.y + b.height <= a.y;
+                assertTrue(String.format("(%d,%d %dx%d) overlaps (%d,%d %dx%d)", a.x, a.y, a.width, a.height, b.x, b.y, b.width, b.height), apart);
+            }
+        }
+    }
+}
@@ -0,0 +1,793 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//a FakeGles that actually draws: a small CPU rasterizer behind the same call counting, so a whole frame (Square into the offscreen
+//target, ScreenShader from there onto the screen) produces pixels on the JVM that tests can look at. it does what that path needs and
+//no more:
+//
+//  - color buffers hold RGBA rounded to 8 bits a channel, like an RGBA8888 target: the default framebuffer (sized by the constructor)
+//    and textures attached to framebuffers. no depth buffer and no face culling
+//  - textures take GL_RGBA/GL_UNSIGNED_BYTE uploads (any format can be allocated empty), are sampled with their mag filter (NEAREST or
+//    LINEAR, no mipmaps) and clamped at the edges. texture 0 samples opaque black
+//  - float vertex attributes, from buffer objects or client buffers; GL_TRIANGLES from glDrawArrays or unsigned short indices
+//  - the scissor test, and blending with GL_ZERO, GL_ONE, GL_SRC_ALPHA and GL_ONE_MINUS_SRC_ALPHA
+//
+//GLSL can't run here, so each program gets a Shader written in Java instead: the first ShaderFactory that recognizes the program's
+//attributes and uniforms. draws with a program nobody recognizes are skipped and counted (getSkippedDraws())
+public class SoftwareGles extends FakeGles {
+    //stands in for one linked program
+    public interface Shader {
+        int varyingCount();
+
+        //attributes[location] holds that attribute's x, y, z, w; write the clip space position and the varyings
+        void vertex(float[][] attributes, float[] position, float[] varyings);
+
+        //varyings interpolated for the pixel; write its RGBA
+        void fragment(float[] varyings, float[] color);
+    }
+
+    public interface ShaderFactory {
+        //a shader for program, or null if this factory doesn't know it
+        Shader create(Program program);
+    }
+
+    //what a shader can see of its program: locations by name, uniform values and the textures its samplers point at
+    public final class Program {
+        final int name;
+        final List<String> attributes;
+        final List<String> uniforms;
+        final float[][] values;
+        Shader shader;
+
+        Program(int name, List<String> attributes, List<String> uniforms) {
+            this.name = name;
+            this.attributes = attributes;
+            this.uniforms = uniforms;
+            values = new float[uniforms.size()][16];
+        }
+
+        public int attribLocation(String name) {
+            return attributes.indexOf(name);
+        }
+
+        public int uniformLocation(String name) {
+            return uniforms.indexOf(name);
+        }
+
+        //the uniform's current value (a float, vec4 or mat4 in the first 1, 4 or 16 slots); all zeros until it's set
+        public float[] uniform(int location) {
+            return values[location];
+        }
+
+        //sample the texture bound to the unit the sampler uniform at location points at
+        public void sample(int location, float s, float t, float[] out) {
+            int unit = (int) values[location][0];
+            Texture texture = textures.get(boundTextures[unit]);
+            if (texture == null || texture.texels == null) {
+                out[0] = out[1] = out[2] = 0f;
+                out[3] = 1f;
+                return;
+            }
+            texture.sample(s, t, out);
+        }
+    }
+
+    //Square's and ScreenShader's program: gl_Position = uMVPMatrix * vPosition, gl_FragColor = vColor * alpha * texture2D(u_Texture, ...)
+    public static final ShaderFactory TEXTURED = new ShaderFactory() {
+        @Override
+        public Shader create(final Program program) {
+            final int position = program.attribLocation("vPosition");
+            final int texCoord = program.attribLocation("a_TexCoordinate");
+            final int mvp = program.uniformLocation("uMVPMatrix");
+            final int texture = program.uniformLocation("u_Texture");
+            final int color = program.uniformLocation("vColor");
+            final int alpha = program.uniformLocation("alpha");
+            if (position < 0 || texCoord < 0 || mvp < 0 || texture < 0) {
+                return null;
+            }
+            return new Shader() {
+                private final float[] texel = new float[4];
+
+                @Override
+                public int varyingCount() {
+                    return 2;
+                }
+
+                @Override
+                public void vertex(float[][] attributes, float[] out, float[] varyings) {
+                    transform(program.uniform(mvp), attributes[position], out);
+                    varyings[0] = attributes[texCoord][0];
+                    varyings[1] = attributes[texCoord][1];
+                }
+
+                @Override
+                public void fragment(float[] varyings, float[] out) {
+                    program.sample(texture, varyings[0], varyings[1], texel);
+                    float a = alpha >= 0 ? program.uniform(alpha)[0] : 1f;
+                    for (int i = 0; i < 4; i++) {
+                        float c = color >= 0 ? program.uniform(color)[i] : 1f;
+                        out[i] = c * a * texel[i];
+                    }
+                }
+            };
+        }
+    };
+
+    //column major matrix times vector
+    static void transform(float[] m, float[] v, float[] out) {
+        for (int r = 0; r < 4; r++) {
+            out[r] = m[r] * v[0] + m[4 + r] * v[1] + m[8 + r] * v[2] + m[12 + r] * v[3];
+        }
+    }
+
+    private static final class Texture {
+        int width, height;
+        float[] texels;
+        int magFilter = GLES20.GL_LINEAR;
+
+        void allocate(int width, int height) {
+            this.width = width;
+            this.height = height;
+            texels = new float[width * height * 4];
+        }
+
+        void sample(float s, float t, float[] out) {
+            float x = s * width - 0.5f;
+            float y = t * height - 0.5f;
+            if (magFilter == GLES20.GL_NEAREST) {
+                fetch(Math.round(x), Math.round(y), 1f, out, true);
+                return;
+            }
+            int x0 = (int) Math.floor(x);
+            int y0 = (int) Math.floor(y);
+            float fx = x - x0;
+            float fy = y - y0;
+            fetch(x0, y0, (1 - fx) * (1 - fy), out, true);
+            fetch(x0 + 1, y0, fx * (1 - fy), out, false);
+            fetch(x0, y0 + 1, (1 - fx) * fy, out, false);
+            fetch(x0 + 1, y0 + 1, fx * fy, out, false);
+        }
+
+        private void fetch(int x, int y, float weight, float[] out, boolean first) {
+            x = Math.max(0, Math.min(width - 1, x));
+            y = Math.max(0, Math.min(height - 1, y));
+            int i = (y * width + x) * 4;
+            for (int c = 0; c < 4; c++) {
+                out[c] = (first ? 0f : out[c]) + texels[i + c] * weight;
+            }
+        }
+    }
+
+    private static final class Attribute {
+        boolean enabled;
+        int size, type, stride, offset, buffer;
+        boolean normalized;
+        Buffer client;
+    }
+
+    private final int width, height;
+    private final float[] screen;
+
+    private final ArrayList<ShaderFactory> factories = new ArrayList<>();
+    private final Map<Integer, Program> programs = new HashMap<>();
+    private final Map<Integer, Texture> textures = new HashMap<>();
+    private final Map<Integer, ByteBuffer> buffers = new HashMap<>();
+    private final Map<Integer, Integer> framebufferTextures = new HashMap<>();
+    private final Attribute[] attributes = new Attribute[16];
+
+    private Program current;
+    private int activeUnit;
+    private final int[] boundTextures = new int[8];
+    private int arrayBuffer, elementBuffer, framebuffer;
+    private final int[] viewport = new int[4];
+    private final float[] clearColor = new float[4];
+    private boolean blend;
+    private int blendSource = GLES20.GL_ONE, blendDestination = GLES20.GL_ZERO;
+
+    private long trianglesDrawn, fragmentsShaded;
+    private int skippedDraws;
+
+    //per-vertex scratch for one triangle
+    private final float[][] vertexAttributes = new float[16][4];
+    private final float[][] clip = new float[3][4];
+    private final float[][] varyings = new float[3][16];
+    private final float[] interpolated = new float[16];
+    private final float[] color = new float[4];
+
+    public SoftwareGles(int width, int height) {
+        this.width = width;
+        this.height = height;
+        screen = new float[width * height * 4];
+        for (int i = 0; i < attributes.length; i++) {
+            attributes[i] = new Attribute();
+        }
+        viewport[2] = width;
+        viewport[3] = height;
+        factories.add(TEXTURED);
+    }
+
+    //try factory before the ones already there
+    public void addShader(ShaderFactory factory) {
+        factories.add(0, factory);
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        super.glLinkProgram(program);
+        Program linked = new Program(program, activeAttribNames(program), activeUniformNames(program));
+        for (int i = 0; i < factories.size() && linked.shader == null; i++) {
+            linked.shader = factories.get(i).create(linked);
+        }
+        programs.put(program, linked);
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        super.glDeleteProgram(program);
+        programs.remove(program);
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        super.glUseProgram(program);
+        current = programs.get(program);
+    }
+
+    @Override
+    public void glUniform1i(int location, int x) {
+        super.glUniform1i(location, x);
+        if (location >= 0) {
+            current.values[location][0] = x;
+        }
+    }
+
+    @Override
+    public void glUniform1f(int location, float x) {
+        super.glUniform1f(location, x);
+        if (location >= 0) {
+            current.values[location][0] = x;
+        }
+    }
+
+    @Override
+    public void glUniform2f(int location, float x, float y) {
+        super.glUniform2f(location, x, y);
+        if (location >= 0) {
+            current.values[location][0] = x;
+            current.values[location][1] = y;
+        }
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+        super.glUniform4fv(location, count, v, offset);
+        if (location >= 0) {
+            System.arraycopy(v, offset, current.values[location], 0, 4);
+        }
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        super.glUniformMatrix4fv(location, count, transpose, value, offset);
+        if (location >= 0) {
+            System.arraycopy(value, offset, current.values[location], 0, 16);
+        }
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        super.glEnableVertexAttribArray(index);
+        attributes[index].enabled = true;
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        super.glDisableVertexAttribArray(index);
+        attributes[index].enabled = false;
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr) {
+        super.glVertexAttribPointer(index, size, type, normalized, stride, ptr);
+        pointAttribute(index, size, type, normalized, stride, 0, 0, ptr);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+        super.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+        pointAttribute(index, size, type, normalized, stride, offset, arrayBuffer, null);
+    }
+
+    private void pointAttribute(int index, int size, int type, boolean normalized, int stride, int offset, int buffer, Buffer client) {
+        if (type != GLES20.GL_FLOAT) {
+            throw new UnsupportedOperationException(String.format("SoftwareGles only reads float attributes, got type 0x%x", type));
+        }
+        Attribute a = attributes[index];
+        a.size = size;
+        a.type = type;
+        a.normalized = normalized;
+        a.stride = stride != 0 ? stride : size * 4;
+        a.offset = offset;
+        a.buffer = buffer;
+        a.client = client;
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] names, int offset) {
+        super.glDeleteBuffers(n, names, offset);
+        for (int i = 0; i < n; i++) {
+            buffers.remove(names[offset + i]);
+        }
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        super.glBindBuffer(target, buffer);
+        if (target == GLES20.GL_ELEMENT_ARRAY_BUFFER) {
+            elementBuffer = buffer;
+        }
+        else {
+            arrayBuffer = buffer;
+        }
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        super.glBufferData(target, size, data, usage);
+        ByteBuffer storage = ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+        if (data != null) {
+            copy(data, storage, 0, size);
+        }
+        buffers.put(target == GLES20.GL_ELEMENT_ARRAY_BUFFER ? elementBuffer : arrayBuffer, storage);
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        super.glBufferSubData(target, offset, size, data);
+        copy(data, buffers.get(target == GLES20.GL_ELEMENT_ARRAY_BUFFER ? elementBuffer : arrayBuffer), offset, size);
+    }
+
+    //bytes worth of data from its position into storage at offset
+    private static void copy(Buffer data, ByteBuffer storage, int offset, int bytes) {
+        ByteBuffer into = storage.duplicate().order(ByteOrder.nativeOrder());
+        into.position(offset);
+        if (data instanceof ByteBuffer) {
+            ByteBuffer from = ((ByteBuffer) data).duplicate();
+            from.limit(from.position() + bytes);
+            into.put(from);
+        }
+        else if (data instanceof FloatBuffer) {
+            FloatBuffer from = ((FloatBuffer) data).duplicate();
+            from.limit(from.position() + bytes / 4);
+            into.asFloatBuffer().put(from);
+        }
+        else if (data instanceof ShortBuffer) {
+            ShortBuffer from = ((ShortBuffer) data).duplicate();
+            from.limit(from.position() + bytes / 2);
+            into.asShortBuffer().put(from);
+        }
+        else if (data instanceof IntBuffer) {
+            IntBuffer from = ((IntBuffer) data).duplicate();
+            from.limit(from.position() + bytes / 4);
+            into.asIntBuffer().put(from);
+        }
+        else {
+            throw new UnsupportedOperationException(String.format("Can't copy from a %s", data.getClass().getSimpleName()));
+        }
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        super.glClearColor(red, green, blue, alpha);
+        clearColor[0] = red;
+        clearColor[1] = green;
+        clearColor[2] = blue;
+        clearColor[3] = alpha;
+    }
+
+    @Override
+    public void glClear(int mask) {
+        super.glClear(mask);
+        if ((mask & GLES20.GL_COLOR_BUFFER_BIT) == 0) {
+            return;
+        }
+        float[] target = colorBuffer();
+        if (target == null) {
+            return;
+        }
+        int targetWidth = colorWidth();
+        int x0 = 0, y0 = 0, x1 = targetWidth, y1 = colorHeight();
+        if (scissorTest) {
+            x0 = Math.max(x0, scissor[0]);
+            y0 = Math.max(y0, scissor[1]);
+            x1 = Math.min(x1, scissor[0] + scissor[2]);
+            y1 = Math.min(y1, scissor[1] + scissor[3]);
+        }
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                int i = (y * targetWidth + x) * 4;
+                for (int c = 0; c < 4; c++) {
+                    target[i + c] = quantize(clearColor[c]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        super.glEnable(cap);
+        if (cap == GLES20.GL_BLEND) {
+            blend = true;
+        }
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        super.glDisable(cap);
+        if (cap == GLES20.GL_BLEND) {
+            blend = false;
+        }
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        super.glBlendFunc(sfactor, dfactor);
+        blendSource = sfactor;
+        blendDestination = dfactor;
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        super.glViewport(x, y, width, height);
+        viewport[0] = x;
+        viewport[1] = y;
+        viewport[2] = width;
+        viewport[3] = height;
+    }
+
+    @Override
+    public void glGenTextures(int n, int[] names, int offset) {
+        super.glGenTextures(n, names, offset);
+        for (int i = 0; i < n; i++) {
+            textures.put(names[offset + i], new Texture());
+        }
+    }
+
+    @Override
+    public void glDeleteTextures(int n, int[] names, int offset) {
+        super.glDeleteTextures(n, names, offset);
+        for (int i = 0; i < n; i++) {
+            textures.remove(names[offset + i]);
+        }
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        super.glActiveTexture(texture);
+        activeUnit = texture - GLES20.GL_TEXTURE0;
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        super.glBindTexture(target, texture);
+        boundTextures[activeUnit] = texture;
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pname, int param) {
+        super.glTexParameteri(target, pname, param);
+        Texture texture = textures.get(boundTextures[activeUnit]);
+        if (texture != null && pname == GLES20.GL_TEXTURE_MAG_FILTER) {
+            texture.magFilter = param;
+        }
+    }
+
+    @Override
+    public void glTexParameterf(int target, int pname, float param) {
+        super.glTexParameterf(target, pname, param);
+        Texture texture = textures.get(boundTextures[activeUnit]);
+        if (texture != null && pname == GLES20.GL_TEXTURE_MAG_FILTER) {
+            texture.magFilter = (int) param;
+        }
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels) {
+        super.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+        Texture texture = textures.get(boundTextures[activeUnit]);
+        texture.allocate(width, height);
+        if (pixels != null) {
+            upload(texture, 0, 0, width, height, format, type, pixels);
+        }
+    }
+
+    @Override
+    public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels) {
+        super.glTexSubImage2D(target, level, xoffset, yoffset, width, height, format, type, pixels);
+        upload(textures.get(boundTextures[activeUnit]), xoffset, yoffset, width, height, format, type, pixels);
+    }
+
+    private static void upload(Texture texture, int x0, int y0, int width, int height, int format, int type, Buffer pixels) {
+        if (format != GLES20.GL_RGBA || type != GLES20.GL_UNSIGNED_BYTE || !(pixels instanceof ByteBuffer)) {
+            throw new UnsupportedOperationException(String.format("SoftwareGles only uploads GL_RGBA/GL_UNSIGNED_BYTE bytes, got 0x%x/0x%x", format, type));
+        }
+        ByteBuffer bytes = (ByteBuffer) pixels;
+        int at = bytes.position();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = ((y0 + y) * texture.width + x0 + x) * 4;
+                for (int c = 0; c < 4; c++) {
+                    texture.texels[i + c] = (bytes.get(at++) & 0xff) / 255f;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void glBindFramebuffer(int target, int framebuffer) {
+        super.glBindFramebuffer(target, framebuffer);
+        this.framebuffer = framebuffer;
+    }
+
+    @Override
+    public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level) {
+        super.glFramebufferTexture2D(target, attachment, textarget, texture, level);
+        if (attachment == GLES20.GL_COLOR_ATTACHMENT0) {
+            framebufferTextures.put(framebuffer, texture);
+        }
+    }
+
+    @Override
+    public void glDeleteFramebuffers(int n, int[] names, int offset) {
+        super.glDeleteFramebuffers(n, names, offset);
+        for (int i = 0; i < n; i++) {
+            framebufferTextures.remove(names[offset + i]);
+        }
+    }
+
+    //the color attachment of whatever's bound: the screen or a texture
+    private Texture colorTexture() {
+        Integer texture = framebufferTextures.get(framebuffer);
+        return texture != null ? textures.get(texture) : null;
+    }
+
+    private float[] colorBuffer() {
+        if (framebuffer == 0) {
+            return screen;
+        }
+        Texture texture = colorTexture();
+        return texture != null ? texture.texels : null;
+    }
+
+    private int colorWidth() {
+        return framebuffer == 0 ? width : colorTexture().width;
+    }
+
+    private int colorHeight() {
+        return framebuffer == 0 ? height : colorTexture().height;
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        super.glDrawArrays(mode, first, count);
+        draw(mode, count, null, first);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, Buffer indices) {
+        super.glDrawElements(mode, count, type, indices);
+        ShortBuffer shorts = indices instanceof ShortBuffer ? (ShortBuffer) indices : ((ByteBuffer) indices).order(ByteOrder.nativeOrder()).asShortBuffer();
+        draw(mode, count, shorts, 0);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        super.glDrawElements(mode, count, type, offset);
+        if (type != GLES20.GL_UNSIGNED_SHORT) {
+            throw new UnsupportedOperationException(String.format("SoftwareGles only reads unsigned short indices, got type 0x%x", type));
+        }
+        ByteBuffer storage = buffers.get(elementBuffer).duplicate().order(ByteOrder.nativeOrder());
+        storage.position(offset);
+        draw(mode, count, storage.asShortBuffer(), 0);
+    }
+
+    private void draw(int mode, int count, ShortBuffer indices, int first) {
+        if (mode != GLES20.GL_TRIANGLES) {
+            throw new UnsupportedOperationException(String.format("SoftwareGles only draws GL_TRIANGLES, got mode 0x%x", mode));
+        }
+        if (current == null || current.shader == null || colorBuffer() == null) {
+            skippedDraws++;
+            return;
+        }
+        Shader shader = current.shader;
+        for (int t = 0; t + 2 < count; t += 3) {
+            for (int k = 0; k < 3; k++) {
+                int vertex = indices != null ? indices.get(indices.position() + t + k) & 0xffff : first + t + k;
+                fetchAttributes(vertex);
+                shader.vertex(vertexAttributes, clip[k], varyings[k]);
+            }
+            rasterize(shader);
+        }
+    }
+
+    private void fetchAttributes(int vertex) {
+        for (int location = 0; location < attributes.length; location++) {
+            Attribute a = attributes[location];
+            float[] out = vertexAttributes[location];
+            out[0] = out[1] = out[2] = 0f;
+            out[3] = 1f;
+            if (!a.enabled) {
+                continue;
+            }
+            int at = a.offset + vertex * a.stride;
+            for (int c = 0; c < a.size; c++) {
+                if (a.client != null) {
+                    out[c] = a.client instanceof FloatBuffer ? ((FloatBuffer) a.client).get(a.client.position() + at / 4 + c)
+                            : ((ByteBuffer) a.client).order(ByteOrder.nativeOrder()).getFloat(at + c * 4);
+                }
+                else {
+                    out[c] = buffers.get(a.buffer).getFloat(at + c * 4);
+                }
+            }
+        }
+    }
+
+    private final float[] wx = new float[3], wy = new float[3], inverseW = new float[3];
+
+    private void rasterize(Shader shader) {
+        trianglesDrawn++;
+        int targetWidth = colorWidth(), targetHeight = colorHeight();
+        float[] target = colorBuffer();
+        for (int k = 0; k < 3; k++) {
+            float w = clip[k][3];
+            inverseW[k] = 1f / w;
+            wx[k] = viewport[0] + (clip[k][0] / w + 1f) * 0.5f * viewport[2];
+            wy[k] = viewport[1] + (clip[k][1] / w + 1f) * 0.5f * viewport[3];
+        }
+        float area = (wx[1] - wx[0]) * (wy[2] - wy[0]) - (wy[1] - wy[0]) * (wx[2] - wx[0]);
+        if (area == 0f) {
+            return;
+        }
+        //counter-clockwise from here on, so the inside is to the left of every edge
+        int b = area > 0 ? 1 : 2, c = area > 0 ? 2 : 1;
+        area = Math.abs(area);
+
+        int x0 = Math.max(0, (int) Math.floor(Math.min(wx[0], Math.min(wx[1], wx[2]))));
+        int y0 = Math.max(0, (int) Math.floor(Math.min(wy[0], Math.min(wy[1], wy[2]))));
+        int x1 = Math.min(targetWidth, (int) Math.ceil(Math.max(wx[0], Math.max(wx[1], wx[2]))));
+        int y1 = Math.min(targetHeight, (int) Math.ceil(Math.max(wy[0], Math.max(wy[1], wy[2]))));
+        x0 = Math.max(x0, viewport[0]);
+        y0 = Math.max(y0, viewport[1]);
+        x1 = Math.min(x1, viewport[0] + viewport[2]);
+        y1 = Math.min(y1, viewport[1] + viewport[3]);
+        if (scissorTest) {
+            x0 = Math.max(x0, scissor[0]);
+            y0 = Math.max(y0, scissor[1]);
+            x1 = Math.min(x1, scissor[0] + scissor[2]);
+            y1 = Math.min(y1, scissor[1] + scissor[3]);
+        }
+
+        int n = shader.varyingCount();
+        for (int y = y0; y < y1; y++) {
+            float py = y + 0.5f;
+            for (int x = x0; x < x1; x++) {
+                float px = x + 0.5f;
+                //each weight is the edge function of the edge opposite its vertex
+                float e0 = edge(b, c, px, py);
+                float e1 = edge(c, 0, px, py);
+                float e2 = edge(0, b, px, py);
+                if (!inside(e0, b, c) || !inside(e1, c, 0) || !inside(e2, 0, b)) {
+                    continue;
+                }
+                float l0 = e0 / area, lb = e1 / area, lc = e2 / area;
+
+                //perspective correct: interpolate varying / w and 1 / w, then divide
+                float iw = l0 * inverseW[0] + lb * inverseW[b] + lc * inverseW[c];
+                for (int v = 0; v < n; v++) {
+                    interpolated[v] = (l0 * varyings[0][v] * inverseW[0] + lb * varyings[b][v] * inverseW[b] + lc * varyings[c][v] * inverseW[c]) / iw;
+                }
+                shader.fragment(interpolated, color);
+                fragmentsShaded++;
+                write(target, (y * targetWidth + x) * 4);
+            }
+        }
+    }
+
+    private float edge(int from, int to, float px, float py) {
+        return (wx[to] - wx[from]) * (py - wy[from]) - (wy[to] - wy[from]) * (px - wx[from]);
+    }
+
+    //a pixel center exactly on an edge belongs to the triangle only if it's a left or top edge, so two triangles sharing an edge don't
+    //both draw (and blend) it
+    private boolean inside(float e, int from, int to) {
+        if (e > 0f) {
+            return true;
+        }
+        if (e < 0f) {
+            return false;
+        }
+        float dy = wy[to] - wy[from];
+        return dy < 0f || (dy == 0f && wx[to] - wx[from] < 0f);
+    }
+
+    private void write(float[] target, int i) {
+        for (int c = 0; c < 4; c++) {
+            float src = Math.max(0f, Math.min(1f, color[c]));
+            float out = src;
+            if (blend) {
+                float dst = target[i + c];
+                out = src * factor(blendSource, color[3], target[i + 3]) + dst * factor(blendDestination, color[3], target[i + 3]);
+            }
+            target[i + c] = quantize(out);
+        }
+    }
+
+    private static float factor(int factor, float srcAlpha, float dstAlpha) {
+        switch (factor) {
+            case GLES20.GL_ZERO:
+                return 0f;
+            case GLES20.GL_ONE:
+                return 1f;
+            case GLES20.GL_SRC_ALPHA:
+                return srcAlpha;
+            case GLES20.GL_ONE_MINUS_SRC_ALPHA:
+                return 1f - srcAlpha;
+            default:
+                throw new UnsupportedOperationException(String.format("SoftwareGles doesn't blend with factor 0x%x", factor));
+        }
+    }
+
+    //what an 8 bit channel would store
+    private static float quantize(float v) {
+        return Math.round(Math.max(0f, Math.min(1f, v)) * 255f) / 255f;
+    }
+
+    private static int argb(float[] texels, int i) {
+        return Math.round(texels[i + 3] * 255f) << 24 | Math.round(texels[i] * 255f) << 16 | Math.round(texels[i + 1] * 255f) << 8
+                | Math.round(texels[i + 2] * 255f);
+    }
+
+    //the default framebuffer's pixel at window coordinates (x, y), y up, as 0xAARRGGBB
+    public int getPixel(int x, int y) {
+        return argb(screen, (y * width + x) * 4);
+    }
+
+    //a texel of texture, row 0 being t = 0
+    public int getTexel(int texture, int x, int y) {
+        Texture t = textures.get(texture);
+        return argb(t.texels, (y * t.width + x) * 4);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getTrianglesDrawn() {
+        return trianglesDrawn;
+    }
+
+    public long getFragmentsShaded() {
+        return fragmentsShaded;
+    }
+
+    //draws with no shader standing in for the program, or no color buffer to draw into
+    public int getSkippedDraws() {
+        return skippedDraws;
+    }
+}
@@ -0,0 +1,209 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class SoftwareGlesTest {
+    private static final int SIZE = 64;
+
+    private final float[] mvp = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+    private SoftwareGles software;
+    private FrameRenderer frameRenderer;
+    private TextureLoader loader;
+    private Square square;
+    private SceneNode node;
+
+    @Before
+    public void setUp() {
+        software = new SoftwareGles(SIZE, SIZE);
+        GlStateCache gl = new GlStateCache(software);
+        ShaderProgramCache shaders = new ShaderProgramCache(gl);
+        RenderTargetManager targets = new RenderTargetManager(gl, new RenderTargetPool(gl), 1f, RenderTarget.Format.RGBA8888, false);
+        targets.onSurfaceChanged(SIZE, SIZE);
+
+        //decode right away on the calling thread
+        loader = new TextureLoader(gl, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        loader.init();
+
+        frameRenderer = new FrameRenderer(gl, targets, new FrameProfiler());
+        SceneGraph scene = new SceneGraph();
+        square = new Square(gl, shaders);
+        //the square is 0.2 across; 4x puts it at 0.4 of the screen either side of the center, pixels 19 to 44
+        node = new SceneNode(square, 0.15f);
+        node.getTransform().setScale(4f, 4f, 1f);
+        scene.getRoot().addChild(node);
+        frameRenderer.setDrawables(scene, new ScreenShader(gl, shaders));
+    }
+
+    private void frame() {
+        frameRenderer.beginFrame();
+        frameRenderer.drawFrame(mvp);
+        frameRenderer.endFrame();
+    }
+
+    //a texture of one color, through the loader and cache like the square's label
+    private void texture(final int r, final int g, final int b, final int a) {
+        TextureCache cache = new TextureCache(loader, TextureCache.DEFAULT_BUDGET_BYTES);
+        square.setTexture(cache.acquire(new TextureCache.Key(0, null, 8, 8, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE), new TextureSource() {
+            @Override
+            public TexturePixels decode() {
+                ByteBuffer pixels = ByteBuffer.allocateDirect(8 * 8 * 4);
+                for (int i = 0; i < 8 * 8; i++) {
+                    pixels.put((byte) r).put((byte) g).put((byte) b).put((byte) a);
+                }
+                pixels.position(0);
+                return new TexturePixels(8, 8, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixels);
+            }
+        }, GLES20.GL_NEAREST));
+        loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET);
+    }
+
+    private static void assertColor(int expected, int actual) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            int e = (expected >>> shift) & 0xff, a = (actual >>> shift) & 0xff;
+            if (Math.abs(e - a) > 1) {
+                fail(String.format("Expected 0x%08x, got 0x%08x", expected, actual));
+            }
+        }
+    }
+
+    private static int argb(float r, float g, float b, float a) {
+        return Math.round(a * 255f) << 24 | Math.round(r * 255f) << 16 | Math.round(g * 255f) << 8 | Math.round(b * 255f);
+    }
+
+    @Test
+    public void squareReachesTheScreenThroughTheOffscreenTarget() {
+        texture(255, 255, 255, 255);
+        frame();
+
+        //the square's color in the target, tinted by the screen pass's color on the way out
+        assertColor(argb(0.5f * 0.7f, 0.7f * 0.3f, 0.3f * 0.3f, 1f), software.getPixel(SIZE / 2, SIZE / 2));
+        assertColor(argb(0.5f * 0.7f, 0.7f * 0.3f, 0.3f * 0.3f, 1f), software.getPixel(20, 43));
+        //the target is cleared to transparent, so the screen pass blends nothing in around the square
+        assertEquals(0, software.getPixel(18, SIZE / 2));
+        assertEquals(0, software.getPixel(SIZE / 2, 45));
+        assertEquals(0, software.getSkippedDraws());
+    }
+
+    @Test
+    public void theLabelTextureModulatesTheSquare() {
+        texture(255, 128, 0, 255);
+        frame();
+
+        assertColor(argb(0.5f * 0.7f, 0.7f * (128 / 255f) * 0.3f, 0f, 1f), software.getPixel(SIZE / 2, SIZE / 2));
+    }
+
+    @Test
+    public void movingTheSquareRedrawsOnlyWhereItWasAndIs() {
+        texture(255, 255, 255, 255);
+        frameRenderer.setScreenPreserved(true);
+        frame();
+        long fragments = software.getFragmentsShaded();
+
+        node.getTransform().setPosition(0.1f, 0f, 0f);
+        frame();
+        assertEquals(1, frameRenderer.getPartialFrames());
+        //the screen comes out rotated 180 degrees, so moving right in the target moves left on screen
+        assertEquals(0, software.getPixel(43, SIZE / 2));
+        assertNotEquals(0, software.getPixel(17, SIZE / 2));
+        //scissored to the old and new rectangles, not the whole screen again
+        assertTrue(software.getFragmentsShaded() - fragments < fragments);
+    }
+
+    @Test
+    public void trianglesSharingAnEdgeBlendItOnce() {
+        software.glViewport(0, 0, SIZE, SIZE);
+        software.glClearColor(0f, 0f, 0f, 1f);
+        software.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        drawHalfWhiteQuad(software);
+
+        //the diagonal is no brighter than the rest of the quad
+        int center = software.getPixel(10, 10);
+        //alpha blends with the same factors: 0.5 * 0.5 + 1 * 0.5
+        assertColor(argb(0.5f, 0.5f, 0.5f, 0.75f), center);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(center, software.getPixel(i, i));
+        }
+    }
+
+    @Test
+    public void clearsStayInsideTheScissorBox() {
+        software.glClearColor(1f, 0f, 0f, 1f);
+        software.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        software.glEnable(GLES20.GL_SCISSOR_TEST);
+        software.glScissor(8, 8, 4, 4);
+        software.glClearColor(0f, 0f, 1f, 1f);
+        software.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+
+        assertEquals(0xff0000ff, software.getPixel(8, 11));
+        assertEquals(0xffff0000, software.getPixel(12, 11));
+        assertEquals(0xffff0000, software.getPixel(7, 8));
+    }
+
+    @Test
+    public void programsWithoutAShaderAreSkipped() {
+        software.glViewport(0, 0, SIZE, SIZE);
+        int program = software.glCreateProgram();
+        software.glLinkProgram(program);
+        software.glUseProgram(program);
+        software.glDrawArrays(GLES20.GL_TRIANGLES, 0, 3);
+
+        assertEquals(1, software.getSkippedDraws());
+        assertEquals(1, software.count(FakeGles.Call.DRAW_ARRAYS));
+    }
+
+    //a screen covering quad of white at half alpha, blended over what's there, from two triangles and client side arrays
+    private static void drawHalfWhiteQuad(final SoftwareGles gl) {
+        gl.addShader(new SoftwareGles.ShaderFactory() {
+            @Override
+            public SoftwareGles.Shader create(SoftwareGles.Program program) {
+                return new SoftwareGles.Shader() {
+                    @Override
+                    public int varyingCount() {
+                        return 0;
+                    }
+
+                    @Override
+                    public void vertex(float[][] attributes, float[] position, float[] varyings) {
+                        System.arraycopy(attributes[0], 0, position, 0, 4);
+                    }
+
+                    @Override
+                    public void fragment(float[] varyings, float[] color) {
+                        color[0] = color[1] = color[2] = 1f;
+                        color[3] = 0.5f;
+                    }
+                };
+            }
+        });
+        int program = gl.glCreateProgram();
+        gl.glLinkProgram(program);
+        gl.glUseProgram(program);
+
+        FloatBuffer corners = ByteBuffer.allocateDirect(6 * 2 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        corners.put(new float[]{-1, -1, 1, -1, 1, 1, -1, -1, 1, 1, -1, 1}).position(0);
+        gl.glEnableVertexAttribArray(0);
+        gl.glVertexAttribPointer(0, 2, GLES20.GL_FLOAT, false, 0, corners);
+        gl.glEnable(GLES20.GL_BLEND);
+        gl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, 6);
+    }
+}
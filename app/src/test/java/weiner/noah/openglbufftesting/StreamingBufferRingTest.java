@@ -0,0 +1,170 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.Assert.*;
+
+public class StreamingBufferRingTest {
+    private FakeGles gl;
+    private final ByteBuffer data = ByteBuffer.allocateDirect(64).order(ByteOrder.nativeOrder());
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+    }
+
+    private StreamingBufferRing ring(StreamingBufferRing.Mode mode) {
+        StreamingBufferRing ring = new StreamingBufferRing(gl, GLES20.GL_ARRAY_BUFFER, 64, mode);
+        gl.resetCounts();
+        return ring;
+    }
+
+    @Test
+    public void orphanModeOrphansOnlyWhenItComesRound() {
+        StreamingBufferRing ring = ring(StreamingBufferRing.Mode.ORPHAN);
+        assertEquals(0, ring.write(data, 24));
+        assertEquals(24, ring.write(data, 24));
+        assertEquals(0, gl.count(FakeGles.Call.BUFFER_DATA));
+
+        assertEquals(0, ring.write(data, 24));
+        assertEquals(1, gl.count(FakeGles.Call.BUFFER_DATA));
+        assertEquals(3, gl.count(FakeGles.Call.BUFFER_SUB_DATA));
+        assertEquals(1, ring.getOrphans());
+        assertEquals(72, ring.getBytesStreamed());
+
+        ring.endFrame();
+        assertEquals(0, gl.count(FakeGles.Call.FENCE_SYNC));
+        assertEquals(0, ring.getStalls());
+    }
+
+    @Test
+    public void writesStartOnAlignedOffsets() {
+        StreamingBufferRing ring = ring(StreamingBufferRing.Mode.ORPHAN);
+        assertEquals(0, ring.write(data, 6));
+        assertEquals(8, ring.write(data, 1));
+        assertEquals(12, ring.write(data, 4));
+    }
+
+    @Test
+    public void mappedWritesGoStraightIntoAnUnsynchronizedMapping() {
+        StreamingBufferRing ring = ring(StreamingBufferRing.Mode.MAPPED);
+        ring.write(data, 8);
+        FloatBuffer floats = ByteBuffer.allocateDirect(16).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        floats.put(new float[] {1f, 2f, 3f, 4f}).position(0);
+
+        assertEquals(8, ring.write(floats, 16));
+        assertEquals(8, gl.lastMapOffset);
+        assertEquals(16, gl.lastMapLength);
+        assertTrue((gl.lastMapAccess & GLES30.GL_MAP_UNSYNCHRONIZED_BIT) != 0);
+        assertEquals(3f, gl.lastMapped.getFloat(8), 0f);
+        assertEquals(2, gl.count(FakeGles.Call.UNMAP_BUFFER));
+        assertEquals(0, gl.count(FakeGles.Call.BUFFER_SUB_DATA));
+    }
+
+    @Test
+    public void mappedWritesCopyFromThePositionAndLeaveItAlone() {
+        StreamingBufferRing ring = ring(StreamingBufferRing.Mode.MAPPED);
+        data.putFloat(4, 5f).putFloat(8, 6f).position(4);
+        ring.write(data, 8);
+        assertEquals(5f, gl.lastMapped.getFloat(0), 0f);
+        assertEquals(6f, gl.lastMapped.getFloat(4), 0f);
+        assertEquals(4, data.position());
+        assertEquals(64, data.limit());
+
+        IntBuffer ints = ByteBuffer.allocateDirect(16).order(ByteOrder.nativeOrder()).asIntBuffer();
+        ints.put(new int[] {1, 2, 3, 4}).position(2);
+        ring.write(ints, 8);
+        assertEquals(3, gl.lastMapped.getInt(0));
+        assertEquals(4, gl.lastMapped.getInt(4));
+        assertEquals(2, ints.position());
+        assertEquals(4, ints.limit());
+    }
+
+    @Test
+    public void mappedFramesAreReusedForFreeOnceTheGpuIsDone() {
+        StreamingBufferRing ring = ring(StreamingBufferRing.Mode.MAPPED);
+        for (int frame = 0; frame < 10; frame++) {
+            ring.write(data, 32);
+            ring.endFrame();
+        }
+
+        assertEquals(0, ring.getStalls());
+        assertEquals(10, gl.count(FakeGles.Call.FENCE_SYNC));
+        assertTrue(ring.getFramesInFlight() <= 2);
+        assertEquals(ring.getFramesInFlight(), gl.liveFences);
+    }
+
+    @Test
+    public void mappedWritesWaitWhenTheGpuIsStillReading() {
+        StreamingBufferRing ring = ring(StreamingBufferRing.Mode.MAPPED);
+        gl.fencesSignaled = false;
+        ring.write(data, 32);
+        ring.endFrame();
+        ring.write(data, 32);
+        ring.endFrame();
+        assertEquals(0, ring.getStalls());
+
+        //both halves are in flight: the third frame has to wait for the first
+        assertEquals(0, ring.write(data, 32));
+        assertEquals(1, ring.getStalls());
+        assertEquals(1, ring.getFramesInFlight());
+    }
+
+    @Test
+    public void aFrameBiggerThanTheRingWaitsForItsOwnStart() {
+        StreamingBufferRing ring = ring(StreamingBufferRing.Mode.MAPPED);
+        gl.fencesSignaled = false;
+        ring.write(data, 32);
+        ring.write(data, 32);
+        assertEquals(0, ring.write(data, 32));
+        assertEquals(1, ring.getStalls());
+        assertEquals(1, gl.count(FakeGles.Call.FENCE_SYNC));
+    }
+
+    @Test
+    public void tooManyFramesInFlightWaitsForTheOldest() {
+        StreamingBufferRing ring = new StreamingBufferRing(gl, GLES20.GL_ARRAY_BUFFER, 1024, StreamingBufferRing.Mode.MAPPED);
+        gl.fencesSignaled = false;
+        for (int frame = 0; frame <= StreamingBufferRing.MAX_FRAMES_IN_FLIGHT; frame++) {
+            ring.write(data, 4);
+            ring.endFrame();
+        }
+        assertEquals(1, ring.getStalls());
+        assertEquals(StreamingBufferRing.MAX_FRAMES_IN_FLIGHT, ring.getFramesInFlight());
+
+        ring.release();
+        assertEquals(0, gl.liveFences);
+    }
+
+    @Test
+    public void mapHandsOutExactlyTheBytesAskedFor() {
+        StreamingBufferRing ring = ring(StreamingBufferRing.Mode.ORPHAN);
+        ByteBuffer mapped = ring.map(12);
+        assertEquals(12, mapped.remaining());
+        assertEquals(ByteOrder.nativeOrder(), mapped.order());
+        mapped.putInt(0, 42);
+        assertEquals(0, ring.unmap());
+        assertEquals(42, ((ByteBuffer) gl.lastSubData).getInt(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void mappingTwiceThrows() {
+        StreamingBufferRing ring = ring(StreamingBufferRing.Mode.MAPPED);
+        ring.map(4);
+        ring.map(4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writesBiggerThanTheRingThrow() {
+        ring(StreamingBufferRing.Mode.ORPHAN).write(ByteBuffer.allocateDirect(128), 128);
+    }
+}
@@ -0,0 +1,90 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class TextureAtlasTest {
+    private FakeGles gl;
+    private TextureAtlas atlas;
+    private final ByteBuffer tile = ByteBuffer.allocateDirect(256 * 256 * 4);
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        atlas = new TextureAtlas(gl, 1024, 0, 2);
+    }
+
+    @Test
+    public void tilesShareAPageTexture() {
+        TextureAtlas.Region a = atlas.add("a", 256, 256, tile);
+        TextureAtlas.Region b = atlas.add("b", 256, 256, tile);
+
+        assertEquals(a.texture, b.texture);
+        assertEquals(1, atlas.getPageCount());
+        assertEquals(1, gl.count(FakeGles.Call.GEN_TEXTURES));
+        assertEquals(2, gl.count(FakeGles.Call.TEX_SUB_IMAGE_2D));
+    }
+
+    @Test
+    public void uvsCoverTheTile() {
+        atlas.add("a", 256, 256, tile);
+        TextureAtlas.Region b = atlas.add("b", 256, 128, tile);
+
+        assertEquals(0.25f, b.u0, 0f);
+        assertEquals(0f, b.v0, 0f);
+        assertEquals(0.5f, b.u1, 0f);
+        assertEquals(0.125f, b.v1, 0f);
+        assertSame(b, atlas.get("b"));
+    }
+
+    @Test
+    public void fullPageSpillsToANewOneUntilMaxPages() {
+        for (int i = 0; i < 16; i++) {
+            assertNotNull(atlas.add("a" + i, 256, 256, tile));
+        }
+        TextureAtlas.Region spilled = atlas.add("b", 256, 256, tile);
+        assertEquals(2, atlas.getPageCount());
+        assertEquals(atlas.getPageTexture(1), spilled.texture);
+
+        for (int i = 1; i < 16; i++) {
+            atlas.add("c" + i, 256, 256, tile);
+        }
+        assertNull(atlas.add("overflow", 256, 256, tile));
+    }
+
+    @Test
+    public void evictedSpaceIsReused() {
+        for (int i = 0; i < 16; i++) {
+            atlas.add("a" + i, 256, 256, tile);
+        }
+        assertTrue(atlas.remove("a5"));
+        TextureAtlas.Region replacement = atlas.add("b", 200, 200, tile);
+
+        assertEquals(atlas.getPageTexture(0), replacement.texture);
+        assertEquals(1, atlas.getPageCount());
+        assertFalse(atlas.remove("a5"));
+    }
+
+    @Test
+    public void addingAnExistingKeyReplacesIt() {
+        atlas.add("a", 256, 256, tile);
+        atlas.add("a", 128, 128, tile);
+
+        assertEquals(1, atlas.getTileCount());
+        assertEquals(128, atlas.get("a").getWidth());
+    }
+
+    @Test
+    public void releaseDeletesThePages() {
+        atlas.add("a", 256, 256, tile);
+        atlas.release();
+
+        assertEquals(1, gl.count(FakeGles.Call.DELETE_TEXTURES));
+        assertEquals(0, atlas.getPageCount());
+        assertNull(atlas.get("a"));
+    }
+}
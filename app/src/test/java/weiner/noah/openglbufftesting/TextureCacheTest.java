@@ -0,0 +1,177 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class TextureCacheTest {
+    //16x16 RGBA: 1 KB each
+    private static final int SIZE = 16;
+    private static final long BYTES = SIZE * SIZE * 4;
+
+    private FakeGles gl;
+    private TextureLoader loader;
+    private TextureCache cache;
+    private int decodes;
+
+    private final TextureSource source = new TextureSource() {
+        @Override
+        public TexturePixels decode() {
+            decodes++;
+            return new TexturePixels(SIZE, SIZE, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, ByteBuffer.allocateDirect((int) BYTES));
+        }
+    };
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        //decode right away on the calling thread
+        loader = new TextureLoader(gl, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        loader.init();
+        cache = new TextureCache(loader, 3 * BYTES);
+    }
+
+    private static TextureCache.Key key(String text) {
+        return new TextureCache.Key(0x7f070001, text, SIZE, SIZE, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE);
+    }
+
+    private void frame(TextureCache.Handle... used) {
+        loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET);
+        for (TextureCache.Handle handle : used) {
+            handle.getTextureId();
+        }
+        cache.endFrame();
+    }
+
+    @Test
+    public void sameKeySharesOneTexture() {
+        TextureCache.Handle a = cache.acquire(key("label"), source, GLES20.GL_NEAREST);
+        TextureCache.Handle b = cache.acquire(key("label"), source, GLES20.GL_NEAREST);
+        frame(a);
+
+        assertSame(a, b);
+        assertEquals(1, decodes);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(BYTES, cache.getResidentBytes());
+        assertEquals(a.getTextureId(), b.getTextureId());
+        assertNotEquals(loader.getPlaceholder(), a.getTextureId());
+    }
+
+    @Test
+    public void differentSizeOrFormatIsADifferentTexture() {
+        cache.acquire(key("label"), source, GLES20.GL_NEAREST);
+        cache.acquire(new TextureCache.Key(0x7f070001, "label", SIZE, SIZE, GLES20.GL_RGB, GLES20.GL_UNSIGNED_SHORT_5_6_5), source,
+                GLES20.GL_NEAREST);
+        cache.acquire(key("other"), source, GLES20.GL_NEAREST);
+
+        assertEquals(3, cache.getTextureCount());
+        assertEquals(BYTES + SIZE * SIZE * 2 + BYTES, cache.getResidentBytes());
+    }
+
+    @Test
+    public void leastRecentlyUsedGoesFirstOverBudget() {
+        TextureCache.Handle a = cache.acquire(key("a"), source, GLES20.GL_NEAREST);
+        TextureCache.Handle b = cache.acquire(key("b"), source, GLES20.GL_NEAREST);
+        TextureCache.Handle c = cache.acquire(key("c"), source, GLES20.GL_NEAREST);
+        frame(a, b, c);
+        frame(a, c);
+        frame(a, c);
+
+        //the fourth goes over; b hasn't been drawn for longest
+        TextureCache.Handle d = cache.acquire(key("d"), source, GLES20.GL_NEAREST);
+        gl.resetCounts();
+        frame(a, c, d);
+
+        assertFalse(b.isResident());
+        assertTrue(a.isResident() && c.isResident() && d.isResident());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3 * BYTES, cache.getResidentBytes());
+        assertEquals(1, gl.count(FakeGles.Call.DELETE_TEXTURES));
+    }
+
+    @Test
+    public void texturesUsedThisFrameAreNeverEvicted() {
+        cache.setBudget(BYTES);
+        TextureCache.Handle a = cache.acquire(key("a"), source, GLES20.GL_NEAREST);
+        TextureCache.Handle b = cache.acquire(key("b"), source, GLES20.GL_NEAREST);
+        frame(a, b);
+
+        assertTrue(a.isResident() && b.isResident());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void evictedTextureComesBackOnNextUse() {
+        cache.setBudget(BYTES);
+        TextureCache.Handle a = cache.acquire(key("a"), source, GLES20.GL_NEAREST);
+        TextureCache.Handle b = cache.acquire(key("b"), source, GLES20.GL_NEAREST);
+        //acquiring counts as a use, so b survives the frame it was acquired in
+        frame(a);
+        assertTrue(b.isResident());
+        frame(a);
+        assertFalse(b.isResident());
+
+        //placeholder the frame it's asked for again, the real thing once the loader has it back up
+        assertEquals(loader.getPlaceholder(), b.getTextureId());
+        assertEquals(1, cache.getReloads());
+        assertEquals(3, decodes);
+        frame(b);
+        assertTrue(b.isReady());
+        assertNotEquals(loader.getPlaceholder(), b.getTextureId());
+    }
+
+    @Test
+    public void unreferencedTexturesGoBeforeHeldOnesOfTheSameAge() {
+        TextureCache.Handle a = cache.acquire(key("a"), source, GLES20.GL_NEAREST);
+        TextureCache.Handle b = cache.acquire(key("b"), source, GLES20.GL_NEAREST);
+        TextureCache.Handle c = cache.acquire(key("c"), source, GLES20.GL_NEAREST);
+        cache.release(b);
+        frame(a, b, c);
+
+        TextureCache.Handle d = cache.acquire(key("d"), source, GLES20.GL_NEAREST);
+        frame(d);
+
+        //nobody holds b, so it's forgotten altogether
+        assertTrue(a.isResident());
+        assertFalse(b.isResident());
+        assertEquals(3, cache.getTextureCount());
+    }
+
+    @Test
+    public void lostTexturesAreReloadedAfterAContextLoss() {
+        TextureCache.Handle a = cache.acquire(key("a"), source, GLES20.GL_NEAREST);
+        frame(a);
+        assertTrue(a.isReady());
+
+        loader.invalidate();
+        loader.init();
+        assertEquals(loader.getPlaceholder(), a.getTextureId());
+        frame(a);
+        assertTrue(a.isReady());
+        assertEquals(2, decodes);
+        assertEquals(0, cache.getReloads());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releasingTooOftenThrows() {
+        TextureCache.Handle a = cache.acquire(key("a"), source, GLES20.GL_NEAREST);
+        cache.release(a);
+        cache.release(a);
+    }
+}
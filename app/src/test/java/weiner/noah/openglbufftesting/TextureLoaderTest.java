@@ -0,0 +1,240 @@
+package weiner.noah.openglbufftesting;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class TextureLoaderTest {
+    private FakeGles gl;
+    private TextureLoader loader;
+
+    //decodes run when a test says so, standing in for the worker pool
+    private final ArrayList<Runnable> decodes = new ArrayList<>();
+    private int workReady;
+
+    @Before
+    public void setUp() {
+        gl = new FakeGles();
+        loader = new TextureLoader(gl, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                decodes.add(command);
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                workReady++;
+            }
+        });
+        loader.init();
+    }
+
+    private void runDecodes() {
+        ArrayList<Runnable> queued = new ArrayList<>(decodes);
+        decodes.clear();
+        for (Runnable decode : queued) {
+            decode.run();
+        }
+    }
+
+    private static TextureSource rgba(final int width, final int height) {
+        return new TextureSource() {
+            @Override
+            public TexturePixels decode() {
+                return new TexturePixels(width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, ByteBuffer.allocateDirect(width * height * 4));
+            }
+        };
+    }
+
+    //completes every upload right away on the caller's thread, with a fence out of the same fake
+    private final class FencingUploader implements TextureLoader.Uploader {
+        int released;
+
+        @Override
+        public void upload(TextureLoader.Upload upload) {
+            int[] name = new int[1];
+            TextureLoader.createTexture(gl, name, upload.getFilter());
+            upload.complete(name[0], gl.glFenceSync(GLES30.GL_SYNC_GPU_COMMANDS_COMPLETE, 0));
+        }
+
+        @Override
+        public void release() {
+            released++;
+        }
+    }
+
+    @Test
+    public void drawsThePlaceholderUntilUploaded() {
+        AsyncTexture texture = loader.load(rgba(16, 16), GLES20.GL_NEAREST);
+        assertEquals(AsyncTexture.State.PENDING, texture.getState());
+        assertEquals(loader.getPlaceholder(), texture.getTextureId());
+        assertFalse(loader.hasPendingUploads());
+
+        runDecodes();
+        assertEquals(AsyncTexture.State.DECODED, texture.getState());
+        assertEquals(1, workReady);
+        assertTrue(loader.hasPendingUploads());
+        assertEquals(loader.getPlaceholder(), texture.getTextureId());
+
+        assertEquals(1, loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET));
+        assertTrue(texture.isReady());
+        assertNotEquals(loader.getPlaceholder(), texture.getTextureId());
+        assertEquals(16, texture.getWidth());
+        assertFalse(loader.hasPendingUploads());
+    }
+
+    @Test
+    public void smallTextureGoesUpInOneCall() {
+        loader.load(rgba(16, 16), GLES20.GL_NEAREST);
+        runDecodes();
+        gl.resetCounts();
+
+        loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET);
+        assertEquals(1, gl.count(FakeGles.Call.TEX_IMAGE_2D));
+        assertEquals(0, gl.count(FakeGles.Call.TEX_SUB_IMAGE_2D));
+        assertEquals(16 * 16 * 4, loader.getBytesUploaded());
+    }
+
+    @Test
+    public void bigTextureIsSlicedByTheBudget() {
+        //64 rows of 256 bytes, 16 rows a frame
+        AsyncTexture texture = loader.load(rgba(64, 64), GLES20.GL_NEAREST);
+        runDecodes();
+        gl.resetCounts();
+
+        for (int frame = 0; frame < 3; frame++) {
+            assertEquals(0, loader.update(4096));
+            assertEquals(4096, loader.getLastFrameBytes());
+            assertEquals(loader.getPlaceholder(), texture.getTextureId());
+        }
+        assertEquals(1, loader.update(4096));
+        assertTrue(texture.isReady());
+
+        //allocated once without data, then filled a band at a time
+        assertEquals(1, gl.count(FakeGles.Call.TEX_IMAGE_2D));
+        assertEquals(4, gl.count(FakeGles.Call.TEX_SUB_IMAGE_2D));
+        assertEquals(64 * 64 * 4, loader.getBytesUploaded());
+    }
+
+    @Test
+    public void atLeastOneRowAFrameWhateverTheBudget() {
+        AsyncTexture texture = loader.load(rgba(64, 4), GLES20.GL_NEAREST);
+        runDecodes();
+
+        for (int frame = 0; frame < 3; frame++) {
+            assertEquals(0, loader.update(0));
+            assertEquals(256, loader.getLastFrameBytes());
+        }
+        assertEquals(1, loader.update(0));
+        assertTrue(texture.isReady());
+    }
+
+    @Test
+    public void failedDecodeStaysOnThePlaceholder() {
+        AsyncTexture texture = loader.load(new TextureSource() {
+            @Override
+            public TexturePixels decode() {
+                throw new IllegalStateException("no such resource");
+            }
+        }, GLES20.GL_NEAREST);
+        runDecodes();
+
+        assertEquals(AsyncTexture.State.FAILED, texture.getState());
+        assertEquals("no such resource", texture.getError().getMessage());
+        assertEquals(loader.getPlaceholder(), texture.getTextureId());
+        assertEquals(1, loader.getFailures());
+        assertFalse(loader.hasPendingUploads());
+        assertEquals(0, loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET));
+    }
+
+    @Test
+    public void uploaderTexturesWaitForTheirFence() {
+        loader.setUploader(new FencingUploader());
+        AsyncTexture texture = loader.load(rgba(64, 64), GLES20.GL_LINEAR);
+        gl.fencesSignaled = false;
+        runDecodes();
+        gl.resetCounts();
+
+        //nothing uploaded on this thread, and not ready while the fence hasn't signaled
+        assertEquals(0, loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET));
+        assertEquals(0, loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET));
+        assertEquals(loader.getPlaceholder(), texture.getTextureId());
+        assertTrue(loader.hasPendingUploads());
+        assertEquals(0, gl.count(FakeGles.Call.TEX_SUB_IMAGE_2D));
+        assertEquals(2, gl.count(FakeGles.Call.CLIENT_WAIT_SYNC));
+
+        gl.fencesSignaled = true;
+        assertEquals(1, loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET));
+        assertTrue(texture.isReady());
+        assertEquals(0, gl.liveFences);
+        assertFalse(loader.hasPendingUploads());
+    }
+
+    @Test
+    public void uploaderCanHandBackToTheGlThread() {
+        loader.setUploader(new TextureLoader.Uploader() {
+            @Override
+            public void upload(TextureLoader.Upload upload) {
+                upload.fallBack();
+            }
+
+            @Override
+            public void release() {
+            }
+        });
+        AsyncTexture texture = loader.load(rgba(16, 16), GLES20.GL_NEAREST);
+        runDecodes();
+
+        assertEquals(1, loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET));
+        assertTrue(texture.isReady());
+    }
+
+    @Test
+    public void contextLossReloadsEverything() {
+        FencingUploader uploader = new FencingUploader();
+        loader.setUploader(uploader);
+        AsyncTexture texture = loader.load(rgba(16, 16), GLES20.GL_NEAREST);
+        runDecodes();
+        loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET);
+        assertTrue(texture.isReady());
+
+        //the old uploader goes with the old context; the texture decodes again and comes up time-sliced without one
+        loader.invalidate();
+        assertEquals(1, uploader.released);
+        assertEquals(AsyncTexture.State.PENDING, texture.getState());
+        loader.init();
+        assertEquals(loader.getPlaceholder(), texture.getTextureId());
+
+        runDecodes();
+        assertEquals(1, loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET));
+        assertTrue(texture.isReady());
+        assertEquals(2, loader.getTexturesLoaded());
+    }
+
+    @Test
+    public void uploadsFromBeforeAContextLossAreDropped() {
+        AsyncTexture texture = loader.load(rgba(16, 16), GLES20.GL_NEAREST);
+        runDecodes();
+        loader.invalidate();
+        loader.init();
+
+        //the decode from before the loss was queued but never uploaded; only the new one counts
+        assertEquals(0, loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET));
+        runDecodes();
+        assertEquals(1, loader.update(TextureLoader.DEFAULT_UPLOAD_BUDGET));
+        assertTrue(texture.isReady());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unalignedRowsAreRejected() {
+        new TexturePixels(3, 3, GLES20.GL_RGB, GLES20.GL_UNSIGNED_BYTE, ByteBuffer.allocateDirect(27));
+    }
+}
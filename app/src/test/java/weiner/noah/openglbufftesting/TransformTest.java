@@ -0,0 +1,99 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TransformTest {
+    private static final float EPSILON = 1e-5f;
+
+    @Test
+    public void localMatrixIsTranslateRotateScale() {
+        Transform t = new Transform();
+        t.setPosition(1f, 2f, 3f);
+        t.setRotation(30f, 0f, 1f, 0f);
+        t.setScale(2f, 3f, 4f);
+
+        float[] expected = new float[16], rotation = new float[16], temp = new float[16];
+        Mat4.setIdentity(expected, 0);
+        Mat4.translate(expected, 0, 1f, 2f, 3f);
+        Mat4.setRotate(rotation, 0, 30f, 0f, 1f, 0f);
+        Mat4.multiply(temp, 0, expected, 0, rotation, 0);
+        float[] scale = new float[16];
+        Mat4.setIdentity(scale, 0);
+        scale[0] = 2f;
+        scale[5] = 3f;
+        scale[10] = 4f;
+        Mat4.multiply(expected, 0, temp, 0, scale, 0);
+
+        assertArrayEquals(expected, t.getLocalMatrix(), EPSILON);
+        assertArrayEquals(expected, t.getWorldMatrix(), EPSILON);
+    }
+
+    @Test
+    public void unchangedInputsDontRebuild() {
+        Transform t = new Transform();
+        t.setPosition(1f, 0f, 0f);
+        int version = t.getVersion();
+
+        t.setPosition(1f, 0f, 0f);
+        t.setRotation(0f, 0f, 0f, 1f);
+        t.setScale(1f, 1f, 1f);
+        assertEquals(version, t.getVersion());
+
+        t.setPosition(2f, 0f, 0f);
+        assertEquals(version + 1, t.getVersion());
+        assertEquals(2f, t.getWorldMatrix()[12], 0f);
+    }
+
+    @Test
+    public void childFollowsParent() {
+        Transform parent = new Transform();
+        Transform child = new Transform();
+        child.setParent(parent);
+        child.setPosition(1f, 0f, 0f);
+        assertEquals(1f, child.getWorldMatrix()[12], EPSILON);
+        int childVersion = child.getVersion();
+
+        //asking again without changes keeps the cached matrix
+        child.getWorldMatrix();
+        assertEquals(childVersion, child.getVersion());
+
+        //moving or turning the parent moves the child along with it
+        parent.setPosition(0f, 5f, 0f);
+        parent.setRotation(90f, 0f, 0f, 1f);
+        float[] world = child.getWorldMatrix();
+        assertEquals(0f, world[12], EPSILON);
+        assertEquals(6f, world[13], EPSILON);
+        assertTrue(child.getVersion() > childVersion);
+
+        //and unparenting puts it back where its local matrix says
+        child.setParent(null);
+        assertEquals(1f, child.getWorldMatrix()[12], EPSILON);
+        assertEquals(0f, child.getWorldMatrix()[13], EPSILON);
+    }
+
+    @Test
+    public void localVersionOnlyFollowsTheLocalMatrix() {
+        Transform parent = new Transform();
+        Transform child = new Transform();
+        child.setParent(parent);
+        child.setPosition(1f, 0f, 0f);
+        int localVersion = child.getLocalVersion();
+
+        parent.setPosition(0f, 5f, 0f);
+        assertEquals(localVersion, child.getLocalVersion());
+
+        child.setScale(2f, 2f, 2f);
+        assertEquals(localVersion + 1, child.getLocalVersion());
+        assertEquals(2f, child.getLocalMatrix()[0], 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cyclesAreRejected() {
+        Transform a = new Transform();
+        Transform b = new Transform();
+        b.setParent(a);
+        a.setParent(b);
+    }
+}
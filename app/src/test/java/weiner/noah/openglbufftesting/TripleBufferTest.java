@@ -0,0 +1,107 @@
+package weiner.noah.openglbufftesting;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TripleBufferTest {
+    private static TripleBuffer<long[]> buffer(int size) {
+        return new TripleBuffer<>(new long[size], new long[size], new long[size]);
+    }
+
+    @Test
+    public void readerGetsTheLatestPublishedValue() {
+        TripleBuffer<long[]> buffer = buffer(1);
+        assertFalse(buffer.update());
+
+        for (long i = 1; i <= 3; i++) {
+            buffer.getWriteBuffer()[0] = i;
+            buffer.publish();
+        }
+        assertTrue(buffer.update());
+        assertEquals(3, buffer.getReadBuffer()[0]);
+
+        //nothing new: the reader keeps what it has
+        assertFalse(buffer.update());
+        assertEquals(3, buffer.getReadBuffer()[0]);
+    }
+
+    @Test
+    public void theThreeBuffersAreNeverShared() {
+        TripleBuffer<long[]> buffer = buffer(1);
+        for (int i = 0; i < 100; i++) {
+            long[] write = buffer.getWriteBuffer();
+            assertNotSame(write, buffer.getReadBuffer());
+            if (i % 3 == 0) {
+                buffer.update();
+                assertNotSame(write, buffer.getReadBuffer());
+            }
+            buffer.publish();
+        }
+    }
+
+    //a writer and a reader hammering one buffer from two threads: every value the reader sees must be complete (all slots from the same
+    //publish) and newer than the last one it saw
+    @Test(timeout = 60000)
+    public void concurrentHandoffIsNeverTornOrOutOfOrder() throws InterruptedException {
+        final int publishes = 2_000_000;
+        final int slots = 16;
+        final TripleBuffer<long[]> buffer = buffer(slots);
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (long value = 1; value <= publishes; value++) {
+                    long[] out = buffer.getWriteBuffer();
+                    for (int i = 0; i < slots; i++) {
+                        out[i] = value;
+                    }
+                    buffer.publish();
+                }
+            }
+        });
+
+        final long[] seen = new long[2];
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long last = 0;
+                long updates = 0;
+                while (last < publishes && failure.get() == null) {
+                    if (!buffer.update()) {
+                        continue;
+                    }
+                    updates++;
+                    long[] in = buffer.getReadBuffer();
+                    long value = in[0];
+                    for (int i = 1; i < slots; i++) {
+                        if (in[i] != value) {
+                            failure.set(String.format("torn read: slot 0 is %d, slot %d is %d", value, i, in[i]));
+                            return;
+                        }
+                    }
+                    if (value <= last) {
+                        failure.set(String.format("went from %d back to %d", last, value));
+                        return;
+                    }
+                    last = value;
+                }
+                seen[0] = last;
+                seen[1] = updates;
+            }
+        });
+
+        reader.start();
+        writer.start();
+        writer.join();
+        reader.join();
+
+        assertNull(failure.get(), failure.get());
+        //the reader always ends up with the very last value
+        assertEquals(publishes, seen[0]);
+        assertTrue(seen[1] > 0);
+    }
+}